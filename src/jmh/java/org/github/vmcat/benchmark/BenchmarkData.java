@@ -0,0 +1,124 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.benchmark;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.github.vmcat.util.VmLogGenerator;
+import org.github.vmcat.util.jdk.Safepoint;
+
+/**
+ * <p>
+ * Synthetic vm log lines for the benchmarks. The same seed gives the same lines, so runs are comparable.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public final class BenchmarkData {
+
+    /**
+     * Safepoint header (JDK8).
+     */
+    public static final String HEADER = "         vmop                    [threads: total initially_running "
+            + "wait_to_block]    [time: spin block sync cleanup vmop] page_trap_count";
+
+    /**
+     * Random seed.
+     */
+    private static final long SEED = 1;
+
+    /**
+     * Safepoint triggers, weighted by how often they are repeated (e.g. biased locking revocation is common).
+     */
+    private static final String[] TRIGGERS = { Safepoint.G1_INC_COLLECTION_PAUSE, Safepoint.G1_INC_COLLECTION_PAUSE,
+            Safepoint.REVOKE_BIAS, Safepoint.REVOKE_BIAS, Safepoint.REVOKE_BIAS, Safepoint.BULK_REVOKE_BIAS,
+            Safepoint.DEOPTIMIZE, Safepoint.NO_VM_OPERATION, Safepoint.FIND_DEADLOCKS,
+            Safepoint.GET_ALL_STACK_TRACES };
+
+    /**
+     * Make default constructor private so the class cannot be instantiated.
+     */
+    private BenchmarkData() {
+
+    }
+
+    /**
+     * @param count
+     *            The number of safepoints.
+     * @return Safepoint log lines (JDK8) in timestamp order.
+     */
+    public static List<String> getSafepointLines(int count) {
+        Random random = new Random(SEED);
+        List<String> logLines = new ArrayList<String>(count);
+        long timestamp = 0;
+        for (int i = 0; i < count; i++) {
+            timestamp += random.nextInt(1000);
+            // Mostly short pauses, with a long tail
+            int vmop = random.nextInt(50) == 0 ? random.nextInt(500) : random.nextInt(5);
+            int sync = random.nextInt(20) == 0 ? random.nextInt(100) : random.nextInt(2);
+            logLines.add(getSafepointLine(timestamp, TRIGGERS[random.nextInt(TRIGGERS.length)], sync, vmop));
+        }
+        return logLines;
+    }
+
+    /**
+     * @param count
+     *            The number of safepoints.
+     * @return A complete vm log (one JVM run) from the <code>VmLogGenerator</code> with the default trigger mix.
+     */
+    public static List<String> getVmLog(int count) {
+        VmLogGenerator generator = new VmLogGenerator();
+        generator.setSeed(SEED);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<String> logLines = new ArrayList<String>(count * 2 + 64);
+        try {
+            generator.write(out, 0, count);
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new ByteArrayInputStream(out.toByteArray()), StandardCharsets.US_ASCII));
+            String logLine;
+            while ((logLine = reader.readLine()) != null) {
+                logLines.add(logLine);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error generating vm log.");
+        }
+        return logLines;
+    }
+
+    /**
+     * @param timestamp
+     *            The safepoint timestamp (milliseconds after JVM startup).
+     * @param trigger
+     *            The trigger literal.
+     * @param sync
+     *            The time to safepoint (milliseconds).
+     * @param vmop
+     *            The vm operation time (milliseconds).
+     * @return The safepoint log line (JDK8).
+     */
+    public static String getSafepointLine(long timestamp, String trigger, int sync, int vmop) {
+        return String.format("%d.%03d: %-33s[%8d%11d%15d    ]      [%6d%6d%6d%6d%6d    ]  %d", timestamp / 1000,
+                timestamp % 1000, trigger, 250, 0, 0, 0, sync, sync, 0, vmop, 0);
+    }
+}
@@ -0,0 +1,81 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.benchmark;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.github.vmcat.util.jdk.JdkUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Convert the timestamps of a bottleneck line to datestamps
+ * (<code>JdkUtil.convertLogEntryTimestampsToDateStamp</code>), done for every bottleneck line when the JVM start time
+ * is known.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DateStampBenchmark {
+
+    /**
+     * The number of lines cycled (a power of 2).
+     */
+    private static final int LINES = 1024;
+
+    /**
+     * The JVM start date.
+     */
+    private Date startDate;
+
+    /**
+     * The safepoint log lines.
+     */
+    private String[] logLines;
+
+    /**
+     * The index of the last log line.
+     */
+    private int index;
+
+    @Setup
+    public void setup() {
+        startDate = new Date(1598979577623L);
+        logLines = BenchmarkData.getSafepointLines(LINES).toArray(new String[LINES]);
+    }
+
+    @Benchmark
+    public String convertLogEntryTimestampsToDateStamp() {
+        index = (index + 1) & (LINES - 1);
+        return JdkUtil.convertLogEntryTimestampsToDateStamp(logLines[index], startDate);
+    }
+}
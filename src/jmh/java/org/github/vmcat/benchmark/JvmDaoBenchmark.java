@@ -0,0 +1,133 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.benchmark;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.github.vmcat.domain.jdk.SafepointEvent;
+import org.github.vmcat.domain.jdk.SafepointEventSummary;
+import org.github.vmcat.domain.jdk.TimeToSafepointSummary;
+import org.github.vmcat.hsql.JvmDao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * <code>JvmDao</code> insert (reorder buffer, streaming aggregates and batched database insert) and query paths.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JvmDaoBenchmark {
+
+    /**
+     * The number of safepoints.
+     */
+    @Param({ "10000", "100000" })
+    public int safepoints;
+
+    /**
+     * The safepoint events.
+     */
+    private List<SafepointEvent> events;
+
+    /**
+     * The JVM data access object with the safepoint events stored, for the queries.
+     */
+    private JvmDao jvmDao;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<String> logLines = BenchmarkData.getSafepointLines(safepoints);
+        events = new ArrayList<SafepointEvent>(logLines.size());
+        for (int i = 0; i < logLines.size(); i++) {
+            events.add(new SafepointEvent(logLines.get(i)));
+        }
+        jvmDao = insert(events);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jvmDao.close();
+    }
+
+    /**
+     * @param events
+     *            The safepoint events.
+     * @return The JVM data access object with the safepoint events stored.
+     */
+    private static JvmDao insert(List<SafepointEvent> events) {
+        JvmDao jvmDao = new JvmDao();
+        for (int i = 0; i < events.size(); i++) {
+            jvmDao.addSafepointEvent(events.get(i));
+        }
+        jvmDao.flushSafepointEvents();
+        return jvmDao;
+    }
+
+    @Benchmark
+    public int insert() {
+        JvmDao jvmDao = insert(events);
+        int count = jvmDao.getSafepointEventCount();
+        jvmDao.close();
+        return count;
+    }
+
+    @Benchmark
+    public List<SafepointEventSummary> getSafepointEventSummaries() {
+        return jvmDao.getSafepointEventSummaries();
+    }
+
+    @Benchmark
+    public List<TimeToSafepointSummary> getTimeToSafepointSummaries() {
+        return jvmDao.getTimeToSafepointSummaries();
+    }
+
+    @Benchmark
+    public long getSafepointTotalPause() {
+        return jvmDao.getSafepointTotalPause();
+    }
+
+    @Benchmark
+    public long getSafepointEventIterator() {
+        long duration = 0;
+        Iterator<SafepointEvent> iterator = jvmDao.getSafepointEventIterator();
+        while (iterator.hasNext()) {
+            duration = duration + iterator.next().getDuration();
+        }
+        return duration;
+    }
+}
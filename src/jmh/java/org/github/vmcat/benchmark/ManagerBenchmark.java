@@ -0,0 +1,107 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.github.vmcat.domain.Jvm;
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.service.Manager;
+import org.github.vmcat.util.Constants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * End to end ingest (<code>Manager.store</code> of each line of a vm log) and aggregation
+ * (<code>Manager.getJvmRun</code>: bottlenecks, summaries and analysis).
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ManagerBenchmark {
+
+    /**
+     * The number of safepoints.
+     */
+    @Param({ "10000", "100000" })
+    public int safepoints;
+
+    /**
+     * The vm log lines.
+     */
+    private List<String> logLines;
+
+    /**
+     * The manager with the vm log stored, for the aggregation.
+     */
+    private Manager manager;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        logLines = BenchmarkData.getVmLog(safepoints);
+        manager = store(logLines);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        manager.close();
+    }
+
+    /**
+     * @param logLines
+     *            The vm log lines.
+     * @return The manager with the vm log stored.
+     */
+    private static Manager store(List<String> logLines) {
+        Manager manager = new Manager();
+        for (int i = 0; i < logLines.size(); i++) {
+            manager.store(logLines.get(i));
+        }
+        manager.flush();
+        return manager;
+    }
+
+    @Benchmark
+    public Manager store() {
+        Manager manager = store(logLines);
+        manager.close();
+        return manager;
+    }
+
+    @Benchmark
+    public JvmRun getJvmRun() {
+        return manager.getJvmRun(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+    }
+}
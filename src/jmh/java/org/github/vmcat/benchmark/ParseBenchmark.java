@@ -0,0 +1,108 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.github.vmcat.domain.LogEvent;
+import org.github.vmcat.util.jdk.JdkUtil;
+import org.github.vmcat.util.jdk.JdkUtil.LogEventType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Classify and parse one log line: <code>JdkUtil.identifyEventType</code> and <code>JdkUtil.parseLogLine</code>. The
+ * lines are cycled so the branch predictor does not see one line.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseBenchmark {
+
+    /**
+     * The number of lines cycled (a power of 2).
+     */
+    private static final int LINES = 1024;
+
+    /**
+     * The kind of log line: a safepoint, the safepoint header, a tag, or a line no event matches (the worst case, every
+     * event is tried).
+     */
+    @Param({ "safepoint", "header", "tag", "unknown" })
+    public String lineType;
+
+    /**
+     * The log lines.
+     */
+    private String[] logLines;
+
+    /**
+     * The index of the last log line.
+     */
+    private int index;
+
+    @Setup
+    public void setup() {
+        logLines = new String[LINES];
+        List<String> safepointLines = BenchmarkData.getSafepointLines(LINES);
+        for (int i = 0; i < LINES; i++) {
+            if (lineType.equals("safepoint")) {
+                logLines[i] = safepointLines.get(i);
+            } else if (lineType.equals("header")) {
+                logLines[i] = BenchmarkData.HEADER;
+            } else if (lineType.equals("tag")) {
+                logLines[i] = "<destroy_vm stamp='" + i + ".000'/>";
+            } else {
+                logLines[i] = "[" + i + "] Unknown line " + safepointLines.get(i);
+            }
+        }
+    }
+
+    /**
+     * @return The next log line.
+     */
+    private String next() {
+        index = (index + 1) & (LINES - 1);
+        return logLines[index];
+    }
+
+    @Benchmark
+    public LogEventType identifyEventType() {
+        return JdkUtil.identifyEventType(next());
+    }
+
+    @Benchmark
+    public LogEvent parseLogLine() {
+        return JdkUtil.parseLogLine(next());
+    }
+}
@@ -0,0 +1,141 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.benchmark;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.github.vmcat.domain.Jvm;
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.service.CsvReport;
+import org.github.vmcat.service.HtmlReport;
+import org.github.vmcat.service.JsonReport;
+import org.github.vmcat.service.Manager;
+import org.github.vmcat.service.TextReport;
+import org.github.vmcat.util.Constants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Report rendering for each <code>--format</code>, the writers <code>Main.createReport</code> dispatches to. The
+ * report is written to a writer that only counts characters, so file system time is not measured.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ReportBenchmark {
+
+    /**
+     * The report format.
+     */
+    @Param({ Constants.FORMAT_TEXT, Constants.FORMAT_JSON, Constants.FORMAT_CSV, Constants.FORMAT_HTML })
+    public String format;
+
+    /**
+     * The number of safepoints.
+     */
+    @Param({ "100000" })
+    public int safepoints;
+
+    /**
+     * The JVM runs reported.
+     */
+    private List<JvmRun> jvmRuns;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Manager manager = new Manager();
+        List<String> logLines = BenchmarkData.getVmLog(safepoints);
+        for (int i = 0; i < logLines.size(); i++) {
+            manager.store(logLines.get(i));
+        }
+        manager.flush();
+        jvmRuns = new ArrayList<JvmRun>();
+        jvmRuns.add(manager.getJvmRun(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD));
+        manager.close();
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        CountingWriter writer = new CountingWriter();
+        if (format.equals(Constants.FORMAT_JSON)) {
+            JsonReport.write(writer, jvmRuns, null);
+        } else if (format.equals(Constants.FORMAT_CSV)) {
+            CsvReport.write(writer, jvmRuns, null);
+        } else if (format.equals(Constants.FORMAT_HTML)) {
+            HtmlReport.write(writer, jvmRuns, null);
+        } else {
+            PrintWriter printWriter = new PrintWriter(writer);
+            TextReport.write(printWriter, jvmRuns, null, null);
+            printWriter.flush();
+        }
+        return writer.getCount();
+    }
+
+    /**
+     * Writer that counts the characters written and discards them.
+     */
+    static final class CountingWriter extends Writer {
+
+        /**
+         * The number of characters written.
+         */
+        private long count;
+
+        public long getCount() {
+            return count;
+        }
+
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        public void write(String str, int off, int len) {
+            count += len;
+        }
+
+        public void write(int c) {
+            count++;
+        }
+
+        public void flush() {
+        }
+
+        public void close() {
+        }
+    }
+}
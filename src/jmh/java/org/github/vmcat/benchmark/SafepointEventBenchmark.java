@@ -0,0 +1,72 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.github.vmcat.domain.jdk.SafepointEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * <code>SafepointEvent</code> construction (regular expression match and field parsing) from a safepoint line.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SafepointEventBenchmark {
+
+    /**
+     * The number of lines cycled (a power of 2).
+     */
+    private static final int LINES = 1024;
+
+    /**
+     * The safepoint log lines.
+     */
+    private String[] logLines;
+
+    /**
+     * The index of the last log line.
+     */
+    private int index;
+
+    @Setup
+    public void setup() {
+        logLines = BenchmarkData.getSafepointLines(LINES).toArray(new String[LINES]);
+    }
+
+    @Benchmark
+    public SafepointEvent newSafepointEvent() {
+        index = (index + 1) & (LINES - 1);
+        return new SafepointEvent(logLines[index]);
+    }
+}
@@ -0,0 +1,102 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.benchmark;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.github.vmcat.domain.Jvm;
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.service.TextReport;
+import org.github.vmcat.util.Constants;
+import org.github.vmcat.util.jdk.Analysis;
+import org.github.vmcat.util.jdk.JdkUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Text report rendering of a JVM run with a million throughput bottleneck lines, the case where the report is
+ * dominated by the bottleneck section. The lines are converted to datestamps in setup, as <code>Manager</code> does
+ * when the JVM start time is known, and the report is written to a writer that only counts characters.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Thread)
+public class TextReportBenchmark {
+
+    /**
+     * The number of bottleneck lines.
+     */
+    @Param({ "1000000" })
+    public int bottlenecks;
+
+    /**
+     * The JVM runs reported.
+     */
+    private List<JvmRun> jvmRuns;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2020, Calendar.JANUARY, 1, 0, 0, 0);
+        Jvm jvm = new Jvm();
+        jvm.setStartDate(calendar.getTime());
+        List<String> bottleneckLines = new ArrayList<String>(bottlenecks);
+        for (int i = 0; i < bottlenecks; i++) {
+            String logEntry = (i / 1000) + "." + (1000 + i % 1000 + "").substring(1)
+                    + ": RevokeBias                       [    2450          6            117    ]      "
+                    + "[     8    11    21    36     0    ]  6";
+            bottleneckLines.add(JdkUtil.convertLogEntryTimestampsToDateStamp(logEntry, jvm.getStartDate()));
+        }
+        JvmRun jvmRun = new JvmRun(jvm);
+        jvmRun.setThroughputThreshold(Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        jvmRun.setBottlenecks(bottleneckLines);
+        jvmRun.setAnalysis(new ArrayList<Analysis>());
+        jvmRun.setUnidentifiedLogLines(new ArrayList<String>());
+        jvmRuns = new ArrayList<JvmRun>();
+        jvmRuns.add(jvmRun);
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        ReportBenchmark.CountingWriter writer = new ReportBenchmark.CountingWriter();
+        PrintWriter printWriter = new PrintWriter(writer);
+        TextReport.write(printWriter, jvmRuns, null, null);
+        printWriter.flush();
+        return writer.getCount();
+    }
+}
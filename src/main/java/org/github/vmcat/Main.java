@@ -14,17 +14,28 @@
  *********************************************************************************************************************/
 package org.github.vmcat;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -42,15 +53,35 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.util.EntityUtils;
+import org.github.vmcat.domain.Fleet;
+import org.github.vmcat.domain.GateCheck;
 import org.github.vmcat.domain.Jvm;
 import org.github.vmcat.domain.JvmRun;
-import org.github.vmcat.domain.jdk.SafepointEventSummary;
+import org.github.vmcat.domain.JvmRunComparison;
+import org.github.vmcat.domain.MemoryBudget;
+import org.github.vmcat.domain.RegressionGate;
+import org.github.vmcat.service.Checkpoint;
+import org.github.vmcat.service.LogFileSet;
+import org.github.vmcat.service.BatchIndexReport;
+import org.github.vmcat.service.BatchResult;
+import org.github.vmcat.service.CompareReport;
+import org.github.vmcat.service.CsvReport;
+import org.github.vmcat.service.FleetReport;
+import org.github.vmcat.service.HtmlReport;
+import org.github.vmcat.service.JsonReport;
+import org.github.vmcat.service.LogFollower;
+import org.github.vmcat.service.LogSource;
+import org.github.vmcat.service.LogStream;
 import org.github.vmcat.service.Manager;
+import org.github.vmcat.service.MetricsReport;
+import org.github.vmcat.service.PartialResult;
+import org.github.vmcat.service.PhaseStats;
+import org.github.vmcat.service.Progress;
+import org.github.vmcat.service.QueryServer;
+import org.github.vmcat.service.TextReport;
 import org.github.vmcat.util.Constants;
+import org.github.vmcat.util.VmUtil;
 import org.github.vmcat.util.jdk.Analysis;
-import org.github.vmcat.util.jdk.JdkMath;
-import org.github.vmcat.util.jdk.JdkUtil;
-import org.github.vmcat.util.jdk.Safepoint;
 import org.json.JSONObject;
 
 /**
@@ -80,8 +111,87 @@ public class Main {
                 "latest version");
         options.addOption(Constants.OPTION_OUTPUT_SHORT, Constants.OPTION_OUTPUT_LONG, true,
                 "output file name (default " + Constants.OUTPUT_FILE_NAME + ")");
+        options.addOption(null, Constants.OPTION_FORMAT_LONG, true,
+                "report format: " + Constants.FORMAT_TEXT + " (default), " + Constants.FORMAT_JSON + ", "
+                        + Constants.FORMAT_CSV + " (run,section,item,field,value rows) or " + Constants.FORMAT_HTML
+                        + " (self-contained charts); times are milliseconds in " + Constants.FORMAT_JSON + " and "
+                        + Constants.FORMAT_CSV);
+        options.addOption(null, Constants.OPTION_METRICS_LONG, true,
+                "also write safepoint metrics in OpenMetrics text format to this file (e.g. vmcat.prom in the "
+                        + "node_exporter textfile directory), replaced atomically with each report");
+        options.addOption(null, Constants.OPTION_STATS_LONG, true,
+                "write wall time, CPU time and bytes allocated for each phase (read, classify, parse, store, "
+                        + "aggregate, bottlenecks, render), line counts by type and bytes read as JSON to this file "
+                        + "(and a stats section to the " + Constants.FORMAT_TEXT + " report)");
+        options.addOption(null, Constants.OPTION_PROGRESS_LONG, false,
+                "print bytes processed, lines per second, events stored and the estimated time remaining to stderr "
+                        + "about once a second while reading the vm logs");
         options.addOption(Constants.OPTION_THRESHOLD_SHORT, Constants.OPTION_THRESHOLD_LONG, true,
                 "threshold (0-100) for throughput bottleneck reporting");
+        options.addOption(Constants.OPTION_FOLLOW_SHORT, Constants.OPTION_FOLLOW_LONG, false,
+                "follow the vm log as it grows, regenerating the report and printing a summary line every interval");
+        options.addOption(Constants.OPTION_INTERVAL_SHORT, Constants.OPTION_INTERVAL_LONG, true,
+                "seconds between reports when following the vm log (default "
+                        + Constants.DEFAULT_FOLLOW_REPORT_INTERVAL + ")");
+        options.addOption(Constants.OPTION_BATCH_SHORT, Constants.OPTION_BATCH_LONG, false,
+                "analyze each file (or each file in a directory) separately and concurrently, writing a report for "
+                        + "each file and an index to the output directory (default "
+                        + Constants.BATCH_OUTPUT_DIR_NAME + ")");
+        options.addOption(Constants.OPTION_JOBS_SHORT, Constants.OPTION_JOBS_LONG, true,
+                "number of files analyzed concurrently in batch mode (default number of processors) or compare mode "
+                        + "(default 1), or query service request threads (default number of processors)");
+        options.addOption(Constants.OPTION_FLEET_SHORT, Constants.OPTION_FLEET_LONG, false,
+                "in batch mode, also write a fleet report (" + Constants.FLEET_REPORT_FILE_NAME
+                        + ") combining all JVM runs and comparing configurations (version and options)");
+        options.addOption(Constants.OPTION_PARTIAL_SHORT, Constants.OPTION_PARTIAL_LONG, true,
+                "in batch or merge mode, save the combined summaries to a partial result file for merging");
+        options.addOption(Constants.OPTION_MERGE_SHORT, Constants.OPTION_MERGE_LONG, false,
+                "merge partial result files into a fleet report");
+        options.addOption(Constants.OPTION_COMPARE_SHORT, Constants.OPTION_COMPARE_LONG, true,
+                "compare the files (candidate) to the baseline vm log file, directory or glob, reporting per-trigger "
+                        + "deltas and whether pause time differences are significant");
+        options.addOption(Constants.OPTION_SERVE_SHORT, Constants.OPTION_SERVE_LONG, true,
+                "answer report, summary, timeline and percentile queries for vm log paths or uploads over HTTP on "
+                        + "this local port, keeping parsed JVM runs cached");
+        options.addOption(null, Constants.OPTION_CACHE_SIZE_LONG, true,
+                "query service cache memory limit in megabytes (default " + Constants.DEFAULT_SERVE_CACHE_SIZE + ")");
+        options.addOption(null, Constants.OPTION_MAX_MEMORY_LONG, true,
+                "analysis memory budget in megabytes (at least " + Constants.MIN_MAX_MEMORY + "), shared by "
+                        + "concurrent jobs: safepoints are spilled to a temporary directory, and precision given up "
+                        + "to stay within the budget is reported");
+        options.addOption(null, Constants.OPTION_STREAM_LONG, true,
+                "read the vm log from this named pipe, or UNIX domain socket (" + LogStream.SOCKET_PREFIX
+                        + "PATH, Java 16 or later), regenerating the report and printing a summary line every "
+                        + "interval; lines are dropped and counted if parsing falls behind");
+        options.addOption(Constants.OPTION_CHECKPOINT_SHORT, Constants.OPTION_CHECKPOINT_LONG, true,
+                "checkpoint file to resume parsing from (only lines appended since the checkpoint are parsed) and "
+                        + "save the parse state to");
+        options.addOption(Constants.OPTION_REORDER_HORIZON_SHORT, Constants.OPTION_REORDER_HORIZON_LONG, true,
+                "milliseconds an event can be logged after a later event and be put back in order (default "
+                        + Constants.DEFAULT_REORDER_HORIZON + ")");
+        options.addOption(Constants.OPTION_STORM_RATE_SHORT, Constants.OPTION_STORM_RATE_LONG, true,
+                "safepoints per second for one trigger at or above which a safepoint storm is reported (default "
+                        + Constants.DEFAULT_STORM_RATE_THRESHOLD + ")");
+        options.addOption(Constants.OPTION_STORM_SHARE_SHORT, Constants.OPTION_STORM_SHARE_LONG, true,
+                "percent (0-100) of time in safepoint at or above which a safepoint storm is reported (default "
+                        + Constants.DEFAULT_STORM_TIME_SHARE_THRESHOLD + ")");
+        options.addOption(null, Constants.OPTION_GATE_THROUGHPUT_LONG, true,
+                "gate: fail (exit code " + Constants.EXIT_GATE_THROUGHPUT
+                        + ") if the throughput (percent) of any JVM run is below this");
+        options.addOption(null, Constants.OPTION_GATE_PAUSE_LONG, true,
+                "gate: fail (exit code " + Constants.EXIT_GATE_PAUSE
+                        + ") if any safepoint pause (milliseconds) is above this");
+        options.addOption(null, Constants.OPTION_GATE_P99_LONG, true,
+                "gate: fail (exit code " + Constants.EXIT_GATE_P99 + ") if the p99 pause (milliseconds) of any trigger "
+                        + "is above this; comma separated, TRIGGER=LIMIT for a single trigger (e.g. 50,RevokeBias=5)");
+        options.addOption(null, Constants.OPTION_GATE_STORM_LONG, true,
+                "gate: fail (exit code " + Constants.EXIT_GATE_STORM
+                        + ") if the percent of time in safepoint storms of any JVM run is above this");
+        options.addOption(null, Constants.OPTION_GATE_BOTTLENECK_LONG, true,
+                "gate: fail (exit code " + Constants.EXIT_GATE_BOTTLENECK + ") if the time (milliseconds) below the "
+                        + "throughput threshold of any JVM run is above this. With any gate, a JSON verdict is "
+                        + "printed, and the exit code is the sum of the failed gate codes ("
+                        + Constants.EXIT_GATE_NO_DATA + " if there are no safepoints)");
     }
 
     /**
@@ -103,38 +213,227 @@ public class Main {
         if (cmd != null) {
             if (cmd.hasOption(Constants.OPTION_HELP_LONG)) {
                 usage(options);
+            } else if (cmd.hasOption(Constants.OPTION_SERVE_LONG)) {
+                serve(cmd);
+            } else if (cmd.hasOption(Constants.OPTION_STREAM_LONG)) {
+                stream(cmd);
             } else {
 
-                String logFileName = (String) cmd.getArgList().get(cmd.getArgList().size() - 1);
-                File logFile = new File(logFileName);
+                List<File> logFiles = getLogFiles(cmd);
+                File logFile = logFiles.get(0);
 
-                Manager manager = new Manager();
-
-                // Store safepoint logging in data store.
-                manager.store(logFile);
-
-                // Create report
-                Jvm jvm = new Jvm();
                 // Determine report options
+                Jvm jvm = new Jvm();
                 int throughputThreshold = Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD;
                 if (cmd.hasOption(Constants.OPTION_THRESHOLD_LONG)) {
                     throughputThreshold = Integer.parseInt(cmd.getOptionValue(Constants.OPTION_THRESHOLD_SHORT));
                 }
-                JvmRun jvmRun = manager.getJvmRun(jvm, throughputThreshold);
                 String outputFileName;
                 if (cmd.hasOption(Constants.OPTION_OUTPUT_LONG)) {
                     outputFileName = cmd.getOptionValue(Constants.OPTION_OUTPUT_SHORT);
+                } else if (cmd.hasOption(Constants.OPTION_BATCH_LONG)) {
+                    outputFileName = Constants.BATCH_OUTPUT_DIR_NAME;
                 } else {
-                    outputFileName = Constants.OUTPUT_FILE_NAME;
+                    outputFileName = getReportFileName(cmd);
                 }
-
+                String format = getFormat(cmd);
                 boolean version = cmd.hasOption(Constants.OPTION_VERSION_LONG);
                 boolean latestVersion = cmd.hasOption(Constants.OPTION_LATEST_VERSION_LONG);
-                createReport(jvmRun, outputFileName, version, latestVersion);
+
+                File partialFile = null;
+                if (cmd.hasOption(Constants.OPTION_PARTIAL_LONG)) {
+                    partialFile = new File(cmd.getOptionValue(Constants.OPTION_PARTIAL_SHORT));
+                }
+                if (cmd.hasOption(Constants.OPTION_BATCH_LONG)) {
+                    int jobs = Runtime.getRuntime().availableProcessors();
+                    if (cmd.hasOption(Constants.OPTION_JOBS_LONG)) {
+                        jobs = Integer.parseInt(cmd.getOptionValue(Constants.OPTION_JOBS_SHORT));
+                    }
+                    batch(cmd, logFiles, new File(outputFileName), jobs, throughputThreshold, version, latestVersion,
+                            cmd.hasOption(Constants.OPTION_FLEET_LONG), partialFile);
+                    return;
+                }
+                if (cmd.hasOption(Constants.OPTION_MERGE_LONG)) {
+                    merge(logFiles, new File(outputFileName), partialFile);
+                    return;
+                }
+                if (cmd.hasOption(Constants.OPTION_COMPARE_LONG)) {
+                    int jobs = 1;
+                    if (cmd.hasOption(Constants.OPTION_JOBS_LONG)) {
+                        jobs = Integer.parseInt(cmd.getOptionValue(Constants.OPTION_JOBS_SHORT));
+                    }
+                    compare(cmd, LogFileSet.expand(cmd.getOptionValue(Constants.OPTION_COMPARE_SHORT)), logFiles,
+                            new File(outputFileName), jobs, throughputThreshold, version);
+                    return;
+                }
+
+                int exitCode = 0;
+                Manager manager = createManager(cmd, 1);
+                try {
+                    PhaseStats stats = null;
+                    if (cmd.hasOption(Constants.OPTION_STATS_LONG)) {
+                        stats = new PhaseStats();
+                        manager.setStats(stats);
+                    }
+                    if (cmd.hasOption(Constants.OPTION_FOLLOW_LONG)) {
+                        int interval = Constants.DEFAULT_FOLLOW_REPORT_INTERVAL;
+                        if (cmd.hasOption(Constants.OPTION_INTERVAL_LONG)) {
+                            interval = Integer.parseInt(cmd.getOptionValue(Constants.OPTION_INTERVAL_SHORT));
+                        }
+                        follow(manager, new LogFollower(logFile, manager), Constants.FOLLOW_POLL_INTERVAL, jvm,
+                                throughputThreshold, outputFileName, format, getMetricsFile(cmd), version,
+                                latestVersion, interval);
+                    } else {
+                        Progress progress = createProgress(cmd, logFiles);
+                        manager.setProgress(progress);
+                        // Store safepoint logging in data store.
+                        if (cmd.hasOption(Constants.OPTION_CHECKPOINT_LONG)) {
+                            File checkpointFile = new File(cmd.getOptionValue(Constants.OPTION_CHECKPOINT_SHORT));
+                            try {
+                                Checkpoint.store(manager, logFile, checkpointFile);
+                            } catch (IOException e) {
+                                e.printStackTrace();
+                            }
+                        } else if (logFiles.size() > 1) {
+                            try {
+                                new LogFileSet(logFiles, manager.getReorderHorizon()).store(manager);
+                            } catch (IOException e) {
+                                e.printStackTrace();
+                            }
+                        } else {
+                            manager.store(logFile);
+                        }
+                        if (progress != null) {
+                            progress.close();
+                        }
+
+                        // Create report
+                        List<JvmRun> jvmRuns = manager.getJvmRuns(jvm, throughputThreshold);
+                        if (stats != null) {
+                            stats.mark();
+                        }
+                        createReport(jvmRuns, outputFileName, format, version, latestVersion);
+                        if (getMetricsFile(cmd) != null) {
+                            saveMetrics(jvmRuns, getMetricsFile(cmd));
+                        }
+                        if (stats != null) {
+                            stats.lap(PhaseStats.Phase.RENDER);
+                            saveStats(stats, new File(cmd.getOptionValue(Constants.OPTION_STATS_LONG)),
+                                    format.equals(Constants.FORMAT_TEXT) ? new File(outputFileName) : null);
+                        }
+
+                        // Evaluate regression gates
+                        RegressionGate gate = createGate(cmd);
+                        if (gate.isEnabled()) {
+                            List<GateCheck> checks = gate.evaluate(jvmRuns);
+                            exitCode = gate.getExitCode(checks);
+                            System.out.println(RegressionGate.getVerdict(exitCode, checks));
+                        }
+                    }
+                } finally {
+                    // Delete data spilled to disk even if the analysis fails
+                    manager.close();
+                }
+                if (exitCode != 0) {
+                    System.exit(exitCode);
+                }
             }
         }
     }
 
+    /**
+     * @param cmd
+     *            The command line.
+     * @param jobs
+     *            The number of vm logs analyzed concurrently, sharing the memory budget.
+     * @return A <code>Manager</code> with the parse settings from the command line.
+     */
+    private static Manager createManager(CommandLine cmd, int jobs) {
+        Manager manager = new Manager();
+        int stormRateThreshold = Constants.DEFAULT_STORM_RATE_THRESHOLD;
+        if (cmd.hasOption(Constants.OPTION_STORM_RATE_LONG)) {
+            stormRateThreshold = Integer.parseInt(cmd.getOptionValue(Constants.OPTION_STORM_RATE_SHORT));
+        }
+        int stormTimeShareThreshold = Constants.DEFAULT_STORM_TIME_SHARE_THRESHOLD;
+        if (cmd.hasOption(Constants.OPTION_STORM_SHARE_LONG)) {
+            stormTimeShareThreshold = Integer.parseInt(cmd.getOptionValue(Constants.OPTION_STORM_SHARE_SHORT));
+        }
+        manager.setStormThresholds(stormRateThreshold, stormTimeShareThreshold);
+        if (cmd.hasOption(Constants.OPTION_REORDER_HORIZON_LONG)) {
+            manager.setReorderHorizon(Long.parseLong(cmd.getOptionValue(Constants.OPTION_REORDER_HORIZON_SHORT)));
+        }
+        if (cmd.hasOption(Constants.OPTION_MAX_MEMORY_LONG)) {
+            long maxMemory = Long.parseLong(cmd.getOptionValue(Constants.OPTION_MAX_MEMORY_LONG)) * 1024 * 1024;
+            manager.setMemoryBudget(new MemoryBudget(maxMemory).share(jobs));
+        }
+        return manager;
+    }
+
+    /**
+     * @param cmd
+     *            The command line.
+     * @param logFiles
+     *            The vm log files.
+     * @return Started progress reporting to stderr for the vm log files, or null if progress is not reported.
+     */
+    private static Progress createProgress(CommandLine cmd, List<File> logFiles) {
+        if (!cmd.hasOption(Constants.OPTION_PROGRESS_LONG)) {
+            return null;
+        }
+        long totalBytes = 0;
+        for (int i = 0; i < logFiles.size(); i++) {
+            totalBytes = totalBytes + logFiles.get(i).length();
+        }
+        Progress progress = new Progress(System.err, totalBytes);
+        progress.start();
+        return progress;
+    }
+
+    /**
+     * @param cmd
+     *            The command line.
+     * @return The regression gates from the command line.
+     */
+    private static RegressionGate createGate(CommandLine cmd) {
+        RegressionGate gate = new RegressionGate();
+        if (cmd.hasOption(Constants.OPTION_GATE_THROUGHPUT_LONG)) {
+            gate.setMinThroughput(Long.valueOf(cmd.getOptionValue(Constants.OPTION_GATE_THROUGHPUT_LONG)));
+        }
+        if (cmd.hasOption(Constants.OPTION_GATE_PAUSE_LONG)) {
+            gate.setMaxPause(Long.valueOf(cmd.getOptionValue(Constants.OPTION_GATE_PAUSE_LONG)));
+        }
+        if (cmd.hasOption(Constants.OPTION_GATE_P99_LONG)) {
+            gate.setMaxP99s(cmd.getOptionValue(Constants.OPTION_GATE_P99_LONG));
+        }
+        if (cmd.hasOption(Constants.OPTION_GATE_STORM_LONG)) {
+            gate.setMaxStormTime(Long.valueOf(cmd.getOptionValue(Constants.OPTION_GATE_STORM_LONG)));
+        }
+        if (cmd.hasOption(Constants.OPTION_GATE_BOTTLENECK_LONG)) {
+            gate.setMaxBottleneckTime(Long.valueOf(cmd.getOptionValue(Constants.OPTION_GATE_BOTTLENECK_LONG)));
+        }
+        return gate;
+    }
+
+    /**
+     * @param cmd
+     *            The command line.
+     * @return The vm log files, with glob patterns expanded, in command line order without duplicates.
+     */
+    private static List<File> getLogFiles(CommandLine cmd) {
+        List<File> logFiles = new ArrayList<File>();
+        Iterator<?> iterator = cmd.getArgList().iterator();
+        while (iterator.hasNext()) {
+            Iterator<File> files = LogFileSet.expand((String) iterator.next()).iterator();
+            while (files.hasNext()) {
+                File file = files.next();
+                if (!logFiles.contains(file)) {
+                    logFiles.add(file);
+                }
+            }
+        }
+        return logFiles;
+    }
+
     /**
      * Parse command line options.
      * 
@@ -178,7 +477,7 @@ public class Main {
     private static void usage(Options options) {
         // Use the built in formatter class
         HelpFormatter formatter = new HelpFormatter();
-        formatter.printHelp("vmcat [OPTION]... [FILE]", options);
+        formatter.printHelp("vmcat [OPTION]... [FILE]...", options);
     }
 
     /**
@@ -192,20 +491,125 @@ public class Main {
      */
     public static void validateOptions(CommandLine cmd) throws ParseException {
         // Ensure command line input.
-        if (cmd.getArgList().size() == 0) {
+        if (cmd.hasOption(Constants.OPTION_SERVE_LONG)) {
+            String portOptionValue = cmd.getOptionValue(Constants.OPTION_SERVE_SHORT);
+            Pattern pattern = Pattern.compile("^\\d{1,5}$");
+            Matcher matcher = pattern.matcher(portOptionValue);
+            if (!matcher.find() || Integer.parseInt(portOptionValue) > 65535) {
+                throw new ParseException("Invalid port: '" + portOptionValue + "'");
+            }
+            if (cmd.getArgList().size() > 0 || cmd.hasOption(Constants.OPTION_BATCH_LONG)
+                    || cmd.hasOption(Constants.OPTION_MERGE_LONG) || cmd.hasOption(Constants.OPTION_COMPARE_LONG)
+                    || cmd.hasOption(Constants.OPTION_FOLLOW_LONG) || cmd.hasOption(Constants.OPTION_CHECKPOINT_LONG)
+                    || createGate(cmd).isEnabled()) {
+                throw new ParseException("Serve cannot be used with files, batch, merge, compare, follow, checkpoint "
+                        + "or gates");
+            }
+        } else if (cmd.hasOption(Constants.OPTION_STREAM_LONG)) {
+            String streamOptionValue = cmd.getOptionValue(Constants.OPTION_STREAM_LONG);
+            File streamFile = new File(LogStream.isSocket(streamOptionValue)
+                    ? streamOptionValue.substring(LogStream.SOCKET_PREFIX.length())
+                    : streamOptionValue);
+            if (LogStream.isSocket(streamOptionValue)) {
+                if (streamFile.getPath().length() == 0 || streamFile.exists()) {
+                    throw new ParseException("Invalid socket (must not exist): '" + streamFile.getPath() + "'");
+                }
+            } else if (!streamFile.exists() || streamFile.isFile() || streamFile.isDirectory()) {
+                throw new ParseException("Invalid named pipe: '" + streamOptionValue + "'");
+            }
+            if (cmd.getArgList().size() > 0 || cmd.hasOption(Constants.OPTION_BATCH_LONG)
+                    || cmd.hasOption(Constants.OPTION_MERGE_LONG) || cmd.hasOption(Constants.OPTION_COMPARE_LONG)
+                    || cmd.hasOption(Constants.OPTION_FOLLOW_LONG) || cmd.hasOption(Constants.OPTION_CHECKPOINT_LONG)
+                    || createGate(cmd).isEnabled()) {
+                throw new ParseException("Stream cannot be used with files, batch, merge, compare, follow, "
+                        + "checkpoint or gates");
+            }
+        } else if (cmd.getArgList().size() == 0) {
             throw new ParseException("Missing input");
         } else {
             // Ensure file input.
-            String logFileName = (String) cmd.getArgList().get(cmd.getArgList().size() - 1);
-            if (logFileName == null) {
-                throw new ParseException("Missing file");
-            } else {
+            Iterator<?> iterator = cmd.getArgList().iterator();
+            while (iterator.hasNext()) {
+                String logFileName = (String) iterator.next();
+                if (logFileName == null) {
+                    throw new ParseException("Missing file");
+                }
                 // Ensure file exists.
-                File logFile = new File(logFileName);
-                if (!logFile.exists()) {
+                List<File> logFiles = LogFileSet.expand(logFileName);
+                if (logFiles.isEmpty() || (!LogFileSet.isGlob(logFileName) && !logFiles.get(0).exists())) {
                     throw new ParseException("Invalid file: '" + logFileName + "'");
                 }
             }
+            if (getLogFiles(cmd).size() > 1 && (cmd.hasOption(Constants.OPTION_FOLLOW_LONG)
+                    || cmd.hasOption(Constants.OPTION_CHECKPOINT_LONG))) {
+                throw new ParseException("Follow and checkpoint require a single file");
+            }
+        }
+        // report format
+        if (cmd.hasOption(Constants.OPTION_FORMAT_LONG)) {
+            String formatOptionValue = cmd.getOptionValue(Constants.OPTION_FORMAT_LONG);
+            if (!formatOptionValue.equals(Constants.FORMAT_TEXT) && !formatOptionValue.equals(Constants.FORMAT_JSON)
+                    && !formatOptionValue.equals(Constants.FORMAT_CSV)
+                    && !formatOptionValue.equals(Constants.FORMAT_HTML)) {
+                throw new ParseException("Invalid format: '" + formatOptionValue + "'");
+            }
+            if (cmd.hasOption(Constants.OPTION_MERGE_LONG) || cmd.hasOption(Constants.OPTION_COMPARE_LONG)
+                    || cmd.hasOption(Constants.OPTION_SERVE_LONG)) {
+                throw new ParseException("Format cannot be used with merge, compare or serve");
+            }
+        }
+        // metrics file
+        if (cmd.hasOption(Constants.OPTION_METRICS_LONG)) {
+            File metricsFile = new File(cmd.getOptionValue(Constants.OPTION_METRICS_LONG)).getAbsoluteFile();
+            if (metricsFile.isDirectory() || !metricsFile.getParentFile().isDirectory()) {
+                throw new ParseException("Invalid metrics file: '"
+                        + cmd.getOptionValue(Constants.OPTION_METRICS_LONG) + "'");
+            }
+            if (cmd.hasOption(Constants.OPTION_BATCH_LONG) || cmd.hasOption(Constants.OPTION_MERGE_LONG)
+                    || cmd.hasOption(Constants.OPTION_COMPARE_LONG) || cmd.hasOption(Constants.OPTION_SERVE_LONG)) {
+                throw new ParseException("Metrics cannot be used with batch, merge, compare or serve");
+            }
+        }
+        // stats file
+        if (cmd.hasOption(Constants.OPTION_STATS_LONG)) {
+            File statsFile = new File(cmd.getOptionValue(Constants.OPTION_STATS_LONG)).getAbsoluteFile();
+            if (statsFile.isDirectory() || !statsFile.getParentFile().isDirectory()) {
+                throw new ParseException("Invalid stats file: '" + cmd.getOptionValue(Constants.OPTION_STATS_LONG)
+                        + "'");
+            }
+            if (cmd.hasOption(Constants.OPTION_BATCH_LONG) || cmd.hasOption(Constants.OPTION_MERGE_LONG)
+                    || cmd.hasOption(Constants.OPTION_COMPARE_LONG) || cmd.hasOption(Constants.OPTION_SERVE_LONG)
+                    || cmd.hasOption(Constants.OPTION_STREAM_LONG) || cmd.hasOption(Constants.OPTION_FOLLOW_LONG)) {
+                throw new ParseException("Stats cannot be used with batch, merge, compare, serve, stream or follow");
+            }
+        }
+        // progress
+        if (cmd.hasOption(Constants.OPTION_PROGRESS_LONG) && (cmd.hasOption(Constants.OPTION_MERGE_LONG)
+                || cmd.hasOption(Constants.OPTION_SERVE_LONG) || cmd.hasOption(Constants.OPTION_STREAM_LONG)
+                || cmd.hasOption(Constants.OPTION_FOLLOW_LONG))) {
+            throw new ParseException("Progress cannot be used with merge, serve, stream or follow");
+        }
+        // memory budget
+        if (cmd.hasOption(Constants.OPTION_MAX_MEMORY_LONG)) {
+            String maxMemoryOptionValue = cmd.getOptionValue(Constants.OPTION_MAX_MEMORY_LONG);
+            Pattern pattern = Pattern.compile("^[1-9]\\d{0,6}$");
+            Matcher matcher = pattern.matcher(maxMemoryOptionValue);
+            if (!matcher.find() || Integer.parseInt(maxMemoryOptionValue) < Constants.MIN_MAX_MEMORY) {
+                throw new ParseException("Invalid max memory: '" + maxMemoryOptionValue + "'");
+            }
+            if (cmd.hasOption(Constants.OPTION_MERGE_LONG) || cmd.hasOption(Constants.OPTION_SERVE_LONG)
+                    || cmd.hasOption(Constants.OPTION_CHECKPOINT_LONG)) {
+                throw new ParseException("Max memory cannot be used with merge, serve or checkpoint");
+            }
+        }
+        // cache size
+        if (cmd.hasOption(Constants.OPTION_CACHE_SIZE_LONG)) {
+            String cacheSizeOptionValue = cmd.getOptionValue(Constants.OPTION_CACHE_SIZE_LONG);
+            Pattern pattern = Pattern.compile("^[1-9]\\d{0,5}$");
+            Matcher matcher = pattern.matcher(cacheSizeOptionValue);
+            if (!matcher.find()) {
+                throw new ParseException("Invalid cache size: '" + cacheSizeOptionValue + "'");
+            }
         }
         // threshold
         if (cmd.hasOption(Constants.OPTION_THRESHOLD_LONG)) {
@@ -217,6 +621,581 @@ public class Main {
                 throw new ParseException("Invalid threshold: '" + thresholdOptionValue + "'");
             }
         }
+        // follow interval
+        if (cmd.hasOption(Constants.OPTION_INTERVAL_LONG)) {
+            String intervalOptionValue = cmd.getOptionValue(Constants.OPTION_INTERVAL_SHORT);
+            Pattern pattern = Pattern.compile("^[1-9]\\d{0,5}$");
+            Matcher matcher = pattern.matcher(intervalOptionValue);
+            if (!matcher.find()) {
+                throw new ParseException("Invalid interval: '" + intervalOptionValue + "'");
+            }
+        }
+        // batch jobs
+        if (cmd.hasOption(Constants.OPTION_JOBS_LONG)) {
+            String jobsOptionValue = cmd.getOptionValue(Constants.OPTION_JOBS_SHORT);
+            Pattern pattern = Pattern.compile("^[1-9]\\d{0,3}$");
+            Matcher matcher = pattern.matcher(jobsOptionValue);
+            if (!matcher.find()) {
+                throw new ParseException("Invalid jobs: '" + jobsOptionValue + "'");
+            }
+        }
+        if (cmd.hasOption(Constants.OPTION_BATCH_LONG) && (cmd.hasOption(Constants.OPTION_FOLLOW_LONG)
+                || cmd.hasOption(Constants.OPTION_CHECKPOINT_LONG))) {
+            throw new ParseException("Batch cannot be used with follow or checkpoint");
+        }
+        if (cmd.hasOption(Constants.OPTION_FLEET_LONG) && !cmd.hasOption(Constants.OPTION_BATCH_LONG)) {
+            throw new ParseException("Fleet requires batch");
+        }
+        if (cmd.hasOption(Constants.OPTION_PARTIAL_LONG) && !cmd.hasOption(Constants.OPTION_BATCH_LONG)
+                && !cmd.hasOption(Constants.OPTION_MERGE_LONG)) {
+            throw new ParseException("Partial requires batch or merge");
+        }
+        if (cmd.hasOption(Constants.OPTION_MERGE_LONG) && (cmd.hasOption(Constants.OPTION_BATCH_LONG)
+                || cmd.hasOption(Constants.OPTION_FOLLOW_LONG) || cmd.hasOption(Constants.OPTION_CHECKPOINT_LONG))) {
+            throw new ParseException("Merge cannot be used with batch, follow or checkpoint");
+        }
+        // regression gates
+        String[] percentGates = { Constants.OPTION_GATE_THROUGHPUT_LONG, Constants.OPTION_GATE_STORM_LONG };
+        for (int i = 0; i < percentGates.length; i++) {
+            if (cmd.hasOption(percentGates[i])) {
+                String gateOptionValue = cmd.getOptionValue(percentGates[i]);
+                Pattern pattern = Pattern.compile("^(100|\\d{1,2})$");
+                Matcher matcher = pattern.matcher(gateOptionValue);
+                if (!matcher.find()) {
+                    throw new ParseException("Invalid " + percentGates[i] + ": '" + gateOptionValue + "'");
+                }
+            }
+        }
+        String[] millisGates = { Constants.OPTION_GATE_PAUSE_LONG, Constants.OPTION_GATE_BOTTLENECK_LONG };
+        for (int i = 0; i < millisGates.length; i++) {
+            if (cmd.hasOption(millisGates[i])) {
+                String gateOptionValue = cmd.getOptionValue(millisGates[i]);
+                Pattern pattern = Pattern.compile("^\\d{1,12}$");
+                Matcher matcher = pattern.matcher(gateOptionValue);
+                if (!matcher.find()) {
+                    throw new ParseException("Invalid " + millisGates[i] + ": '" + gateOptionValue + "'");
+                }
+            }
+        }
+        if (cmd.hasOption(Constants.OPTION_GATE_P99_LONG)) {
+            try {
+                new RegressionGate().setMaxP99s(cmd.getOptionValue(Constants.OPTION_GATE_P99_LONG));
+            } catch (IllegalArgumentException e) {
+                throw new ParseException("Invalid " + Constants.OPTION_GATE_P99_LONG + ": " + e.getMessage());
+            }
+        }
+        if (createGate(cmd).isEnabled() && (cmd.hasOption(Constants.OPTION_BATCH_LONG)
+                || cmd.hasOption(Constants.OPTION_MERGE_LONG) || cmd.hasOption(Constants.OPTION_COMPARE_LONG)
+                || cmd.hasOption(Constants.OPTION_FOLLOW_LONG))) {
+            throw new ParseException("Gates cannot be used with batch, merge, compare or follow");
+        }
+        // compare
+        if (cmd.hasOption(Constants.OPTION_COMPARE_LONG)) {
+            String baselineOptionValue = cmd.getOptionValue(Constants.OPTION_COMPARE_SHORT);
+            List<File> baselineFiles = LogFileSet.expand(baselineOptionValue);
+            if (baselineFiles.isEmpty()
+                    || (!LogFileSet.isGlob(baselineOptionValue) && !baselineFiles.get(0).exists())) {
+                throw new ParseException("Invalid baseline: '" + baselineOptionValue + "'");
+            }
+            if (cmd.hasOption(Constants.OPTION_BATCH_LONG) || cmd.hasOption(Constants.OPTION_MERGE_LONG)
+                    || cmd.hasOption(Constants.OPTION_FOLLOW_LONG) || cmd.hasOption(Constants.OPTION_CHECKPOINT_LONG)) {
+                throw new ParseException("Compare cannot be used with batch, merge, follow or checkpoint");
+            }
+        }
+        // checkpoint
+        if (cmd.hasOption(Constants.OPTION_CHECKPOINT_LONG) && cmd.hasOption(Constants.OPTION_FOLLOW_LONG)) {
+            throw new ParseException("Checkpoint cannot be used with follow");
+        }
+        // reorder horizon
+        if (cmd.hasOption(Constants.OPTION_REORDER_HORIZON_LONG)) {
+            String horizonOptionValue = cmd.getOptionValue(Constants.OPTION_REORDER_HORIZON_SHORT);
+            Pattern pattern = Pattern.compile("^\\d{1,9}$");
+            Matcher matcher = pattern.matcher(horizonOptionValue);
+            if (!matcher.find()) {
+                throw new ParseException("Invalid horizon: '" + horizonOptionValue + "'");
+            }
+        }
+        // storm rate
+        if (cmd.hasOption(Constants.OPTION_STORM_RATE_LONG)) {
+            String stormRateOptionValue = cmd.getOptionValue(Constants.OPTION_STORM_RATE_SHORT);
+            Pattern pattern = Pattern.compile("^[1-9]\\d{0,5}$");
+            Matcher matcher = pattern.matcher(stormRateOptionValue);
+            if (!matcher.find()) {
+                throw new ParseException("Invalid storm rate: '" + stormRateOptionValue + "'");
+            }
+        }
+        // storm time share
+        if (cmd.hasOption(Constants.OPTION_STORM_SHARE_LONG)) {
+            String stormShareOptionValue = cmd.getOptionValue(Constants.OPTION_STORM_SHARE_SHORT);
+            Pattern pattern = Pattern.compile("^\\d{1,3}$");
+            Matcher matcher = pattern.matcher(stormShareOptionValue);
+            if (!matcher.find() || Integer.parseInt(stormShareOptionValue) > 100) {
+                throw new ParseException("Invalid storm share: '" + stormShareOptionValue + "'");
+            }
+        }
+    }
+
+    /**
+     * Read a vm log streamed to a named pipe or UNIX domain socket, regenerating the report each interval. Runs until
+     * the process is stopped.
+     * 
+     * @param cmd
+     *            The command line.
+     */
+    private static void stream(CommandLine cmd) {
+        Jvm jvm = new Jvm();
+        int throughputThreshold = Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD;
+        if (cmd.hasOption(Constants.OPTION_THRESHOLD_LONG)) {
+            throughputThreshold = Integer.parseInt(cmd.getOptionValue(Constants.OPTION_THRESHOLD_SHORT));
+        }
+        String outputFileName = getReportFileName(cmd);
+        if (cmd.hasOption(Constants.OPTION_OUTPUT_LONG)) {
+            outputFileName = cmd.getOptionValue(Constants.OPTION_OUTPUT_SHORT);
+        }
+        int interval = Constants.DEFAULT_FOLLOW_REPORT_INTERVAL;
+        if (cmd.hasOption(Constants.OPTION_INTERVAL_LONG)) {
+            interval = Integer.parseInt(cmd.getOptionValue(Constants.OPTION_INTERVAL_SHORT));
+        }
+        Manager manager = createManager(cmd, 1);
+        LogStream stream = new LogStream(cmd.getOptionValue(Constants.OPTION_STREAM_LONG), manager,
+                Constants.STREAM_BUFFER_LINES);
+        try {
+            stream.open();
+            System.out.println("vmcat reading " + cmd.getOptionValue(Constants.OPTION_STREAM_LONG));
+            follow(manager, stream, Constants.STREAM_POLL_INTERVAL, jvm, throughputThreshold, outputFileName,
+                    getFormat(cmd), getMetricsFile(cmd), cmd.hasOption(Constants.OPTION_VERSION_LONG),
+                    cmd.hasOption(Constants.OPTION_LATEST_VERSION_LONG), interval);
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        } finally {
+            manager.close();
+        }
+    }
+
+    /**
+     * Follow the vm log as it is written. Appended logging is stored as it arrives, and the report is regenerated and a
+     * summary line printed each interval there is new logging. Runs until the process is stopped.
+     * 
+     * @param manager
+     *            The vm log analysis services.
+     * @param source
+     *            The vm log being written.
+     * @param pollInterval
+     *            The time (milliseconds) to wait for more logging.
+     * @param jvm
+     *            JVM environment information.
+     * @param throughputThreshold
+     *            The throughput threshold for bottleneck reporting.
+     * @param reportFileName
+     *            Report file name.
+     * @param format
+     *            Report format.
+     * @param metricsFile
+     *            The OpenMetrics file to replace with each report, or null.
+     * @param version
+     *            Whether or not to report vmcat version.
+     * @param latestVersion
+     *            Whether or not to report latest vmcat version.
+     * @param interval
+     *            Seconds between reports.
+     */
+    private static void follow(Manager manager, LogSource source, int pollInterval, Jvm jvm, int throughputThreshold,
+            String reportFileName, String format, File metricsFile, boolean version, boolean latestVersion,
+            int interval) {
+        long reportInterval = interval * 1000L;
+        long nextReport = System.currentTimeMillis() + reportInterval;
+        long lastRead = System.currentTimeMillis();
+        boolean flushed = true;
+        boolean changed = false;
+        try {
+            while (true) {
+                boolean read = source.poll();
+                long now = System.currentTimeMillis();
+                if (read) {
+                    lastRead = now;
+                    flushed = false;
+                    changed = true;
+                } else {
+                    // Idle longer than the reorder horizon, so release held events to the report.
+                    if (!flushed && now - lastRead >= manager.getReorderHorizon()) {
+                        manager.flush();
+                        flushed = true;
+                    }
+                    Thread.sleep(pollInterval);
+                    now = System.currentTimeMillis();
+                }
+                if (now >= nextReport) {
+                    if (changed) {
+                        List<JvmRun> jvmRuns = manager.getJvmRuns(jvm, throughputThreshold);
+                        createReport(jvmRuns, reportFileName, format, version, latestVersion);
+                        if (metricsFile != null) {
+                            saveMetrics(jvmRuns, metricsFile);
+                        }
+                        // Only check the latest version once
+                        latestVersion = false;
+                        System.out.println(getSummaryLine(jvmRuns.get(jvmRuns.size() - 1), source));
+                        changed = false;
+                    }
+                    nextReport = now + reportInterval;
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            source.close();
+        }
+    }
+
+    /**
+     * @param jvmRun
+     *            JVM run data.
+     * @param source
+     *            The vm log being written.
+     * @return A one line summary of the JVM run.
+     */
+    private static String getSummaryLine(JvmRun jvmRun, LogSource source) {
+        StringBuffer summary = new StringBuffer();
+        summary.append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
+        summary.append(" lines=" + source.getLineCount());
+        if (source instanceof LogStream && ((LogStream) source).getDroppedCount() > 0) {
+            summary.append(" dropped=" + ((LogStream) source).getDroppedCount());
+        }
+        summary.append(" safepoints=" + jvmRun.getSafepointEventCount());
+        summary.append(" pause=" + VmUtil.getSecsString(jvmRun.getSafepointTotalPause()) + "s");
+        summary.append(" max=" + VmUtil.getSecsString(jvmRun.getMaxPause()) + "s");
+        summary.append(" throughput=" + jvmRun.getThroughput() + "%");
+        if (jvmRun.getSafepointStorms() != null && !jvmRun.getSafepointStorms().isEmpty()) {
+            summary.append(" storms=" + jvmRun.getSafepointStorms().size());
+        }
+        if (jvmRun.getBottlenecks() != null && !jvmRun.getBottlenecks().isEmpty()) {
+            summary.append(" bottlenecks=" + jvmRun.getBottlenecks().size());
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Analyze each vm log separately and concurrently, writing a report for each vm log and an index of the reports.
+     * Each vm log is stored in its own <code>Manager</code>, so at most <code>jobs</code> vm logs are in memory at
+     * once.
+     * 
+     * @param cmd
+     *            The command line, for the parse settings.
+     * @param logFiles
+     *            The vm log files.
+     * @param reportDir
+     *            The directory the reports and index are written to. Created if it does not exist.
+     * @param jobs
+     *            The number of vm logs analyzed concurrently.
+     * @param throughputThreshold
+     *            Throughput threshold for bottleneck reporting.
+     * @param version
+     *            Whether or not to report vmcat version.
+     * @param latestVersion
+     *            Whether or not to report latest vmcat version (in the index only).
+     * @param fleet
+     *            Whether or not to write a fleet report combining all the vm logs.
+     * @param partialFile
+     *            The file to save the combined summaries to as a partial result for merging, or null.
+     */
+    private static void batch(final CommandLine cmd, List<File> logFiles, File reportDir, int jobs,
+            final int throughputThreshold, final boolean version, boolean latestVersion, boolean fleet,
+            File partialFile) {
+        if (!reportDir.isDirectory() && !reportDir.mkdirs()) {
+            System.err.println("Cannot create report directory: " + reportDir.getPath());
+            return;
+        }
+        List<File> reportFiles = new ArrayList<File>();
+        Set<String> reportFileNames = new HashSet<String>();
+        Iterator<File> iterator = logFiles.iterator();
+        while (iterator.hasNext()) {
+            File logFile = iterator.next();
+            // Log files from different directories can have the same name (e.g. host1/vm.log, host2/vm.log).
+            String extension = getFileExtension(getFormat(cmd));
+            String reportFileName = logFile.getName() + extension;
+            for (int i = 2; !reportFileNames.add(reportFileName); i++) {
+                reportFileName = logFile.getName() + "-" + i + extension;
+            }
+            reportFiles.add(new File(reportDir, reportFileName));
+        }
+        List<BatchResult> results = analyze(cmd, logFiles, reportFiles, jobs, throughputThreshold, version);
+        if (results == null) {
+            return;
+        }
+        createBatchIndex(results, new File(reportDir, Constants.BATCH_INDEX_FILE_NAME), version, latestVersion);
+        if (fleet || partialFile != null) {
+            Fleet summary = BatchResult.getFleet(results);
+            if (fleet) {
+                createFleetReport(summary, new File(reportDir, Constants.FLEET_REPORT_FILE_NAME));
+            }
+            if (partialFile != null) {
+                try {
+                    PartialResult.write(summary, partialFile);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Run the local HTTP query service until the process is stopped.
+     * 
+     * @param cmd
+     *            The command line.
+     */
+    private static void serve(CommandLine cmd) {
+        int port = Integer.parseInt(cmd.getOptionValue(Constants.OPTION_SERVE_SHORT));
+        long cacheSize = Constants.DEFAULT_SERVE_CACHE_SIZE;
+        if (cmd.hasOption(Constants.OPTION_CACHE_SIZE_LONG)) {
+            cacheSize = Long.parseLong(cmd.getOptionValue(Constants.OPTION_CACHE_SIZE_LONG));
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (cmd.hasOption(Constants.OPTION_JOBS_LONG)) {
+            threads = Integer.parseInt(cmd.getOptionValue(Constants.OPTION_JOBS_SHORT));
+        }
+        final boolean version = cmd.hasOption(Constants.OPTION_VERSION_LONG);
+        QueryServer server;
+        try {
+            server = new QueryServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                    cacheSize * 1024 * 1024, threads, new QueryServer.ReportWriter() {
+                        public void write(PrintWriter printWriter, List<JvmRun> jvmRuns) {
+                            TextReport.write(printWriter, jvmRuns, version ? getVersion() : null, null);
+                        }
+                    });
+        } catch (IOException e) {
+            System.err.println("Cannot listen on port " + port + ": " + e.getMessage());
+            return;
+        }
+        if (cmd.hasOption(Constants.OPTION_THRESHOLD_LONG)) {
+            server.setThroughputThreshold(Integer.parseInt(cmd.getOptionValue(Constants.OPTION_THRESHOLD_SHORT)));
+        }
+        int stormRateThreshold = Constants.DEFAULT_STORM_RATE_THRESHOLD;
+        if (cmd.hasOption(Constants.OPTION_STORM_RATE_LONG)) {
+            stormRateThreshold = Integer.parseInt(cmd.getOptionValue(Constants.OPTION_STORM_RATE_SHORT));
+        }
+        int stormTimeShareThreshold = Constants.DEFAULT_STORM_TIME_SHARE_THRESHOLD;
+        if (cmd.hasOption(Constants.OPTION_STORM_SHARE_LONG)) {
+            stormTimeShareThreshold = Integer.parseInt(cmd.getOptionValue(Constants.OPTION_STORM_SHARE_SHORT));
+        }
+        server.setStormThresholds(stormRateThreshold, stormTimeShareThreshold);
+        if (cmd.hasOption(Constants.OPTION_REORDER_HORIZON_LONG)) {
+            server.setReorderHorizon(Long.parseLong(cmd.getOptionValue(Constants.OPTION_REORDER_HORIZON_SHORT)));
+        }
+        server.start();
+        System.out.println("vmcat serving on http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+                + server.getPort() + "/");
+    }
+
+    /**
+     * Analyze vm logs separately and concurrently, each with its own <code>Manager</code>.
+     * 
+     * @param cmd
+     *            The command line.
+     * @param logFiles
+     *            The vm log files.
+     * @param reportFiles
+     *            The report file for each vm log, or null for no reports.
+     * @param jobs
+     *            The number of vm logs analyzed concurrently.
+     * @param throughputThreshold
+     *            Throughput threshold for bottleneck reporting.
+     * @param version
+     *            Whether or not to report vmcat version.
+     * @return The result for each vm log in the same order, or null if interrupted.
+     */
+    private static List<BatchResult> analyze(final CommandLine cmd, List<File> logFiles, List<File> reportFiles,
+            int jobs, final int throughputThreshold, final boolean version) {
+        ExecutorService executor = Executors.newFixedThreadPool(jobs);
+        List<Future<BatchResult>> futures = new ArrayList<Future<BatchResult>>();
+        // One progress and memory budget for all jobs
+        final Progress progress = createProgress(cmd, logFiles);
+        final int concurrent = Math.max(1, Math.min(jobs, logFiles.size()));
+        for (int i = 0; i < logFiles.size(); i++) {
+            final File logFile = logFiles.get(i);
+            final File reportFile = reportFiles == null ? null : reportFiles.get(i);
+            futures.add(executor.submit(new Callable<BatchResult>() {
+                public BatchResult call() {
+                    Manager manager = createManager(cmd, concurrent);
+                    manager.setProgress(progress);
+                    try {
+                        manager.store(logFile);
+                        List<JvmRun> jvmRuns = manager.getJvmRuns(new Jvm(), throughputThreshold);
+                        if (reportFile != null) {
+                            createReport(jvmRuns, reportFile.getPath(), getFormat(cmd), version, false);
+                        }
+                        return new BatchResult(logFile, reportFile, jvmRuns);
+                    } finally {
+                        manager.close();
+                    }
+                }
+            }));
+        }
+        executor.shutdown();
+        List<BatchResult> results = new ArrayList<BatchResult>();
+        for (int i = 0; i < futures.size(); i++) {
+            File reportFile = reportFiles == null ? null : reportFiles.get(i);
+            BatchResult result;
+            try {
+                result = futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+                return null;
+            } catch (ExecutionException e) {
+                result = new BatchResult(logFiles.get(i), reportFile, e.getCause().toString());
+            }
+            results.add(result);
+        }
+        if (progress != null) {
+            progress.close();
+        }
+        return results;
+    }
+
+    /**
+     * Compare candidate vm logs to baseline vm logs. Only the summaries are kept, so with one job the memory used does
+     * not depend on the number or size of the vm logs.
+     * 
+     * @param cmd
+     *            The command line.
+     * @param baselineFiles
+     *            The baseline vm log files.
+     * @param candidateFiles
+     *            The candidate vm log files.
+     * @param reportFile
+     *            The comparison report file.
+     * @param jobs
+     *            The number of vm logs analyzed concurrently.
+     * @param throughputThreshold
+     *            Throughput threshold for bottleneck reporting.
+     * @param version
+     *            Whether or not to report vmcat version.
+     */
+    private static void compare(CommandLine cmd, List<File> baselineFiles, List<File> candidateFiles, File reportFile,
+            int jobs, int throughputThreshold, boolean version) {
+        List<BatchResult> baselineResults = analyze(cmd, baselineFiles, null, jobs, throughputThreshold, false);
+        if (baselineResults == null) {
+            return;
+        }
+        List<BatchResult> candidateResults = analyze(cmd, candidateFiles, null, jobs, throughputThreshold, false);
+        if (candidateResults == null) {
+            return;
+        }
+        List<BatchResult> results = new ArrayList<BatchResult>(baselineResults);
+        results.addAll(candidateResults);
+        Iterator<BatchResult> iterator = results.iterator();
+        while (iterator.hasNext()) {
+            BatchResult result = iterator.next();
+            if (result.getError() != null) {
+                System.err.println("Error analyzing " + result.getLogFile().getPath() + ": " + result.getError());
+            }
+        }
+        JvmRunComparison comparison = new JvmRunComparison(BatchResult.getFleet(baselineResults),
+                BatchResult.getFleet(candidateResults));
+        createCompareReport(comparison, reportFile, version);
+    }
+
+    /**
+     * Write the comparison report.
+     * 
+     * @param comparison
+     *            The baseline and candidate JVM runs.
+     * @param reportFile
+     *            The report file.
+     * @param version
+     *            Whether or not to report vmcat version.
+     */
+    private static void createCompareReport(JvmRunComparison comparison, File reportFile, boolean version) {
+        PrintWriter printWriter = null;
+        try {
+            printWriter = new PrintWriter(new BufferedWriter(new FileWriter(reportFile)));
+            CompareReport.write(printWriter, comparison, version ? getVersion() : null);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            if (printWriter != null) {
+                printWriter.close();
+            }
+        }
+    }
+
+    /**
+     * Merge partial results into a fleet report, and optionally a merged partial result.
+     * 
+     * @param partialFiles
+     *            The partial result files.
+     * @param reportFile
+     *            The fleet report file.
+     * @param partialFile
+     *            The merged partial result file, or null.
+     */
+    private static void merge(List<File> partialFiles, File reportFile, File partialFile) {
+        Fleet fleet = new Fleet();
+        try {
+            Iterator<File> iterator = partialFiles.iterator();
+            while (iterator.hasNext()) {
+                PartialResult.read(iterator.next(), fleet);
+            }
+            if (partialFile != null) {
+                PartialResult.write(fleet, partialFile);
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+        createFleetReport(fleet, reportFile);
+    }
+
+    /**
+     * Write the fleet report.
+     * 
+     * @param fleet
+     *            The fleet summary.
+     * @param reportFile
+     *            The report file.
+     */
+    private static void createFleetReport(Fleet fleet, File reportFile) {
+        PrintWriter printWriter = null;
+        try {
+            printWriter = new PrintWriter(new BufferedWriter(new FileWriter(reportFile)));
+            FleetReport.write(printWriter, fleet);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            if (printWriter != null) {
+                printWriter.close();
+            }
+        }
+    }
+
+    /**
+     * Write the batch index, one line per vm log, lowest throughput first.
+     * 
+     * @param results
+     *            The batch results.
+     * @param indexFile
+     *            The index file.
+     * @param version
+     *            Whether or not to report vmcat version.
+     * @param latestVersion
+     *            Whether or not to report latest vmcat version.
+     */
+    private static void createBatchIndex(List<BatchResult> results, File indexFile, boolean version,
+            boolean latestVersion) {
+        PrintWriter printWriter = null;
+        try {
+            printWriter = new PrintWriter(new BufferedWriter(new FileWriter(indexFile)));
+            BatchIndexReport.write(printWriter, results, version ? getVersion() : null,
+                    latestVersion ? getLatestVersion() : null);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            if (printWriter != null) {
+                printWriter.close();
+            }
+        }
     }
 
     /**
@@ -254,245 +1233,139 @@ public class Main {
         return name;
     }
 
+    /**
+     * @param cmd
+     *            The command line.
+     * @return The report format.
+     */
+    private static String getFormat(CommandLine cmd) {
+        if (cmd.hasOption(Constants.OPTION_FORMAT_LONG)) {
+            return cmd.getOptionValue(Constants.OPTION_FORMAT_LONG);
+        }
+        return Constants.FORMAT_TEXT;
+    }
+
+    /**
+     * @param format
+     *            The report format.
+     * @return The report file extension.
+     */
+    private static String getFileExtension(String format) {
+        return format.equals(Constants.FORMAT_TEXT) ? ".txt" : "." + format;
+    }
+
+    /**
+     * @param cmd
+     *            The command line.
+     * @return The default report file name for the report format.
+     */
+    private static String getReportFileName(CommandLine cmd) {
+        String format = getFormat(cmd);
+        if (format.equals(Constants.FORMAT_TEXT)) {
+            return Constants.OUTPUT_FILE_NAME;
+        }
+        return Constants.OUTPUT_FILE_NAME.substring(0, Constants.OUTPUT_FILE_NAME.lastIndexOf('.'))
+                + getFileExtension(format);
+    }
+
+    /**
+     * @param cmd
+     *            The command line.
+     * @return The OpenMetrics file, or null if metrics are not exported.
+     */
+    private static File getMetricsFile(CommandLine cmd) {
+        if (cmd.hasOption(Constants.OPTION_METRICS_LONG)) {
+            return new File(cmd.getOptionValue(Constants.OPTION_METRICS_LONG));
+        }
+        return null;
+    }
+
+    /**
+     * Replace the OpenMetrics file with the metrics for the JVM runs.
+     * 
+     * @param jvmRuns
+     *            JVM run data for each JVM run in the log.
+     * @param metricsFile
+     *            The OpenMetrics file.
+     */
+    private static void saveMetrics(List<JvmRun> jvmRuns, File metricsFile) {
+        try {
+            MetricsReport.save(metricsFile, jvmRuns);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Save the phase stats as JSON, and append the stats section to the text report.
+     * 
+     * @param stats
+     *            The phase stats.
+     * @param statsFile
+     *            The stats file.
+     * @param reportFile
+     *            The text report file, or null if the report is not text.
+     */
+    private static void saveStats(PhaseStats stats, File statsFile, File reportFile) {
+        Writer writer = null;
+        try {
+            writer = new BufferedWriter(new FileWriter(statsFile));
+            JsonReport.writeStats(writer, stats);
+            writer.write(Constants.LINE_SEPARATOR);
+            writer.close();
+            writer = null;
+            if (reportFile != null) {
+                writer = new BufferedWriter(new FileWriter(reportFile, true));
+                TextReport.writeStats(writer, stats);
+                writer.close();
+                writer = null;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
     /**
      * Create VM Log Analysis report.
      * 
-     * @param jvmRun
-     *            JVM run data.
+     * @param jvmRuns
+     *            JVM run data for each JVM run in the log.
      * @param reportFileName
      *            Report file name.
+     * @param format
+     *            Report format.
      * @param version
      *            Whether or not to report vmcat version.
      * @param latestVersion
-     *            Whether or not to report latest vmcat version.
+     *            Whether or not to report latest vmcat version (text format only).
      * 
      */
-    private static void createReport(JvmRun jvmRun, String reportFileName, boolean version, boolean latestVersion) {
+    private static void createReport(List<JvmRun> jvmRuns, String reportFileName, String format, boolean version,
+            boolean latestVersion) {
         File reportFile = new File(reportFileName);
         FileWriter fileWriter = null;
         PrintWriter printWriter = null;
         try {
             fileWriter = new FileWriter(reportFile);
-            printWriter = new PrintWriter(fileWriter);
-
-            if (version || latestVersion) {
-                printWriter.write("========================================" + Constants.LINE_SEPARATOR);
-                if (version) {
-                    printWriter.write("Running vmcat version: " + getVersion() + System.getProperty("line.separator"));
-                }
-                if (latestVersion) {
-                    printWriter.write(
-                            "Latest vmcat version/tag: " + getLatestVersion() + System.getProperty("line.separator"));
-                }
-            }
-
-            // Bottlenecks
-            List<String> bottlenecks = jvmRun.getBottlenecks();
-            if (bottlenecks.size() > 0) {
-                printWriter.write("========================================" + Constants.LINE_SEPARATOR);
-                printWriter.write(
-                        "Throughput less than " + jvmRun.getThroughputThreshold() + "%" + Constants.LINE_SEPARATOR);
-                printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
-                Iterator<String> iterator = bottlenecks.iterator();
-                while (iterator.hasNext()) {
-                    printWriter.write(iterator.next() + Constants.LINE_SEPARATOR);
-                }
-            }
-
-            // JVM information
-            if (jvmRun.getJvm().getVersion() != null || jvmRun.getJvm().getOptions() != null) {
-                printWriter.write("========================================" + Constants.LINE_SEPARATOR);
-                printWriter.write("JVM:" + Constants.LINE_SEPARATOR);
-                printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
-                if (jvmRun.getJvm().getVersion() != null) {
-                    printWriter.write("Version: " + jvmRun.getJvm().getVersion() + Constants.LINE_SEPARATOR);
-                }
-                if (jvmRun.getJvm().getOptions() != null) {
-                    printWriter.write("Options: " + jvmRun.getJvm().getOptions() + Constants.LINE_SEPARATOR);
-                }
-            }
-
-            // Summary
-            printWriter.write("========================================" + Constants.LINE_SEPARATOR);
-            printWriter.write("SUMMARY:" + Constants.LINE_SEPARATOR);
-            printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
-
-            if (jvmRun.getSafepointEventCount() > 0) {
-                // Throughput
-                printWriter.write("Throughput: ");
-                if (jvmRun.getThroughput() == 100 && jvmRun.getSafepointEventCount() > 0) {
-                    // Provide clue it's rounded to 100
-                    printWriter.write("~");
-                }
-                printWriter.write(jvmRun.getThroughput() + "%" + Constants.LINE_SEPARATOR);
-                // Max pause
-                BigDecimal maxPause = JdkMath.convertMillisToSecs(jvmRun.getMaxPause());
-                printWriter.write("Max Pause: " + maxPause.toString() + " secs" + Constants.LINE_SEPARATOR);
-                // Total pause time
-                BigDecimal totalPause = JdkMath.convertMillisToSecs(jvmRun.getSafepointTotalPause());
-                printWriter.write("Total Pause: " + totalPause.toString() + " secs" + Constants.LINE_SEPARATOR);
-            }
-            // First/last timestamps
-            if (jvmRun.getSafepointEventCount() > 0) {
-                // First event
-                String firstEventDatestamp = JdkUtil.getDateStamp(jvmRun.getFirstSafepointEvent().getLogEntry());
-                if (firstEventDatestamp != null) {
-                    printWriter.write("First Datestamp: ");
-                    printWriter.write(firstEventDatestamp);
-                    printWriter.write(Constants.LINE_SEPARATOR);
-                } else {
-                    printWriter.write("First Timestamp: ");
-                    BigDecimal firstEventTimestamp = JdkMath
-                            .convertMillisToSecs(jvmRun.getFirstSafepointEvent().getTimestamp());
-                    printWriter.write(firstEventTimestamp.toString());
-                    printWriter.write(" secs" + Constants.LINE_SEPARATOR);
-                }
-                // Last event
-                String lastEventDatestamp = JdkUtil.getDateStamp(jvmRun.getLastSafepointEvent().getLogEntry());
-                if (lastEventDatestamp != null) {
-                    printWriter.write("Last Datestamp: ");
-                    printWriter.write(lastEventDatestamp);
-                    printWriter.write(Constants.LINE_SEPARATOR);
-                } else {
-                    printWriter.write("Last Timestamp: ");
-                    BigDecimal lastEventTimestamp = JdkMath
-                            .convertMillisToSecs(jvmRun.getLastSafepointEvent().getTimestamp());
-                    printWriter.write(lastEventTimestamp.toString());
-                    printWriter.write(" secs" + Constants.LINE_SEPARATOR);
-                }
-            }
-
-            // Triggers
-            printWriter.write("========================================" + Constants.LINE_SEPARATOR);
-            printWriter.write("TRIGGERS:" + Constants.LINE_SEPARATOR);
-            printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
-
-            if (jvmRun.getSafepointEventCount() > 0) {
-                printWriter.printf("%30s%10s%12s%7s%12s%n", "", "#", "Time (s)", "", "Max (s)");
-                List<SafepointEventSummary> summaries = jvmRun.getSafepointEventSummaries();
-                Iterator<SafepointEventSummary> iterator = summaries.iterator();
-                while (iterator.hasNext()) {
-                    SafepointEventSummary summary = iterator.next();
-                    BigDecimal pauseTotal = JdkMath.convertMillisToSecs(summary.getPauseTotal());
-                    String pauseTotalString = null;
-                    if (pauseTotal.toString().equals("0.000")) {
-                        // give rounding hint
-                        pauseTotalString = "~" + pauseTotal.toString();
-                    } else {
-                        pauseTotalString = pauseTotal.toString();
-                    }
-                    BigDecimal percent = new BigDecimal(summary.getPauseTotal());
-                    percent = percent.divide(new BigDecimal(jvmRun.getSafepointTotalPause()), 2,
-                            RoundingMode.HALF_EVEN);
-                    percent = percent.movePointRight(2);
-                    String percentString = null;
-                    if (percent.intValue() == 0) {
-                        // give rounding hint
-                        percentString = "~" + percent.toString();
-                    } else {
-                        percentString = percent.toString();
-                    }
-                    BigDecimal pauseMax = JdkMath.convertMillisToSecs(summary.getPauseMax());
-                    String pauseMaxString = null;
-                    if (pauseMax.toString().equals("0.000")) {
-                        // give rounding hint
-                        pauseMaxString = "~" + pauseMax.toString();
-                    } else {
-                        pauseMaxString = pauseMax.toString();
-                    }
-                    printWriter.printf("%-30s%10s%12s%6s%%%12s%n", Safepoint.getTriggerLiteral(summary.getTrigger()),
-                            summary.getCount(), pauseTotalString, percentString, pauseMaxString);
-                }
-            }
-
-            printWriter.write("========================================" + Constants.LINE_SEPARATOR);
-
-            // Analysis
-            List<Analysis> analysis = jvmRun.getAnalysis();
-            if (!analysis.isEmpty()) {
-
-                // Determine analysis levels
-                List<Analysis> error = new ArrayList<Analysis>();
-                List<Analysis> warn = new ArrayList<Analysis>();
-                List<Analysis> info = new ArrayList<Analysis>();
-
-                Iterator<Analysis> iterator = analysis.iterator();
-                while (iterator.hasNext()) {
-                    Analysis a = iterator.next();
-                    String level = a.getKey().split("\\.")[0];
-                    if (level.equals("error")) {
-                        error.add(a);
-                    } else if (level.equals("warn")) {
-                        warn.add(a);
-                    } else if (level.equals("info")) {
-                        info.add(a);
-                    }
-                }
-
-                printWriter.write("ANALYSIS:" + Constants.LINE_SEPARATOR);
-
-                iterator = error.iterator();
-                boolean printHeader = true;
-                // ERROR
-                while (iterator.hasNext()) {
-                    if (printHeader) {
-                        printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
-                        printWriter.write("error" + Constants.LINE_SEPARATOR);
-                        printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
-                    }
-                    printHeader = false;
-                    Analysis a = iterator.next();
-                    printWriter.write("*");
-                    printWriter.write(a.getValue());
-                    printWriter.write(Constants.LINE_SEPARATOR);
-                }
-                // WARN
-                iterator = warn.iterator();
-                printHeader = true;
-                while (iterator.hasNext()) {
-                    if (printHeader) {
-                        printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
-                        printWriter.write("warn" + Constants.LINE_SEPARATOR);
-                        printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
-                    }
-                    printHeader = false;
-                    Analysis a = iterator.next();
-                    printWriter.write("*");
-                    printWriter.write(a.getValue());
-                    printWriter.write(Constants.LINE_SEPARATOR);
-                }
-                // INFO
-                iterator = info.iterator();
-                printHeader = true;
-                while (iterator.hasNext()) {
-                    if (printHeader) {
-                        printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
-                        printWriter.write("info" + Constants.LINE_SEPARATOR);
-                        printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
-                    }
-                    printHeader = false;
-                    Analysis a = iterator.next();
-                    printWriter.write("*");
-                    printWriter.write(a.getValue());
-                    printWriter.write(Constants.LINE_SEPARATOR);
-                }
-                printWriter.write("========================================" + Constants.LINE_SEPARATOR);
-            }
-
-            // Unidentified log lines
-            List<String> unidentifiedLogLines = jvmRun.getUnidentifiedLogLines();
-            if (!unidentifiedLogLines.isEmpty()) {
-                printWriter
-                        .write(unidentifiedLogLines.size() + " UNIDENTIFIED LOG LINE(S):" + Constants.LINE_SEPARATOR);
-                printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
-
-                Iterator<String> iterator = unidentifiedLogLines.iterator();
-                while (iterator.hasNext()) {
-                    String unidentifiedLogLine = iterator.next();
-                    printWriter.write(unidentifiedLogLine);
-                    printWriter.write(Constants.LINE_SEPARATOR);
-                }
-                printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+            printWriter = new PrintWriter(new BufferedWriter(fileWriter, Constants.REPORT_BUFFER_SIZE));
+            if (format.equals(Constants.FORMAT_JSON)) {
+                JsonReport.write(printWriter, jvmRuns, version ? getVersion() : null);
+                printWriter.write(Constants.LINE_SEPARATOR);
+            } else if (format.equals(Constants.FORMAT_CSV)) {
+                CsvReport.write(printWriter, jvmRuns, version ? getVersion() : null);
+            } else if (format.equals(Constants.FORMAT_HTML)) {
+                HtmlReport.write(printWriter, jvmRuns, version ? getVersion() : null);
+            } else {
+                TextReport.write(printWriter, jvmRuns, version ? getVersion() : null,
+                        latestVersion ? getLatestVersion() : null);
             }
         } catch (
 
@@ -0,0 +1,97 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Aggregate of JVM runs across many vm logs (e.g. all the JVMs of a service), in total and grouped by configuration
+ * (JDK version and JVM options fingerprint). Adding a JVM run merges its <code>JvmRunSummary</code>, so the cost does
+ * not depend on the number of events.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class Fleet {
+
+    /**
+     * The number of vm logs.
+     */
+    private long logFileCount;
+
+    /**
+     * All JVM runs.
+     */
+    private JvmRunSummary total;
+
+    /**
+     * JVM runs by configuration fingerprint, in the order first added.
+     */
+    private Map<String, JvmRunSummary> configurations;
+
+    /**
+     * Default constructor.
+     */
+    public Fleet() {
+        total = new JvmRunSummary(null, null);
+        configurations = new LinkedHashMap<String, JvmRunSummary>();
+    }
+
+    /**
+     * @param summary
+     *            The summary of one or more JVM runs with the same configuration.
+     */
+    public void add(JvmRunSummary summary) {
+        total.merge(summary);
+        String fingerprint = summary.getFingerprint();
+        JvmRunSummary configuration = configurations.get(fingerprint);
+        if (configuration == null) {
+            configuration = new JvmRunSummary(summary.getVersion(), summary.getOptions());
+            configurations.put(fingerprint, configuration);
+        }
+        configuration.merge(summary);
+    }
+
+    /**
+     * Count a vm log added to the fleet.
+     */
+    public void addLogFile() {
+        logFileCount++;
+    }
+
+    public long getLogFileCount() {
+        return logFileCount;
+    }
+
+    public void setLogFileCount(long logFileCount) {
+        this.logFileCount = logFileCount;
+    }
+
+    public JvmRunSummary getTotal() {
+        return total;
+    }
+
+    /**
+     * @return The summary for each configuration, in the order first added.
+     */
+    public List<JvmRunSummary> getConfigurations() {
+        return new ArrayList<JvmRunSummary>(configurations.values());
+    }
+}
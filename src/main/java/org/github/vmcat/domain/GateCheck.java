@@ -0,0 +1,115 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain;
+
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
+
+/**
+ * <p>
+ * The result of evaluating one regression gate: the limit, the worst value over the JVM runs, and whether the value is
+ * within the limit.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class GateCheck {
+
+    /**
+     * The gate name (the command line long option).
+     */
+    private String name;
+
+    /**
+     * The <code>Trigger</code> the gate applies to, or null if it applies to all safepoints.
+     */
+    private Trigger trigger;
+
+    /**
+     * The limit.
+     */
+    private long limit;
+
+    /**
+     * The worst value over the JVM runs.
+     */
+    private long value;
+
+    /**
+     * Whether the limit is a minimum (true) or a maximum (false).
+     */
+    private boolean minimum;
+
+    /**
+     * The exit code bit when the gate fails.
+     */
+    private int exitCode;
+
+    /**
+     * Default constructor.
+     * 
+     * @param name
+     *            The gate name (the command line long option).
+     * @param trigger
+     *            The <code>Trigger</code> the gate applies to, or null if it applies to all safepoints.
+     * @param limit
+     *            The limit.
+     * @param value
+     *            The worst value over the JVM runs.
+     * @param minimum
+     *            Whether the limit is a minimum (true) or a maximum (false).
+     * @param exitCode
+     *            The exit code bit when the gate fails.
+     */
+    public GateCheck(String name, Trigger trigger, long limit, long value, boolean minimum, int exitCode) {
+        this.name = name;
+        this.trigger = trigger;
+        this.limit = limit;
+        this.value = value;
+        this.minimum = minimum;
+        this.exitCode = exitCode;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Trigger getTrigger() {
+        return trigger;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    public long getValue() {
+        return value;
+    }
+
+    public boolean isMinimum() {
+        return minimum;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * @return true if the value is within the limit, false otherwise.
+     */
+    public boolean isPassed() {
+        return minimum ? value >= limit : value <= limit;
+    }
+}
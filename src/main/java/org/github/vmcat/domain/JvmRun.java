@@ -16,14 +16,26 @@ package org.github.vmcat.domain;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
+import org.github.vmcat.domain.jdk.CalendarRollup;
+import org.github.vmcat.domain.jdk.MutatorUtilization;
+import org.github.vmcat.domain.jdk.PauseSeries;
+import org.github.vmcat.domain.jdk.PauseHistogram;
+import org.github.vmcat.domain.jdk.PauseTimeline;
 import org.github.vmcat.domain.jdk.SafepointEvent;
 import org.github.vmcat.domain.jdk.SafepointEventSummary;
+import org.github.vmcat.domain.jdk.SafepointStorm;
+import org.github.vmcat.domain.jdk.TimeToSafepointSummary;
+import org.github.vmcat.domain.jdk.TopSafepointEvents;
 import org.github.vmcat.util.Constants;
 import org.github.vmcat.util.VmUtil;
 import org.github.vmcat.util.jdk.Analysis;
 import org.github.vmcat.util.jdk.JdkUtil.LogEventType;
+import org.github.vmcat.util.jdk.Safepoint.Metric;
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
 
 /**
  * JVM run data.
@@ -94,6 +106,117 @@ public class JvmRun {
      */
     private int maxPause;
 
+    /**
+     * <code>TimeToSafepointSummary</code> used for reporting.
+     */
+    private List<TimeToSafepointSummary> timeToSafepointSummaries;
+
+    /**
+     * The number of <code>SafepointEvent</code>s in each <code>SyncVmopRatio</code> range, indexed by ordinal.
+     */
+    private long[] syncVmopRatioCounts;
+
+    /**
+     * The <code>SafepointEvent</code>s with the longest time to safepoint, longest first.
+     */
+    private List<SafepointEvent> worstTimeToSafepointEvents;
+
+    /**
+     * The <code>SafepointEvent</code>s with the largest values for each <code>Metric</code>.
+     */
+    private Map<Metric, TopSafepointEvents> topSafepointEvents;
+
+    /**
+     * Histogram of safepoint pause times.
+     */
+    private PauseHistogram pauseHistogram;
+
+    /**
+     * Safepoint pause times by uptime.
+     */
+    private PauseTimeline pauseTimeline;
+
+    /**
+     * Histogram of safepoint pause times for each <code>Trigger</code>.
+     */
+    private Map<Trigger, PauseHistogram> triggerPauseHistograms;
+
+    /**
+     * Minimum mutator utilization.
+     */
+    private MutatorUtilization mutatorUtilization;
+
+    /**
+     * Bounded resolution pause series for charting.
+     */
+    private PauseSeries pauseSeries;
+
+    /**
+     * Safepoints by hour of day and day of week, or null if the JVM start time is not known.
+     */
+    private CalendarRollup calendarRollup;
+
+    /**
+     * The maximum time (milliseconds) a safepoint event can be logged after a later event and be put in order.
+     */
+    private long reorderHorizon;
+
+    /**
+     * The number of safepoint events logged out of order, but within the reorder horizon.
+     */
+    private long reorderedCount;
+
+    /**
+     * The number of safepoint events outside the reorder horizon.
+     */
+    private long outOfHorizonCount;
+
+    /**
+     * Log entries of safepoint events outside the reorder horizon.
+     */
+    private List<String> outOfHorizonLogLines;
+
+    /**
+     * The number of safepoint events released from the reorder buffer before the reorder horizon because the buffer was
+     * full.
+     */
+    private long reorderOverflowCount;
+
+    /**
+     * The number of safepoint events that overlap the prior event by more than the JDK logging tolerance.
+     */
+    private long eventOverlapCount;
+
+    /**
+     * Total time (milliseconds) in intervals with throughput below the throughput threshold.
+     */
+    private long bottleneckTime;
+
+    /**
+     * The number of throughput bottleneck log lines not kept for the report to stay within the memory budget.
+     */
+    private long omittedBottleneckLineCount;
+
+    /**
+     * The analysis memory budget (bytes), or 0 if there is no budget.
+     */
+    private long maxMemory;
+
+    /**
+     * Intervals of high frequency safepoints.
+     */
+    private List<SafepointStorm> safepointStorms;
+
+    /**
+     * The number of safepoints per second for a single trigger at or above which a storm is flagged.
+     */
+    private int stormRateThreshold;
+
+    /**
+     * The percent of time spent in safepoint pauses at or above which a storm is flagged.
+     */
+    private int stormTimeShareThreshold;
+
     /**
      * Constructor accepting throughput threshold, JVM services, and JVM environment information.
      * 
@@ -200,6 +323,226 @@ public class JvmRun {
         this.maxPause = maxPause;
     }
 
+    public List<TimeToSafepointSummary> getTimeToSafepointSummaries() {
+        return timeToSafepointSummaries;
+    }
+
+    public void setTimeToSafepointSummaries(List<TimeToSafepointSummary> timeToSafepointSummaries) {
+        this.timeToSafepointSummaries = timeToSafepointSummaries;
+    }
+
+    public long[] getSyncVmopRatioCounts() {
+        return syncVmopRatioCounts;
+    }
+
+    public void setSyncVmopRatioCounts(long[] syncVmopRatioCounts) {
+        this.syncVmopRatioCounts = syncVmopRatioCounts;
+    }
+
+    public List<SafepointEvent> getWorstTimeToSafepointEvents() {
+        return worstTimeToSafepointEvents;
+    }
+
+    public void setWorstTimeToSafepointEvents(List<SafepointEvent> worstTimeToSafepointEvents) {
+        this.worstTimeToSafepointEvents = worstTimeToSafepointEvents;
+    }
+
+    public PauseHistogram getPauseHistogram() {
+        return pauseHistogram;
+    }
+
+    public void setPauseHistogram(PauseHistogram pauseHistogram) {
+        this.pauseHistogram = pauseHistogram;
+    }
+
+    public PauseTimeline getPauseTimeline() {
+        return pauseTimeline;
+    }
+
+    public void setPauseTimeline(PauseTimeline pauseTimeline) {
+        this.pauseTimeline = pauseTimeline;
+    }
+
+    public Map<Trigger, PauseHistogram> getTriggerPauseHistograms() {
+        return triggerPauseHistograms;
+    }
+
+    public void setTriggerPauseHistograms(Map<Trigger, PauseHistogram> triggerPauseHistograms) {
+        this.triggerPauseHistograms = triggerPauseHistograms;
+    }
+
+    public MutatorUtilization getMutatorUtilization() {
+        return mutatorUtilization;
+    }
+
+    public void setMutatorUtilization(MutatorUtilization mutatorUtilization) {
+        this.mutatorUtilization = mutatorUtilization;
+    }
+
+    public PauseSeries getPauseSeries() {
+        return pauseSeries;
+    }
+
+    public void setPauseSeries(PauseSeries pauseSeries) {
+        this.pauseSeries = pauseSeries;
+    }
+
+    public CalendarRollup getCalendarRollup() {
+        return calendarRollup;
+    }
+
+    public void setCalendarRollup(CalendarRollup calendarRollup) {
+        this.calendarRollup = calendarRollup;
+    }
+
+    public Map<Metric, TopSafepointEvents> getTopSafepointEvents() {
+        return topSafepointEvents;
+    }
+
+    public void setTopSafepointEvents(Map<Metric, TopSafepointEvents> topSafepointEvents) {
+        this.topSafepointEvents = topSafepointEvents;
+    }
+
+    public long getReorderHorizon() {
+        return reorderHorizon;
+    }
+
+    public void setReorderHorizon(long reorderHorizon) {
+        this.reorderHorizon = reorderHorizon;
+    }
+
+    public long getReorderedCount() {
+        return reorderedCount;
+    }
+
+    public void setReorderedCount(long reorderedCount) {
+        this.reorderedCount = reorderedCount;
+    }
+
+    public long getOutOfHorizonCount() {
+        return outOfHorizonCount;
+    }
+
+    public void setOutOfHorizonCount(long outOfHorizonCount) {
+        this.outOfHorizonCount = outOfHorizonCount;
+    }
+
+    public List<String> getOutOfHorizonLogLines() {
+        return outOfHorizonLogLines;
+    }
+
+    public void setOutOfHorizonLogLines(List<String> outOfHorizonLogLines) {
+        this.outOfHorizonLogLines = outOfHorizonLogLines;
+    }
+
+    public long getReorderOverflowCount() {
+        return reorderOverflowCount;
+    }
+
+    public void setReorderOverflowCount(long reorderOverflowCount) {
+        this.reorderOverflowCount = reorderOverflowCount;
+    }
+
+    public long getEventOverlapCount() {
+        return eventOverlapCount;
+    }
+
+    public void setEventOverlapCount(long eventOverlapCount) {
+        this.eventOverlapCount = eventOverlapCount;
+    }
+
+    public long getBottleneckTime() {
+        return bottleneckTime;
+    }
+
+    public void setBottleneckTime(long bottleneckTime) {
+        this.bottleneckTime = bottleneckTime;
+    }
+
+    public long getOmittedBottleneckLineCount() {
+        return omittedBottleneckLineCount;
+    }
+
+    public void setOmittedBottleneckLineCount(long omittedBottleneckLineCount) {
+        this.omittedBottleneckLineCount = omittedBottleneckLineCount;
+    }
+
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    public void setMaxMemory(long maxMemory) {
+        this.maxMemory = maxMemory;
+    }
+
+    /**
+     * @return The percent of the JVM run duration in safepoint storms.
+     */
+    public long getStormTimeShare() {
+        long duration = getJvmRunDuration();
+        if (duration <= 0 || safepointStorms == null) {
+            return 0;
+        }
+        long stormTime = 0;
+        Iterator<SafepointStorm> iterator = safepointStorms.iterator();
+        while (iterator.hasNext()) {
+            stormTime = stormTime + iterator.next().getDuration();
+        }
+        return Math.min(100, stormTime * 100 / duration);
+    }
+
+    public List<SafepointStorm> getSafepointStorms() {
+        return safepointStorms;
+    }
+
+    public void setSafepointStorms(List<SafepointStorm> safepointStorms) {
+        this.safepointStorms = safepointStorms;
+    }
+
+    public int getStormRateThreshold() {
+        return stormRateThreshold;
+    }
+
+    public void setStormRateThreshold(int stormRateThreshold) {
+        this.stormRateThreshold = stormRateThreshold;
+    }
+
+    public int getStormTimeShareThreshold() {
+        return stormTimeShareThreshold;
+    }
+
+    public void setStormTimeShareThreshold(int stormTimeShareThreshold) {
+        this.stormTimeShareThreshold = stormTimeShareThreshold;
+    }
+
+    /**
+     * @return Total safepoint pause time (milliseconds) in safepoint storms.
+     */
+    public long getStormPauseTotal() {
+        long stormPauseTotal = 0;
+        if (safepointStorms != null) {
+            Iterator<SafepointStorm> iterator = safepointStorms.iterator();
+            while (iterator.hasNext()) {
+                stormPauseTotal = stormPauseTotal + iterator.next().getPauseTotal();
+            }
+        }
+        return stormPauseTotal;
+    }
+
+    /**
+     * @return Total time to safepoint (milliseconds).
+     */
+    public long getTimeToSafepointTotal() {
+        long syncTotal = 0;
+        if (timeToSafepointSummaries != null) {
+            Iterator<TimeToSafepointSummary> iterator = timeToSafepointSummaries.iterator();
+            while (iterator.hasNext()) {
+                syncTotal = syncTotal + iterator.next().getSyncTotal();
+            }
+        }
+        return syncTotal;
+    }
+
     /**
      * Do analysis.
      */
@@ -228,6 +571,110 @@ public class JvmRun {
         if (this.firstSafepointEvent != null && VmUtil.isPartialLog(firstSafepointEvent.getTimestamp())) {
             analysis.add(Analysis.INFO_FIRST_TIMESTAMP_THRESHOLD_EXCEEDED);
         }
+        // Logging order
+        if (reorderedCount > 0) {
+            analysis.add(Analysis.INFO_REORDERED);
+        }
+        if (outOfHorizonCount > 0) {
+            analysis.add(Analysis.WARN_OUT_OF_HORIZON);
+        }
+        if (reorderOverflowCount > 0) {
+            analysis.add(Analysis.WARN_REORDER_OVERFLOW);
+        }
+        if (eventOverlapCount > 0) {
+            analysis.add(Analysis.WARN_EVENT_OVERLAP);
+        }
+        // Precision given up for the memory budget
+        if (omittedBottleneckLineCount > 0) {
+            analysis.add(Analysis.INFO_BOTTLENECKS_OMITTED);
+        }
+        doTimeToSafepointAnalysis();
+        doSafepointStormAnalysis();
+    }
+
+    /**
+     * Do time to safepoint (TTSP) analysis.
+     */
+    private void doTimeToSafepointAnalysis() {
+        // TTSP the majority of pause time
+        if (safepointTotalPause > 0 && getTimeToSafepointTotal() * 2 > safepointTotalPause) {
+            analysis.add(Analysis.WARN_TTSP_DOMINANT);
+        }
+        // Long TTSP exceeding the vm operation
+        if (worstTimeToSafepointEvents != null && !worstTimeToSafepointEvents.isEmpty()) {
+            SafepointEvent worst = worstTimeToSafepointEvents.get(0);
+            if (worst.getTimeSync() >= Constants.TTSP_LONG_THRESHOLD && worst.getTimeSync() > worst.getTimeVmop()) {
+                analysis.add(Analysis.WARN_TTSP_LONG);
+            }
+        }
+    }
+
+    /**
+     * Do safepoint storm analysis.
+     */
+    private void doSafepointStormAnalysis() {
+        if (safepointStorms != null) {
+            Iterator<SafepointStorm> iterator = safepointStorms.iterator();
+            while (iterator.hasNext()) {
+                Analysis a = getStormAnalysis(iterator.next());
+                if (!analysis.contains(a)) {
+                    analysis.add(a);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param storm
+     *            The <code>SafepointStorm</code>.
+     * @return The storm <code>Analysis</code> for the storm's dominant trigger.
+     */
+    private static Analysis getStormAnalysis(SafepointStorm storm) {
+        Analysis a;
+        switch (storm.getDominantTrigger()) {
+        case BULK_REVOKE_BIAS:
+        case REVOKE_BIAS:
+            a = Analysis.WARN_STORM_BIASED_LOCKING;
+            break;
+        case DEOPTIMIZE:
+            a = Analysis.WARN_STORM_DEOPTIMIZE;
+            break;
+        default:
+            a = Analysis.WARN_STORM;
+            break;
+        }
+        return a;
+    }
+
+    /**
+     * @param a
+     *            The <code>Analysis</code>.
+     * @return The analysis property file value, with the measured cost appended for safepoint storm analysis.
+     */
+    public String getAnalysisLiteral(Analysis a) {
+        if ((a != Analysis.WARN_STORM && a != Analysis.WARN_STORM_BIASED_LOCKING
+                && a != Analysis.WARN_STORM_DEOPTIMIZE) || safepointStorms == null) {
+            return a.getValue();
+        }
+        int count = 0;
+        long stormTime = 0;
+        long pauseTotal = 0;
+        Iterator<SafepointStorm> iterator = safepointStorms.iterator();
+        while (iterator.hasNext()) {
+            SafepointStorm storm = iterator.next();
+            if (getStormAnalysis(storm) == a) {
+                count++;
+                stormTime = stormTime + storm.getDuration();
+                pauseTotal = pauseTotal + storm.getPauseTotal();
+            }
+        }
+        StringBuilder literal = new StringBuilder(a.getValue());
+        literal.append(" Measured cost: ").append(count).append(" storm(s) lasting ");
+        literal.append(VmUtil.getSecsString(stormTime)).append(" secs (");
+        literal.append(VmUtil.getPercentString(stormTime, getJvmRunDuration())).append("% of the JVM run) with ");
+        literal.append(VmUtil.getSecsString(pauseTotal)).append(" secs of safepoint pause (");
+        literal.append(VmUtil.getPercentString(pauseTotal, stormTime)).append("% of the storm time).");
+        return literal.toString();
     }
 
     /**
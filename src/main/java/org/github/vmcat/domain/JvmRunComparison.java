@@ -0,0 +1,124 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.github.vmcat.domain.jdk.PauseComparison;
+import org.github.vmcat.domain.jdk.SafepointEventSummary;
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
+
+/**
+ * <p>
+ * Comparison of baseline and candidate JVM runs (e.g. before and after a JVM option or JDK change). Both sides are
+ * <code>Fleet</code>s of merged <code>JvmRunSummary</code>s, so the comparison does not depend on the number of events,
+ * and pause time differences are tested for significance with <code>PauseComparison</code>.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class JvmRunComparison {
+
+    /**
+     * The baseline JVM runs.
+     */
+    private Fleet baseline;
+
+    /**
+     * The candidate JVM runs.
+     */
+    private Fleet candidate;
+
+    /**
+     * Default constructor.
+     * 
+     * @param baseline
+     *            The baseline JVM runs.
+     * @param candidate
+     *            The candidate JVM runs.
+     */
+    public JvmRunComparison(Fleet baseline, Fleet candidate) {
+        this.baseline = baseline;
+        this.candidate = candidate;
+    }
+
+    public Fleet getBaseline() {
+        return baseline;
+    }
+
+    public Fleet getCandidate() {
+        return candidate;
+    }
+
+    /**
+     * @return The comparison of all baseline and candidate pause times.
+     */
+    public PauseComparison getPauseComparison() {
+        return new PauseComparison(baseline.getTotal().getPauseHistogram(),
+                candidate.getTotal().getPauseHistogram());
+    }
+
+    /**
+     * @param trigger
+     *            The <code>Trigger</code>.
+     * @return The comparison of baseline and candidate pause times for the <code>Trigger</code>.
+     */
+    public PauseComparison getPauseComparison(Trigger trigger) {
+        return new PauseComparison(baseline.getTotal().getTriggerPauseHistogram(trigger),
+                candidate.getTotal().getTriggerPauseHistogram(trigger));
+    }
+
+    /**
+     * @return The <code>Trigger</code>s with baseline or candidate safepoints, most total pause time on either side
+     *         first.
+     */
+    public List<Trigger> getTriggers() {
+        Set<Trigger> triggers = EnumSet.noneOf(Trigger.class);
+        Iterator<SafepointEventSummary> iterator = baseline.getTotal().getSafepointEventSummaries().iterator();
+        while (iterator.hasNext()) {
+            triggers.add(iterator.next().getTrigger());
+        }
+        iterator = candidate.getTotal().getSafepointEventSummaries().iterator();
+        while (iterator.hasNext()) {
+            triggers.add(iterator.next().getTrigger());
+        }
+        List<Trigger> sorted = new ArrayList<Trigger>(triggers);
+        Collections.sort(sorted, new Comparator<Trigger>() {
+            public int compare(Trigger trigger1, Trigger trigger2) {
+                return Long.compare(getMaxPauseTotal(trigger2), getMaxPauseTotal(trigger1));
+            }
+        });
+        return sorted;
+    }
+
+    /**
+     * @param trigger
+     *            The <code>Trigger</code>.
+     * @return The larger of the baseline and candidate total pause time (milliseconds) for the <code>Trigger</code>.
+     */
+    private long getMaxPauseTotal(Trigger trigger) {
+        SafepointEventSummary baselineSummary = baseline.getTotal().getSafepointEventSummary(trigger);
+        SafepointEventSummary candidateSummary = candidate.getTotal().getSafepointEventSummary(trigger);
+        return Math.max(baselineSummary == null ? 0 : baselineSummary.getPauseTotal(),
+                candidateSummary == null ? 0 : candidateSummary.getPauseTotal());
+    }
+}
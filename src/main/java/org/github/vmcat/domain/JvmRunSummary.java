@@ -0,0 +1,453 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.github.vmcat.domain.jdk.MutatorUtilization;
+import org.github.vmcat.domain.jdk.PauseHistogram;
+import org.github.vmcat.domain.jdk.PauseTimeline;
+import org.github.vmcat.domain.jdk.SafepointEvent;
+import org.github.vmcat.domain.jdk.SafepointEventSummary;
+import org.github.vmcat.domain.jdk.TopSafepointEvents;
+import org.github.vmcat.util.Constants;
+import org.github.vmcat.util.jdk.Safepoint.Metric;
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
+
+/**
+ * <p>
+ * A mergeable summary of one or more JVM runs: counts, totals, per-trigger summaries and pause histograms, a pause
+ * histogram, a pause timeline, minimum mutator utilization and the longest safepoints. Summaries are merged in time
+ * proportional to the summary size, not the number of events, for aggregating many JVM runs (e.g. a fleet).
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class JvmRunSummary {
+
+    /**
+     * The JDK version, or null if unknown or the summary is of JVM runs with different versions.
+     */
+    private String version;
+
+    /**
+     * The JVM options, or null if unknown or the summary is of JVM runs with different options.
+     */
+    private String options;
+
+    /**
+     * The number of JVM runs.
+     */
+    private long jvmRunCount;
+
+    /**
+     * The number of safepoint events.
+     */
+    private long safepointEventCount;
+
+    /**
+     * Total safepoint pause time (milliseconds).
+     */
+    private long safepointTotalPause;
+
+    /**
+     * Maximum safepoint pause time (milliseconds).
+     */
+    private long maxPause;
+
+    /**
+     * Total JVM run duration (milliseconds).
+     */
+    private long duration;
+
+    /**
+     * The number of safepoint storms.
+     */
+    private long safepointStormCount;
+
+    /**
+     * Safepoint counts and pause times by <code>Trigger</code>.
+     */
+    private Map<Trigger, SafepointEventSummary> safepointEventSummaries;
+
+    /**
+     * Histogram of safepoint pause times.
+     */
+    private PauseHistogram pauseHistogram;
+
+    /**
+     * Safepoint pause times by uptime.
+     */
+    private PauseTimeline pauseTimeline;
+
+    /**
+     * Histogram of safepoint pause times for each <code>Trigger</code>.
+     */
+    private Map<Trigger, PauseHistogram> triggerPauseHistograms;
+
+    /**
+     * The most pause time (milliseconds) in any window of each minimum mutator utilization window size.
+     */
+    private long[] windowMaxPauses;
+
+    /**
+     * The longest safepoints.
+     */
+    private TopSafepointEvents topSafepointEvents;
+
+    /**
+     * Create an empty summary.
+     * 
+     * @param version
+     *            The JDK version, or null if unknown.
+     * @param options
+     *            The JVM options, or null if unknown.
+     */
+    public JvmRunSummary(String version, String options) {
+        this.version = version;
+        this.options = options;
+        safepointEventSummaries = new EnumMap<Trigger, SafepointEventSummary>(Trigger.class);
+        pauseHistogram = new PauseHistogram();
+        pauseTimeline = new PauseTimeline(Constants.PAUSE_TIMELINE_BUCKET_WIDTH);
+        triggerPauseHistograms = new EnumMap<Trigger, PauseHistogram>(Trigger.class);
+        windowMaxPauses = new long[Constants.MMU_WINDOWS.length];
+        topSafepointEvents = new TopSafepointEvents(Metric.TOTAL, Constants.TOP_SAFEPOINT_EVENTS_LIMIT);
+    }
+
+    /**
+     * Create a summary of a JVM run.
+     * 
+     * @param jvmRun
+     *            The JVM run.
+     */
+    public JvmRunSummary(JvmRun jvmRun) {
+        this(jvmRun.getJvm().getVersion(), jvmRun.getJvm().getOptions());
+        jvmRunCount = 1;
+        safepointEventCount = jvmRun.getSafepointEventCount();
+        safepointTotalPause = jvmRun.getSafepointTotalPause();
+        maxPause = jvmRun.getMaxPause();
+        if (safepointEventCount > 0) {
+            duration = jvmRun.getJvmRunDuration();
+        }
+        if (jvmRun.getSafepointStorms() != null) {
+            safepointStormCount = jvmRun.getSafepointStorms().size();
+        }
+        if (jvmRun.getSafepointEventSummaries() != null) {
+            Iterator<SafepointEventSummary> iterator = jvmRun.getSafepointEventSummaries().iterator();
+            while (iterator.hasNext()) {
+                addSafepointEventSummary(iterator.next());
+            }
+        }
+        if (jvmRun.getPauseHistogram() != null) {
+            pauseHistogram.merge(jvmRun.getPauseHistogram());
+        }
+        if (jvmRun.getPauseTimeline() != null) {
+            pauseTimeline.merge(jvmRun.getPauseTimeline());
+        }
+        if (jvmRun.getTriggerPauseHistograms() != null) {
+            addTriggerPauseHistograms(jvmRun.getTriggerPauseHistograms());
+        }
+        if (jvmRun.getMutatorUtilization() != null) {
+            addWindowMaxPauses(jvmRun.getMutatorUtilization().getMaxPauses());
+        }
+        if (jvmRun.getTopSafepointEvents() != null) {
+            addTopSafepointEvents(jvmRun.getTopSafepointEvents().get(Metric.TOTAL).getEvents());
+        }
+    }
+
+    /**
+     * @param summary
+     *            Safepoint count and pause times for a <code>Trigger</code> to add.
+     */
+    public void addSafepointEventSummary(SafepointEventSummary summary) {
+        SafepointEventSummary existing = safepointEventSummaries.get(summary.getTrigger());
+        if (existing != null) {
+            summary = new SafepointEventSummary(summary.getTrigger(), existing.getCount() + summary.getCount(),
+                    existing.getPauseTotal() + summary.getPauseTotal(),
+                    (int) Math.max(existing.getPauseMax(), summary.getPauseMax()));
+        }
+        safepointEventSummaries.put(summary.getTrigger(), summary);
+    }
+
+    /**
+     * Add another summary to this summary. The version and options are kept only if they are the same.
+     * 
+     * @param summary
+     *            The summary to add.
+     */
+    public void merge(JvmRunSummary summary) {
+        if (jvmRunCount == 0) {
+            version = summary.version;
+            options = summary.options;
+        } else {
+            if (version != null && !version.equals(summary.version)) {
+                version = null;
+            }
+            if (options != null && !options.equals(summary.options)) {
+                options = null;
+            }
+        }
+        jvmRunCount += summary.jvmRunCount;
+        safepointEventCount += summary.safepointEventCount;
+        safepointTotalPause += summary.safepointTotalPause;
+        maxPause = Math.max(maxPause, summary.maxPause);
+        duration += summary.duration;
+        safepointStormCount += summary.safepointStormCount;
+        Iterator<SafepointEventSummary> iterator = summary.safepointEventSummaries.values().iterator();
+        while (iterator.hasNext()) {
+            addSafepointEventSummary(iterator.next());
+        }
+        pauseHistogram.merge(summary.pauseHistogram);
+        pauseTimeline.merge(summary.pauseTimeline);
+        addTriggerPauseHistograms(summary.triggerPauseHistograms);
+        addWindowMaxPauses(summary.windowMaxPauses);
+        addTopSafepointEvents(summary.topSafepointEvents.getEvents());
+    }
+
+    /**
+     * @param histograms
+     *            Pause histograms by <code>Trigger</code> to add.
+     */
+    private void addTriggerPauseHistograms(Map<Trigger, PauseHistogram> histograms) {
+        Iterator<Map.Entry<Trigger, PauseHistogram>> iterator = histograms.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Trigger, PauseHistogram> entry = iterator.next();
+            getTriggerPauseHistogram(entry.getKey()).merge(entry.getValue());
+        }
+    }
+
+    /**
+     * @param maxPauses
+     *            The most pause time (milliseconds) in any window of each minimum mutator utilization window size in
+     *            other JVM runs. No window spans two JVM runs, so the largest is kept.
+     */
+    public void addWindowMaxPauses(long[] maxPauses) {
+        for (int i = 0; i < windowMaxPauses.length; i++) {
+            windowMaxPauses[i] = Math.max(windowMaxPauses[i], maxPauses[i]);
+        }
+    }
+
+    /**
+     * @param trigger
+     *            The <code>Trigger</code>.
+     * @return The pause histogram for the <code>Trigger</code> (empty if there are no safepoints for the trigger).
+     */
+    public PauseHistogram getTriggerPauseHistogram(Trigger trigger) {
+        PauseHistogram histogram = triggerPauseHistograms.get(trigger);
+        if (histogram == null) {
+            histogram = new PauseHistogram();
+            triggerPauseHistograms.put(trigger, histogram);
+        }
+        return histogram;
+    }
+
+    /**
+     * @param index
+     *            The index of the window size in <code>Constants.MMU_WINDOWS</code>.
+     * @return The minimum percent of a window of the size not in safepoints.
+     */
+    public long getMmu(int index) {
+        return MutatorUtilization.getMmu(Constants.MMU_WINDOWS[index], windowMaxPauses[index]);
+    }
+
+    /**
+     * @return Safepoint events per hour of JVM run duration.
+     */
+    public double getSafepointEventRate() {
+        return getRate(safepointEventCount);
+    }
+
+    /**
+     * @param count
+     *            A number of events.
+     * @return The events per hour of JVM run duration.
+     */
+    public double getRate(long count) {
+        return duration <= 0 ? 0 : count * 3600000.0 / duration;
+    }
+
+    /**
+     * @param trigger
+     *            The <code>Trigger</code>.
+     * @return Safepoint count and pause times for the <code>Trigger</code>, or null if there are no safepoints for the
+     *         trigger.
+     */
+    public SafepointEventSummary getSafepointEventSummary(Trigger trigger) {
+        return safepointEventSummaries.get(trigger);
+    }
+
+    /**
+     * @param events
+     *            Safepoint events to rank with the longest safepoints.
+     */
+    public void addTopSafepointEvents(List<SafepointEvent> events) {
+        Iterator<SafepointEvent> iterator = events.iterator();
+        while (iterator.hasNext()) {
+            topSafepointEvents.add(iterator.next());
+        }
+    }
+
+    /**
+     * @return Percent of time not in safepoints.
+     */
+    public long getThroughput() {
+        if (duration <= 0) {
+            return 100L;
+        }
+        BigDecimal throughput = new BigDecimal(duration - safepointTotalPause);
+        throughput = throughput.divide(new BigDecimal(duration), 2, RoundingMode.HALF_EVEN);
+        return throughput.movePointRight(2).longValue();
+    }
+
+    /**
+     * @return The per-trigger summaries, most total pause time first.
+     */
+    public List<SafepointEventSummary> getSafepointEventSummaries() {
+        List<SafepointEventSummary> summaries = new ArrayList<SafepointEventSummary>(
+                safepointEventSummaries.values());
+        Collections.sort(summaries, new Comparator<SafepointEventSummary>() {
+            public int compare(SafepointEventSummary summary1, SafepointEventSummary summary2) {
+                return Long.compare(summary2.getPauseTotal(), summary1.getPauseTotal());
+            }
+        });
+        return summaries;
+    }
+
+    /**
+     * @return The trigger with the most total pause time, or null if there are no safepoints.
+     */
+    public Trigger getTopTrigger() {
+        List<SafepointEventSummary> summaries = getSafepointEventSummaries();
+        return summaries.isEmpty() ? null : summaries.get(0).getTrigger();
+    }
+
+    /**
+     * @return A short identifier for the JDK version and JVM options (option order is ignored).
+     */
+    public String getFingerprint() {
+        return getFingerprint(version, options);
+    }
+
+    /**
+     * @param version
+     *            The JDK version, or null if unknown.
+     * @param options
+     *            The JVM options, or null if unknown.
+     * @return A short identifier for the JDK version and JVM options (option order is ignored).
+     */
+    public static String getFingerprint(String version, String options) {
+        StringBuilder key = new StringBuilder();
+        key.append(version == null ? "" : version.trim());
+        key.append('\n');
+        if (options != null) {
+            String[] tokens = options.trim().split("\\s+");
+            Arrays.sort(tokens);
+            for (int i = 0; i < tokens.length; i++) {
+                key.append(tokens[i]).append(' ');
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(key.toString().getBytes(StandardCharsets.UTF_8));
+        return String.format("%08x", crc.getValue());
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getOptions() {
+        return options;
+    }
+
+    public long getJvmRunCount() {
+        return jvmRunCount;
+    }
+
+    public void setJvmRunCount(long jvmRunCount) {
+        this.jvmRunCount = jvmRunCount;
+    }
+
+    public long getSafepointEventCount() {
+        return safepointEventCount;
+    }
+
+    public void setSafepointEventCount(long safepointEventCount) {
+        this.safepointEventCount = safepointEventCount;
+    }
+
+    public long getSafepointTotalPause() {
+        return safepointTotalPause;
+    }
+
+    public void setSafepointTotalPause(long safepointTotalPause) {
+        this.safepointTotalPause = safepointTotalPause;
+    }
+
+    public long getMaxPause() {
+        return maxPause;
+    }
+
+    public void setMaxPause(long maxPause) {
+        this.maxPause = maxPause;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    public long getSafepointStormCount() {
+        return safepointStormCount;
+    }
+
+    public void setSafepointStormCount(long safepointStormCount) {
+        this.safepointStormCount = safepointStormCount;
+    }
+
+    public PauseHistogram getPauseHistogram() {
+        return pauseHistogram;
+    }
+
+    public PauseTimeline getPauseTimeline() {
+        return pauseTimeline;
+    }
+
+    public Map<Trigger, PauseHistogram> getTriggerPauseHistograms() {
+        return triggerPauseHistograms;
+    }
+
+    public long[] getWindowMaxPauses() {
+        return windowMaxPauses;
+    }
+
+    public TopSafepointEvents getTopSafepointEvents() {
+        return topSafepointEvents;
+    }
+}
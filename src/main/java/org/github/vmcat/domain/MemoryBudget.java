@@ -0,0 +1,186 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain;
+
+import org.github.vmcat.util.Constants;
+
+/**
+ * <p>
+ * Heap memory budget for analyzing a vm log. Without a budget, memory grows with the size of the vm log and the number
+ * of JVM runs in it. With a budget, the sketches of a JVM run (pause histograms, the longest safepoints, the pause
+ * series, mutator utilization and storms) are charged at their largest size for the current JVM run and a JVM run
+ * being reported. An ended JVM run drops its sketches and rebuilds them from the data store when reported, so it only
+ * keeps a few counters. The data structures that grow with the vm log are bounded by a share of the rest of the budget:
+ * </p>
+ * 
+ * <ul>
+ * <li>Safepoint events are spilled to a disk based data store that caches a bounded number of rows for the current JVM
+ * run and a JVM run being reported.</li>
+ * <li>The reorder buffer holds a bounded number of events. Events released early because the buffer is full can cause
+ * later events to be outside the reorder horizon.</li>
+ * <li>A bounded number of throughput bottleneck lines are kept for the report, split between the JVM runs. Bottleneck
+ * time and overlaps still include all events.</li>
+ * <li>A bounded number of reported JVM runs are cached, so reports that visit the JVM runs more than once do not
+ * rebuild them each time.</li>
+ * </ul>
+ * 
+ * <p>
+ * Unidentified log lines and log lines outside the reorder horizon are limited for all JVM runs together. The
+ * remainder of the budget is headroom for parsing and reporting.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class MemoryBudget {
+
+    /**
+     * The estimated bytes for the sketches of a JVM run at their largest size (e.g. a pause series with all buckets for
+     * several triggers).
+     */
+    private static final long JVM_RUN_SIZE = 4L * 1024 * 1024;
+
+    /**
+     * The share (1/n) of the budget for each data store row cache.
+     */
+    private static final int ROW_CACHE_SHARE = 16;
+
+    /**
+     * The share (1/n) of the budget for the reorder buffer.
+     */
+    private static final int REORDER_BUFFER_SHARE = 8;
+
+    /**
+     * The share (1/n) of the budget for throughput bottleneck lines.
+     */
+    private static final int BOTTLENECK_SHARE = 16;
+
+    /**
+     * The share (1/n) of the budget for cached reported JVM runs.
+     */
+    private static final int JVM_RUN_CACHE_SHARE = 8;
+
+    /**
+     * The estimated size (bytes) of a cached data store row is 2^n.
+     */
+    private static final int ROW_SIZE_SCALE = 9;
+
+    /**
+     * The estimated bytes for a buffered <code>SafepointEvent</code>, including the log entry.
+     */
+    private static final long EVENT_SIZE = 1024;
+
+    /**
+     * The estimated bytes for a throughput bottleneck line.
+     */
+    private static final long LINE_SIZE = 512;
+
+    /**
+     * The smallest data store row cache (3 * 2^n rows).
+     */
+    private static final int MIN_CACHE_SCALE = 8;
+
+    /**
+     * The largest data store row cache (3 * 2^n rows).
+     */
+    private static final int MAX_CACHE_SCALE = 18;
+
+    /**
+     * The smallest reorder buffer limit.
+     */
+    private static final int MIN_REORDER_BUFFER_LIMIT = 1000;
+
+    /**
+     * The smallest number of throughput bottleneck lines kept.
+     */
+    private static final int MIN_BOTTLENECK_LINE_LIMIT = 100;
+
+    /**
+     * The memory budget (bytes).
+     */
+    private long maxMemory;
+
+    /**
+     * Default constructor.
+     * 
+     * @param maxMemory
+     *            The memory budget (bytes).
+     */
+    public MemoryBudget(long maxMemory) {
+        this.maxMemory = maxMemory;
+    }
+
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    /**
+     * @return The budget shared by the data structures that grow with the vm log: the budget less the sketches of the
+     *         current JVM run and a JVM run being reported.
+     */
+    private long getSharedMemory() {
+        return Math.max(0, maxMemory - 2 * JVM_RUN_SIZE);
+    }
+
+    /**
+     * @return The data store row cache size scale: the cache holds up to 3 * 2^n rows.
+     */
+    public int getCacheScale() {
+        long rows = getSharedMemory() / ROW_CACHE_SHARE / (3L << ROW_SIZE_SCALE);
+        int scale = 63 - Long.numberOfLeadingZeros(Math.max(1, rows));
+        return Math.max(MIN_CACHE_SCALE, Math.min(MAX_CACHE_SCALE, scale));
+    }
+
+    /**
+     * @return The data store row cache bytes scale: the cache holds up to 3 * 2^(cache scale + n) bytes.
+     */
+    public int getCacheSizeScale() {
+        return ROW_SIZE_SCALE;
+    }
+
+    /**
+     * @return The maximum number of safepoint events to buffer to put events back in timestamp order.
+     */
+    public int getReorderBufferLimit() {
+        long limit = getSharedMemory() / REORDER_BUFFER_SHARE / EVENT_SIZE;
+        return (int) Math.max(MIN_REORDER_BUFFER_LIMIT, Math.min(Constants.REORDER_BUFFER_LIMIT, limit));
+    }
+
+    /**
+     * @return The maximum number of throughput bottleneck lines to keep for the report.
+     */
+    public int getBottleneckLineLimit() {
+        long limit = getSharedMemory() / BOTTLENECK_SHARE / LINE_SIZE;
+        return (int) Math.max(MIN_BOTTLENECK_LINE_LIMIT, Math.min(Integer.MAX_VALUE, limit));
+    }
+
+    /**
+     * @return The memory limit (estimated bytes) for cached reported JVM runs.
+     */
+    public long getJvmRunCacheLimit() {
+        return getSharedMemory() / JVM_RUN_CACHE_SHARE;
+    }
+
+    /**
+     * Split the budget between analyses done concurrently.
+     * 
+     * @param count
+     *            The number of concurrent analyses.
+     * @return The budget for each analysis.
+     */
+    public MemoryBudget share(int count) {
+        return new MemoryBudget(maxMemory / count);
+    }
+}
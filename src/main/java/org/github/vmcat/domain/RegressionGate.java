@@ -0,0 +1,288 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.github.vmcat.domain.jdk.PauseHistogram;
+import org.github.vmcat.util.Constants;
+import org.github.vmcat.util.jdk.Safepoint;
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
+import org.json.JSONWriter;
+
+/**
+ * <p>
+ * Performance regression gates (e.g. for failing a CI build): service level objectives for throughput, pause time,
+ * p99 pause time by trigger, time in safepoint storms, and time below the throughput threshold.
+ * </p>
+ * 
+ * <p>
+ * Gates are evaluated on the worst JVM run from the values already calculated for the report (e.g. the per-trigger
+ * pause histograms), so evaluation does not add another pass over the data. Each gate has an exit code bit, so the
+ * exit code identifies all the failed gates.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class RegressionGate {
+
+    /**
+     * Minimum throughput (percent), or null if not gated.
+     */
+    private Long minThroughput;
+
+    /**
+     * Maximum pause (milliseconds), or null if not gated.
+     */
+    private Long maxPause;
+
+    /**
+     * Maximum p99 pause (milliseconds) for any <code>Trigger</code> without its own limit, or null if not gated.
+     */
+    private Long maxP99;
+
+    /**
+     * Maximum p99 pause (milliseconds) by <code>Trigger</code>.
+     */
+    private Map<Trigger, Long> triggerMaxP99s;
+
+    /**
+     * Maximum percent of time in safepoint storms, or null if not gated.
+     */
+    private Long maxStormTime;
+
+    /**
+     * Maximum time (milliseconds) below the throughput threshold, or null if not gated.
+     */
+    private Long maxBottleneckTime;
+
+    /**
+     * The number of safepoints in the JVM runs last evaluated.
+     */
+    private long safepointEventCount;
+
+    /**
+     * Default constructor.
+     */
+    public RegressionGate() {
+        triggerMaxP99s = new EnumMap<Trigger, Long>(Trigger.class);
+    }
+
+    public void setMinThroughput(Long minThroughput) {
+        this.minThroughput = minThroughput;
+    }
+
+    public void setMaxPause(Long maxPause) {
+        this.maxPause = maxPause;
+    }
+
+    public void setMaxStormTime(Long maxStormTime) {
+        this.maxStormTime = maxStormTime;
+    }
+
+    public void setMaxBottleneckTime(Long maxBottleneckTime) {
+        this.maxBottleneckTime = maxBottleneckTime;
+    }
+
+    /**
+     * Set the p99 pause limits.
+     * 
+     * @param maxP99s
+     *            Comma separated limits (milliseconds): a number for all triggers, or a trigger literal (e.g.
+     *            "RevokeBias") or name (e.g. "REVOKE_BIAS"), "=", and a number for a single trigger.
+     * @throws IllegalArgumentException
+     *             if a limit is not valid.
+     */
+    public void setMaxP99s(String maxP99s) {
+        String[] limits = maxP99s.split(",");
+        for (int i = 0; i < limits.length; i++) {
+            String limit = limits[i].trim();
+            int separator = limit.lastIndexOf('=');
+            try {
+                if (separator < 0) {
+                    maxP99 = Long.valueOf(limit);
+                } else {
+                    Trigger trigger = getTrigger(limit.substring(0, separator).trim());
+                    if (trigger == null) {
+                        throw new IllegalArgumentException("Unknown trigger: '" + limit.substring(0, separator) + "'");
+                    }
+                    triggerMaxP99s.put(trigger, Long.valueOf(limit.substring(separator + 1).trim()));
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid p99 limit: '" + limit + "'");
+            }
+        }
+    }
+
+    /**
+     * @param trigger
+     *            A trigger literal (e.g. "RevokeBias") or name (e.g. "REVOKE_BIAS").
+     * @return The <code>Trigger</code>, or null if unknown.
+     */
+    private static Trigger getTrigger(String trigger) {
+        Trigger[] triggers = Trigger.values();
+        for (int i = 0; i < triggers.length; i++) {
+            if (trigger.equals(triggers[i].name()) || trigger.equals(getTriggerLiteral(triggers[i]))) {
+                return triggers[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param trigger
+     *            The <code>Trigger</code>.
+     * @return The trigger literal in the vm log line, or the name if there is no literal (e.g. unknown).
+     */
+    private static String getTriggerLiteral(Trigger trigger) {
+        return trigger == Trigger.UNKNOWN ? trigger.name() : Safepoint.getTriggerLiteral(trigger);
+    }
+
+    /**
+     * @return true if any gate is set, false otherwise.
+     */
+    public boolean isEnabled() {
+        return minThroughput != null || maxPause != null || maxP99 != null || !triggerMaxP99s.isEmpty()
+                || maxStormTime != null || maxBottleneckTime != null;
+    }
+
+    /**
+     * Evaluate the gates on the worst JVM run. Each JVM run is retrieved once.
+     * 
+     * @param jvmRuns
+     *            The JVM runs.
+     * @return The result of each gate.
+     */
+    public List<GateCheck> evaluate(List<JvmRun> jvmRuns) {
+        long throughput = 100;
+        long pause = 0;
+        long stormTime = 0;
+        long bottleneckTime = 0;
+        Map<Trigger, Long> p99s = new EnumMap<Trigger, Long>(Trigger.class);
+        safepointEventCount = 0;
+        Iterator<JvmRun> iterator = jvmRuns.iterator();
+        while (iterator.hasNext()) {
+            JvmRun jvmRun = iterator.next();
+            safepointEventCount = safepointEventCount + jvmRun.getSafepointEventCount();
+            throughput = Math.min(throughput, jvmRun.getThroughput());
+            pause = Math.max(pause, jvmRun.getMaxPause());
+            stormTime = Math.max(stormTime, jvmRun.getStormTimeShare());
+            bottleneckTime = Math.max(bottleneckTime, jvmRun.getBottleneckTime());
+            if (jvmRun.getTriggerPauseHistograms() != null) {
+                Iterator<Map.Entry<Trigger, PauseHistogram>> histograms = jvmRun.getTriggerPauseHistograms()
+                        .entrySet().iterator();
+                while (histograms.hasNext()) {
+                    Map.Entry<Trigger, PauseHistogram> entry = histograms.next();
+                    long p99 = entry.getValue().getValueAtPercentile(99);
+                    Long worst = p99s.get(entry.getKey());
+                    p99s.put(entry.getKey(), worst == null ? p99 : Math.max(worst, p99));
+                }
+            }
+        }
+        List<GateCheck> checks = new ArrayList<GateCheck>();
+        if (minThroughput != null) {
+            checks.add(new GateCheck(Constants.OPTION_GATE_THROUGHPUT_LONG, null, minThroughput, throughput, true,
+                    Constants.EXIT_GATE_THROUGHPUT));
+        }
+        if (maxPause != null) {
+            checks.add(new GateCheck(Constants.OPTION_GATE_PAUSE_LONG, null, maxPause, pause, false,
+                    Constants.EXIT_GATE_PAUSE));
+        }
+        Set<Trigger> triggers = EnumSet.noneOf(Trigger.class);
+        triggers.addAll(triggerMaxP99s.keySet());
+        if (maxP99 != null) {
+            triggers.addAll(p99s.keySet());
+        }
+        Iterator<Trigger> triggerIterator = triggers.iterator();
+        while (triggerIterator.hasNext()) {
+            Trigger trigger = triggerIterator.next();
+            Long limit = triggerMaxP99s.containsKey(trigger) ? triggerMaxP99s.get(trigger) : maxP99;
+            Long p99 = p99s.get(trigger);
+            checks.add(new GateCheck(Constants.OPTION_GATE_P99_LONG, trigger, limit, p99 == null ? 0 : p99, false,
+                    Constants.EXIT_GATE_P99));
+        }
+        if (maxStormTime != null) {
+            checks.add(new GateCheck(Constants.OPTION_GATE_STORM_LONG, null, maxStormTime, stormTime, false,
+                    Constants.EXIT_GATE_STORM));
+        }
+        if (maxBottleneckTime != null) {
+            checks.add(new GateCheck(Constants.OPTION_GATE_BOTTLENECK_LONG, null, maxBottleneckTime, bottleneckTime,
+                    false, Constants.EXIT_GATE_BOTTLENECK));
+        }
+        return checks;
+    }
+
+    /**
+     * @param checks
+     *            The result of each gate (<code>evaluate</code>).
+     * @return 0 if all gates passed, <code>Constants.EXIT_GATE_NO_DATA</code> if there are no safepoints in the JVM
+     *         runs evaluated, otherwise the bitwise or of the exit code bits of the failed gates.
+     */
+    public int getExitCode(List<GateCheck> checks) {
+        if (safepointEventCount == 0) {
+            return Constants.EXIT_GATE_NO_DATA;
+        }
+        int exitCode = 0;
+        Iterator<GateCheck> checkIterator = checks.iterator();
+        while (checkIterator.hasNext()) {
+            GateCheck check = checkIterator.next();
+            if (!check.isPassed()) {
+                exitCode = exitCode | check.getExitCode();
+            }
+        }
+        return exitCode;
+    }
+
+    /**
+     * @param exitCode
+     *            The exit code.
+     * @param checks
+     *            The result of each gate.
+     * @return The verdict as single line JSON (e.g. for CI logs).
+     */
+    public static String getVerdict(int exitCode, List<GateCheck> checks) {
+        StringWriter verdict = new StringWriter();
+        JSONWriter json = new JSONWriter(verdict);
+        json.object();
+        json.key("verdict").value(exitCode == 0 ? "pass" : (exitCode == Constants.EXIT_GATE_NO_DATA ? "no data"
+                : "fail"));
+        json.key("exitCode").value(exitCode);
+        json.key("checks").array();
+        Iterator<GateCheck> iterator = checks.iterator();
+        while (iterator.hasNext()) {
+            GateCheck check = iterator.next();
+            json.object();
+            json.key("gate").value(check.getName());
+            if (check.getTrigger() != null) {
+                json.key("trigger").value(getTriggerLiteral(check.getTrigger()));
+            }
+            json.key("limit").value(check.getLimit());
+            json.key("value").value(check.getValue());
+            json.key("pass").value(check.isPassed());
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+        return verdict.toString();
+    }
+}
@@ -0,0 +1,180 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain.jdk;
+
+/**
+ * <p>
+ * Safepoints rolled up by wall clock hour of day and day of week, to match pause spikes with traffic peaks and
+ * scheduled jobs.
+ * </p>
+ * 
+ * <p>
+ * Uptime is converted to wall clock time by adding the JVM start time and a fixed time zone offset, so a daylight
+ * saving time change during the JVM run shifts the later safepoints by the change.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class CalendarRollup {
+
+    /**
+     * Milliseconds in an hour.
+     */
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    /**
+     * Milliseconds in a day.
+     */
+    private static final long DAY = 24 * HOUR;
+
+    /**
+     * Day of week literals, starting on Monday (ISO-8601).
+     */
+    private static final String[] DAYS_OF_WEEK = { "Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun" };
+
+    /**
+     * The JVM start time (milliseconds since the epoch).
+     */
+    private long startTime;
+
+    /**
+     * The time zone offset (milliseconds) of the wall clock.
+     */
+    private int zoneOffset;
+
+    /**
+     * The number of safepoints in each hour of day.
+     */
+    private long[] hourCounts;
+
+    /**
+     * The total pause time (milliseconds) in each hour of day.
+     */
+    private long[] hourPauses;
+
+    /**
+     * The number of safepoints on each day of week, starting on Monday.
+     */
+    private long[] dayCounts;
+
+    /**
+     * The total pause time (milliseconds) on each day of week, starting on Monday.
+     */
+    private long[] dayPauses;
+
+    /**
+     * @param startTime
+     *            The JVM start time (milliseconds since the epoch).
+     * @param zoneOffset
+     *            The time zone offset (milliseconds) of the wall clock.
+     */
+    public CalendarRollup(long startTime, int zoneOffset) {
+        this.startTime = startTime;
+        this.zoneOffset = zoneOffset;
+        hourCounts = new long[24];
+        hourPauses = new long[24];
+        dayCounts = new long[DAYS_OF_WEEK.length];
+        dayPauses = new long[DAYS_OF_WEEK.length];
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public int getZoneOffset() {
+        return zoneOffset;
+    }
+
+    /**
+     * @param timestamp
+     *            The safepoint timestamp (milliseconds after JVM startup).
+     * @param pause
+     *            The pause time (milliseconds).
+     */
+    public void add(long timestamp, long pause) {
+        long localTime = startTime + timestamp + zoneOffset;
+        int hour = getHourOfDay(localTime);
+        hourCounts[hour]++;
+        hourPauses[hour] += pause;
+        int day = getDayOfWeek(localTime);
+        dayCounts[day]++;
+        dayPauses[day] += pause;
+    }
+
+    /**
+     * @param hour
+     *            The hour of day (0-23).
+     * @return The number of safepoints in the hour of day.
+     */
+    public long getHourCount(int hour) {
+        return hourCounts[hour];
+    }
+
+    /**
+     * @param hour
+     *            The hour of day (0-23).
+     * @return The total pause time (milliseconds) in the hour of day.
+     */
+    public long getHourPause(int hour) {
+        return hourPauses[hour];
+    }
+
+    /**
+     * @param day
+     *            The day of week (0-6, starting on Monday).
+     * @return The number of safepoints on the day of week.
+     */
+    public long getDayCount(int day) {
+        return dayCounts[day];
+    }
+
+    /**
+     * @param day
+     *            The day of week (0-6, starting on Monday).
+     * @return The total pause time (milliseconds) on the day of week.
+     */
+    public long getDayPause(int day) {
+        return dayPauses[day];
+    }
+
+    /**
+     * @param day
+     *            The day of week (0-6, starting on Monday).
+     * @return The day of week literal (e.g. "Mon").
+     */
+    public static String getDayOfWeekLiteral(int day) {
+        return DAYS_OF_WEEK[day];
+    }
+
+    /**
+     * @param localTime
+     *            The wall clock time (milliseconds since the epoch plus the time zone offset).
+     * @return The hour of day (0-23).
+     */
+    static int getHourOfDay(long localTime) {
+        return (int) (Math.floorMod(localTime, DAY) / HOUR);
+    }
+
+    /**
+     * @param localTime
+     *            The wall clock time (milliseconds since the epoch plus the time zone offset).
+     * @return The day of week (0-6, starting on Monday).
+     */
+    static int getDayOfWeek(long localTime) {
+        // 1970-01-01 was a Thursday
+        return (int) Math.floorMod(Math.floorDiv(localTime, DAY) + 3, 7L);
+    }
+}
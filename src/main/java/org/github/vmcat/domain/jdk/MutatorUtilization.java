@@ -0,0 +1,197 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain.jdk;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * <p>
+ * Streaming minimum mutator utilization (MMU): for each window size, the most safepoint pause time in any window of
+ * that size, from which the lowest percent of a window the application threads were running is calculated.
+ * </p>
+ * 
+ * <p>
+ * The pause time in a window only increases while the window end moves through a pause and the window start moves
+ * through a gap, so the worst window either ends at the end of a pause or starts at the start of a pause. Both are
+ * calculated from the cumulative pause time at the start of each pause: windows ending at a pause end when the pause
+ * is added, and windows starting at a pause start when the first pause starting after the window end is added (or
+ * when the maximum is requested).
+ * </p>
+ * 
+ * <p>
+ * Events must be added in timestamp order. A pause starting before the previous pause ends is moved to the end of
+ * the previous pause. Memory is bounded by the number of events in one window of each size. Maximums for different
+ * JVM runs are combined by taking the largest, since no window spans two JVM runs.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class MutatorUtilization {
+
+    /**
+     * The window sizes (milliseconds).
+     */
+    private long[] windows;
+
+    /**
+     * The most pause time (milliseconds) in a completed window of each size.
+     */
+    private long[] maxPauses;
+
+    /**
+     * For each window size, the pauses in the window ending at the end of the last pause, oldest first: start, end
+     * and cumulative pause time before the pause.
+     */
+    private Deque<long[]>[] pauses;
+
+    /**
+     * For each window size, the windows starting at a pause start that might not be complete, oldest first: start
+     * and cumulative pause time before the pause.
+     */
+    private Deque<long[]>[] pendingWindows;
+
+    /**
+     * The start of the last pause (milliseconds).
+     */
+    private long lastStart;
+
+    /**
+     * The end of the last pause (milliseconds).
+     */
+    private long lastEnd = Long.MIN_VALUE;
+
+    /**
+     * The cumulative pause time (milliseconds) before the last pause.
+     */
+    private long lastCumulativePause;
+
+    /**
+     * The cumulative pause time (milliseconds).
+     */
+    private long cumulativePause;
+
+    /**
+     * Default constructor.
+     * 
+     * @param windows
+     *            The window sizes (milliseconds).
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public MutatorUtilization(long[] windows) {
+        this.windows = windows;
+        maxPauses = new long[windows.length];
+        pauses = new Deque[windows.length];
+        pendingWindows = new Deque[windows.length];
+        for (int i = 0; i < windows.length; i++) {
+            pauses[i] = new ArrayDeque<long[]>();
+            pendingWindows[i] = new ArrayDeque<long[]>();
+        }
+    }
+
+    /**
+     * Add the next safepoint.
+     * 
+     * @param event
+     *            The <code>SafepointEvent</code>.
+     */
+    public void add(SafepointEvent event) {
+        add(event.getTimestamp(), event.getDuration());
+    }
+
+    /**
+     * Add the next pause.
+     * 
+     * @param timestamp
+     *            The pause start (milliseconds).
+     * @param duration
+     *            The pause duration (milliseconds).
+     */
+    public void add(long timestamp, long duration) {
+        long start = Math.max(timestamp, lastEnd);
+        long end = start + duration;
+        for (int i = 0; i < windows.length; i++) {
+            // Complete the windows starting at a pause start that end at or before this pause start.
+            while (!pendingWindows[i].isEmpty() && pendingWindows[i].peekFirst()[0] + windows[i] <= start) {
+                maxPauses[i] = Math.max(maxPauses[i], getPendingWindowPause(pendingWindows[i].removeFirst(), i));
+            }
+            pendingWindows[i].addLast(new long[] { start, cumulativePause });
+            // The window ending at this pause end.
+            pauses[i].addLast(new long[] { start, end, cumulativePause });
+            while (pauses[i].peekFirst()[1] <= end - windows[i]) {
+                pauses[i].removeFirst();
+            }
+            long[] first = pauses[i].peekFirst();
+            long pause = cumulativePause + duration - first[2] - Math.max(0, end - windows[i] - first[0]);
+            maxPauses[i] = Math.max(maxPauses[i], pause);
+        }
+        lastStart = start;
+        lastEnd = end;
+        lastCumulativePause = cumulativePause;
+        cumulativePause = cumulativePause + duration;
+    }
+
+    /**
+     * @param window
+     *            A window starting at a pause start: start and cumulative pause time before the pause.
+     * @param index
+     *            The window size index.
+     * @return The pause time in the window (milliseconds), assuming no pause after the last pause starts in the
+     *         window.
+     */
+    private long getPendingWindowPause(long[] window, int index) {
+        return lastCumulativePause - window[1]
+                + Math.min(cumulativePause - lastCumulativePause, window[0] + windows[index] - lastStart);
+    }
+
+    public long[] getWindows() {
+        return windows;
+    }
+
+    /**
+     * @return The most pause time (milliseconds) in any window of each size so far.
+     */
+    public long[] getMaxPauses() {
+        long[] max = Arrays.copyOf(maxPauses, maxPauses.length);
+        for (int i = 0; i < windows.length; i++) {
+            Iterator<long[]> iterator = pendingWindows[i].iterator();
+            while (iterator.hasNext()) {
+                max[i] = Math.max(max[i], getPendingWindowPause(iterator.next(), i));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @param window
+     *            The window size (milliseconds).
+     * @param maxPause
+     *            The most pause time (milliseconds) in any window of that size.
+     * @return The minimum percent of a window not in safepoints.
+     */
+    public static long getMmu(long window, long maxPause) {
+        if (window <= 0) {
+            return 100L;
+        }
+        BigDecimal mmu = new BigDecimal(Math.max(0, window - maxPause));
+        mmu = mmu.divide(new BigDecimal(window), 2, RoundingMode.HALF_EVEN);
+        return mmu.movePointRight(2).longValue();
+    }
+}
@@ -0,0 +1,133 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain.jdk;
+
+/**
+ * <p>
+ * Mann-Whitney U test of whether candidate safepoint pause times tend to be longer or shorter than baseline pause
+ * times. The test is non-parametric (pause times are not normally distributed) and uses ranks, so a few very long
+ * pauses do not dominate the result.
+ * </p>
+ * 
+ * <p>
+ * The test is calculated from <code>PauseHistogram</code>s, not individual pauses, so it runs in time and memory
+ * proportional to the number of buckets. Pauses in the same bucket are ranked as ties, and the p-value is calculated
+ * with the tie-corrected normal approximation (with continuity correction), which is accurate for the large number of
+ * pauses in a vm log.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class PauseComparison {
+
+    /**
+     * The number of baseline pauses.
+     */
+    private long baselineCount;
+
+    /**
+     * The number of candidate pauses.
+     */
+    private long candidateCount;
+
+    /**
+     * The probability a random candidate pause is longer than a random baseline pause (ties count half): 0.5 if there
+     * is no difference.
+     */
+    private double probabilityLonger = 0.5;
+
+    /**
+     * The two-sided p-value: the probability of a difference at least this large if there is no difference.
+     */
+    private double pValue = 1.0;
+
+    /**
+     * Default constructor.
+     * 
+     * @param baseline
+     *            The baseline pause histogram.
+     * @param candidate
+     *            The candidate pause histogram.
+     */
+    public PauseComparison(PauseHistogram baseline, PauseHistogram candidate) {
+        baselineCount = baseline.getCount();
+        candidateCount = candidate.getCount();
+        if (baselineCount == 0 || candidateCount == 0) {
+            return;
+        }
+        double n1 = baselineCount;
+        double n2 = candidateCount;
+        double n = n1 + n2;
+        double rank = 0;
+        double candidateRankSum = 0;
+        double tieCorrection = 0;
+        for (int i = 0; i < PauseHistogram.BUCKET_COUNT; i++) {
+            double ties = baseline.getBucketCount(i) + candidate.getBucketCount(i);
+            if (ties > 0) {
+                candidateRankSum += candidate.getBucketCount(i) * (rank + (ties + 1) / 2);
+                tieCorrection += ties * ties * ties - ties;
+                rank += ties;
+            }
+        }
+        double u = candidateRankSum - n2 * (n2 + 1) / 2;
+        probabilityLonger = u / (n1 * n2);
+        double variance = n1 * n2 / 12 * ((n + 1) - tieCorrection / (n * (n - 1)));
+        if (variance > 0) {
+            double z = Math.max(0, Math.abs(u - n1 * n2 / 2) - 0.5) / Math.sqrt(variance);
+            pValue = Math.min(1.0, erfc(z / Math.sqrt(2)));
+        }
+    }
+
+    /**
+     * @param x
+     *            A value at or above zero.
+     * @return The complementary error function (Abramowitz and Stegun 7.1.26, error below 1.5e-7).
+     */
+    private static double erfc(double x) {
+        double t = 1 / (1 + 0.3275911 * x);
+        double polynomial = t * (0.254829592
+                + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429))));
+        return polynomial * Math.exp(-x * x);
+    }
+
+    public long getBaselineCount() {
+        return baselineCount;
+    }
+
+    public long getCandidateCount() {
+        return candidateCount;
+    }
+
+    public double getProbabilityLonger() {
+        return probabilityLonger;
+    }
+
+    public double getPValue() {
+        return pValue;
+    }
+
+    /**
+     * @param significance
+     *            The p-value below which a difference is not attributed to noise (e.g. 0.05).
+     * @return 1 if candidate pauses are significantly longer, -1 if significantly shorter, 0 otherwise.
+     */
+    public int getChange(double significance) {
+        if (pValue >= significance || probabilityLonger == 0.5) {
+            return 0;
+        }
+        return probabilityLonger > 0.5 ? 1 : -1;
+    }
+}
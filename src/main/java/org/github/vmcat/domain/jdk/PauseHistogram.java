@@ -0,0 +1,216 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain.jdk;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A mergeable histogram of safepoint pause times (milliseconds) for percentiles over any number of JVM runs.
+ * </p>
+ * 
+ * <p>
+ * The buckets are log-linear: values below 64 have one bucket each, and each power of 2 above that is split into 32
+ * buckets, so a percentile is within about 3% of the exact value. The bucket boundaries are fixed, so histograms are
+ * merged by adding counts, and the size does not depend on the number of events.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class PauseHistogram {
+
+    /**
+     * The number of bits of precision: each power of 2 is split into 2^SUB_BUCKET_BITS buckets.
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /**
+     * The number of buckets per power of 2.
+     */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Values below this have one bucket per value.
+     */
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKET_COUNT;
+
+    /**
+     * The exponent of the first log bucket.
+     */
+    private static final int LINEAR_BITS = SUB_BUCKET_BITS + 1;
+
+    /**
+     * The number of buckets, enough for any <code>int</code> value.
+     */
+    public static final int BUCKET_COUNT = LINEAR_LIMIT + (Integer.SIZE - 1 - LINEAR_BITS) * SUB_BUCKET_COUNT;
+
+    /**
+     * The number of values in each bucket.
+     */
+    private long[] counts;
+
+    /**
+     * The number of values.
+     */
+    private long count;
+
+    /**
+     * The largest value.
+     */
+    private long max;
+
+    /**
+     * Default constructor.
+     */
+    public PauseHistogram() {
+        counts = new long[BUCKET_COUNT];
+    }
+
+    /**
+     * @param value
+     *            A value (milliseconds).
+     * @return The bucket index for the value.
+     */
+    public static int getBucket(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) Math.max(0, value);
+        }
+        if (value > Integer.MAX_VALUE) {
+            value = Integer.MAX_VALUE;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return LINEAR_LIMIT + (exponent - LINEAR_BITS) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * @param bucket
+     *            A bucket index.
+     * @return The largest value in the bucket.
+     */
+    public static long getBucketMax(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int exponent = LINEAR_BITS + (bucket - LINEAR_LIMIT) / SUB_BUCKET_COUNT;
+        int subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKET_COUNT;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (SUB_BUCKET_COUNT + subBucket) * width + width - 1;
+    }
+
+    /**
+     * @param value
+     *            A pause time (milliseconds).
+     */
+    public void add(long value) {
+        counts[getBucket(value)]++;
+        count++;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Add the values of another histogram.
+     * 
+     * @param histogram
+     *            The histogram to add.
+     */
+    public void merge(PauseHistogram histogram) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += histogram.counts[i];
+        }
+        count += histogram.count;
+        max = Math.max(max, histogram.max);
+    }
+
+    /**
+     * Restore the count for a bucket (e.g. from a saved histogram).
+     * 
+     * @param bucket
+     *            The bucket index.
+     * @param bucketCount
+     *            The number of values in the bucket.
+     */
+    public void addBucketCount(int bucket, long bucketCount) {
+        counts[bucket] += bucketCount;
+        count += bucketCount;
+        max = Math.max(max, getBucketMax(bucket));
+    }
+
+    /**
+     * Restore the largest value (e.g. from a saved histogram). Must be called after the bucket counts are restored.
+     * 
+     * @param max
+     *            The largest value.
+     */
+    public void setMax(long max) {
+        this.max = max;
+    }
+
+    /**
+     * @param percentile
+     *            The percentile (0-100).
+     * @return The value (milliseconds) at or below which <code>percentile</code> percent of the values fall, to the
+     *         precision of the buckets, or 0 if there are no values.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * count);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts[i];
+            if (total >= rank) {
+                return Math.min(getBucketMax(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @param bucket
+     *            The bucket index.
+     * @return The number of values in the bucket.
+     */
+    public long getBucketCount(int bucket) {
+        return counts[bucket];
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public boolean equals(Object object) {
+        if (!(object instanceof PauseHistogram)) {
+            return false;
+        }
+        PauseHistogram histogram = (PauseHistogram) object;
+        return count == histogram.count && max == histogram.max && Arrays.equals(counts, histogram.counts);
+    }
+
+    public int hashCode() {
+        return Arrays.hashCode(counts);
+    }
+}
@@ -0,0 +1,221 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain.jdk;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
+
+/**
+ * <p>
+ * A bounded resolution series of safepoints for charting: the longest safepoint, number of safepoints and total
+ * pause time by trigger in fixed width buckets of JVM uptime.
+ * </p>
+ * 
+ * <p>
+ * The bucket width starts narrow and doubles (merging adjacent buckets) whenever a safepoint is past the last bucket,
+ * so memory is bounded by the bucket limit regardless of the number of events or uptime covered.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class PauseSeries {
+
+    /**
+     * The maximum number of buckets.
+     */
+    private int limit;
+
+    /**
+     * The bucket width (milliseconds of uptime).
+     */
+    private long bucketWidth;
+
+    /**
+     * The number of safepoints in each bucket.
+     */
+    private long[] counts;
+
+    /**
+     * The longest pause (milliseconds) in each bucket.
+     */
+    private long[] maxPauses;
+
+    /**
+     * The timestamp (milliseconds after JVM startup) of the longest pause in each bucket.
+     */
+    private long[] maxTimestamps;
+
+    /**
+     * The total pause time (milliseconds) in each bucket by trigger.
+     */
+    private Map<Trigger, long[]> triggerPauses;
+
+    /**
+     * The number of buckets, up to the last bucket with a safepoint.
+     */
+    private int size;
+
+    /**
+     * @param bucketWidth
+     *            The initial bucket width (milliseconds of uptime).
+     * @param limit
+     *            The maximum number of buckets.
+     */
+    public PauseSeries(long bucketWidth, int limit) {
+        this.bucketWidth = bucketWidth;
+        this.limit = limit;
+        counts = new long[0];
+        maxPauses = new long[0];
+        maxTimestamps = new long[0];
+        triggerPauses = new EnumMap<Trigger, long[]>(Trigger.class);
+    }
+
+    public long getBucketWidth() {
+        return bucketWidth;
+    }
+
+    /**
+     * @return The number of buckets, up to the last bucket with a safepoint.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param bucket
+     *            The bucket index.
+     * @return The number of safepoints in the bucket.
+     */
+    public long getCount(int bucket) {
+        return counts[bucket];
+    }
+
+    /**
+     * @param bucket
+     *            The bucket index.
+     * @return The longest pause (milliseconds) in the bucket.
+     */
+    public long getMaxPause(int bucket) {
+        return maxPauses[bucket];
+    }
+
+    /**
+     * @param bucket
+     *            The bucket index.
+     * @return The timestamp (milliseconds after JVM startup) of the longest pause in the bucket.
+     */
+    public long getMaxTimestamp(int bucket) {
+        return maxTimestamps[bucket];
+    }
+
+    /**
+     * @return The total pause time (milliseconds) in each bucket by trigger. Arrays can be longer than the number of
+     *         buckets.
+     */
+    public Map<Trigger, long[]> getTriggerPauses() {
+        return triggerPauses;
+    }
+
+    /**
+     * @param event
+     *            The safepoint event.
+     */
+    public void add(SafepointEvent event) {
+        add(event.getTimestamp(), event.getDuration(),
+                event.getTrigger() == null ? Trigger.UNKNOWN : event.getTrigger());
+    }
+
+    /**
+     * @param timestamp
+     *            The safepoint timestamp (milliseconds after JVM startup).
+     * @param pause
+     *            The pause time (milliseconds).
+     * @param trigger
+     *            The safepoint trigger.
+     */
+    public void add(long timestamp, long pause, Trigger trigger) {
+        timestamp = Math.max(0, timestamp);
+        while (timestamp / bucketWidth >= limit) {
+            widen();
+        }
+        int bucket = (int) (timestamp / bucketWidth);
+        if (bucket >= counts.length) {
+            int length = Math.min(limit, Math.max(bucket + 1, counts.length * 2));
+            counts = Arrays.copyOf(counts, length);
+            maxPauses = Arrays.copyOf(maxPauses, length);
+            maxTimestamps = Arrays.copyOf(maxTimestamps, length);
+            Iterator<Map.Entry<Trigger, long[]>> iterator = triggerPauses.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Trigger, long[]> entry = iterator.next();
+                entry.setValue(Arrays.copyOf(entry.getValue(), length));
+            }
+        }
+        counts[bucket]++;
+        if (counts[bucket] == 1 || pause > maxPauses[bucket]) {
+            maxPauses[bucket] = pause;
+            maxTimestamps[bucket] = timestamp;
+        }
+        long[] pauses = triggerPauses.get(trigger);
+        if (pauses == null) {
+            pauses = new long[counts.length];
+            triggerPauses.put(trigger, pauses);
+        }
+        pauses[bucket] += pause;
+        size = Math.max(size, bucket + 1);
+    }
+
+    /**
+     * Double the bucket width, merging each pair of adjacent buckets.
+     */
+    private void widen() {
+        int widenedSize = (size + 1) / 2;
+        for (int i = 0; i < widenedSize; i++) {
+            int first = 2 * i;
+            int second = first + 1;
+            if (second < size) {
+                if (counts[second] > 0 && (counts[first] == 0 || maxPauses[second] > maxPauses[first])) {
+                    maxPauses[i] = maxPauses[second];
+                    maxTimestamps[i] = maxTimestamps[second];
+                } else {
+                    maxPauses[i] = maxPauses[first];
+                    maxTimestamps[i] = maxTimestamps[first];
+                }
+                counts[i] = counts[first] + counts[second];
+            } else {
+                maxPauses[i] = maxPauses[first];
+                maxTimestamps[i] = maxTimestamps[first];
+                counts[i] = counts[first];
+            }
+        }
+        Arrays.fill(counts, widenedSize, size, 0);
+        Arrays.fill(maxPauses, widenedSize, size, 0);
+        Arrays.fill(maxTimestamps, widenedSize, size, 0);
+        Iterator<long[]> iterator = triggerPauses.values().iterator();
+        while (iterator.hasNext()) {
+            long[] pauses = iterator.next();
+            for (int i = 0; i < widenedSize; i++) {
+                pauses[i] = pauses[2 * i] + (2 * i + 1 < size ? pauses[2 * i + 1] : 0);
+            }
+            Arrays.fill(pauses, widenedSize, size, 0);
+        }
+        bucketWidth = bucketWidth * 2;
+        size = widenedSize;
+    }
+}
@@ -0,0 +1,137 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain.jdk;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A mergeable timeline of safepoints: the number of safepoints and total pause time in fixed width buckets of JVM
+ * uptime. Timelines from any number of JVM runs are merged by adding the buckets, so the size depends on the uptime
+ * covered, not the number of events.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class PauseTimeline {
+
+    /**
+     * The bucket width (milliseconds of uptime).
+     */
+    private long bucketWidth;
+
+    /**
+     * The number of safepoints in each bucket.
+     */
+    private long[] counts;
+
+    /**
+     * The total pause time (milliseconds) in each bucket.
+     */
+    private long[] pauses;
+
+    /**
+     * The number of buckets, up to the last bucket with a safepoint.
+     */
+    private int size;
+
+    /**
+     * @param bucketWidth
+     *            The bucket width (milliseconds of uptime).
+     */
+    public PauseTimeline(long bucketWidth) {
+        this.bucketWidth = bucketWidth;
+        counts = new long[0];
+        pauses = new long[0];
+    }
+
+    public long getBucketWidth() {
+        return bucketWidth;
+    }
+
+    /**
+     * @return The number of buckets, up to the last bucket with a safepoint.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param bucket
+     *            The bucket index.
+     * @return The number of safepoints in the bucket.
+     */
+    public long getCount(int bucket) {
+        return counts[bucket];
+    }
+
+    /**
+     * @param bucket
+     *            The bucket index.
+     * @return The total pause time (milliseconds) in the bucket.
+     */
+    public long getPause(int bucket) {
+        return pauses[bucket];
+    }
+
+    /**
+     * @param timestamp
+     *            The safepoint timestamp (milliseconds after JVM startup).
+     * @param pause
+     *            The pause time (milliseconds).
+     */
+    public void add(long timestamp, long pause) {
+        add((int) (Math.max(0, timestamp) / bucketWidth), 1, pause);
+    }
+
+    /**
+     * Add to a bucket (e.g. when restoring a saved timeline).
+     * 
+     * @param bucket
+     *            The bucket index.
+     * @param count
+     *            The number of safepoints.
+     * @param pause
+     *            The total pause time (milliseconds).
+     */
+    public void add(int bucket, long count, long pause) {
+        if (bucket >= counts.length) {
+            int length = Math.max(bucket + 1, counts.length * 2);
+            counts = Arrays.copyOf(counts, length);
+            pauses = Arrays.copyOf(pauses, length);
+        }
+        counts[bucket] += count;
+        pauses[bucket] += pause;
+        size = Math.max(size, bucket + 1);
+    }
+
+    /**
+     * Add the buckets of another timeline with the same bucket width.
+     * 
+     * @param timeline
+     *            The timeline to add.
+     */
+    public void merge(PauseTimeline timeline) {
+        if (timeline.bucketWidth != bucketWidth) {
+            throw new IllegalArgumentException("Timeline bucket width " + timeline.bucketWidth + " not " + bucketWidth);
+        }
+        for (int i = timeline.size - 1; i >= 0; i--) {
+            if (timeline.counts[i] > 0) {
+                add(i, timeline.counts[i], timeline.pauses[i]);
+            }
+        }
+    }
+}
@@ -228,6 +228,47 @@ public class SafepointEvent implements LogEvent {
         this.timeVmop = timeVmop;
     }
 
+    /**
+     * Alternate constructor. Create <code>SafepointEvent</code> from all values.
+     * 
+     * @param logEntry
+     *            The log entry for the event.
+     * @param timestamp
+     *            The time when the event started in milliseconds after JVM startup.
+     * @param trigger
+     *            The <code>Trigger</code> for the safepoint event.
+     * @param threadsTotal
+     *            The total number of threads stopped in safepoint.
+     * @param threadsSpinning
+     *            The number of threads that were spinning before safepoint.
+     * @param threadsBlocked
+     *            The number of threads that were blocked before safepoint.
+     * @param timeSpin
+     *            The time for spinning threads to reach safepoint in milliseconds.
+     * @param timeBlock
+     *            The time for blocked threads to reach safepoint in milliseconds.
+     * @param timeSync
+     *            The time for all threads to reach safepoint (sync) in milliseconds.
+     * @param timeCleanup
+     *            The time for cleanup activities in milliseconds.
+     * @param timeVmop
+     *            The time for the safepoint activity (vmop) in milliseconds.
+     * @param pageTrapCount
+     *            The page trap count.
+     */
+    public SafepointEvent(String logEntry, long timestamp, Trigger trigger, int threadsTotal, int threadsSpinning,
+            int threadsBlocked, int timeSpin, int timeBlock, int timeSync, int timeCleanup, int timeVmop,
+            int pageTrapCount) {
+        this(logEntry, timestamp, timeSync, timeCleanup, timeVmop);
+        this.trigger = trigger;
+        this.threadsTotal = threadsTotal;
+        this.threadsSpinning = threadsSpinning;
+        this.threadsBlocked = threadsBlocked;
+        this.timeSpin = timeSpin;
+        this.timeBlock = timeBlock;
+        this.pageTrapCount = pageTrapCount;
+    }
+
     public String getName() {
         return JdkUtil.LogEventType.SAFEPOINT.toString();
     }
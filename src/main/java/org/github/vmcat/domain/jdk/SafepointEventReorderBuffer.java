@@ -0,0 +1,257 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain.jdk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * <p>
+ * Bounded buffer to put <code>SafepointEvent</code>s back in timestamp order as they are parsed. JDK8 logging can get
+ * mixed up under heavy load, so an event is sometimes logged before an event that started earlier.
+ * </p>
+ * 
+ * <p>
+ * Events are held until an event is added with a timestamp more than the horizon after them, then released in
+ * timestamp order (ties in the order added). Memory is bounded by the number of events in the horizon, and at most the
+ * limit. An event with a timestamp before the last released event is outside the horizon and cannot be put in order.
+ * It is not buffered, so the caller can decide how to handle it, and is counted.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class SafepointEventReorderBuffer {
+
+    /**
+     * A buffered event and the order it was added.
+     */
+    private static class Entry {
+
+        private SafepointEvent event;
+
+        private long sequence;
+
+        private Entry(SafepointEvent event, long sequence) {
+            this.event = event;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * The maximum time (milliseconds) an event can be logged after a later event and be put in order.
+     */
+    private long horizon;
+
+    /**
+     * The maximum number of events to buffer.
+     */
+    private int limit;
+
+    /**
+     * Buffered events with the earliest event at the head.
+     */
+    private PriorityQueue<Entry> buffer;
+
+    /**
+     * The number of events added.
+     */
+    private long sequence;
+
+    /**
+     * The largest timestamp added.
+     */
+    private long maxTimestamp = Long.MIN_VALUE;
+
+    /**
+     * The timestamp of the last released event.
+     */
+    private long releasedTimestamp = Long.MIN_VALUE;
+
+    /**
+     * The number of events logged out of order, but within the horizon.
+     */
+    private long reorderedCount;
+
+    /**
+     * The number of events outside the horizon.
+     */
+    private long outOfHorizonCount;
+
+    /**
+     * The number of events released before the horizon because the buffer was full.
+     */
+    private long overflowCount;
+
+    /**
+     * Default constructor.
+     * 
+     * @param horizon
+     *            The maximum time (milliseconds) an event can be logged after a later event and be put in order.
+     * @param limit
+     *            The maximum number of events to buffer.
+     */
+    public SafepointEventReorderBuffer(long horizon, int limit) {
+        this.horizon = horizon;
+        this.limit = limit;
+        buffer = new PriorityQueue<Entry>(Math.min(limit, 1024), new Comparator<Entry>() {
+            public int compare(Entry entry1, Entry entry2) {
+                int comparison = Long.compare(entry1.event.getTimestamp(), entry2.event.getTimestamp());
+                if (comparison == 0) {
+                    comparison = Long.compare(entry1.sequence, entry2.sequence);
+                }
+                return comparison;
+            }
+        });
+    }
+
+    public long getHorizon() {
+        return horizon;
+    }
+
+    public long getReorderedCount() {
+        return reorderedCount;
+    }
+
+    public long getOutOfHorizonCount() {
+        return outOfHorizonCount;
+    }
+
+    public long getOverflowCount() {
+        return overflowCount;
+    }
+
+    public long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    public long getReleasedTimestamp() {
+        return releasedTimestamp;
+    }
+
+    /**
+     * @return The buffered events in the order they will be released.
+     */
+    public List<SafepointEvent> getEvents() {
+        List<Entry> entries = new ArrayList<Entry>(buffer);
+        Collections.sort(entries, buffer.comparator());
+        List<SafepointEvent> events = new ArrayList<SafepointEvent>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            events.add(entries.get(i).event);
+        }
+        return events;
+    }
+
+    /**
+     * Restore the buffer state (e.g. from a checkpoint).
+     * 
+     * @param events
+     *            The buffered events in the order they will be released.
+     * @param maxTimestamp
+     *            The largest timestamp added.
+     * @param releasedTimestamp
+     *            The timestamp of the last released event.
+     * @param reorderedCount
+     *            The number of events logged out of order, but within the horizon.
+     * @param outOfHorizonCount
+     *            The number of events outside the horizon.
+     * @param overflowCount
+     *            The number of events released before the horizon because the buffer was full.
+     */
+    public void restore(List<SafepointEvent> events, long maxTimestamp, long releasedTimestamp, long reorderedCount,
+            long outOfHorizonCount, long overflowCount) {
+        buffer.clear();
+        for (int i = 0; i < events.size(); i++) {
+            buffer.offer(new Entry(events.get(i), i));
+        }
+        sequence = events.size();
+        this.maxTimestamp = maxTimestamp;
+        this.releasedTimestamp = releasedTimestamp;
+        this.reorderedCount = reorderedCount;
+        this.outOfHorizonCount = outOfHorizonCount;
+        this.overflowCount = overflowCount;
+    }
+
+    /**
+     * Buffer an event.
+     * 
+     * @param event
+     *            The <code>SafepointEvent</code>.
+     * @return true if the event was buffered, false if it is outside the horizon.
+     */
+    public boolean add(SafepointEvent event) {
+        if (event.getTimestamp() < releasedTimestamp) {
+            outOfHorizonCount++;
+            return false;
+        }
+        if (event.getTimestamp() < maxTimestamp) {
+            reorderedCount++;
+        } else {
+            maxTimestamp = event.getTimestamp();
+        }
+        buffer.offer(new Entry(event, sequence++));
+        return true;
+    }
+
+    /**
+     * @return The next event in timestamp order that is outside the horizon of the latest event (or exceeds the
+     *         buffer limit), or null if there is none.
+     */
+    public SafepointEvent poll() {
+        SafepointEvent event = null;
+        if (!buffer.isEmpty()) {
+            if (buffer.peek().event.getTimestamp() < maxTimestamp - horizon) {
+                event = release();
+            } else if (buffer.size() > limit) {
+                overflowCount++;
+                event = release();
+            }
+        }
+        return event;
+    }
+
+    /**
+     * @return All buffered events in timestamp order.
+     */
+    public List<SafepointEvent> flush() {
+        List<SafepointEvent> events = new ArrayList<SafepointEvent>(buffer.size());
+        while (!buffer.isEmpty()) {
+            events.add(release());
+        }
+        return events;
+    }
+
+    /**
+     * Release the memory held by the buffer beyond the events it holds (e.g. after it grew to its limit and the JVM run
+     * has ended).
+     */
+    public void compact() {
+        PriorityQueue<Entry> compactBuffer = new PriorityQueue<Entry>(Math.max(1, buffer.size()), buffer.comparator());
+        compactBuffer.addAll(buffer);
+        buffer = compactBuffer;
+    }
+
+    /**
+     * @return The earliest buffered event.
+     */
+    private SafepointEvent release() {
+        SafepointEvent event = buffer.poll().event;
+        releasedTimestamp = event.getTimestamp();
+        return event;
+    }
+}
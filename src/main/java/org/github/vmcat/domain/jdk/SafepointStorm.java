@@ -0,0 +1,156 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain.jdk;
+
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
+
+/**
+ * <p>
+ * An interval of high frequency safepoints (e.g. biased lock revocation or deoptimization bursts), where each
+ * safepoint is typically short, but together they consume a significant share of time.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class SafepointStorm {
+
+    /**
+     * The storm start time (milliseconds after JVM startup).
+     */
+    private long start;
+
+    /**
+     * The storm end time (milliseconds after JVM startup).
+     */
+    private long end;
+
+    /**
+     * The number of safepoints in the storm.
+     */
+    private long count;
+
+    /**
+     * The total safepoint pause time (milliseconds) in the storm.
+     */
+    private long pauseTotal;
+
+    /**
+     * The number of safepoints in the storm for each <code>Trigger</code>, indexed by ordinal.
+     */
+    private long[] triggerCounts;
+
+    /**
+     * The log entry of the first safepoint in the storm.
+     */
+    private String startLogEntry;
+
+    /**
+     * Default constructor.
+     * 
+     * @param start
+     *            The storm start time (milliseconds after JVM startup).
+     * @param startLogEntry
+     *            The log entry of the first safepoint in the storm.
+     */
+    public SafepointStorm(long start, String startLogEntry) {
+        this.start = start;
+        this.end = start;
+        this.startLogEntry = startLogEntry;
+        triggerCounts = new long[Trigger.values().length];
+    }
+
+    /**
+     * Add a safepoint to the storm.
+     * 
+     * @param event
+     *            The <code>SafepointEvent</code>.
+     */
+    public void add(SafepointEvent event) {
+        count++;
+        pauseTotal = pauseTotal + event.getDuration();
+        triggerCounts[getTrigger(event).ordinal()]++;
+        if (event.getTimestamp() + event.getDuration() > end) {
+            end = event.getTimestamp() + event.getDuration();
+        }
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getPauseTotal() {
+        return pauseTotal;
+    }
+
+    public String getStartLogEntry() {
+        return startLogEntry;
+    }
+
+    /**
+     * @return The storm duration (milliseconds).
+     */
+    public long getDuration() {
+        return end - start;
+    }
+
+    /**
+     * @return The percent of the storm duration spent in safepoint pauses.
+     */
+    public int getPauseShare() {
+        long duration = getDuration();
+        if (duration <= 0) {
+            return 100;
+        }
+        return (int) Math.min(100, pauseTotal * 100 / duration);
+    }
+
+    /**
+     * @return The <code>Trigger</code> with the most safepoints in the storm.
+     */
+    public Trigger getDominantTrigger() {
+        int dominant = Trigger.UNKNOWN.ordinal();
+        for (int i = 0; i < triggerCounts.length; i++) {
+            if (triggerCounts[i] > triggerCounts[dominant]) {
+                dominant = i;
+            }
+        }
+        return Trigger.values()[dominant];
+    }
+
+    /**
+     * @return The number of safepoints in the storm for the dominant <code>Trigger</code>.
+     */
+    public long getDominantTriggerCount() {
+        return triggerCounts[getDominantTrigger().ordinal()];
+    }
+
+    /**
+     * @param event
+     *            The <code>SafepointEvent</code>.
+     * @return The event <code>Trigger</code>, or <code>Trigger.UNKNOWN</code> if not set.
+     */
+    static Trigger getTrigger(SafepointEvent event) {
+        return event.getTrigger() == null ? Trigger.UNKNOWN : event.getTrigger();
+    }
+}
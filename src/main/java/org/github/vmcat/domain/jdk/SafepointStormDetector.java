@@ -0,0 +1,208 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain.jdk;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
+
+/**
+ * <p>
+ * Streaming safepoint storm detector. Safepoints are tracked in a sliding time window, and the window is considered
+ * storming when either:
+ * </p>
+ * 
+ * <ol>
+ * <li>The rate of safepoints for any single <code>Trigger</code> reaches the rate threshold (safepoints per second).
+ * </li>
+ * <li>Two or more safepoints in the window account for at least the time share threshold (percent) of the window.</li>
+ * </ol>
+ * 
+ * <p>
+ * Consecutive storming windows are combined into a single <code>SafepointStorm</code>. Events must be added in
+ * timestamp order. Each event is counted in at most one storm. Memory is bounded by the number of events in one window.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class SafepointStormDetector {
+
+    /**
+     * The sliding window size (milliseconds).
+     */
+    private long window;
+
+    /**
+     * The number of safepoints per second for a single <code>Trigger</code> at or above which the window is storming.
+     */
+    private int rateThreshold;
+
+    /**
+     * The percent of the window spent in safepoint pauses at or above which the window is storming.
+     */
+    private int timeShareThreshold;
+
+    /**
+     * The events in the current window.
+     */
+    private Deque<SafepointEvent> windowEvents;
+
+    /**
+     * The number of events in the current window for each <code>Trigger</code>, indexed by ordinal.
+     */
+    private int[] windowTriggerCounts;
+
+    /**
+     * The number of <code>Trigger</code>s in the current window at or above the rate threshold.
+     */
+    private int windowTriggersOverRate;
+
+    /**
+     * The total safepoint pause time (milliseconds) in the current window.
+     */
+    private long windowPauseTotal;
+
+    /**
+     * The storm in progress, or null if not storming.
+     */
+    private SafepointStorm storm;
+
+    /**
+     * The last event added to a storm, or null if none. A new storm starting while it is still in the window only
+     * includes the window events after it, so no event is counted in two storms.
+     */
+    private SafepointEvent lastStormEvent;
+
+    /**
+     * Completed storms.
+     */
+    private List<SafepointStorm> storms;
+
+    /**
+     * Default constructor.
+     * 
+     * @param window
+     *            The sliding window size (milliseconds).
+     * @param rateThreshold
+     *            The number of safepoints per second for a single <code>Trigger</code> at or above which the window is
+     *            storming.
+     * @param timeShareThreshold
+     *            The percent of the window spent in safepoint pauses at or above which the window is storming.
+     */
+    public SafepointStormDetector(long window, int rateThreshold, int timeShareThreshold) {
+        this.window = window;
+        this.rateThreshold = rateThreshold;
+        this.timeShareThreshold = timeShareThreshold;
+        windowEvents = new ArrayDeque<SafepointEvent>();
+        windowTriggerCounts = new int[Trigger.values().length];
+        storms = new ArrayList<SafepointStorm>();
+    }
+
+    public long getWindow() {
+        return window;
+    }
+
+    public int getRateThreshold() {
+        return rateThreshold;
+    }
+
+    public int getTimeShareThreshold() {
+        return timeShareThreshold;
+    }
+
+    /**
+     * Add the next safepoint.
+     * 
+     * @param event
+     *            The <code>SafepointEvent</code>.
+     */
+    public void add(SafepointEvent event) {
+        // Slide window
+        while (!windowEvents.isEmpty() && windowEvents.peekFirst().getTimestamp() <= event.getTimestamp() - window) {
+            SafepointEvent expired = windowEvents.removeFirst();
+            int ordinal = SafepointStorm.getTrigger(expired).ordinal();
+            if (windowTriggerCounts[ordinal] == getWindowRateThreshold()) {
+                windowTriggersOverRate--;
+            }
+            windowTriggerCounts[ordinal]--;
+            windowPauseTotal = windowPauseTotal - expired.getDuration();
+        }
+
+        windowEvents.addLast(event);
+        int ordinal = SafepointStorm.getTrigger(event).ordinal();
+        windowTriggerCounts[ordinal]++;
+        if (windowTriggerCounts[ordinal] == getWindowRateThreshold()) {
+            windowTriggersOverRate++;
+        }
+        windowPauseTotal = windowPauseTotal + event.getDuration();
+
+        if (isWindowStorming()) {
+            if (storm == null) {
+                // The storm includes the events in the window not already in the previous storm.
+                List<SafepointEvent> stormEvents = new ArrayList<SafepointEvent>();
+                Iterator<SafepointEvent> iterator = windowEvents.descendingIterator();
+                while (iterator.hasNext()) {
+                    SafepointEvent windowEvent = iterator.next();
+                    if (windowEvent == lastStormEvent) {
+                        break;
+                    }
+                    stormEvents.add(0, windowEvent);
+                }
+                storm = new SafepointStorm(stormEvents.get(0).getTimestamp(), stormEvents.get(0).getLogEntry());
+                for (int i = 0; i < stormEvents.size(); i++) {
+                    storm.add(stormEvents.get(i));
+                }
+            } else {
+                storm.add(event);
+            }
+            lastStormEvent = event;
+        } else if (storm != null) {
+            storms.add(storm);
+            storm = null;
+        }
+    }
+
+    /**
+     * @return The completed storms and the storm in progress, if any, in time order.
+     */
+    public List<SafepointStorm> getStorms() {
+        List<SafepointStorm> allStorms = new ArrayList<SafepointStorm>(storms);
+        if (storm != null) {
+            allStorms.add(storm);
+        }
+        return allStorms;
+    }
+
+    /**
+     * @return The number of safepoints for a single <code>Trigger</code> in one window at or above which the window is
+     *         storming.
+     */
+    private long getWindowRateThreshold() {
+        return Math.max(1, rateThreshold * window / 1000);
+    }
+
+    /**
+     * @return true if the current window meets the rate or time share threshold, false otherwise.
+     */
+    private boolean isWindowStorming() {
+        return windowTriggersOverRate > 0
+                || (windowEvents.size() > 1 && windowPauseTotal * 100 >= (long) timeShareThreshold * window);
+    }
+}
@@ -14,6 +14,9 @@
  *********************************************************************************************************************/
 package org.github.vmcat.domain.jdk;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import org.github.vmcat.domain.TagEvent;
 import org.github.vmcat.domain.ThrowAwayEvent;
 import org.github.vmcat.util.jdk.JdkUtil;
@@ -41,6 +44,17 @@ public class TagHotspotLogEvent implements TagEvent, ThrowAwayEvent {
      */
     private static final String REGEX = "^<(/)?hotspot_log.+$";
 
+    /**
+     * The JVM start time in the start tag.
+     */
+    private static final Pattern START_TIME_PATTERN = Pattern.compile(" time_ms='(\\d{1,18})'");
+
+    /**
+     * Pattern for the hotspot_log start tag (not the end tag or the hotspot_log_done tag). Compiled once, since it is
+     * checked for every tag line stored.
+     */
+    private static final Pattern START_TAG_PATTERN = Pattern.compile("^<hotspot_log( .*)?>$");
+
     /**
      * The log entry for the event. Can be used for debugging purposes.
      */
@@ -51,6 +65,11 @@ public class TagHotspotLogEvent implements TagEvent, ThrowAwayEvent {
      */
     private long timestamp;
 
+    /**
+     * The JVM start time (milliseconds since the epoch), or -1 if not logged.
+     */
+    private long startTime;
+
     /**
      * Create event from log entry.
      * 
@@ -60,6 +79,8 @@ public class TagHotspotLogEvent implements TagEvent, ThrowAwayEvent {
     public TagHotspotLogEvent(String logEntry) {
         this.logEntry = logEntry;
         this.timestamp = 0L;
+        Matcher matcher = START_TIME_PATTERN.matcher(logEntry);
+        startTime = matcher.find() ? Long.parseLong(matcher.group(1)) : -1L;
     }
 
     public String getLogEntry() {
@@ -74,6 +95,18 @@ public class TagHotspotLogEvent implements TagEvent, ThrowAwayEvent {
         return timestamp;
     }
 
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return true if the event is the hotspot_log start tag (the start of a JVM run), false if it is the end tag or
+     *         the hotspot_log_done tag.
+     */
+    public boolean isStartTag() {
+        return START_TAG_PATTERN.matcher(logEntry).matches();
+    }
+
     /**
      * Determine if the logLine matches the logging pattern(s) for this event.
      * 
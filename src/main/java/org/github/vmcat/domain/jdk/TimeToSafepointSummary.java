@@ -0,0 +1,107 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain.jdk;
+
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
+
+/**
+ * Time to safepoint (TTSP) summary by <code>Trigger</code> used for reporting. TTSP is the time for all threads to
+ * reach safepoint (sync).
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TimeToSafepointSummary {
+
+    /**
+     * The <code>Trigger</code>
+     */
+    private Trigger trigger;
+
+    /**
+     * Total number of events.
+     */
+    private long count;
+
+    /**
+     * Total time to safepoint (milliseconds).
+     */
+    private long syncTotal;
+
+    /**
+     * Max time to safepoint (milliseconds).
+     */
+    private int syncMax;
+
+    /**
+     * Total safepoint operation time (milliseconds).
+     */
+    private long vmopTotal;
+
+    /**
+     * Total pause time (milliseconds).
+     */
+    private long pauseTotal;
+
+    /**
+     * Default constructor.
+     * 
+     * @param trigger
+     *            The <code>Trigger</code>.
+     * @param count
+     *            Number of events.
+     * @param syncTotal
+     *            Total time to safepoint of events.
+     * @param syncMax
+     *            Max time to safepoint of events.
+     * @param vmopTotal
+     *            Total safepoint operation time of events.
+     * @param pauseTotal
+     *            Total pause time of events.
+     */
+    public TimeToSafepointSummary(Trigger trigger, long count, long syncTotal, int syncMax, long vmopTotal,
+            long pauseTotal) {
+        this.trigger = trigger;
+        this.count = count;
+        this.syncTotal = syncTotal;
+        this.syncMax = syncMax;
+        this.vmopTotal = vmopTotal;
+        this.pauseTotal = pauseTotal;
+    }
+
+    public Trigger getTrigger() {
+        return trigger;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSyncTotal() {
+        return syncTotal;
+    }
+
+    public int getSyncMax() {
+        return syncMax;
+    }
+
+    public long getVmopTotal() {
+        return vmopTotal;
+    }
+
+    public long getPauseTotal() {
+        return pauseTotal;
+    }
+}
@@ -0,0 +1,153 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain.jdk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.github.vmcat.util.jdk.Safepoint.Metric;
+
+/**
+ * <p>
+ * The <code>SafepointEvent</code>s with the largest values for a given <code>Metric</code>.
+ * </p>
+ * 
+ * <p>
+ * A fixed size min-heap is maintained as events are parsed, so memory is bounded by the limit and each event costs
+ * O(log limit), without sorting all events.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TopSafepointEvents {
+
+    /**
+     * The <code>Metric</code> the events are ranked by.
+     */
+    private Metric metric;
+
+    /**
+     * The maximum number of events to keep.
+     */
+    private int limit;
+
+    /**
+     * Ranks events by metric value, then earliest timestamp, then log entry, so the retained events do not depend on
+     * the order events are added (e.g. when merging JVM runs).
+     */
+    private Comparator<SafepointEvent> rank;
+
+    /**
+     * Min-heap with the lowest ranked event at the head.
+     */
+    private PriorityQueue<SafepointEvent> heap;
+
+    /**
+     * Default constructor.
+     * 
+     * @param metric
+     *            The <code>Metric</code> the events are ranked by.
+     * @param limit
+     *            The maximum number of events to keep.
+     */
+    public TopSafepointEvents(final Metric metric, int limit) {
+        this.metric = metric;
+        this.limit = limit;
+        rank = new Comparator<SafepointEvent>() {
+            public int compare(SafepointEvent event1, SafepointEvent event2) {
+                int comparison = Long.compare(getValue(event1, metric), getValue(event2, metric));
+                if (comparison == 0) {
+                    comparison = Long.compare(event2.getTimestamp(), event1.getTimestamp());
+                }
+                if (comparison == 0) {
+                    comparison = event2.getLogEntry().compareTo(event1.getLogEntry());
+                }
+                return comparison;
+            }
+        };
+        heap = new PriorityQueue<SafepointEvent>(limit + 1, rank);
+    }
+
+    public Metric getMetric() {
+        return metric;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Consider an event for inclusion. On ties, the events with the earliest timestamps are kept.
+     * 
+     * @param event
+     *            The <code>SafepointEvent</code>.
+     */
+    public void add(SafepointEvent event) {
+        if (heap.size() < limit) {
+            heap.offer(event);
+        } else if (limit > 0 && rank.compare(event, heap.peek()) > 0) {
+            heap.poll();
+            heap.offer(event);
+        }
+    }
+
+    /**
+     * @return The retained events ordered by metric value (largest first), then timestamp.
+     */
+    public List<SafepointEvent> getEvents() {
+        List<SafepointEvent> events = new ArrayList<SafepointEvent>(heap);
+        Collections.sort(events, Collections.reverseOrder(rank));
+        return events;
+    }
+
+    /**
+     * @return The number of retained events.
+     */
+    public int size() {
+        return heap.size();
+    }
+
+    /**
+     * @param event
+     *            The <code>SafepointEvent</code>.
+     * @param metric
+     *            The <code>Metric</code>.
+     * @return The event value (milliseconds) for the given <code>Metric</code>.
+     */
+    public static long getValue(SafepointEvent event, Metric metric) {
+        long value;
+        switch (metric) {
+        case TOTAL:
+            value = event.getDuration();
+            break;
+        case SYNC:
+            value = event.getTimeSync();
+            break;
+        case VMOP:
+            value = event.getTimeVmop();
+            break;
+        case CLEANUP:
+            value = event.getTimeCleanup();
+            break;
+        default:
+            throw new AssertionError("Unexpected metric value: " + metric);
+        }
+        return value;
+    }
+}
@@ -14,6 +14,9 @@
  *********************************************************************************************************************/
 package org.github.vmcat.hsql;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
@@ -21,14 +24,32 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.github.vmcat.domain.MemoryBudget;
+import org.github.vmcat.domain.jdk.CalendarRollup;
+import org.github.vmcat.domain.jdk.MutatorUtilization;
+import org.github.vmcat.domain.jdk.PauseSeries;
+import org.github.vmcat.domain.jdk.PauseHistogram;
+import org.github.vmcat.domain.jdk.PauseTimeline;
 import org.github.vmcat.domain.jdk.SafepointEvent;
+import org.github.vmcat.domain.jdk.SafepointEventReorderBuffer;
 import org.github.vmcat.domain.jdk.SafepointEventSummary;
+import org.github.vmcat.domain.jdk.SafepointStormDetector;
+import org.github.vmcat.domain.jdk.TimeToSafepointSummary;
+import org.github.vmcat.domain.jdk.TopSafepointEvents;
+import org.github.vmcat.util.Constants;
 import org.github.vmcat.util.jdk.Analysis;
 import org.github.vmcat.util.jdk.JdkUtil;
 import org.github.vmcat.util.jdk.JdkUtil.LogEventType;
 import org.github.vmcat.util.jdk.Safepoint;
+import org.github.vmcat.util.jdk.Safepoint.Metric;
+import org.github.vmcat.util.jdk.Safepoint.SyncVmopRatio;
 import org.github.vmcat.util.jdk.Safepoint.Trigger;
 
 /**
@@ -50,15 +71,36 @@ public class JvmDao {
                     + "block integer, sync integer, cleanup integer, vmop integer, page_trap_count integer, "
                     + "log_entry varchar(500))" };
 
+    /**
+     * The <code>safepoint_event</code> columns needed to hydrate a <code>SafepointEvent</code>.
+     */
+    private static final String SAFEPOINT_EVENT_COLUMNS = "time_stamp, trigger_type, threads_total, "
+            + "threads_spinning, threads_blocked, spin, block, sync, cleanup, vmop, page_trap_count, log_entry";
+
     /**
      * SQL statement(s) to delete table(s).
      */
     private static final String[] TABLES_DELETE_SQL = { "delete from safepoint_event " };
 
     /**
-     * The database connection.
+     * Sequence used to give each instance its own in-memory database, so JVM runs are stored independently.
+     */
+    private static final AtomicInteger DATABASE_SEQUENCE = new AtomicInteger();
+
+    /**
+     * The database URL.
      */
-    private static Connection connection;
+    private String url;
+
+    /**
+     * The directory the database is spilled to, or null for an in-memory database.
+     */
+    private File directory;
+
+    /**
+     * The database connection, or null if the database is released.
+     */
+    private Connection connection;
 
     /**
      * Event types.
@@ -85,6 +127,61 @@ public class JvmDao {
      */
     private List<SafepointEvent> safepointBatch;
 
+    /**
+     * The <code>SafepointEvent</code>s with the largest values for each <code>Metric</code>.
+     */
+    private Map<Metric, TopSafepointEvents> topSafepointEvents;
+
+    /**
+     * Histogram of safepoint pause times.
+     */
+    private PauseHistogram pauseHistogram;
+
+    /**
+     * Safepoint pause times by uptime.
+     */
+    private PauseTimeline pauseTimeline;
+
+    /**
+     * Histogram of safepoint pause times for each <code>Trigger</code>.
+     */
+    private Map<Trigger, PauseHistogram> triggerPauseHistograms;
+
+    /**
+     * Streaming minimum mutator utilization.
+     */
+    private MutatorUtilization mutatorUtilization;
+
+    /**
+     * Bounded resolution pause series for charting.
+     */
+    private PauseSeries pauseSeries;
+
+    /**
+     * Puts safepoint events back in timestamp order.
+     */
+    private SafepointEventReorderBuffer safepointEventReorderBuffer;
+
+    /**
+     * Log entries of safepoint events outside the reorder horizon.
+     */
+    private List<String> outOfHorizonLogLines;
+
+    /**
+     * The maximum number of safepoint log lines outside the reorder horizon to keep for the report.
+     */
+    private int outOfHorizonLineLimit;
+
+    /**
+     * The timestamp of the last in order safepoint event restored.
+     */
+    private long restoredTimestamp = Long.MIN_VALUE;
+
+    /**
+     * Streaming safepoint storm detection.
+     */
+    private SafepointStormDetector safepointStormDetector;
+
     /**
      * The JVM options for the JVM run.
      */
@@ -95,10 +192,39 @@ public class JvmDao {
      */
     private String version;
 
+    /**
+     * Safepoints by hour of day and day of week, or null if the JVM start time is not known.
+     */
+    private CalendarRollup calendarRollup;
+
+    /**
+     * Whether the sketches (longest safepoints, pause histograms, pause timeline, pause series, mutator utilization and
+     * storms) were dropped when the database was released. They are rebuilt from the stored events when retrieved.
+     */
+    private boolean sketchesReleased;
+
+    /**
+     * The shutdown hook that deletes the database directory if the JVM exits before the data store is closed, or null
+     * if the database is in memory.
+     */
+    private Thread deleteHook;
+
     /**
      * Default constructor.
      */
     public JvmDao() {
+        this(null);
+    }
+
+    /**
+     * Create a data store that keeps memory within a budget. Safepoint events are spilled to a database in a temporary
+     * directory that caches a bounded number of rows in memory. The directory is deleted when the data store is
+     * closed.
+     * 
+     * @param memoryBudget
+     *            The memory budget, or null to keep all safepoint events in memory.
+     */
+    public JvmDao(MemoryBudget memoryBudget) {
         try {
             // Load database driver.
             Class.forName("org.hsqldb.jdbcDriver");
@@ -107,25 +233,36 @@ public class JvmDao {
             throw new RuntimeException("Failed to load HSQLDB JDBC driver.");
         }
 
-        try {
-            // Connect to database.
-
-            // Database server for development
-            // connection = DriverManager.getConnection("jdbc:hsqldb:hsql://localhost/xdb",
-            // "sa",
-            // "");
+        // Database server for development
+        // url = "jdbc:hsqldb:hsql://localhost/xdb";
 
+        if (memoryBudget == null) {
             // In-process standalone mode for deployment.
-            connection = DriverManager.getConnection("jdbc:hsqldb:mem:vmdb", "sa", "");
-        } catch (SQLException e) {
-            System.err.println(e.getMessage());
-            throw new RuntimeException("Error accessing database.");
+            url = "jdbc:hsqldb:mem:vmdb" + DATABASE_SEQUENCE.incrementAndGet();
+        } else {
+            try {
+                directory = Files.createTempDirectory("vmcat").toFile();
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+                throw new RuntimeException("Error creating database directory.");
+            }
+            // Do not leave the directory behind if the JVM exits (e.g. an error) before the data store is closed
+            deleteHook = new Thread() {
+                public void run() {
+                    delete(directory);
+                }
+            };
+            Runtime.getRuntime().addShutdownHook(deleteHook);
+            // In-process standalone mode with cached tables, which keep a bounded number of rows in memory.
+            url = "jdbc:hsqldb:file:" + new File(directory, "vmdb").getPath()
+                    + ";hsqldb.default_table_type=cached;hsqldb.cache_scale=" + memoryBudget.getCacheScale()
+                    + ";hsqldb.cache_size_scale=" + memoryBudget.getCacheSizeScale();
         }
 
         // Create tables
         Statement statement = null;
         try {
-            statement = connection.createStatement();
+            statement = getConnection().createStatement();
             for (int i = 0; i < TABLES_CREATE_SQL.length; i++) {
                 statement.executeUpdate(TABLES_CREATE_SQL[i]);
             }
@@ -148,6 +285,72 @@ public class JvmDao {
         analysis = new ArrayList<Analysis>();
         unidentifiedLogLines = new ArrayList<String>();
         safepointBatch = new ArrayList<SafepointEvent>();
+        createSketches();
+        safepointEventReorderBuffer = new SafepointEventReorderBuffer(Constants.DEFAULT_REORDER_HORIZON,
+                Constants.REORDER_BUFFER_LIMIT);
+        outOfHorizonLogLines = new ArrayList<String>();
+        outOfHorizonLineLimit = Constants.OUT_OF_HORIZON_REPORT_LIMIT;
+        safepointStormDetector = new SafepointStormDetector(Constants.STORM_WINDOW,
+                Constants.DEFAULT_STORM_RATE_THRESHOLD, Constants.DEFAULT_STORM_TIME_SHARE_THRESHOLD);
+    }
+
+    /**
+     * Create empty sketches.
+     */
+    private void createSketches() {
+        topSafepointEvents = new EnumMap<Metric, TopSafepointEvents>(Metric.class);
+        Metric[] metrics = Metric.values();
+        for (int i = 0; i < metrics.length; i++) {
+            topSafepointEvents.put(metrics[i],
+                    new TopSafepointEvents(metrics[i], Constants.TOP_SAFEPOINT_EVENTS_LIMIT));
+        }
+        pauseHistogram = new PauseHistogram();
+        pauseTimeline = new PauseTimeline(Constants.PAUSE_TIMELINE_BUCKET_WIDTH);
+        triggerPauseHistograms = new EnumMap<Trigger, PauseHistogram>(Trigger.class);
+        mutatorUtilization = new MutatorUtilization(Constants.MMU_WINDOWS);
+        pauseSeries = new PauseSeries(Constants.PAUSE_SERIES_BUCKET_WIDTH, Constants.PAUSE_SERIES_BUCKETS);
+    }
+
+    /**
+     * Rebuild the sketches dropped when the database was released by replaying the stored events. The calendar rollup
+     * is kept when the database is released, so it is not rebuilt.
+     */
+    private synchronized void rebuildSketches() {
+        if (!sketchesReleased) {
+            return;
+        }
+        sketchesReleased = false;
+        processSafepointBatch();
+        createSketches();
+        // Stored events are in timestamp order, except events outside the reorder horizon.
+        long orderedTimestamp = Long.MIN_VALUE;
+        Iterator<SafepointEvent> iterator = getSafepointEventIterator();
+        while (iterator.hasNext()) {
+            SafepointEvent event = iterator.next();
+            boolean ordered = event.getTimestamp() >= orderedTimestamp;
+            if (ordered) {
+                orderedTimestamp = event.getTimestamp();
+            }
+            addToSketches(event, ordered, false);
+        }
+    }
+
+    /**
+     * @return The database connection, connecting to the database if it is released.
+     */
+    private Connection getConnection() {
+        if (connection == null) {
+            if (url == null) {
+                throw new RuntimeException("Database is closed.");
+            }
+            try {
+                connection = DriverManager.getConnection(url, "sa", "");
+            } catch (SQLException e) {
+                System.err.println(e.getMessage());
+                throw new RuntimeException("Error accessing database.");
+            }
+        }
+        return connection;
     }
 
     public List<String> getUnidentifiedLogLines() {
@@ -158,11 +361,160 @@ public class JvmDao {
         return analysis;
     }
 
+    /**
+     * Add a safepoint event. Events are released to the data store and time ordered analysis in timestamp order
+     * through the reorder buffer.
+     * 
+     * @param event
+     *            The <code>SafepointEvent</code>.
+     */
     public void addSafepointEvent(SafepointEvent event) {
+        if (safepointEventReorderBuffer.add(event)) {
+            SafepointEvent releasedEvent = safepointEventReorderBuffer.poll();
+            while (releasedEvent != null) {
+                storeSafepointEvent(releasedEvent, true);
+                releasedEvent = safepointEventReorderBuffer.poll();
+            }
+        } else {
+            // Too late to put in order. Include in totals, but not in time ordered analysis.
+            if (outOfHorizonLogLines.size() < outOfHorizonLineLimit) {
+                outOfHorizonLogLines.add(event.getLogEntry());
+            }
+            storeSafepointEvent(event, false);
+        }
+    }
+
+    /**
+     * Release all buffered safepoint events and persist them to the database. Called when there are no more events.
+     */
+    public void flushSafepointEvents() {
+        Iterator<SafepointEvent> iterator = safepointEventReorderBuffer.flush().iterator();
+        while (iterator.hasNext()) {
+            storeSafepointEvent(iterator.next(), true);
+        }
+        processSafepointBatch();
+    }
+
+    /**
+     * Store a safepoint event saved from the data store (e.g. in a checkpoint), bypassing the reorder buffer. Events
+     * must be restored in the order they were stored. Stored events are in timestamp order, except events outside the
+     * reorder horizon, so those are identified by the timestamp going backwards.
+     * 
+     * @param event
+     *            The <code>SafepointEvent</code>.
+     */
+    public void restoreSafepointEvent(SafepointEvent event) {
+        boolean ordered = event.getTimestamp() >= restoredTimestamp;
+        if (ordered) {
+            restoredTimestamp = event.getTimestamp();
+        }
+        storeSafepointEvent(event, ordered);
+    }
+
+    /**
+     * @param event
+     *            The <code>SafepointEvent</code>.
+     * @param ordered
+     *            Whether the event is in timestamp order with the previous event stored.
+     */
+    private void storeSafepointEvent(SafepointEvent event, boolean ordered) {
+        rebuildSketches();
         if (safepointBatch.size() == batchSize) {
             processSafepointBatch();
         }
         safepointBatch.add(event);
+        addToSketches(event, ordered, true);
+    }
+
+    /**
+     * @param event
+     *            The <code>SafepointEvent</code>.
+     * @param ordered
+     *            Whether the event is in timestamp order with the previous event added.
+     * @param rollup
+     *            Whether to add the event to the calendar rollup.
+     */
+    private void addToSketches(SafepointEvent event, boolean ordered, boolean rollup) {
+        Iterator<TopSafepointEvents> iterator = topSafepointEvents.values().iterator();
+        while (iterator.hasNext()) {
+            iterator.next().add(event);
+        }
+        pauseHistogram.add(event.getDuration());
+        pauseTimeline.add(event.getTimestamp(), event.getDuration());
+        Trigger trigger = event.getTrigger() == null ? Trigger.UNKNOWN : event.getTrigger();
+        PauseHistogram triggerPauseHistogram = triggerPauseHistograms.get(trigger);
+        if (triggerPauseHistogram == null) {
+            triggerPauseHistogram = new PauseHistogram();
+            triggerPauseHistograms.put(trigger, triggerPauseHistogram);
+        }
+        triggerPauseHistogram.add(event.getDuration());
+        pauseSeries.add(event);
+        if (rollup && calendarRollup != null) {
+            calendarRollup.add(event.getTimestamp(), event.getDuration());
+        }
+        if (ordered) {
+            safepointStormDetector.add(event);
+            mutatorUtilization.add(event);
+        }
+    }
+
+    public PauseHistogram getPauseHistogram() {
+        rebuildSketches();
+        return pauseHistogram;
+    }
+
+    public PauseTimeline getPauseTimeline() {
+        rebuildSketches();
+        return pauseTimeline;
+    }
+
+    public Map<Trigger, PauseHistogram> getTriggerPauseHistograms() {
+        rebuildSketches();
+        return triggerPauseHistograms;
+    }
+
+    public MutatorUtilization getMutatorUtilization() {
+        rebuildSketches();
+        return mutatorUtilization;
+    }
+
+    public PauseSeries getPauseSeries() {
+        rebuildSketches();
+        return pauseSeries;
+    }
+
+    public SafepointEventReorderBuffer getSafepointEventReorderBuffer() {
+        return safepointEventReorderBuffer;
+    }
+
+    public void setSafepointEventReorderBuffer(SafepointEventReorderBuffer safepointEventReorderBuffer) {
+        this.safepointEventReorderBuffer = safepointEventReorderBuffer;
+    }
+
+    public List<String> getOutOfHorizonLogLines() {
+        return outOfHorizonLogLines;
+    }
+
+    public int getOutOfHorizonLineLimit() {
+        return outOfHorizonLineLimit;
+    }
+
+    public void setOutOfHorizonLineLimit(int outOfHorizonLineLimit) {
+        this.outOfHorizonLineLimit = outOfHorizonLineLimit;
+    }
+
+    public Map<Metric, TopSafepointEvents> getTopSafepointEvents() {
+        rebuildSketches();
+        return topSafepointEvents;
+    }
+
+    public SafepointStormDetector getSafepointStormDetector() {
+        rebuildSketches();
+        return safepointStormDetector;
+    }
+
+    public void setSafepointStormDetector(SafepointStormDetector safepointStormDetector) {
+        this.safepointStormDetector = safepointStormDetector;
     }
 
     public List<LogEventType> getEventTypes() {
@@ -181,6 +533,22 @@ public class JvmDao {
         this.options = options;
     }
 
+    public CalendarRollup getCalendarRollup() {
+        return calendarRollup;
+    }
+
+    /**
+     * Set the JVM start time. Only safepoints stored after the start time is set are in the calendar rollup.
+     * 
+     * @param startTime
+     *            The JVM start time (milliseconds since the epoch).
+     * @param zoneOffset
+     *            The time zone offset (milliseconds) of the wall clock.
+     */
+    public void setStartTime(long startTime, int zoneOffset) {
+        calendarRollup = new CalendarRollup(startTime, zoneOffset);
+    }
+
     public String getVersion() {
         return version;
     }
@@ -193,6 +561,9 @@ public class JvmDao {
      * Add safepoint events to database.
      */
     public synchronized void processSafepointBatch() {
+        if (safepointBatch.isEmpty()) {
+            return;
+        }
 
         PreparedStatement pst = null;
         try {
@@ -213,7 +584,7 @@ public class JvmDao {
             final int TRAP_INDEX = 11;
             final int LOG_ENTRY_INDEX = 12;
 
-            pst = connection.prepareStatement(sqlInsertSafepointEvent);
+            pst = getConnection().prepareStatement(sqlInsertSafepointEvent);
 
             for (int i = 0; i < safepointBatch.size(); i++) {
                 SafepointEvent event = safepointBatch.get(i);
@@ -247,13 +618,107 @@ public class JvmDao {
         }
     }
 
+    /**
+     * Shut down the database and release the memory it holds. The data can no longer be retrieved.
+     */
+    public synchronized void close() {
+        // Do not connect again, which would create an empty database
+        url = null;
+        if (directory == null) {
+            shutdown("shutdown");
+        } else {
+            // No need to save the database, since it is deleted
+            shutdown("shutdown immediately");
+            delete(directory);
+            if (deleteHook != null) {
+                try {
+                    Runtime.getRuntime().removeShutdownHook(deleteHook);
+                } catch (IllegalStateException e) {
+                    // Already shutting down, and deleting the directory again is harmless
+                }
+                deleteHook = null;
+            }
+        }
+    }
+
+    /**
+     * Delete a file, or a directory and everything in it.
+     * 
+     * @param file
+     *            The file or directory.
+     */
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (int i = 0; i < files.length; i++) {
+                delete(files[i]);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Release the memory a database spilled to disk holds while it is not being used (e.g. the JVM run has ended). The
+     * database is reopened when the data is retrieved again. An in-memory database is not released.
+     * 
+     * The sketches are dropped too, and the reorder buffer is compacted, so an ended JVM run holds a small, fixed
+     * amount of memory no matter how many safepoints it has. The sketches are rebuilt from the stored events when they
+     * are retrieved again.
+     */
+    public synchronized void release() {
+        if (directory != null) {
+            processSafepointBatch();
+            shutdown("shutdown");
+            topSafepointEvents = null;
+            pauseHistogram = null;
+            pauseTimeline = null;
+            triggerPauseHistograms = null;
+            mutatorUtilization = null;
+            pauseSeries = null;
+            safepointStormDetector = new SafepointStormDetector(safepointStormDetector.getWindow(),
+                    safepointStormDetector.getRateThreshold(), safepointStormDetector.getTimeShareThreshold());
+            sketchesReleased = true;
+            safepointEventReorderBuffer.compact();
+            // Batched events were stored above
+            safepointBatch = new ArrayList<SafepointEvent>();
+        }
+    }
+
+    /**
+     * @param sql
+     *            The shutdown statement.
+     */
+    private void shutdown(String sql) {
+        if (connection == null) {
+            return;
+        }
+        Statement statement = null;
+        try {
+            statement = connection.createStatement();
+            statement.execute(sql);
+        } catch (SQLException e) {
+            System.err.println(e.getMessage());
+            throw new RuntimeException("Error shutting down database.");
+        } finally {
+            try {
+                statement.close();
+                connection.close();
+            } catch (SQLException e) {
+                System.err.println(e.getMessage());
+                throw new RuntimeException("Error closing Connection.");
+            } finally {
+                connection = null;
+            }
+        }
+    }
+
     /**
      * Delete table(s). Useful when running in server mode during development.
      */
     public synchronized void cleanup() {
         Statement statement = null;
         try {
-            statement = connection.createStatement();
+            statement = getConnection().createStatement();
             for (int i = 0; i < TABLES_DELETE_SQL.length; i++) {
                 statement.executeUpdate(TABLES_DELETE_SQL[i]);
             }
@@ -280,7 +745,7 @@ public class JvmDao {
         Statement statement = null;
         ResultSet rs = null;
         try {
-            statement = connection.createStatement();
+            statement = getConnection().createStatement();
             rs = statement.executeQuery("select count(id) from safepoint_event");
             if (rs.next()) {
                 count = rs.getInt(1);
@@ -317,7 +782,7 @@ public class JvmDao {
         Statement statement = null;
         ResultSet rs = null;
         try {
-            statement = connection.createStatement();
+            statement = getConnection().createStatement();
             rs = statement.executeQuery("select sum(sync), sum(cleanup),sum(vmop) from safepoint_event");
             if (rs.next()) {
                 totalPause = rs.getLong(1);
@@ -345,28 +810,27 @@ public class JvmDao {
     }
 
     /**
-     * Retrieve all <code>SafepointEvent</code>s.
+     * Iterate over all <code>SafepointEvent</code>s in the order stored, retrieving them from the database a page at a
+     * time so memory does not grow with the number of events. Events are stored in timestamp order, except events
+     * outside the reorder horizon.
      * 
-     * @return <code>List</code> of events.
+     * @return <code>Iterator</code> over the events.
      */
-    public synchronized List<SafepointEvent> getSafepointEvents() {
-        List<SafepointEvent> events = new ArrayList<SafepointEvent>();
+    public synchronized Iterator<SafepointEvent> getSafepointEventIterator() {
+        int minId = 0;
+        int maxId = -1;
         Statement statement = null;
         ResultSet rs = null;
         try {
-            statement = connection.createStatement();
-            StringBuffer sql = new StringBuffer();
-            sql.append("select time_stamp, trigger_type, sync, cleanup, vmop, log_entry from safepoint_event order by "
-                    + "time_stamp asc, id asc");
-            rs = statement.executeQuery(sql.toString());
-            while (rs.next()) {
-                SafepointEvent event = JdkUtil.hydrateSafepointEvent(LogEventType.SAFEPOINT, rs.getString(6),
-                        rs.getLong(1), rs.getInt(3), rs.getInt(4), rs.getInt(5));
-                events.add(event);
+            statement = getConnection().createStatement();
+            rs = statement.executeQuery("select min(id), max(id) from safepoint_event");
+            if (rs.next()) {
+                minId = rs.getInt(1);
+                maxId = rs.wasNull() ? -1 : rs.getInt(2);
             }
         } catch (SQLException e) {
             System.err.println(e.getMessage());
-            throw new RuntimeException("Error retrieving safepoint events.");
+            throw new RuntimeException("Error determining safepoint event ids.");
         } finally {
             try {
                 rs.close();
@@ -381,6 +845,48 @@ public class JvmDao {
                 throw new RuntimeException("Error closing Statement.");
             }
         }
+        return new SafepointEventPageIterator(minId, maxId);
+    }
+
+    /**
+     * Retrieve the <code>SafepointEvent</code>s in a range of ids.
+     * 
+     * @param fromId
+     *            The first id.
+     * @param toId
+     *            The last id.
+     * @return <code>List</code> of events in the order stored.
+     */
+    private synchronized List<SafepointEvent> getSafepointEvents(int fromId, int toId) {
+        List<SafepointEvent> events = new ArrayList<SafepointEvent>();
+        PreparedStatement pst = null;
+        ResultSet rs = null;
+        try {
+            pst = getConnection().prepareStatement("select " + SAFEPOINT_EVENT_COLUMNS
+                    + " from safepoint_event where id between ? and ? order by id asc");
+            pst.setInt(1, fromId);
+            pst.setInt(2, toId);
+            rs = pst.executeQuery();
+            while (rs.next()) {
+                events.add(hydrateSafepointEvent(rs));
+            }
+        } catch (SQLException e) {
+            System.err.println(e.getMessage());
+            throw new RuntimeException("Error retrieving safepoint events.");
+        } finally {
+            try {
+                rs.close();
+            } catch (SQLException e) {
+                System.err.println(e.getMessage());
+                throw new RuntimeException("Error closing ResultSet.");
+            }
+            try {
+                pst.close();
+            } catch (SQLException e) {
+                System.err.println(e.getMessage());
+                throw new RuntimeException("Error closing PreparedStatement.");
+            }
+        }
         return events;
     }
 
@@ -394,7 +900,7 @@ public class JvmDao {
         Statement statement = null;
         ResultSet rs = null;
         try {
-            statement = connection.createStatement();
+            statement = getConnection().createStatement();
             rs = statement.executeQuery(
                     "select log_entry from safepoint_event where id = " + "(select min(id) from safepoint_event)");
             if (rs.next()) {
@@ -447,7 +953,7 @@ public class JvmDao {
         Statement statement = null;
         ResultSet rs = null;
         try {
-            statement = connection.createStatement();
+            statement = getConnection().createStatement();
             rs = statement.executeQuery(
                     "select log_entry from safepoint_event where id = " + "(select max(id) from safepoint_event)");
             if (rs.next()) {
@@ -483,7 +989,7 @@ public class JvmDao {
         Statement statement = null;
         ResultSet rs = null;
         try {
-            statement = connection.createStatement();
+            statement = getConnection().createStatement();
             rs = statement.executeQuery("select sum(sync + cleanup + vmop) from safepoint_event");
             if (rs.next()) {
                 totalPause = rs.getLong(1);
@@ -518,7 +1024,7 @@ public class JvmDao {
         Statement statement = null;
         ResultSet rs = null;
         try {
-            statement = connection.createStatement();
+            statement = getConnection().createStatement();
             rs = statement.executeQuery("select max(sync + cleanup + vmop) from safepoint_event");
             if (rs.next()) {
                 maxPause = rs.getInt(1);
@@ -553,7 +1059,7 @@ public class JvmDao {
         Statement statement = null;
         ResultSet rs = null;
         try {
-            statement = connection.createStatement();
+            statement = getConnection().createStatement();
             StringBuffer sql = new StringBuffer();
             sql.append("select trigger_type, count(id), sum(sync + cleanup + vmop), max(sync + cleanup + vmop) from "
                     + "safepoint_event group by trigger_type order by sum(sync + cleanup + vmop) desc");
@@ -583,4 +1089,170 @@ public class JvmDao {
         }
         return safepointEventSummaries;
     }
+
+    /**
+     * Generate <code>TimeToSafepointSummary</code>s.
+     * 
+     * @return <code>List</code> of <code>TimeToSafepointSummary</code>s ordered by total time to safepoint.
+     */
+    public synchronized List<TimeToSafepointSummary> getTimeToSafepointSummaries() {
+        List<TimeToSafepointSummary> timeToSafepointSummaries = new ArrayList<TimeToSafepointSummary>();
+        Statement statement = null;
+        ResultSet rs = null;
+        try {
+            statement = getConnection().createStatement();
+            StringBuffer sql = new StringBuffer();
+            sql.append("select trigger_type, count(id), sum(sync), max(sync), sum(vmop), sum(sync + cleanup + vmop) "
+                    + "from safepoint_event group by trigger_type order by sum(sync) desc");
+            rs = statement.executeQuery(sql.toString());
+            while (rs.next()) {
+                Trigger trigger = Safepoint.identifyTrigger(rs.getString(1));
+                TimeToSafepointSummary summary = new TimeToSafepointSummary(trigger, rs.getLong(2), rs.getLong(3),
+                        rs.getInt(4), rs.getLong(5), rs.getLong(6));
+                timeToSafepointSummaries.add(summary);
+            }
+        } catch (SQLException e) {
+            System.err.println(e.getMessage());
+            throw new RuntimeException("Error retrieving time to safepoint summaries.");
+        } finally {
+            try {
+                rs.close();
+            } catch (SQLException e) {
+                System.err.println(e.getMessage());
+                throw new RuntimeException("Error closing ResultSet.");
+            }
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                System.err.println(e.getMessage());
+                throw new RuntimeException("Error closing Statement.");
+            }
+        }
+        return timeToSafepointSummaries;
+    }
+
+    /**
+     * The distribution of the time to safepoint (sync) to safepoint operation (vmop) ratio.
+     * 
+     * @return The number of events in each <code>SyncVmopRatio</code> range, indexed by ordinal.
+     */
+    public synchronized long[] getSyncVmopRatioCounts() {
+        long[] counts = new long[SyncVmopRatio.values().length];
+        Statement statement = null;
+        ResultSet rs = null;
+        try {
+            statement = getConnection().createStatement();
+            StringBuffer sql = new StringBuffer();
+            sql.append("select sum(case when sync = 0 then 1 else 0 end), "
+                    + "sum(case when sync > 0 and sync * 10 < vmop then 1 else 0 end), "
+                    + "sum(case when sync > 0 and sync * 10 >= vmop and sync < vmop then 1 else 0 end), "
+                    + "sum(case when sync > 0 and sync >= vmop and sync < vmop * 10 then 1 else 0 end), "
+                    + "sum(case when sync > 0 and sync >= vmop * 10 then 1 else 0 end) from safepoint_event");
+            rs = statement.executeQuery(sql.toString());
+            if (rs.next()) {
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] = rs.getLong(i + 1);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println(e.getMessage());
+            throw new RuntimeException("Error determining sync to vmop ratio distribution.");
+        } finally {
+            try {
+                rs.close();
+            } catch (SQLException e) {
+                System.err.println(e.getMessage());
+                throw new RuntimeException("Error closing ResultSet.");
+            }
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                System.err.println(e.getMessage());
+                throw new RuntimeException("Error closing Statement.");
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Retrieve the <code>SafepointEvent</code>s with the longest time to safepoint (sync).
+     * 
+     * @param limit
+     *            The maximum number of events to retrieve.
+     * @return <code>List</code> of events ordered by time to safepoint, longest first.
+     */
+    public synchronized List<SafepointEvent> getWorstTimeToSafepointEvents(int limit) {
+        List<SafepointEvent> events = new ArrayList<SafepointEvent>();
+        Iterator<SafepointEvent> iterator = getTopSafepointEvents().get(Metric.SYNC).getEvents().iterator();
+        while (iterator.hasNext() && events.size() < limit) {
+            SafepointEvent event = iterator.next();
+            if (event.getTimeSync() > 0) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Create a <code>SafepointEvent</code> from a <code>ResultSet</code> row selecting
+     * <code>SAFEPOINT_EVENT_COLUMNS</code>.
+     * 
+     * @param rs
+     *            The <code>ResultSet</code> positioned on the row.
+     * @return The <code>SafepointEvent</code>.
+     * @throws SQLException
+     *             Error reading the row.
+     */
+    private SafepointEvent hydrateSafepointEvent(ResultSet rs) throws SQLException {
+        return JdkUtil.hydrateSafepointEvent(LogEventType.SAFEPOINT, rs.getString(12), rs.getLong(1),
+                Safepoint.identifyTrigger(rs.getString(2)), rs.getInt(3), rs.getInt(4), rs.getInt(5), rs.getInt(6),
+                rs.getInt(7), rs.getInt(8), rs.getInt(9), rs.getInt(10), rs.getInt(11));
+    }
+
+    /**
+     * Iterates over the stored <code>SafepointEvent</code>s, retrieving a page of events at a time.
+     */
+    private class SafepointEventPageIterator implements Iterator<SafepointEvent> {
+
+        /**
+         * The id of the first event in the next page.
+         */
+        private int nextId;
+
+        /**
+         * The id of the last event.
+         */
+        private int maxId;
+
+        /**
+         * The events in the current page.
+         */
+        private Iterator<SafepointEvent> page;
+
+        private SafepointEventPageIterator(int minId, int maxId) {
+            this.nextId = minId;
+            this.maxId = maxId;
+            page = new ArrayList<SafepointEvent>().iterator();
+        }
+
+        public boolean hasNext() {
+            while (!page.hasNext() && nextId <= maxId) {
+                int toId = (int) Math.min(maxId, (long) nextId + Constants.SAFEPOINT_EVENT_PAGE_SIZE - 1);
+                page = getSafepointEvents(nextId, toId).iterator();
+                nextId = toId + 1;
+            }
+            return page.hasNext();
+        }
+
+        public SafepointEvent next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.next();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
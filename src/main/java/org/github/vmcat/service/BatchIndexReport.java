@@ -0,0 +1,101 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import org.github.vmcat.domain.JvmRunSummary;
+import org.github.vmcat.util.Constants;
+import org.github.vmcat.util.VmUtil;
+import org.github.vmcat.util.jdk.Safepoint;
+
+/**
+ * <p>
+ * Write the batch index as fixed width text: one line per vm log, lowest throughput first, so the vm logs most worth
+ * looking at are at the top.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class BatchIndexReport {
+
+    /**
+     * Make default constructor private so the class cannot be instantiated.
+     */
+    private BatchIndexReport() {
+
+    }
+
+    /**
+     * @param writer
+     *            The index writer.
+     * @param results
+     *            The batch results.
+     * @param vmcatVersion
+     *            The vmcat version to report, or null.
+     * @param latestVersion
+     *            The latest vmcat version to report, or null.
+     */
+    public static void write(Writer writer, List<BatchResult> results, String vmcatVersion, String latestVersion) {
+        PrintWriter printWriter = writer instanceof PrintWriter ? (PrintWriter) writer : new PrintWriter(writer);
+        List<BatchResult> sorted = new ArrayList<BatchResult>(results);
+        Collections.sort(sorted, new Comparator<BatchResult>() {
+            public int compare(BatchResult result1, BatchResult result2) {
+                return Long.compare(result1.getThroughput(), result2.getThroughput());
+            }
+        });
+        if (vmcatVersion != null || latestVersion != null) {
+            printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+            if (vmcatVersion != null) {
+                printWriter.write("Running vmcat version: " + vmcatVersion + Constants.LINE_SEPARATOR);
+            }
+            if (latestVersion != null) {
+                printWriter.write("Latest vmcat version/tag: " + latestVersion + Constants.LINE_SEPARATOR);
+            }
+        }
+        printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+        printWriter.write("BATCH INDEX:" + Constants.LINE_SEPARATOR);
+        printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+        printWriter.write("# Files: " + results.size() + Constants.LINE_SEPARATOR);
+        printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+        printWriter.printf("%12s%10s%12s  %-30s%-30s%s%n", "Throughput", "#", "Max (s)", "Top Trigger", "Report",
+                "File");
+        Iterator<BatchResult> iterator = sorted.iterator();
+        while (iterator.hasNext()) {
+            BatchResult result = iterator.next();
+            String reportFileName = result.getReportFile() == null ? "" : result.getReportFile().getName();
+            if (result.getError() != null) {
+                printWriter.printf("%12s%10s%12s  %-30s%-30s%s%n", "ERROR", "", "", result.getError(), reportFileName,
+                        result.getLogFile().getPath());
+            } else {
+                JvmRunSummary summary = result.getSummary();
+                printWriter.printf("%11s%%%10s%12s  %-30s%-30s%s%n", summary.getThroughput(),
+                        summary.getSafepointEventCount(),
+                        summary.getSafepointEventCount() == 0 ? "" : VmUtil.getSecsString(summary.getMaxPause()),
+                        summary.getTopTrigger() == null ? "" : Safepoint.getTriggerLiteral(summary.getTopTrigger()),
+                        reportFileName, result.getLogFile().getPath());
+            }
+        }
+        printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+        printWriter.flush();
+    }
+}
@@ -0,0 +1,144 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.github.vmcat.domain.Fleet;
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.domain.JvmRunSummary;
+
+/**
+ * <p>
+ * The summary of one vm log analyzed in batch mode. Only summaries are kept, so memory does not grow with the vm
+ * logs.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class BatchResult {
+
+    /**
+     * The vm log file.
+     */
+    private File logFile;
+
+    /**
+     * The report file, or null if no report was written.
+     */
+    private File reportFile;
+
+    /**
+     * The error analyzing the vm log, or null if none.
+     */
+    private String error;
+
+    /**
+     * The summary of each JVM run.
+     */
+    private List<JvmRunSummary> jvmRunSummaries;
+
+    /**
+     * The summary of all JVM runs.
+     */
+    private JvmRunSummary summary;
+
+    /**
+     * @param logFile
+     *            The vm log file.
+     * @param reportFile
+     *            The report file, or null if no report was written.
+     * @param jvmRuns
+     *            JVM run data for each JVM run in the vm log.
+     */
+    public BatchResult(File logFile, File reportFile, List<JvmRun> jvmRuns) {
+        this.logFile = logFile;
+        this.reportFile = reportFile;
+        jvmRunSummaries = new ArrayList<JvmRunSummary>();
+        summary = new JvmRunSummary(null, null);
+        Iterator<JvmRun> iterator = jvmRuns.iterator();
+        while (iterator.hasNext()) {
+            JvmRunSummary jvmRunSummary = new JvmRunSummary(iterator.next());
+            jvmRunSummaries.add(jvmRunSummary);
+            summary.merge(jvmRunSummary);
+        }
+    }
+
+    /**
+     * @param logFile
+     *            The vm log file.
+     * @param reportFile
+     *            The report file, or null if no report was written.
+     * @param error
+     *            The error analyzing the vm log.
+     */
+    public BatchResult(File logFile, File reportFile, String error) {
+        this.logFile = logFile;
+        this.reportFile = reportFile;
+        this.error = error;
+    }
+
+    public File getLogFile() {
+        return logFile;
+    }
+
+    public File getReportFile() {
+        return reportFile;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public List<JvmRunSummary> getJvmRunSummaries() {
+        return jvmRunSummaries;
+    }
+
+    public JvmRunSummary getSummary() {
+        return summary;
+    }
+
+    /**
+     * @return Percent of time not in safepoints, or -1 if there was an error.
+     */
+    public long getThroughput() {
+        return error == null ? summary.getThroughput() : -1;
+    }
+
+    /**
+     * @param results
+     *            The batch results.
+     * @return The JVM runs of the vm logs analyzed without error combined into a fleet.
+     */
+    public static Fleet getFleet(List<BatchResult> results) {
+        Fleet fleet = new Fleet();
+        Iterator<BatchResult> iterator = results.iterator();
+        while (iterator.hasNext()) {
+            BatchResult result = iterator.next();
+            if (result.getError() == null) {
+                fleet.addLogFile();
+                Iterator<JvmRunSummary> jvmRunSummaries = result.getJvmRunSummaries().iterator();
+                while (jvmRunSummaries.hasNext()) {
+                    fleet.add(jvmRunSummaries.next());
+                }
+            }
+        }
+        return fleet;
+    }
+}
@@ -0,0 +1,473 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.github.vmcat.domain.jdk.CalendarRollup;
+import org.github.vmcat.domain.jdk.SafepointEvent;
+import org.github.vmcat.domain.jdk.SafepointEventReorderBuffer;
+import org.github.vmcat.hsql.JvmDao;
+import org.github.vmcat.util.jdk.JdkUtil.LogEventType;
+import org.github.vmcat.util.jdk.Safepoint;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONWriter;
+
+/**
+ * <p>
+ * Resumable incremental analysis. A checkpoint saves the parse state after a vm log is read: the byte offset of the
+ * first line not yet read, the multi-line section being parsed, and the data stored for each JVM run. A later run
+ * restores the state and only parses the lines appended since the checkpoint.
+ * </p>
+ * 
+ * <p>
+ * The stored safepoint events are saved in the order they were stored and restored directly into the data store
+ * (without parsing), which rebuilds the per-trigger summaries, the top safepoints, and the safepoint storms, and keeps
+ * bottleneck detection continuous across the checkpoint. Events still held in the reorder buffer are saved with the
+ * buffer, so the report matches a full parse of the vm log.
+ * </p>
+ * 
+ * <p>
+ * The events are saved, not only the summaries, because the report is computed from them: the throughput bottlenecks
+ * depend on the threshold and JVM start date of the report, and the counts, first and last events, and worst time to
+ * safepoint events are queried from the data store. The checkpoint is one JSON value per line (the parse state, then
+ * for each JVM run its state, its stored safepoint events one per line, and its reorder buffer), so it is saved and
+ * restored one event at a time.
+ * </p>
+ * 
+ * <p>
+ * The checkpoint is ignored (and the vm log parsed from the beginning) if it is from a different checkpoint version,
+ * the settings that affect the stored data have changed, or the vm log no longer starts with the bytes that were read
+ * (e.g. it was truncated or replaced).
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class Checkpoint {
+
+    /**
+     * The checkpoint format version. Checkpoints with a different version are ignored.
+     */
+    public static final int VERSION = 3;
+
+    /**
+     * The maximum number of bytes at the start of the vm log used to verify it is the vm log that was checkpointed.
+     */
+    private static final int HEAD_LENGTH = 64 * 1024;
+
+    /**
+     * Make default constructor private so the class cannot be instantiated.
+     */
+    private Checkpoint() {
+
+    }
+
+    /**
+     * Store a vm log, resuming from a checkpoint, then save a new checkpoint.
+     * 
+     * @param manager
+     *            Where the vm log is stored. Must not have stored any lines.
+     * @param logFile
+     *            The vm log file.
+     * @param checkpointFile
+     *            The checkpoint file. Created if it does not exist.
+     * @throws IOException
+     *             if the vm log cannot be read or the checkpoint cannot be written.
+     */
+    public static void store(Manager manager, File logFile, File checkpointFile) throws IOException {
+        long position = restore(manager, logFile, checkpointFile);
+        if (manager.getProgress() != null) {
+            manager.getProgress().skip(position);
+        }
+        LogFollower follower = new LogFollower(logFile, manager, position);
+        try {
+            follower.poll();
+            // Save before the partial last line and buffered events are flushed, so the next run continues the parse.
+            save(manager, logFile, checkpointFile, follower.getLinePosition());
+            follower.flushPartialLine();
+        } finally {
+            follower.close();
+        }
+        manager.flush();
+    }
+
+    /**
+     * Restore the parse state from a checkpoint.
+     * 
+     * @param manager
+     *            Where the vm log is stored. Must not have stored any lines.
+     * @param logFile
+     *            The vm log file.
+     * @param checkpointFile
+     *            The checkpoint file.
+     * @return The byte offset in the vm log to resume parsing at, or 0 if the checkpoint does not exist or does not
+     *         apply to the vm log.
+     * @throws IOException
+     *             if the vm log or checkpoint cannot be read, or the checkpoint is invalid after the parse state.
+     */
+    public static long restore(Manager manager, File logFile, File checkpointFile) throws IOException {
+        if (!checkpointFile.exists()) {
+            return 0;
+        }
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(checkpointFile), StandardCharsets.UTF_8));
+        try {
+            JSONObject checkpoint;
+            try {
+                String line = reader.readLine();
+                checkpoint = new JSONObject(line == null ? "" : line);
+            } catch (JSONException e) {
+                System.err.println("Ignoring invalid checkpoint " + checkpointFile.getPath() + ": " + e.getMessage());
+                return 0;
+            }
+            String reason = null;
+            if (checkpoint.optInt("version") != VERSION) {
+                reason = "checkpoint version " + checkpoint.opt("version");
+            } else if (checkpoint.getInt("stormRateThreshold") != manager.getStormRateThreshold()
+                    || checkpoint.getInt("stormTimeShareThreshold") != manager.getStormTimeShareThreshold()
+                    || checkpoint.getLong("reorderHorizon") != manager.getReorderHorizon()) {
+                reason = "settings changed";
+            } else if (logFile.length() < checkpoint.getLong("position")) {
+                reason = "vm log truncated";
+            } else if (getHeadChecksum(logFile, checkpoint.getLong("headLength")) != checkpoint
+                    .getLong("headChecksum")) {
+                reason = "vm log replaced";
+            }
+            if (reason != null) {
+                System.err.println("Ignoring checkpoint " + checkpointFile.getPath() + " (" + reason + ").");
+                return 0;
+            }
+
+            try {
+                restoreJvmRuns(manager, reader);
+            } catch (JSONException e) {
+                throw new IOException("Invalid checkpoint " + checkpointFile.getPath() + ": " + e.getMessage(), e);
+            }
+            manager.setSection(Manager.Section.valueOf(checkpoint.getString("section")));
+            manager.setJvmRunHasData(checkpoint.getBoolean("jvmRunHasData"));
+            manager.setJvmRunEnded(checkpoint.getBoolean("jvmRunEnded"));
+            manager.setJvmRunMaxTimestamp(checkpoint.getLong("jvmRunMaxTimestamp"));
+            return checkpoint.getLong("position");
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Restore the JVM runs, one line at a time: the state of a JVM run, its stored safepoint events (arrays), then its
+     * reorder buffer.
+     * 
+     * @param manager
+     *            Where the vm log is stored.
+     * @param reader
+     *            The checkpoint reader, after the parse state.
+     * @throws IOException
+     *             if the checkpoint cannot be read.
+     */
+    private static void restoreJvmRuns(Manager manager, BufferedReader reader) throws IOException {
+        JvmDao jvmDao = null;
+        int jvmRunCount = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("[")) {
+                jvmDao.restoreSafepointEvent(restoreSafepointEvent(new JSONArray(line)));
+            } else {
+                JSONObject json = new JSONObject(line);
+                if (json.has("reorderBuffer")) {
+                    JSONObject buffer = json.getJSONObject("reorderBuffer");
+                    jvmDao.getSafepointEventReorderBuffer().restore(
+                            restoreSafepointEvents(buffer.getJSONArray("safepointEvents")),
+                            buffer.getLong("maxTimestamp"), buffer.getLong("releasedTimestamp"),
+                            buffer.getLong("reorderedCount"), buffer.getLong("outOfHorizonCount"),
+                            buffer.optLong("overflowCount"));
+                } else {
+                    jvmDao = jvmRunCount == 0 ? manager.getJvmDaos().get(0) : manager.restoreJvmRun();
+                    restoreJvmRun(jvmDao, json);
+                    jvmRunCount++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Save the parse state to a checkpoint. The checkpoint is written to a temporary file, then renamed, so an
+     * interrupted save does not leave a partial checkpoint.
+     * 
+     * @param manager
+     *            Where the vm log is stored.
+     * @param logFile
+     *            The vm log file.
+     * @param checkpointFile
+     *            The checkpoint file.
+     * @param position
+     *            The byte offset in the vm log of the first line not stored.
+     * @throws IOException
+     *             if the checkpoint cannot be written.
+     */
+    public static void save(Manager manager, File logFile, File checkpointFile, long position) throws IOException {
+        File parent = checkpointFile.getAbsoluteFile().getParentFile();
+        File tmpFile = File.createTempFile(checkpointFile.getName(), ".tmp", parent);
+        Writer writer = null;
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(tmpFile.toPath()),
+                    StandardCharsets.UTF_8));
+            long headLength = Math.min(position, HEAD_LENGTH);
+            JSONWriter json = new JSONWriter(writer);
+            json.object();
+            json.key("version").value(VERSION);
+            json.key("logFile").value(logFile.getPath());
+            json.key("position").value(position);
+            json.key("headLength").value(headLength);
+            json.key("headChecksum").value(getHeadChecksum(logFile, headLength));
+            json.key("stormRateThreshold").value(manager.getStormRateThreshold());
+            json.key("stormTimeShareThreshold").value(manager.getStormTimeShareThreshold());
+            json.key("reorderHorizon").value(manager.getReorderHorizon());
+            json.key("section").value(manager.getSection().name());
+            json.key("jvmRunHasData").value(manager.isJvmRunHasData());
+            json.key("jvmRunEnded").value(manager.isJvmRunEnded());
+            json.key("jvmRunMaxTimestamp").value(manager.getJvmRunMaxTimestamp());
+            json.endObject();
+            writer.write('\n');
+            Iterator<JvmDao> iterator = manager.getJvmDaos().iterator();
+            while (iterator.hasNext()) {
+                saveJvmRun(writer, iterator.next());
+            }
+            writer.close();
+            writer = null;
+            Files.move(tmpFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+            if (tmpFile.exists()) {
+                tmpFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Save a JVM run: its state, its stored safepoint events (one per line), then its reorder buffer.
+     * 
+     * @param writer
+     *            The checkpoint writer.
+     * @param jvmDao
+     *            The JVM run data.
+     * @throws IOException
+     *             if the checkpoint cannot be written.
+     */
+    private static void saveJvmRun(Writer writer, JvmDao jvmDao) throws IOException {
+        JSONWriter json = new JSONWriter(writer);
+        json.object();
+        json.key("version").value(jvmDao.getVersion());
+        json.key("options").value(jvmDao.getOptions());
+        CalendarRollup calendarRollup = jvmDao.getCalendarRollup();
+        if (calendarRollup != null) {
+            json.key("startTime").value(calendarRollup.getStartTime());
+            json.key("zoneOffset").value(calendarRollup.getZoneOffset());
+        }
+        json.key("eventTypes").array();
+        Iterator<LogEventType> eventTypes = jvmDao.getEventTypes().iterator();
+        while (eventTypes.hasNext()) {
+            json.value(eventTypes.next().name());
+        }
+        json.endArray();
+        saveStrings(json, "unidentifiedLogLines", jvmDao.getUnidentifiedLogLines());
+        saveStrings(json, "outOfHorizonLogLines", jvmDao.getOutOfHorizonLogLines());
+        json.endObject();
+        writer.write('\n');
+        jvmDao.processSafepointBatch();
+        Iterator<SafepointEvent> iterator = jvmDao.getSafepointEventIterator();
+        while (iterator.hasNext()) {
+            saveSafepointEvent(new JSONWriter(writer), iterator.next());
+            writer.write('\n');
+        }
+        SafepointEventReorderBuffer buffer = jvmDao.getSafepointEventReorderBuffer();
+        json = new JSONWriter(writer);
+        json.object();
+        json.key("reorderBuffer").object();
+        json.key("maxTimestamp").value(buffer.getMaxTimestamp());
+        json.key("releasedTimestamp").value(buffer.getReleasedTimestamp());
+        json.key("reorderedCount").value(buffer.getReorderedCount());
+        json.key("outOfHorizonCount").value(buffer.getOutOfHorizonCount());
+        json.key("overflowCount").value(buffer.getOverflowCount());
+        json.key("safepointEvents");
+        saveSafepointEvents(json, buffer.getEvents().iterator());
+        json.endObject();
+        json.endObject();
+        writer.write('\n');
+    }
+
+    /**
+     * @param jvmDao
+     *            The JVM run data.
+     * @param jvmRun
+     *            The JVM run checkpoint.
+     */
+    private static void restoreJvmRun(JvmDao jvmDao, JSONObject jvmRun) {
+        jvmDao.setVersion(jvmRun.isNull("version") ? null : jvmRun.getString("version"));
+        jvmDao.setOptions(jvmRun.isNull("options") ? null : jvmRun.getString("options"));
+        if (jvmRun.has("startTime")) {
+            // Before the safepoint events, so they are in the calendar rollup
+            jvmDao.setStartTime(jvmRun.getLong("startTime"), jvmRun.getInt("zoneOffset"));
+        }
+        JSONArray eventTypes = jvmRun.getJSONArray("eventTypes");
+        for (int i = 0; i < eventTypes.length(); i++) {
+            jvmDao.getEventTypes().add(LogEventType.valueOf(eventTypes.getString(i)));
+        }
+        restoreStrings(jvmRun.getJSONArray("unidentifiedLogLines"), jvmDao.getUnidentifiedLogLines());
+        restoreStrings(jvmRun.getJSONArray("outOfHorizonLogLines"), jvmDao.getOutOfHorizonLogLines());
+    }
+
+    /**
+     * @param json
+     *            The checkpoint writer.
+     * @param key
+     *            The key.
+     * @param strings
+     *            The strings to save.
+     */
+    private static void saveStrings(JSONWriter json, String key, List<String> strings) {
+        json.key(key).array();
+        Iterator<String> iterator = strings.iterator();
+        while (iterator.hasNext()) {
+            json.value(iterator.next());
+        }
+        json.endArray();
+    }
+
+    /**
+     * @param array
+     *            The saved strings.
+     * @param strings
+     *            Where to restore the strings.
+     */
+    private static void restoreStrings(JSONArray array, List<String> strings) {
+        for (int i = 0; i < array.length(); i++) {
+            strings.add(array.getString(i));
+        }
+    }
+
+    /**
+     * Save safepoint events compactly, one array of field values per event.
+     * 
+     * @param json
+     *            The checkpoint writer.
+     * @param iterator
+     *            The events to save.
+     */
+    static void saveSafepointEvents(JSONWriter json, Iterator<SafepointEvent> iterator) {
+        json.array();
+        while (iterator.hasNext()) {
+            saveSafepointEvent(json, iterator.next());
+        }
+        json.endArray();
+    }
+
+    /**
+     * Save a safepoint event compactly, as an array of field values.
+     * 
+     * @param json
+     *            The checkpoint writer.
+     * @param event
+     *            The event to save.
+     */
+    private static void saveSafepointEvent(JSONWriter json, SafepointEvent event) {
+        json.array();
+        json.value(event.getLogEntry());
+        json.value(event.getTimestamp());
+        json.value(event.getTrigger().name());
+        json.value(event.getThreadsTotal());
+        json.value(event.getThreadsSpinning());
+        json.value(event.getThreadsBlocked());
+        json.value(event.getTimeSpin());
+        json.value(event.getTimeBlock());
+        json.value(event.getTimeSync());
+        json.value(event.getTimeCleanup());
+        json.value(event.getTimeVmop());
+        json.value(event.getPageTrapCount());
+        json.endArray();
+    }
+
+    /**
+     * @param array
+     *            The saved safepoint events.
+     * @return The safepoint events.
+     */
+    static List<SafepointEvent> restoreSafepointEvents(JSONArray array) {
+        List<SafepointEvent> events = new ArrayList<SafepointEvent>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            events.add(restoreSafepointEvent(array.getJSONArray(i)));
+        }
+        return events;
+    }
+
+    /**
+     * @param event
+     *            The saved safepoint event.
+     * @return The safepoint event.
+     */
+    private static SafepointEvent restoreSafepointEvent(JSONArray event) {
+        return new SafepointEvent(event.getString(0), event.getLong(1), Safepoint.identifyTrigger(event.getString(2)),
+                event.getInt(3), event.getInt(4), event.getInt(5), event.getInt(6), event.getInt(7), event.getInt(8),
+                event.getInt(9), event.getInt(10), event.getInt(11));
+    }
+
+    /**
+     * @param logFile
+     *            The vm log file.
+     * @param length
+     *            The number of bytes at the start of the vm log to checksum.
+     * @return The CRC32 checksum of the first <code>length</code> bytes of the vm log, or -1 if the vm log is shorter.
+     * @throws IOException
+     *             if the vm log cannot be read.
+     */
+    private static long getHeadChecksum(File logFile, long length) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[(int) length];
+        InputStream in = new FileInputStream(logFile);
+        try {
+            int read = 0;
+            while (read < buffer.length) {
+                int count = in.read(buffer, read, buffer.length - read);
+                if (count < 0) {
+                    return -1;
+                }
+                read += count;
+            }
+        } finally {
+            in.close();
+        }
+        crc.update(buffer);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,251 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.List;
+
+import org.github.vmcat.domain.JvmRunComparison;
+import org.github.vmcat.domain.JvmRunSummary;
+import org.github.vmcat.domain.jdk.PauseComparison;
+import org.github.vmcat.domain.jdk.PauseHistogram;
+import org.github.vmcat.domain.jdk.SafepointEventSummary;
+import org.github.vmcat.util.Constants;
+import org.github.vmcat.util.VmUtil;
+import org.github.vmcat.util.jdk.JdkMath;
+import org.github.vmcat.util.jdk.Safepoint;
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
+
+/**
+ * <p>
+ * Write the comparison report as fixed width text: baseline and candidate totals, then by trigger.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class CompareReport {
+
+    /**
+     * Make default constructor private so the class cannot be instantiated.
+     */
+    private CompareReport() {
+
+    }
+
+    /**
+     * @param writer
+     *            The report writer.
+     * @param comparison
+     *            The baseline and candidate JVM runs.
+     * @param vmcatVersion
+     *            The vmcat version to report, or null.
+     */
+    public static void write(Writer writer, JvmRunComparison comparison, String vmcatVersion) {
+        PrintWriter printWriter = writer instanceof PrintWriter ? (PrintWriter) writer : new PrintWriter(writer);
+        if (vmcatVersion != null) {
+            printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+            printWriter.write("Running vmcat version: " + vmcatVersion + Constants.LINE_SEPARATOR);
+        }
+        JvmRunSummary baseline = comparison.getBaseline().getTotal();
+        JvmRunSummary candidate = comparison.getCandidate().getTotal();
+        printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+        printWriter.write("COMPARE:" + Constants.LINE_SEPARATOR);
+        printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+        printWriter.printf("%-24s%12s%12s%12s%10s%n", "", "Baseline", "Candidate", "Delta", "Change");
+        printCount(printWriter, "# Files", comparison.getBaseline().getLogFileCount(),
+                comparison.getCandidate().getLogFileCount());
+        printCount(printWriter, "# JVM Runs", baseline.getJvmRunCount(), candidate.getJvmRunCount());
+        printSecs(printWriter, "Duration (s)", baseline.getDuration(), candidate.getDuration());
+        printCount(printWriter, "# Safepoints", baseline.getSafepointEventCount(), candidate.getSafepointEventCount());
+        printRate(printWriter, "Safepoints/h", baseline.getSafepointEventRate(), candidate.getSafepointEventRate());
+        printSecs(printWriter, "Pause Total (s)", baseline.getSafepointTotalPause(),
+                candidate.getSafepointTotalPause());
+        printPercentiles(printWriter, "Pause", baseline.getPauseHistogram(), candidate.getPauseHistogram());
+        printSecs(printWriter, "Pause Max (s)", baseline.getMaxPause(), candidate.getMaxPause());
+        printPercent(printWriter, "Throughput (%)", baseline.getThroughput(), candidate.getThroughput());
+        for (int i = 0; i < Constants.MMU_WINDOWS.length; i++) {
+            printPercent(printWriter, "MMU " + JdkMath.convertMillisToSecs(Constants.MMU_WINDOWS[i])
+                    .stripTrailingZeros().toPlainString() + "s (%)", baseline.getMmu(i), candidate.getMmu(i));
+        }
+        printCount(printWriter, "# Storms", baseline.getSafepointStormCount(), candidate.getSafepointStormCount());
+        printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+        printWriter.write("Pause Times: " + getPauseComparisonString(comparison.getPauseComparison())
+                + Constants.LINE_SEPARATOR);
+        List<Trigger> triggers = comparison.getTriggers();
+        if (!triggers.isEmpty()) {
+            printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+            printWriter.write("TRIGGERS:" + Constants.LINE_SEPARATOR);
+            printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+            printWriter.printf("%-30s%10s%10s%10s%10s%8s%10s%10s%10s%10s%10s%10s%10s  %s%n", "Trigger", "# Base",
+                    "# Cand", "/h Base", "/h Cand", "Rate", "Time Base", "Time Cand", "p50 Base", "p50 Cand",
+                    "p99 Base", "p99 Cand", "p-value", "Pause Change");
+            Iterator<Trigger> iterator = triggers.iterator();
+            while (iterator.hasNext()) {
+                Trigger trigger = iterator.next();
+                SafepointEventSummary baselineSummary = baseline.getSafepointEventSummary(trigger);
+                SafepointEventSummary candidateSummary = candidate.getSafepointEventSummary(trigger);
+                long baselineCount = baselineSummary == null ? 0 : baselineSummary.getCount();
+                long candidateCount = candidateSummary == null ? 0 : candidateSummary.getCount();
+                double baselineRate = baseline.getRate(baselineCount);
+                double candidateRate = candidate.getRate(candidateCount);
+                PauseHistogram baselineHistogram = baseline.getTriggerPauseHistogram(trigger);
+                PauseHistogram candidateHistogram = candidate.getTriggerPauseHistogram(trigger);
+                PauseComparison pauseComparison = comparison.getPauseComparison(trigger);
+                printWriter.printf("%-30s%10s%10s%10.1f%10.1f%8s%10s%10s%10s%10s%10s%10s%10.4f  %s%n",
+                        Safepoint.getTriggerLiteral(trigger), baselineCount, candidateCount, baselineRate,
+                        candidateRate, getChangeString(baselineRate, candidateRate),
+                        VmUtil.getSecsString(baselineSummary == null ? 0 : baselineSummary.getPauseTotal()),
+                        VmUtil.getSecsString(candidateSummary == null ? 0 : candidateSummary.getPauseTotal()),
+                        VmUtil.getSecsString(baselineHistogram.getValueAtPercentile(50)),
+                        VmUtil.getSecsString(candidateHistogram.getValueAtPercentile(50)),
+                        VmUtil.getSecsString(baselineHistogram.getValueAtPercentile(99)),
+                        VmUtil.getSecsString(candidateHistogram.getValueAtPercentile(99)),
+                        pauseComparison.getPValue(), getChangeLiteral(pauseComparison));
+            }
+        }
+        printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+        printWriter.flush();
+    }
+
+    /**
+     * @param printWriter
+     *            The report writer.
+     * @param label
+     *            The row label.
+     * @param baseline
+     *            The baseline count.
+     * @param candidate
+     *            The candidate count.
+     */
+    private static void printCount(PrintWriter printWriter, String label, long baseline, long candidate) {
+        printWriter.printf("%-24s%12s%12s%12s%10s%n", label, baseline, candidate,
+                (candidate > baseline ? "+" : "") + (candidate - baseline), getChangeString(baseline, candidate));
+    }
+
+    /**
+     * @param printWriter
+     *            The report writer.
+     * @param label
+     *            The row label.
+     * @param baseline
+     *            The baseline percent.
+     * @param candidate
+     *            The candidate percent.
+     */
+    private static void printPercent(PrintWriter printWriter, String label, long baseline, long candidate) {
+        // The delta is in percentage points, so there is no relative change.
+        printWriter.printf("%-24s%12s%12s%12s%10s%n", label, baseline, candidate,
+                (candidate > baseline ? "+" : "") + (candidate - baseline), "");
+    }
+
+    /**
+     * @param printWriter
+     *            The report writer.
+     * @param label
+     *            The row label.
+     * @param baseline
+     *            The baseline rate.
+     * @param candidate
+     *            The candidate rate.
+     */
+    private static void printRate(PrintWriter printWriter, String label, double baseline, double candidate) {
+        printWriter.printf("%-24s%12.1f%12.1f%+12.1f%10s%n", label, baseline, candidate, candidate - baseline,
+                getChangeString(baseline, candidate));
+    }
+
+    /**
+     * @param printWriter
+     *            The report writer.
+     * @param label
+     *            The row label.
+     * @param baseline
+     *            The baseline time (milliseconds).
+     * @param candidate
+     *            The candidate time (milliseconds).
+     */
+    private static void printSecs(PrintWriter printWriter, String label, long baseline, long candidate) {
+        printWriter.printf("%-24s%12s%12s%12s%10s%n", label, VmUtil.getSecsString(baseline),
+                VmUtil.getSecsString(candidate),
+                (candidate > baseline ? "+" : "") + JdkMath.convertMillisToSecs(candidate - baseline),
+                getChangeString(baseline, candidate));
+    }
+
+    /**
+     * @param printWriter
+     *            The report writer.
+     * @param label
+     *            The row label prefix.
+     * @param baseline
+     *            The baseline pause histogram.
+     * @param candidate
+     *            The candidate pause histogram.
+     */
+    private static void printPercentiles(PrintWriter printWriter, String label, PauseHistogram baseline,
+            PauseHistogram candidate) {
+        double[] percentiles = { 50, 90, 99, 99.9 };
+        for (int i = 0; i < percentiles.length; i++) {
+            printSecs(printWriter,
+                    label + " p" + BigDecimal.valueOf(percentiles[i]).stripTrailingZeros().toPlainString() + " (s)",
+                    baseline.getValueAtPercentile(percentiles[i]), candidate.getValueAtPercentile(percentiles[i]));
+        }
+    }
+
+    /**
+     * @param baseline
+     *            The baseline value.
+     * @param candidate
+     *            The candidate value.
+     * @return The change from the baseline value to the candidate value as a signed percent, or "" if the baseline
+     *         value is zero.
+     */
+    private static String getChangeString(double baseline, double candidate) {
+        if (baseline == 0) {
+            return "";
+        }
+        return String.format("%+.1f%%", (candidate - baseline) * 100 / baseline);
+    }
+
+    /**
+     * @param pauseComparison
+     *            The baseline and candidate pause time comparison.
+     * @return Whether candidate pause times are significantly longer or shorter, and the test statistics.
+     */
+    private static String getPauseComparisonString(PauseComparison pauseComparison) {
+        return getChangeLiteral(pauseComparison) + " (Mann-Whitney p-value "
+                + String.format("%.4f", pauseComparison.getPValue()) + ", probability a candidate pause is longer "
+                + String.format("%.2f", pauseComparison.getProbabilityLonger()) + ")";
+    }
+
+    /**
+     * @param pauseComparison
+     *            The baseline and candidate pause time comparison.
+     * @return "longer" or "shorter" if candidate pause times are significantly different, otherwise "no significant
+     *         change".
+     */
+    private static String getChangeLiteral(PauseComparison pauseComparison) {
+        int change = pauseComparison.getChange(Constants.COMPARE_SIGNIFICANCE);
+        if (change > 0) {
+            return "longer";
+        } else if (change < 0) {
+            return "shorter";
+        } else {
+            return "no significant change";
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.domain.jdk.PauseHistogram;
+import org.github.vmcat.domain.jdk.SafepointEvent;
+import org.github.vmcat.domain.jdk.SafepointEventSummary;
+import org.github.vmcat.domain.jdk.SafepointStorm;
+import org.github.vmcat.domain.jdk.TimeToSafepointSummary;
+import org.github.vmcat.util.Constants;
+import org.github.vmcat.util.VmUtil;
+import org.github.vmcat.util.jdk.Analysis;
+import org.github.vmcat.util.jdk.Safepoint;
+import org.github.vmcat.util.jdk.Safepoint.Metric;
+import org.github.vmcat.util.jdk.Safepoint.SyncVmopRatio;
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
+
+/**
+ * <p>
+ * Write the VM Log Analysis report as CSV, with the same sections as the text report. Times and durations are
+ * milliseconds.
+ * </p>
+ * 
+ * <p>
+ * Every row has the same columns, so the whole report loads as one table:
+ * </p>
+ * 
+ * <pre>
+ * run,section,item,field,value
+ * 1,summary,,throughput,99
+ * 1,trigger,RevokeBias,count,150
+ * 1,top.total,1,duration,20
+ * </pre>
+ * 
+ * <p>
+ * <code>run</code> is the JVM run number (1 based). <code>item</code> identifies the row within the section (e.g.
+ * trigger, rank, bottleneck window number). Rows are written as they are generated.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class CsvReport {
+
+    /**
+     * The report writer.
+     */
+    private Writer writer;
+
+    /**
+     * The JVM run number (1 based) of the rows being written.
+     */
+    private int run;
+
+    /**
+     * @param writer
+     *            The report writer.
+     */
+    private CsvReport(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * @param writer
+     *            The report writer.
+     * @param jvmRuns
+     *            JVM run data for each JVM run in the log.
+     * @param vmcatVersion
+     *            The vmcat version to report, or null.
+     * @throws IOException
+     *             if the report cannot be written.
+     */
+    public static void write(Writer writer, List<JvmRun> jvmRuns, String vmcatVersion) throws IOException {
+        CsvReport report = new CsvReport(writer);
+        writer.write("run,section,item,field,value" + Constants.LINE_SEPARATOR);
+        if (vmcatVersion != null) {
+            report.row("vmcat", "", "version", vmcatVersion);
+        }
+        for (int i = 0; i < jvmRuns.size(); i++) {
+            report.run = i + 1;
+            report.writeJvmRun(jvmRuns.get(i));
+        }
+        writer.flush();
+    }
+
+    /**
+     * @param value
+     *            The field value.
+     * @return The value quoted if it contains a comma, quote or line break (RFC 4180).
+     */
+    static String quote(String value) {
+        if (value.indexOf(',') == -1 && value.indexOf('"') == -1 && value.indexOf('\n') == -1
+                && value.indexOf('\r') == -1) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private void writeJvmRun(JvmRun jvmRun) throws IOException {
+        if (jvmRun.getJvm().getVersion() != null) {
+            row("jvm", "", "version", jvmRun.getJvm().getVersion());
+        }
+        if (jvmRun.getJvm().getOptions() != null) {
+            row("jvm", "", "options", jvmRun.getJvm().getOptions());
+        }
+
+        row("summary", "", "safepointEventCount", jvmRun.getSafepointEventCount());
+        row("summary", "", "throughput", jvmRun.getThroughput());
+        row("summary", "", "maxPause", jvmRun.getMaxPause());
+        row("summary", "", "totalPause", jvmRun.getSafepointTotalPause());
+        row("summary", "", "duration", jvmRun.getJvmRunDuration());
+        row("summary", "", "reorderedCount", jvmRun.getReorderedCount());
+        row("summary", "", "outOfHorizonCount", jvmRun.getOutOfHorizonCount());
+        row("summary", "", "reorderOverflowCount", jvmRun.getReorderOverflowCount());
+        row("summary", "", "overlapCount", jvmRun.getEventOverlapCount());
+        row("summary", "", "bottleneckTime", jvmRun.getBottleneckTime());
+        row("summary", "", "maxMemory", jvmRun.getMaxMemory());
+        if (jvmRun.getSafepointEventCount() > 0) {
+            SafepointEvent first = jvmRun.getFirstSafepointEvent();
+            row("summary", "", "firstTimestamp", first.getTimestamp());
+            row("summary", "", "firstTime", VmUtil.getTime(first.getTimestamp(), first.getLogEntry(), jvmRun.getJvm()));
+            SafepointEvent last = jvmRun.getLastSafepointEvent();
+            row("summary", "", "lastTimestamp", last.getTimestamp());
+            row("summary", "", "lastTime", VmUtil.getTime(last.getTimestamp(), last.getLogEntry(), jvmRun.getJvm()));
+        }
+
+        if (jvmRun.getSafepointEventCount() > 0) {
+            Map<Trigger, PauseHistogram> histograms = jvmRun.getTriggerPauseHistograms();
+            Iterator<SafepointEventSummary> iterator = jvmRun.getSafepointEventSummaries().iterator();
+            while (iterator.hasNext()) {
+                SafepointEventSummary summary = iterator.next();
+                String trigger = JsonReport.getTriggerLiteral(summary.getTrigger());
+                row("trigger", trigger, "count", summary.getCount());
+                row("trigger", trigger, "pauseTotal", summary.getPauseTotal());
+                row("trigger", trigger, "pauseMax", summary.getPauseMax());
+                PauseHistogram histogram = histograms == null ? null : histograms.get(summary.getTrigger());
+                if (histogram != null) {
+                    row("trigger", trigger, "p50", histogram.getValueAtPercentile(50));
+                    row("trigger", trigger, "p99", histogram.getValueAtPercentile(99));
+                }
+            }
+
+            row("ttsp", "", "syncTotal", jvmRun.getTimeToSafepointTotal());
+            long[] syncVmopRatioCounts = jvmRun.getSyncVmopRatioCounts();
+            SyncVmopRatio[] ratios = SyncVmopRatio.values();
+            for (int i = 0; i < ratios.length; i++) {
+                row("ttsp.ratio", Safepoint.getSyncVmopRatioLiteral(ratios[i]), "count", syncVmopRatioCounts[i]);
+            }
+            Iterator<TimeToSafepointSummary> ttspIterator = jvmRun.getTimeToSafepointSummaries().iterator();
+            while (ttspIterator.hasNext()) {
+                TimeToSafepointSummary summary = ttspIterator.next();
+                String trigger = JsonReport.getTriggerLiteral(summary.getTrigger());
+                row("ttsp.trigger", trigger, "count", summary.getCount());
+                row("ttsp.trigger", trigger, "syncTotal", summary.getSyncTotal());
+                row("ttsp.trigger", trigger, "syncMax", summary.getSyncMax());
+                row("ttsp.trigger", trigger, "vmopTotal", summary.getVmopTotal());
+                row("ttsp.trigger", trigger, "pauseTotal", summary.getPauseTotal());
+            }
+            writeEvents("ttsp.worst", jvmRun, jvmRun.getWorstTimeToSafepointEvents());
+        }
+
+        List<SafepointStorm> storms = jvmRun.getSafepointStorms();
+        if (storms != null && !storms.isEmpty()) {
+            row("storms", "", "rateThreshold", jvmRun.getStormRateThreshold());
+            row("storms", "", "timeShareThreshold", jvmRun.getStormTimeShareThreshold());
+            row("storms", "", "pauseTotal", jvmRun.getStormPauseTotal());
+            for (int i = 0; i < storms.size(); i++) {
+                SafepointStorm storm = storms.get(i);
+                String item = Integer.toString(i + 1);
+                row("storm", item, "startTimestamp", storm.getStart());
+                row("storm", item, "startTime",
+                        VmUtil.getTime(storm.getStart(), storm.getStartLogEntry(), jvmRun.getJvm()));
+                row("storm", item, "duration", storm.getDuration());
+                row("storm", item, "count", storm.getCount());
+                row("storm", item, "pauseTotal", storm.getPauseTotal());
+                row("storm", item, "pauseShare", storm.getPauseShare());
+                row("storm", item, "dominantTrigger", JsonReport.getTriggerLiteral(storm.getDominantTrigger()));
+                row("storm", item, "dominantTriggerCount", storm.getDominantTriggerCount());
+            }
+        }
+
+        if (jvmRun.getSafepointEventCount() > 0) {
+            Metric[] metrics = Metric.values();
+            for (int i = 0; i < metrics.length; i++) {
+                writeEvents("top." + Safepoint.getMetricLiteral(metrics[i]), jvmRun,
+                        jvmRun.getTopSafepointEvents().get(metrics[i]).getEvents());
+            }
+        }
+
+        row("bottlenecks", "", "throughputThreshold", jvmRun.getThroughputThreshold());
+        row("bottlenecks", "", "omittedLineCount", jvmRun.getOmittedBottleneckLineCount());
+        List<String> bottlenecks = jvmRun.getBottlenecks();
+        int start = 0;
+        int window = 1;
+        while (start < bottlenecks.size()) {
+            int end = JsonReport.getWindowEnd(bottlenecks, start);
+            for (int i = start; i < end; i++) {
+                row("bottleneck", Integer.toString(window), "line", bottlenecks.get(i));
+            }
+            start = end + 1;
+            window++;
+        }
+
+        Iterator<Analysis> analysis = jvmRun.getAnalysis().iterator();
+        while (analysis.hasNext()) {
+            Analysis a = analysis.next();
+            row("analysis", a.getKey(), JsonReport.getLevel(a), jvmRun.getAnalysisLiteral(a));
+        }
+
+        row("outOfHorizon", "", "count", jvmRun.getOutOfHorizonCount());
+        writeLines("outOfHorizon", jvmRun.getOutOfHorizonLogLines());
+        row("unidentified", "", "count", jvmRun.getUnidentifiedLogLines().size());
+        writeLines("unidentified", jvmRun.getUnidentifiedLogLines());
+    }
+
+    /**
+     * @param section
+     *            The report section.
+     * @param jvmRun
+     *            The JVM run.
+     * @param events
+     *            The safepoint events, ranked.
+     */
+    private void writeEvents(String section, JvmRun jvmRun, List<SafepointEvent> events) throws IOException {
+        for (int i = 0; i < events.size(); i++) {
+            SafepointEvent event = events.get(i);
+            String item = Integer.toString(i + 1);
+            row(section, item, "timestamp", event.getTimestamp());
+            row(section, item, "time", VmUtil.getTime(event.getTimestamp(), event.getLogEntry(), jvmRun.getJvm()));
+            row(section, item, "trigger", JsonReport.getTriggerLiteral(event.getTrigger()));
+            row(section, item, "duration", event.getDuration());
+            row(section, item, "spin", event.getTimeSpin());
+            row(section, item, "block", event.getTimeBlock());
+            row(section, item, "sync", event.getTimeSync());
+            row(section, item, "cleanup", event.getTimeCleanup());
+            row(section, item, "vmop", event.getTimeVmop());
+            row(section, item, "threadsTotal", event.getThreadsTotal());
+            row(section, item, "threadsSpinning", event.getThreadsSpinning());
+            row(section, item, "threadsBlocked", event.getThreadsBlocked());
+            row(section, item, "pageTrapCount", event.getPageTrapCount());
+        }
+    }
+
+    /**
+     * @param section
+     *            The report section.
+     * @param lines
+     *            The log lines, or null.
+     */
+    private void writeLines(String section, List<String> lines) throws IOException {
+        if (lines != null) {
+            for (int i = 0; i < lines.size(); i++) {
+                row(section, Integer.toString(i + 1), "line", lines.get(i));
+            }
+        }
+    }
+
+    private void row(String section, String item, String field, long value) throws IOException {
+        row(section, item, field, Long.toString(value));
+    }
+
+    private void row(String section, String item, String field, String value) throws IOException {
+        writer.write(Integer.toString(run));
+        writer.write(',');
+        writer.write(section);
+        writer.write(',');
+        writer.write(quote(item));
+        writer.write(',');
+        writer.write(field);
+        writer.write(',');
+        writer.write(quote(value));
+        writer.write(Constants.LINE_SEPARATOR);
+    }
+}
@@ -0,0 +1,191 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.github.vmcat.domain.Fleet;
+import org.github.vmcat.domain.JvmRunSummary;
+import org.github.vmcat.domain.jdk.PauseHistogram;
+import org.github.vmcat.domain.jdk.PauseTimeline;
+import org.github.vmcat.domain.jdk.SafepointEvent;
+import org.github.vmcat.domain.jdk.SafepointEventSummary;
+import org.github.vmcat.domain.jdk.TopSafepointEvents;
+import org.github.vmcat.util.Constants;
+import org.github.vmcat.util.VmUtil;
+import org.github.vmcat.util.jdk.JdkMath;
+import org.github.vmcat.util.jdk.Safepoint;
+import org.github.vmcat.util.jdk.Safepoint.Metric;
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
+
+/**
+ * <p>
+ * Write the fleet report as fixed width text: all JVM runs combined, then by configuration.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class FleetReport {
+
+    /**
+     * Make default constructor private so the class cannot be instantiated.
+     */
+    private FleetReport() {
+
+    }
+
+    /**
+     * @param writer
+     *            The report writer.
+     * @param fleet
+     *            The fleet summary.
+     */
+    public static void write(Writer writer, Fleet fleet) {
+        PrintWriter printWriter = writer instanceof PrintWriter ? (PrintWriter) writer : new PrintWriter(writer);
+        JvmRunSummary total = fleet.getTotal();
+        printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+        printWriter.write("FLEET:" + Constants.LINE_SEPARATOR);
+        printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+        printWriter.write("# Files: " + fleet.getLogFileCount() + Constants.LINE_SEPARATOR);
+        printWriter.write("# JVM Runs: " + total.getJvmRunCount() + Constants.LINE_SEPARATOR);
+        printWriter.write("# Configurations: " + fleet.getConfigurations().size() + Constants.LINE_SEPARATOR);
+        printWriter.write("# Safepoints: " + total.getSafepointEventCount() + Constants.LINE_SEPARATOR);
+        printWriter.write("Pause Total: " + VmUtil.getSecsString(total.getSafepointTotalPause()) + " secs"
+                + Constants.LINE_SEPARATOR);
+        printWriter.write("Pause p50/p90/p99/p99.9: " + getPercentilesString(total.getPauseHistogram()) + " secs"
+                + Constants.LINE_SEPARATOR);
+        printWriter.write(
+                "Pause Max: " + VmUtil.getSecsString(total.getMaxPause()) + " secs" + Constants.LINE_SEPARATOR);
+        printWriter.write("Throughput: " + total.getThroughput() + "%" + Constants.LINE_SEPARATOR);
+        if (total.getSafepointStormCount() > 0) {
+            printWriter.write("# Storms: " + total.getSafepointStormCount() + Constants.LINE_SEPARATOR);
+        }
+        if (total.getSafepointEventCount() > 0) {
+            printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+            printWriter.write("TRIGGERS (ALL JVM RUNS):" + Constants.LINE_SEPARATOR);
+            printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+            printWriter.printf("%30s%12s%12s%7s%12s%n", "", "#", "Time (s)", "", "Max (s)");
+            Iterator<SafepointEventSummary> iterator = total.getSafepointEventSummaries().iterator();
+            while (iterator.hasNext()) {
+                SafepointEventSummary summary = iterator.next();
+                printWriter.printf("%-30s%12s%12s%6s%%%12s%n", Safepoint.getTriggerLiteral(summary.getTrigger()),
+                        summary.getCount(), VmUtil.getSecsString(summary.getPauseTotal()),
+                        VmUtil.getPercentString(summary.getPauseTotal(), total.getSafepointTotalPause()),
+                        VmUtil.getSecsString(summary.getPauseMax()));
+            }
+        }
+        printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+        printWriter.write("CONFIGURATIONS:" + Constants.LINE_SEPARATOR);
+        printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+        printWriter.printf("%-10s%6s%12s%12s%12s%12s%12s  %s%n", "Config", "Runs", "#", "Pause (s)", "p99 (s)",
+                "Max (s)", "Throughput", "Top Trigger");
+        List<JvmRunSummary> configurations = fleet.getConfigurations();
+        Iterator<JvmRunSummary> iterator = configurations.iterator();
+        while (iterator.hasNext()) {
+            JvmRunSummary configuration = iterator.next();
+            Trigger topTrigger = configuration.getTopTrigger();
+            printWriter.printf("%-10s%6s%12s%12s%12s%12s%11s%%  %s%n", configuration.getFingerprint(),
+                    configuration.getJvmRunCount(), configuration.getSafepointEventCount(),
+                    VmUtil.getSecsString(configuration.getSafepointTotalPause()),
+                    VmUtil.getSecsString(configuration.getPauseHistogram().getValueAtPercentile(99)),
+                    VmUtil.getSecsString(configuration.getMaxPause()), configuration.getThroughput(),
+                    topTrigger == null ? "" : Safepoint.getTriggerLiteral(topTrigger));
+        }
+        iterator = configurations.iterator();
+        while (iterator.hasNext()) {
+            JvmRunSummary configuration = iterator.next();
+            printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+            printWriter.write(configuration.getFingerprint() + ":" + Constants.LINE_SEPARATOR);
+            printWriter.write("Version: " + (configuration.getVersion() == null ? "unknown"
+                    : configuration.getVersion()) + Constants.LINE_SEPARATOR);
+            printWriter.write("Options: " + (configuration.getOptions() == null ? "unknown"
+                    : configuration.getOptions()) + Constants.LINE_SEPARATOR);
+        }
+        printTopSafepointEvents(printWriter, configurations);
+        PauseTimeline timeline = total.getPauseTimeline();
+        if (timeline.size() > 0) {
+            printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+            printWriter.write("TIMELINE (UPTIME HOURS, ALL JVM RUNS):" + Constants.LINE_SEPARATOR);
+            printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+            printWriter.printf("%-10s%12s%12s%n", "Hour", "#", "Pause (s)");
+            for (int i = 0; i < timeline.size(); i++) {
+                if (timeline.getCount(i) > 0) {
+                    printWriter.printf("%-10s%12s%12s%n", i, timeline.getCount(i),
+                            VmUtil.getSecsString(timeline.getPause(i)));
+                }
+            }
+        }
+        printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+        printWriter.flush();
+    }
+
+    /**
+     * Print the longest safepoints across all configurations.
+     * 
+     * @param printWriter
+     *            The report writer.
+     * @param configurations
+     *            The summary for each configuration.
+     */
+    private static void printTopSafepointEvents(PrintWriter printWriter, List<JvmRunSummary> configurations) {
+        TopSafepointEvents top = new TopSafepointEvents(Metric.TOTAL, Constants.TOP_SAFEPOINT_EVENTS_LIMIT);
+        Map<SafepointEvent, String> fingerprints = new IdentityHashMap<SafepointEvent, String>();
+        Iterator<JvmRunSummary> iterator = configurations.iterator();
+        while (iterator.hasNext()) {
+            JvmRunSummary configuration = iterator.next();
+            Iterator<SafepointEvent> events = configuration.getTopSafepointEvents().getEvents().iterator();
+            while (events.hasNext()) {
+                SafepointEvent event = events.next();
+                fingerprints.put(event, configuration.getFingerprint());
+                top.add(event);
+            }
+        }
+        List<SafepointEvent> topEvents = top.getEvents();
+        if (topEvents.isEmpty()) {
+            return;
+        }
+        printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+        printWriter.write("TOP " + topEvents.size() + " LONGEST SAFEPOINTS (ALL JVM RUNS):" + Constants.LINE_SEPARATOR);
+        printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+        printWriter.printf("%-10s%-20s%-30s%10s%10s%10s%10s%10s%10s%n", "Config", "Uptime (s)", "Trigger",
+                "Total (ms)", "Spin", "Block", "Sync", "Cleanup", "Vmop");
+        Iterator<SafepointEvent> events = topEvents.iterator();
+        while (events.hasNext()) {
+            SafepointEvent event = events.next();
+            printWriter.printf("%-10s%-20s%-30s%10s%10s%10s%10s%10s%10s%n", fingerprints.get(event),
+                    JdkMath.convertMillisToSecs(event.getTimestamp()), Safepoint.getTriggerLiteral(event.getTrigger()),
+                    event.getDuration(), event.getTimeSpin(), event.getTimeBlock(), event.getTimeSync(),
+                    event.getTimeCleanup(), event.getTimeVmop());
+        }
+    }
+
+    /**
+     * @param histogram
+     *            A pause histogram.
+     * @return The p50, p90, p99 and p99.9 pause times (seconds) separated by "/".
+     */
+    private static String getPercentilesString(PauseHistogram histogram) {
+        return VmUtil.getSecsString(histogram.getValueAtPercentile(50)) + "/"
+                + VmUtil.getSecsString(histogram.getValueAtPercentile(90)) + "/"
+                + VmUtil.getSecsString(histogram.getValueAtPercentile(99)) + "/"
+                + VmUtil.getSecsString(histogram.getValueAtPercentile(99.9));
+    }
+}
@@ -0,0 +1,370 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.domain.jdk.PauseHistogram;
+import org.github.vmcat.domain.jdk.PauseSeries;
+import org.github.vmcat.domain.jdk.SafepointEventSummary;
+import org.github.vmcat.domain.jdk.TimeToSafepointSummary;
+import org.github.vmcat.util.Constants;
+import org.github.vmcat.util.VmUtil;
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
+import org.json.JSONException;
+import org.json.JSONWriter;
+
+/**
+ * <p>
+ * Write a self-contained HTML report with charts: the pause timeline, pause time by trigger, the phase breakdown
+ * (sync, cleanup, vmop) by trigger and the pause histogram. The page has no external resources.
+ * </p>
+ * 
+ * <p>
+ * The chart data is aggregated while parsing (<code>PauseSeries</code>, <code>PauseHistogram</code>) and downsampled
+ * here, so the page size does not depend on the number of safepoints: the pause timeline is reduced to at most
+ * {@link Constants#HTML_CHART_POINTS} points with the largest triangle three buckets algorithm, and pause time by
+ * trigger to at most {@link Constants#HTML_CHART_BARS} bars.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class HtmlReport {
+
+    /**
+     * The page template resource.
+     */
+    private static final String TEMPLATE = "/META-INF/html/report.html";
+
+    /**
+     * Where the chart data goes in the page template.
+     */
+    private static final String DATA_MARKER = "/*DATA*/";
+
+    /**
+     * Make default constructor private so the class cannot be instantiated.
+     */
+    private HtmlReport() {
+
+    }
+
+    /**
+     * @param writer
+     *            The report writer.
+     * @param jvmRuns
+     *            JVM run data for each JVM run in the log.
+     * @param vmcatVersion
+     *            The vmcat version to report, or null.
+     * @throws IOException
+     *             if the report cannot be written.
+     */
+    public static void write(Writer writer, List<JvmRun> jvmRuns, String vmcatVersion) throws IOException {
+        String template = getTemplate();
+        int marker = template.indexOf(DATA_MARKER);
+        writer.write(template, 0, marker);
+        try {
+            JSONWriter json = new JSONWriter(writer);
+            json.object();
+            if (vmcatVersion != null) {
+                json.key("vmcatVersion").value(vmcatVersion);
+            }
+            json.key("jvmRuns").array();
+            Iterator<JvmRun> iterator = jvmRuns.iterator();
+            while (iterator.hasNext()) {
+                writeJvmRun(json, iterator.next());
+            }
+            json.endArray();
+            json.endObject();
+        } catch (JSONException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+        writer.write(template, marker + DATA_MARKER.length(), template.length() - marker - DATA_MARKER.length());
+        writer.flush();
+    }
+
+    /**
+     * @return The page template.
+     * @throws IOException
+     *             if the template cannot be read.
+     */
+    private static String getTemplate() throws IOException {
+        InputStream in = HtmlReport.class.getResourceAsStream(TEMPLATE);
+        if (in == null) {
+            throw new IOException("Missing resource: " + TEMPLATE);
+        }
+        try {
+            ByteArrayOutputStream template = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count = in.read(buffer);
+            while (count != -1) {
+                template.write(buffer, 0, count);
+                count = in.read(buffer);
+            }
+            return new String(template.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void writeJvmRun(JSONWriter json, JvmRun jvmRun) {
+        json.object();
+        json.key("summary").object();
+        json.key("safepointEventCount").value(jvmRun.getSafepointEventCount());
+        json.key("throughput").value(jvmRun.getThroughput());
+        json.key("maxPause").value(jvmRun.getMaxPause());
+        json.key("totalPause").value(jvmRun.getSafepointTotalPause());
+        json.key("duration").value(jvmRun.getJvmRunDuration());
+        if (jvmRun.getSafepointEventCount() > 0) {
+            json.key("first").value(VmUtil.getTime(jvmRun.getFirstSafepointEvent().getTimestamp(),
+                    jvmRun.getFirstSafepointEvent().getLogEntry(), jvmRun.getJvm()));
+            json.key("last").value(VmUtil.getTime(jvmRun.getLastSafepointEvent().getTimestamp(),
+                    jvmRun.getLastSafepointEvent().getLogEntry(), jvmRun.getJvm()));
+        }
+        json.endObject();
+        if (jvmRun.getSafepointEventCount() > 0) {
+            PauseSeries series = jvmRun.getPauseSeries();
+            writePauses(json, series);
+            writeTriggers(json, series);
+            writePhases(json, jvmRun.getTimeToSafepointSummaries());
+            writeHistogram(json, jvmRun.getPauseHistogram());
+            writePercentiles(json, jvmRun);
+        }
+        json.endObject();
+    }
+
+    /**
+     * The longest pause in each pause series bucket, downsampled.
+     * 
+     * @param json
+     *            The report writer.
+     * @param series
+     *            The pause series.
+     */
+    private static void writePauses(JSONWriter json, PauseSeries series) {
+        long[] x = new long[series.size()];
+        long[] y = new long[series.size()];
+        int count = 0;
+        for (int i = 0; i < series.size(); i++) {
+            if (series.getCount(i) > 0) {
+                x[count] = series.getMaxTimestamp(i);
+                y[count] = series.getMaxPause(i);
+                count++;
+            }
+        }
+        int[] kept = VmUtil.downsample(x, y, count, Constants.HTML_CHART_POINTS);
+        json.key("pauses").object();
+        json.key("bucketWidth").value(series.getBucketWidth());
+        json.key("buckets").value(count);
+        json.key("x").array();
+        for (int i = 0; i < kept.length; i++) {
+            json.value(x[kept[i]]);
+        }
+        json.endArray();
+        json.key("y").array();
+        for (int i = 0; i < kept.length; i++) {
+            json.value(y[kept[i]]);
+        }
+        json.endArray();
+        json.endObject();
+    }
+
+    /**
+     * Pause time by trigger, in at most {@link Constants#HTML_CHART_BARS} bars. The triggers with the most pause time
+     * are shown separately, the rest combined.
+     * 
+     * @param json
+     *            The report writer.
+     * @param series
+     *            The pause series.
+     */
+    private static void writeTriggers(JSONWriter json, PauseSeries series) {
+        int factor = Math.max(1, (series.size() + Constants.HTML_CHART_BARS - 1) / Constants.HTML_CHART_BARS);
+        int bars = (series.size() + factor - 1) / factor;
+        final Map<Trigger, long[]> triggerPauses = series.getTriggerPauses();
+        final Map<Trigger, Long> totals = new EnumMap<Trigger, Long>(Trigger.class);
+        List<Trigger> triggers = new ArrayList<Trigger>(triggerPauses.keySet());
+        for (int i = 0; i < triggers.size(); i++) {
+            long total = 0;
+            long[] pauses = triggerPauses.get(triggers.get(i));
+            for (int j = 0; j < series.size(); j++) {
+                total = total + pauses[j];
+            }
+            totals.put(triggers.get(i), total);
+        }
+        Collections.sort(triggers, new Comparator<Trigger>() {
+            public int compare(Trigger t1, Trigger t2) {
+                return totals.get(t2).compareTo(totals.get(t1));
+            }
+        });
+        json.key("triggers").object();
+        json.key("bucketWidth").value(series.getBucketWidth() * factor);
+        json.key("x").array();
+        for (int i = 0; i < bars; i++) {
+            json.value(i * factor * series.getBucketWidth());
+        }
+        json.endArray();
+        json.key("series").array();
+        int shown = triggers.size() > Constants.HTML_CHART_TRIGGERS ? Constants.HTML_CHART_TRIGGERS - 1
+                : triggers.size();
+        for (int i = 0; i < shown; i++) {
+            writeBars(json, JsonReport.getTriggerLiteral(triggers.get(i)), triggers.subList(i, i + 1),
+                    triggerPauses, series.size(), factor, bars);
+        }
+        if (shown < triggers.size()) {
+            writeBars(json, "Other", triggers.subList(shown, triggers.size()), triggerPauses, series.size(), factor,
+                    bars);
+        }
+        json.endArray();
+        json.endObject();
+    }
+
+    /**
+     * @param json
+     *            The report writer.
+     * @param name
+     *            The series name.
+     * @param triggers
+     *            The triggers combined in the series.
+     * @param triggerPauses
+     *            The pause time in each pause series bucket by trigger.
+     * @param size
+     *            The number of pause series buckets.
+     * @param factor
+     *            The number of pause series buckets in each bar.
+     * @param bars
+     *            The number of bars.
+     */
+    private static void writeBars(JSONWriter json, String name, List<Trigger> triggers,
+            Map<Trigger, long[]> triggerPauses, int size, int factor, int bars) {
+        json.object();
+        json.key("name").value(name);
+        json.key("values").array();
+        for (int i = 0; i < bars; i++) {
+            long value = 0;
+            for (int j = i * factor; j < Math.min(size, (i + 1) * factor); j++) {
+                for (int k = 0; k < triggers.size(); k++) {
+                    value = value + triggerPauses.get(triggers.get(k))[j];
+                }
+            }
+            json.value(value);
+        }
+        json.endArray();
+        json.endObject();
+    }
+
+    /**
+     * @param json
+     *            The report writer.
+     * @param summaries
+     *            The time to safepoint summaries.
+     */
+    private static void writePhases(JSONWriter json, List<TimeToSafepointSummary> summaries) {
+        json.key("phases").array();
+        Iterator<TimeToSafepointSummary> iterator = summaries.iterator();
+        while (iterator.hasNext()) {
+            TimeToSafepointSummary summary = iterator.next();
+            json.object();
+            json.key("trigger").value(JsonReport.getTriggerLiteral(summary.getTrigger()));
+            json.key("sync").value(summary.getSyncTotal());
+            json.key("cleanup").value(
+                    Math.max(0, summary.getPauseTotal() - summary.getSyncTotal() - summary.getVmopTotal()));
+            json.key("vmop").value(summary.getVmopTotal());
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    /**
+     * The pause histogram buckets from the first to the last with a safepoint.
+     * 
+     * @param json
+     *            The report writer.
+     * @param histogram
+     *            The pause histogram.
+     */
+    private static void writeHistogram(JSONWriter json, PauseHistogram histogram) {
+        int first = 0;
+        while (first < PauseHistogram.BUCKET_COUNT && histogram.getBucketCount(first) == 0) {
+            first++;
+        }
+        int last = PauseHistogram.BUCKET_COUNT - 1;
+        while (last > first && histogram.getBucketCount(last) == 0) {
+            last--;
+        }
+        json.key("histogram").array();
+        for (int i = first; i <= last && i < PauseHistogram.BUCKET_COUNT; i++) {
+            json.object();
+            json.key("max").value(PauseHistogram.getBucketMax(i));
+            json.key("count").value(histogram.getBucketCount(i));
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    /**
+     * @param json
+     *            The report writer.
+     * @param jvmRun
+     *            The JVM run.
+     */
+    private static void writePercentiles(JSONWriter json, JvmRun jvmRun) {
+        json.key("percentiles").array();
+        writePercentiles(json, "All", jvmRun.getPauseHistogram());
+        Map<Trigger, PauseHistogram> histograms = jvmRun.getTriggerPauseHistograms();
+        Iterator<SafepointEventSummary> iterator = jvmRun.getSafepointEventSummaries().iterator();
+        while (iterator.hasNext()) {
+            Trigger trigger = iterator.next().getTrigger();
+            if (histograms.containsKey(trigger)) {
+                writePercentiles(json, JsonReport.getTriggerLiteral(trigger), histograms.get(trigger));
+            }
+        }
+        json.endArray();
+    }
+
+    /**
+     * @param json
+     *            The report writer.
+     * @param name
+     *            The row name.
+     * @param histogram
+     *            The pause histogram.
+     */
+    private static void writePercentiles(JSONWriter json, String name, PauseHistogram histogram) {
+        json.object();
+        json.key("trigger").value(name);
+        json.key("count").value(histogram.getCount());
+        json.key("p50").value(histogram.getValueAtPercentile(50));
+        json.key("p90").value(histogram.getValueAtPercentile(90));
+        json.key("p99").value(histogram.getValueAtPercentile(99));
+        json.key("max").value(histogram.getMax());
+        json.endObject();
+    }
+}
@@ -0,0 +1,432 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.domain.jdk.CalendarRollup;
+import org.github.vmcat.domain.jdk.PauseHistogram;
+import org.github.vmcat.domain.jdk.SafepointEvent;
+import org.github.vmcat.domain.jdk.SafepointEventSummary;
+import org.github.vmcat.domain.jdk.SafepointStorm;
+import org.github.vmcat.domain.jdk.TimeToSafepointSummary;
+import org.github.vmcat.util.VmUtil;
+import org.github.vmcat.util.jdk.Analysis;
+import org.github.vmcat.util.jdk.JdkUtil;
+import org.github.vmcat.util.jdk.Safepoint;
+import org.github.vmcat.util.jdk.Safepoint.Metric;
+import org.github.vmcat.util.jdk.Safepoint.SyncVmopRatio;
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
+import org.json.JSONException;
+import org.json.JSONWriter;
+
+/**
+ * <p>
+ * Write the VM Log Analysis report as JSON, with the same sections as the text report. Times and durations are
+ * milliseconds.
+ * </p>
+ * 
+ * <p>
+ * The document is streamed to the writer as it is generated, so large sections (e.g. bottlenecks) are not held in
+ * memory a second time.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class JsonReport {
+
+    /**
+     * Make default constructor private so the class cannot be instantiated.
+     */
+    private JsonReport() {
+
+    }
+
+    /**
+     * @param writer
+     *            The report writer.
+     * @param jvmRuns
+     *            JVM run data for each JVM run in the log.
+     * @param vmcatVersion
+     *            The vmcat version to report, or null.
+     * @throws IOException
+     *             if the report cannot be written.
+     */
+    public static void write(Writer writer, List<JvmRun> jvmRuns, String vmcatVersion) throws IOException {
+        try {
+            JSONWriter json = new JSONWriter(writer);
+            json.object();
+            if (vmcatVersion != null) {
+                json.key("vmcatVersion").value(vmcatVersion);
+            }
+            json.key("jvmRuns").array();
+            Iterator<JvmRun> iterator = jvmRuns.iterator();
+            while (iterator.hasNext()) {
+                writeJvmRun(json, iterator.next());
+            }
+            json.endArray();
+            json.endObject();
+        } catch (JSONException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+        writer.flush();
+    }
+
+    /**
+     * Write the phase timing and line stats (<code>--stats</code>). Times are nanoseconds. CPU time and allocation are
+     * omitted if the JVM does not support them.
+     * 
+     * @param writer
+     *            The stats writer.
+     * @param stats
+     *            The phase stats.
+     * @throws IOException
+     *             if the stats cannot be written.
+     */
+    public static void writeStats(Writer writer, PhaseStats stats) throws IOException {
+        try {
+            JSONWriter json = new JSONWriter(writer);
+            json.object();
+            json.key("phases").object();
+            PhaseStats.Phase[] phases = PhaseStats.Phase.values();
+            for (int i = 0; i < phases.length; i++) {
+                json.key(phases[i].name().toLowerCase()).object();
+                json.key("wallTime").value(stats.getWallTime(phases[i]));
+                if (stats.isCpuTimeEnabled()) {
+                    json.key("cpuTime").value(stats.getCpuTime(phases[i]));
+                }
+                if (stats.isAllocationEnabled()) {
+                    json.key("allocated").value(stats.getAllocated(phases[i]));
+                }
+                json.endObject();
+            }
+            json.endObject();
+            json.key("lines").value(stats.getLineCount());
+            json.key("bytesRead").value(stats.getBytesRead());
+            json.key("linesPerSecond").value(stats.getLinesPerSecond());
+            json.key("bytesPerSecond").value(stats.getBytesPerSecond());
+            json.key("lineTypes").object();
+            JdkUtil.LogEventType[] eventTypes = JdkUtil.LogEventType.values();
+            for (int i = 0; i < eventTypes.length; i++) {
+                if (stats.getLineCount(eventTypes[i]) > 0) {
+                    json.key(eventTypes[i].name()).value(stats.getLineCount(eventTypes[i]));
+                }
+            }
+            json.endObject();
+            json.endObject();
+        } catch (JSONException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+        writer.flush();
+    }
+
+    /**
+     * @param trigger
+     *            The safepoint trigger.
+     * @return The trigger log literal, or the enum name if the trigger is not known.
+     */
+    static String getTriggerLiteral(Trigger trigger) {
+        return trigger == Trigger.UNKNOWN ? trigger.name() : Safepoint.getTriggerLiteral(trigger);
+    }
+
+    /**
+     * @param analysis
+     *            The analysis.
+     * @return The analysis level (error, warn, info).
+     */
+    static String getLevel(Analysis analysis) {
+        return analysis.getKey().split("\\.")[0];
+    }
+
+    /**
+     * @param bottlenecks
+     *            The bottleneck log lines, with "..." between windows.
+     * @param start
+     *            The index of the first line of the window.
+     * @return The index after the last line of the window.
+     */
+    static int getWindowEnd(List<String> bottlenecks, int start) {
+        int end = start;
+        while (end < bottlenecks.size() && !bottlenecks.get(end).equals("...")) {
+            end++;
+        }
+        return end;
+    }
+
+    private static void writeJvmRun(JSONWriter json, JvmRun jvmRun) {
+        json.object();
+
+        json.key("jvm").object();
+        json.key("version").value(jvmRun.getJvm().getVersion());
+        json.key("options").value(jvmRun.getJvm().getOptions());
+        json.endObject();
+
+        json.key("summary").object();
+        json.key("safepointEventCount").value(jvmRun.getSafepointEventCount());
+        json.key("throughput").value(jvmRun.getThroughput());
+        json.key("maxPause").value(jvmRun.getMaxPause());
+        json.key("totalPause").value(jvmRun.getSafepointTotalPause());
+        json.key("duration").value(jvmRun.getJvmRunDuration());
+        json.key("reorderedCount").value(jvmRun.getReorderedCount());
+        json.key("outOfHorizonCount").value(jvmRun.getOutOfHorizonCount());
+        json.key("reorderOverflowCount").value(jvmRun.getReorderOverflowCount());
+        json.key("overlapCount").value(jvmRun.getEventOverlapCount());
+        json.key("bottleneckTime").value(jvmRun.getBottleneckTime());
+        json.key("maxMemory").value(jvmRun.getMaxMemory());
+        if (jvmRun.getSafepointEventCount() > 0) {
+            json.key("first");
+            writeTime(json, jvmRun, jvmRun.getFirstSafepointEvent().getTimestamp(),
+                    jvmRun.getFirstSafepointEvent().getLogEntry());
+            json.key("last");
+            writeTime(json, jvmRun, jvmRun.getLastSafepointEvent().getTimestamp(),
+                    jvmRun.getLastSafepointEvent().getLogEntry());
+        }
+        json.endObject();
+
+        json.key("triggers").array();
+        if (jvmRun.getSafepointEventCount() > 0) {
+            Map<Trigger, PauseHistogram> histograms = jvmRun.getTriggerPauseHistograms();
+            Iterator<SafepointEventSummary> iterator = jvmRun.getSafepointEventSummaries().iterator();
+            while (iterator.hasNext()) {
+                SafepointEventSummary summary = iterator.next();
+                json.object();
+                json.key("trigger").value(getTriggerLiteral(summary.getTrigger()));
+                json.key("count").value(summary.getCount());
+                json.key("pauseTotal").value(summary.getPauseTotal());
+                json.key("pauseMax").value(summary.getPauseMax());
+                PauseHistogram histogram = histograms == null ? null : histograms.get(summary.getTrigger());
+                if (histogram != null) {
+                    json.key("p50").value(histogram.getValueAtPercentile(50));
+                    json.key("p99").value(histogram.getValueAtPercentile(99));
+                }
+                json.endObject();
+            }
+        }
+        json.endArray();
+
+        if (jvmRun.getSafepointEventCount() > 0) {
+            json.key("timeToSafepoint").object();
+            json.key("syncTotal").value(jvmRun.getTimeToSafepointTotal());
+            json.key("syncVmopRatios").array();
+            long[] syncVmopRatioCounts = jvmRun.getSyncVmopRatioCounts();
+            SyncVmopRatio[] ratios = SyncVmopRatio.values();
+            for (int i = 0; i < ratios.length; i++) {
+                json.object();
+                json.key("ratio").value(Safepoint.getSyncVmopRatioLiteral(ratios[i]));
+                json.key("count").value(syncVmopRatioCounts[i]);
+                json.endObject();
+            }
+            json.endArray();
+            json.key("triggers").array();
+            Iterator<TimeToSafepointSummary> iterator = jvmRun.getTimeToSafepointSummaries().iterator();
+            while (iterator.hasNext()) {
+                TimeToSafepointSummary summary = iterator.next();
+                json.object();
+                json.key("trigger").value(getTriggerLiteral(summary.getTrigger()));
+                json.key("count").value(summary.getCount());
+                json.key("syncTotal").value(summary.getSyncTotal());
+                json.key("syncMax").value(summary.getSyncMax());
+                json.key("vmopTotal").value(summary.getVmopTotal());
+                json.key("pauseTotal").value(summary.getPauseTotal());
+                json.endObject();
+            }
+            json.endArray();
+            json.key("worst");
+            writeEvents(json, jvmRun, jvmRun.getWorstTimeToSafepointEvents());
+            json.endObject();
+        }
+
+        List<SafepointStorm> storms = jvmRun.getSafepointStorms();
+        if (storms != null && !storms.isEmpty()) {
+            json.key("storms").object();
+            json.key("rateThreshold").value(jvmRun.getStormRateThreshold());
+            json.key("timeShareThreshold").value(jvmRun.getStormTimeShareThreshold());
+            json.key("pauseTotal").value(jvmRun.getStormPauseTotal());
+            json.key("storms").array();
+            Iterator<SafepointStorm> iterator = storms.iterator();
+            while (iterator.hasNext()) {
+                SafepointStorm storm = iterator.next();
+                json.object();
+                json.key("start");
+                writeTime(json, jvmRun, storm.getStart(), storm.getStartLogEntry());
+                json.key("duration").value(storm.getDuration());
+                json.key("count").value(storm.getCount());
+                json.key("pauseTotal").value(storm.getPauseTotal());
+                json.key("pauseShare").value(storm.getPauseShare());
+                json.key("dominantTrigger").value(getTriggerLiteral(storm.getDominantTrigger()));
+                json.key("dominantTriggerCount").value(storm.getDominantTriggerCount());
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+        }
+
+        CalendarRollup calendarRollup = jvmRun.getCalendarRollup();
+        if (calendarRollup != null) {
+            json.key("calendar").object();
+            json.key("startTime").value(calendarRollup.getStartTime());
+            json.key("zoneOffset").value(calendarRollup.getZoneOffset());
+            json.key("hours").array();
+            for (int i = 0; i < 24; i++) {
+                json.object();
+                json.key("hour").value(i);
+                json.key("count").value(calendarRollup.getHourCount(i));
+                json.key("pauseTotal").value(calendarRollup.getHourPause(i));
+                json.endObject();
+            }
+            json.endArray();
+            json.key("days").array();
+            for (int i = 0; i < 7; i++) {
+                json.object();
+                json.key("day").value(CalendarRollup.getDayOfWeekLiteral(i));
+                json.key("count").value(calendarRollup.getDayCount(i));
+                json.key("pauseTotal").value(calendarRollup.getDayPause(i));
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+        }
+
+        if (jvmRun.getSafepointEventCount() > 0) {
+            json.key("top").object();
+            Metric[] metrics = Metric.values();
+            for (int i = 0; i < metrics.length; i++) {
+                json.key(Safepoint.getMetricLiteral(metrics[i]));
+                writeEvents(json, jvmRun, jvmRun.getTopSafepointEvents().get(metrics[i]).getEvents());
+            }
+            json.endObject();
+        }
+
+        json.key("bottlenecks").object();
+        json.key("throughputThreshold").value(jvmRun.getThroughputThreshold());
+        json.key("omittedLineCount").value(jvmRun.getOmittedBottleneckLineCount());
+        json.key("windows").array();
+        List<String> bottlenecks = jvmRun.getBottlenecks();
+        int start = 0;
+        while (start < bottlenecks.size()) {
+            int end = getWindowEnd(bottlenecks, start);
+            json.array();
+            for (int i = start; i < end; i++) {
+                json.value(bottlenecks.get(i));
+            }
+            json.endArray();
+            start = end + 1;
+        }
+        json.endArray();
+        json.endObject();
+
+        json.key("analysis").array();
+        Iterator<Analysis> analysis = jvmRun.getAnalysis().iterator();
+        while (analysis.hasNext()) {
+            Analysis a = analysis.next();
+            json.object();
+            json.key("key").value(a.getKey());
+            json.key("level").value(getLevel(a));
+            json.key("value").value(jvmRun.getAnalysisLiteral(a));
+            json.endObject();
+        }
+        json.endArray();
+
+        json.key("outOfHorizon");
+        writeLines(json, jvmRun.getOutOfHorizonCount(), jvmRun.getOutOfHorizonLogLines());
+        json.key("unidentified");
+        writeLines(json, jvmRun.getUnidentifiedLogLines().size(), jvmRun.getUnidentifiedLogLines());
+
+        json.endObject();
+    }
+
+    /**
+     * @param json
+     *            The report writer.
+     * @param jvmRun
+     *            The JVM run.
+     * @param timestamp
+     *            Time (milliseconds after JVM startup).
+     * @param logEntry
+     *            The log entry at the given time.
+     */
+    private static void writeTime(JSONWriter json, JvmRun jvmRun, long timestamp, String logEntry) {
+        json.object();
+        json.key("timestamp").value(timestamp);
+        json.key("time").value(VmUtil.getTime(timestamp, logEntry, jvmRun.getJvm()));
+        json.endObject();
+    }
+
+    /**
+     * @param json
+     *            The report writer.
+     * @param jvmRun
+     *            The JVM run.
+     * @param events
+     *            The safepoint events.
+     */
+    private static void writeEvents(JSONWriter json, JvmRun jvmRun, List<SafepointEvent> events) {
+        json.array();
+        Iterator<SafepointEvent> iterator = events.iterator();
+        while (iterator.hasNext()) {
+            SafepointEvent event = iterator.next();
+            json.object();
+            json.key("timestamp").value(event.getTimestamp());
+            json.key("time").value(VmUtil.getTime(event.getTimestamp(), event.getLogEntry(), jvmRun.getJvm()));
+            json.key("trigger").value(getTriggerLiteral(event.getTrigger()));
+            json.key("duration").value(event.getDuration());
+            json.key("spin").value(event.getTimeSpin());
+            json.key("block").value(event.getTimeBlock());
+            json.key("sync").value(event.getTimeSync());
+            json.key("cleanup").value(event.getTimeCleanup());
+            json.key("vmop").value(event.getTimeVmop());
+            json.key("threadsTotal").value(event.getThreadsTotal());
+            json.key("threadsSpinning").value(event.getThreadsSpinning());
+            json.key("threadsBlocked").value(event.getThreadsBlocked());
+            json.key("pageTrapCount").value(event.getPageTrapCount());
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    /**
+     * @param json
+     *            The report writer.
+     * @param count
+     *            The number of lines.
+     * @param lines
+     *            The lines reported (can be fewer than the count), or null.
+     */
+    private static void writeLines(JSONWriter json, long count, List<String> lines) {
+        json.object();
+        json.key("count").value(count);
+        json.key("lines").array();
+        if (lines != null) {
+            Iterator<String> iterator = lines.iterator();
+            while (iterator.hasNext()) {
+                json.value(iterator.next());
+            }
+        }
+        json.endArray();
+        json.endObject();
+    }
+}
@@ -0,0 +1,280 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.domain.jdk.PauseHistogram;
+import org.github.vmcat.domain.jdk.PauseSeries;
+import org.github.vmcat.domain.jdk.SafepointEvent;
+import org.github.vmcat.domain.jdk.TopSafepointEvents;
+
+/**
+ * <p>
+ * Least recently used cache of parsed <code>JvmRun</code>s with a memory limit. Each entry has a version (e.g. the
+ * vm log size and modification time) so a changed vm log is parsed again.
+ * </p>
+ * 
+ * <p>
+ * The memory used by an entry is estimated from its size-dependent parts (log lines kept for the report, pause
+ * histograms, the pause timeline and the longest safepoints). Least recently used entries are evicted until the total
+ * is within the limit, and entries larger than the limit are not cached.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class JvmRunCache {
+
+    /**
+     * The estimated bytes for the fixed size parts of a <code>JvmRun</code>.
+     */
+    private static final long JVM_RUN_SIZE = 4096;
+
+    /**
+     * The estimated bytes for a <code>PauseHistogram</code>.
+     */
+    private static final long HISTOGRAM_SIZE = PauseHistogram.BUCKET_COUNT * 8 + 64;
+
+    /**
+     * The estimated bytes for a <code>SafepointEvent</code>, not including the log entry.
+     */
+    private static final long EVENT_SIZE = 96;
+
+    /**
+     * The estimated bytes for a <code>String</code>, not including the characters.
+     */
+    private static final long STRING_SIZE = 56;
+
+    /**
+     * The memory limit (estimated bytes).
+     */
+    private long limit;
+
+    /**
+     * The memory used (estimated bytes).
+     */
+    private long size;
+
+    /**
+     * The number of lookups that found a current entry.
+     */
+    private long hits;
+
+    /**
+     * The number of lookups that did not find a current entry.
+     */
+    private long misses;
+
+    /**
+     * The number of entries removed to stay within the memory limit.
+     */
+    private long evictions;
+
+    /**
+     * The entries, least recently used first.
+     */
+    private LinkedHashMap<String, Entry> entries;
+
+    /**
+     * Default constructor.
+     * 
+     * @param limit
+     *            The memory limit (estimated bytes).
+     */
+    public JvmRunCache(long limit) {
+        this.limit = limit;
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    }
+
+    /**
+     * @param key
+     *            The key (e.g. the vm log path).
+     * @param version
+     *            The version (e.g. the vm log size and modification time).
+     * @return The cached JVM runs, or null if not cached or cached with a different version.
+     */
+    public synchronized List<JvmRun> get(String key, String version) {
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.version.equals(version)) {
+            // Stale
+            entries.remove(key);
+            size = size - entry.size;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.jvmRuns;
+    }
+
+    /**
+     * @param key
+     *            The key (e.g. the vm log path).
+     * @param version
+     *            The version (e.g. the vm log size and modification time).
+     * @param jvmRuns
+     *            The JVM runs to cache.
+     * @return true if the JVM runs were cached, false if they are larger than the memory limit.
+     */
+    public synchronized boolean put(String key, String version, List<JvmRun> jvmRuns) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            size = size - entry.size;
+        }
+        long entrySize = estimateSize(jvmRuns);
+        if (entrySize > limit) {
+            return false;
+        }
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (size + entrySize > limit && iterator.hasNext()) {
+            size = size - iterator.next().size;
+            iterator.remove();
+            evictions++;
+        }
+        entries.put(key, new Entry(version, jvmRuns, entrySize));
+        size = size + entrySize;
+        return true;
+    }
+
+    /**
+     * @param jvmRuns
+     *            The JVM runs.
+     * @return The estimated memory (bytes) used by the JVM runs.
+     */
+    public static long estimateSize(List<JvmRun> jvmRuns) {
+        long estimate = 0;
+        Iterator<JvmRun> iterator = jvmRuns.iterator();
+        while (iterator.hasNext()) {
+            JvmRun jvmRun = iterator.next();
+            estimate = estimate + JVM_RUN_SIZE;
+            estimate = estimate + estimateLinesSize(jvmRun.getBottlenecks());
+            estimate = estimate + estimateLinesSize(jvmRun.getUnidentifiedLogLines());
+            estimate = estimate + estimateLinesSize(jvmRun.getOutOfHorizonLogLines());
+            estimate = estimate + estimateEventsSize(jvmRun.getWorstTimeToSafepointEvents());
+            if (jvmRun.getPauseHistogram() != null) {
+                estimate = estimate + HISTOGRAM_SIZE;
+            }
+            if (jvmRun.getTriggerPauseHistograms() != null) {
+                estimate = estimate + jvmRun.getTriggerPauseHistograms().size() * HISTOGRAM_SIZE;
+            }
+            if (jvmRun.getPauseTimeline() != null) {
+                estimate = estimate + jvmRun.getPauseTimeline().size() * 16L;
+            }
+            if (jvmRun.getPauseSeries() != null) {
+                PauseSeries series = jvmRun.getPauseSeries();
+                estimate = estimate + series.size() * (24L + series.getTriggerPauses().size() * 8L);
+            }
+            if (jvmRun.getTopSafepointEvents() != null) {
+                Iterator<TopSafepointEvents> events = jvmRun.getTopSafepointEvents().values().iterator();
+                while (events.hasNext()) {
+                    estimate = estimate + estimateEventsSize(events.next().getEvents());
+                }
+            }
+            if (jvmRun.getSafepointStorms() != null) {
+                estimate = estimate + jvmRun.getSafepointStorms().size() * (EVENT_SIZE + STRING_SIZE);
+            }
+        }
+        return estimate;
+    }
+
+    /**
+     * @param lines
+     *            Log lines, or null.
+     * @return The estimated memory (bytes) used by the log lines.
+     */
+    private static long estimateLinesSize(List<String> lines) {
+        long estimate = 0;
+        if (lines != null) {
+            Iterator<String> iterator = lines.iterator();
+            while (iterator.hasNext()) {
+                estimate = estimate + STRING_SIZE + 2L * iterator.next().length();
+            }
+        }
+        return estimate;
+    }
+
+    /**
+     * @param events
+     *            Safepoint events, or null.
+     * @return The estimated memory (bytes) used by the safepoint events.
+     */
+    private static long estimateEventsSize(List<SafepointEvent> events) {
+        long estimate = 0;
+        if (events != null) {
+            Iterator<SafepointEvent> iterator = events.iterator();
+            while (iterator.hasNext()) {
+                estimate = estimate + EVENT_SIZE + STRING_SIZE + 2L * iterator.next().getLogEntry().length();
+            }
+        }
+        return estimate;
+    }
+
+    public synchronized long getLimit() {
+        return limit;
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * A cached entry.
+     */
+    private static class Entry {
+
+        /**
+         * The version (e.g. the vm log size and modification time).
+         */
+        private String version;
+
+        /**
+         * The JVM runs.
+         */
+        private List<JvmRun> jvmRuns;
+
+        /**
+         * The memory used (estimated bytes).
+         */
+        private long size;
+
+        private Entry(String version, List<JvmRun> jvmRuns, long size) {
+            this.version = version;
+            this.jvmRuns = jvmRuns;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * <p>
+ * Split bytes read from a vm log into lines. Bytes can be written in any size chunks: a line split across chunks is
+ * held until the line feed is written. A trailing carriage return is dropped, so CRLF logging is split the same as LF
+ * logging.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class LineSplitter {
+
+    /**
+     * Receives each complete line.
+     */
+    public interface LineHandler {
+
+        /**
+         * @param logLine
+         *            The line, not including the line feed or carriage return.
+         */
+        void line(String logLine);
+    }
+
+    /**
+     * Where complete lines are passed.
+     */
+    private LineHandler handler;
+
+    /**
+     * The bytes of the partial last line.
+     */
+    private ByteArrayOutputStream partialLine;
+
+    /**
+     * @param handler
+     *            Where complete lines are passed.
+     */
+    public LineSplitter(LineHandler handler) {
+        this.handler = handler;
+        partialLine = new ByteArrayOutputStream();
+    }
+
+    /**
+     * @return The number of bytes of the partial last line.
+     */
+    public int getPartialLength() {
+        return partialLine.size();
+    }
+
+    /**
+     * Split bytes read into lines, holding a partial last line.
+     * 
+     * @param bytes
+     *            The bytes read.
+     * @param offset
+     *            The first byte.
+     * @param count
+     *            The number of bytes.
+     */
+    public void write(byte[] bytes, int offset, int count) {
+        int lineStart = offset;
+        for (int i = offset; i < offset + count; i++) {
+            if (bytes[i] == '\n') {
+                if (partialLine.size() > 0) {
+                    partialLine.write(bytes, lineStart, i - lineStart);
+                    line(partialLine.toByteArray(), 0, partialLine.size());
+                    partialLine.reset();
+                } else {
+                    line(bytes, lineStart, i - lineStart);
+                }
+                lineStart = i + 1;
+            }
+        }
+        partialLine.write(bytes, lineStart, offset + count - lineStart);
+    }
+
+    /**
+     * Pass the partial last line, if any, as a complete line. Used when the logging has ended.
+     */
+    public void flush() {
+        if (partialLine.size() > 0) {
+            line(partialLine.toByteArray(), 0, partialLine.size());
+            partialLine.reset();
+        }
+    }
+
+    /**
+     * Discard the partial last line, if any.
+     */
+    public void reset() {
+        partialLine.reset();
+    }
+
+    /**
+     * @param bytes
+     *            The line bytes.
+     * @param offset
+     *            The line start.
+     * @param length
+     *            The line length, not including the line feed.
+     */
+    private void line(byte[] bytes, int offset, int length) {
+        // Drop carriage return
+        if (length > 0 && bytes[offset + length - 1] == '\r') {
+            length--;
+        }
+        handler.line(new String(bytes, offset, length, Charset.defaultCharset()));
+    }
+}
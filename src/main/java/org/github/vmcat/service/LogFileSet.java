@@ -0,0 +1,418 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.github.vmcat.util.Constants;
+import org.github.vmcat.util.jdk.JdkMath;
+import org.github.vmcat.util.jdk.JdkRegEx;
+
+/**
+ * <p>
+ * A set of vm log files (e.g. a rotated log set <code>vm.log.2</code>, <code>vm.log.1</code>, <code>vm.log</code>)
+ * stored as one analysis.
+ * </p>
+ * 
+ * <p>
+ * The files are put in rotation order (oldest first) and grouped by JVM run. A file starts a new JVM run if its
+ * <code>hotspot_log</code> tag has a different process id than the JVM run, or its first timestamp resets to near JVM
+ * startup before the last timestamp of the JVM run. The files in a JVM run are merged into one stream ordered by
+ * timestamp (a k-way merge), so overlapping files (e.g. copytruncate rotation) are stored in order. Only one buffered
+ * reader per file is open, and only the pending lines for the next timestamp are held for each file, so memory does not
+ * grow with the size of the files.
+ * </p>
+ * 
+ * <p>
+ * Lines without a timestamp (e.g. the safepoint header and tags) are kept with the following timestamped line, so
+ * multi-line sections are not split by the merge.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class LogFileSet {
+
+    /**
+     * The number of bytes at the end of a vm log read to find the last timestamp.
+     */
+    private static final int TAIL_LENGTH = 64 * 1024;
+
+    /**
+     * Timestamp at the start of a log line. The last group is the timestamp.
+     */
+    private static final Pattern TIMESTAMP_PATTERN = Pattern.compile("^" + JdkRegEx.DECORATOR);
+
+    /**
+     * Process id in the <code>hotspot_log</code> tag.
+     */
+    private static final Pattern PROCESS_PATTERN = Pattern.compile("^<hotspot_log .*process='(\\d+)'");
+
+    /**
+     * Numeric rotation suffix at the end of a file name (e.g. <code>.2</code> in <code>vm.log.2</code>).
+     */
+    private static final Pattern ROTATION_INDEX_PATTERN = Pattern.compile("\\.(\\d{1,9})$");
+
+    /**
+     * Characters that identify a file name as a glob pattern.
+     */
+    private static final String GLOB_CHARS = "*?[{";
+
+    /**
+     * The vm log files grouped by JVM run, each JVM run in rotation order.
+     */
+    private List<List<File>> jvmRuns;
+
+    /**
+     * @param logFiles
+     *            The vm log files in any order.
+     * @param reorderHorizon
+     *            The time (milliseconds) an event can be logged after a later event, for identifying timestamp resets.
+     * @throws IOException
+     *             if a vm log cannot be read.
+     */
+    public LogFileSet(List<File> logFiles, long reorderHorizon) throws IOException {
+        List<LogFileInfo> infos = new ArrayList<LogFileInfo>();
+        Iterator<File> iterator = logFiles.iterator();
+        while (iterator.hasNext()) {
+            infos.add(new LogFileInfo(iterator.next()));
+        }
+        Collections.sort(infos, new Comparator<LogFileInfo>() {
+            public int compare(LogFileInfo info1, LogFileInfo info2) {
+                int result = Long.compare(info1.lastModified, info2.lastModified);
+                if (result == 0) {
+                    // e.g. vm.log.2 before vm.log.1 before vm.log
+                    result = Integer.compare(getRotationIndex(info2.file), getRotationIndex(info1.file));
+                }
+                return result;
+            }
+        });
+        jvmRuns = new ArrayList<List<File>>();
+        List<File> jvmRun = null;
+        String jvmRunProcess = null;
+        long jvmRunMaxTimestamp = 0;
+        Iterator<LogFileInfo> infoIterator = infos.iterator();
+        while (infoIterator.hasNext()) {
+            LogFileInfo info = infoIterator.next();
+            boolean newJvmRun = jvmRun == null;
+            if (info.process != null && jvmRunProcess != null && !info.process.equals(jvmRunProcess)) {
+                newJvmRun = true;
+            } else if (info.firstTimestamp >= 0 && info.firstTimestamp < jvmRunMaxTimestamp - reorderHorizon
+                    && info.firstTimestamp < Constants.FIRST_TIMESTAMP_THRESHOLD * 1000) {
+                newJvmRun = true;
+            }
+            if (newJvmRun) {
+                jvmRun = new ArrayList<File>();
+                jvmRuns.add(jvmRun);
+                jvmRunProcess = null;
+                jvmRunMaxTimestamp = 0;
+            }
+            jvmRun.add(info.file);
+            if (info.process != null) {
+                jvmRunProcess = info.process;
+            }
+            jvmRunMaxTimestamp = Math.max(jvmRunMaxTimestamp, info.lastTimestamp);
+        }
+    }
+
+    /**
+     * @return The vm log files grouped by JVM run, each JVM run in rotation order.
+     */
+    public List<List<File>> getJvmRuns() {
+        return jvmRuns;
+    }
+
+    /**
+     * Store the vm log files, merging the files in each JVM run by timestamp.
+     * 
+     * @param manager
+     *            Where the vm logs are stored.
+     * @throws IOException
+     *             if a vm log cannot be read.
+     */
+    public void store(Manager manager) throws IOException {
+        Iterator<List<File>> iterator = jvmRuns.iterator();
+        while (iterator.hasNext()) {
+            merge(iterator.next(), manager);
+            manager.endJvmRun();
+        }
+        manager.flush();
+    }
+
+    /**
+     * Store vm log files from the same JVM run ordered by timestamp.
+     * 
+     * @param logFiles
+     *            The vm log files in rotation order.
+     * @param manager
+     *            Where the vm logs are stored.
+     * @throws IOException
+     *             if a vm log cannot be read.
+     */
+    private static void merge(List<File> logFiles, Manager manager) throws IOException {
+        PriorityQueue<LogFileCursor> queue = new PriorityQueue<LogFileCursor>(Math.max(1, logFiles.size()),
+                new Comparator<LogFileCursor>() {
+                    public int compare(LogFileCursor cursor1, LogFileCursor cursor2) {
+                        int result = Long.compare(cursor1.timestamp, cursor2.timestamp);
+                        if (result == 0) {
+                            result = Integer.compare(cursor1.index, cursor2.index);
+                        }
+                        return result;
+                    }
+                });
+        List<LogFileCursor> cursors = new ArrayList<LogFileCursor>();
+        try {
+            for (int i = 0; i < logFiles.size(); i++) {
+                LogFileCursor cursor = new LogFileCursor(logFiles.get(i), i);
+                cursors.add(cursor);
+                if (cursor.next()) {
+                    queue.add(cursor);
+                }
+            }
+            while (!queue.isEmpty()) {
+                LogFileCursor cursor = queue.poll();
+                Iterator<String> lines = cursor.lines.iterator();
+                while (lines.hasNext()) {
+                    manager.store(lines.next());
+                }
+                if (cursor.next()) {
+                    queue.add(cursor);
+                }
+            }
+        } finally {
+            Iterator<LogFileCursor> iterator = cursors.iterator();
+            while (iterator.hasNext()) {
+                iterator.next().close();
+            }
+        }
+    }
+
+    /**
+     * @param logLine
+     *            The log line.
+     * @return The timestamp (milliseconds) at the start of the log line, or -1 if the log line does not start with a
+     *         timestamp.
+     */
+    private static long getTimestamp(String logLine) {
+        Matcher matcher = TIMESTAMP_PATTERN.matcher(logLine);
+        if (matcher.find()) {
+            return JdkMath.convertSecsToMillis(matcher.group(matcher.groupCount())).longValue();
+        }
+        return -1;
+    }
+
+    /**
+     * @param file
+     *            The vm log file.
+     * @return The rotation index from the file name suffix (e.g. 2 for <code>vm.log.2</code>), or 0 if the file name
+     *         has no numeric suffix.
+     */
+    private static int getRotationIndex(File file) {
+        Matcher matcher = ROTATION_INDEX_PATTERN.matcher(file.getName());
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+
+    /**
+     * Expand a file name that is a directory or glob pattern (e.g. <code>logs/vm.log*</code>) into the matching files.
+     * The glob is only applied to the file name, not the directory.
+     * 
+     * @param fileName
+     *            A file name, directory, or glob pattern.
+     * @return The files in the directory or matching the glob pattern sorted by name, or the file if the file name is
+     *         not a directory or glob pattern.
+     */
+    public static List<File> expand(String fileName) {
+        List<File> files = new ArrayList<File>();
+        File file = new File(fileName);
+        File dir;
+        PathMatcher matcher = null;
+        if (file.isDirectory()) {
+            dir = file;
+        } else if (isGlob(file.getName())) {
+            dir = file.getParentFile();
+            matcher = FileSystems.getDefault().getPathMatcher("glob:" + file.getName());
+        } else {
+            files.add(file);
+            return files;
+        }
+        File[] children = (dir == null ? new File(".") : dir).listFiles();
+        if (children != null) {
+            Arrays.sort(children);
+            for (int i = 0; i < children.length; i++) {
+                if (children[i].isFile() && (matcher == null || matcher.matches(children[i].toPath().getFileName()))) {
+                    files.add(new File(dir, children[i].getName()));
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * @param fileName
+     *            The file name.
+     * @return True if the file name is a glob pattern, false otherwise.
+     */
+    public static boolean isGlob(String fileName) {
+        for (int i = 0; i < GLOB_CHARS.length(); i++) {
+            if (fileName.indexOf(GLOB_CHARS.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The information used to order and group a vm log file, read from the start and end of the file.
+     */
+    private static class LogFileInfo {
+
+        /**
+         * The vm log file.
+         */
+        private File file;
+
+        /**
+         * The last modified time.
+         */
+        private long lastModified;
+
+        /**
+         * The process id in the <code>hotspot_log</code> tag, or null if none.
+         */
+        private String process;
+
+        /**
+         * The first timestamp, or -1 if none.
+         */
+        private long firstTimestamp = -1;
+
+        /**
+         * The last timestamp, or -1 if none.
+         */
+        private long lastTimestamp = -1;
+
+        private LogFileInfo(File file) throws IOException {
+            this.file = file;
+            lastModified = file.lastModified();
+            BufferedReader reader = new BufferedReader(new FileReader(file));
+            try {
+                String line = reader.readLine();
+                while (line != null && firstTimestamp < 0) {
+                    if (process == null) {
+                        Matcher matcher = PROCESS_PATTERN.matcher(line);
+                        if (matcher.find()) {
+                            process = matcher.group(1);
+                        }
+                    }
+                    firstTimestamp = getTimestamp(line);
+                    line = reader.readLine();
+                }
+            } finally {
+                reader.close();
+            }
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+            try {
+                long start = Math.max(0, randomAccessFile.length() - TAIL_LENGTH);
+                byte[] tail = new byte[(int) (randomAccessFile.length() - start)];
+                randomAccessFile.seek(start);
+                randomAccessFile.readFully(tail);
+                String[] lines = new String(tail, Charset.defaultCharset()).split("\r?\n");
+                // The first line may be partial, unless the tail is the whole file.
+                int first = start > 0 ? 1 : 0;
+                for (int i = lines.length - 1; i >= first && lastTimestamp < 0; i--) {
+                    lastTimestamp = getTimestamp(lines[i]);
+                }
+            } finally {
+                randomAccessFile.close();
+            }
+            if (lastTimestamp < firstTimestamp) {
+                lastTimestamp = firstTimestamp;
+            }
+        }
+    }
+
+    /**
+     * A reader positioned at the next timestamped line of a vm log file.
+     */
+    private static class LogFileCursor {
+
+        /**
+         * The vm log reader.
+         */
+        private BufferedReader reader;
+
+        /**
+         * The file index in rotation order, to break timestamp ties.
+         */
+        private int index;
+
+        /**
+         * The lines up to and including the next timestamped line.
+         */
+        private List<String> lines = new ArrayList<String>();
+
+        /**
+         * The timestamp of the pending lines, or the prior timestamp for trailing lines without a timestamp.
+         */
+        private long timestamp;
+
+        private LogFileCursor(File file, int index) throws IOException {
+            reader = new BufferedReader(new FileReader(file));
+            this.index = index;
+        }
+
+        /**
+         * Read the lines up to and including the next timestamped line.
+         * 
+         * @return True if any lines were read, false at the end of the file.
+         * @throws IOException
+         *             if the vm log cannot be read.
+         */
+        private boolean next() throws IOException {
+            lines.clear();
+            String line = reader.readLine();
+            while (line != null) {
+                lines.add(line);
+                long lineTimestamp = getTimestamp(line);
+                if (lineTimestamp >= 0) {
+                    timestamp = lineTimestamp;
+                    break;
+                }
+                line = reader.readLine();
+            }
+            return !lines.isEmpty();
+        }
+
+        private void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * <p>
+ * Follow a vm log as it is written (like <code>tail -f</code>), passing each complete line to a <code>Manager</code>.
+ * </p>
+ * 
+ * <p>
+ * Each poll reads the bytes appended since the last poll. A partial last line is held until the rest of the line is
+ * written. If the file shrinks (e.g. copytruncate) or is replaced by a new file (rotation), the remainder of the old
+ * file is read, then the new file is read from the beginning.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class LogFollower implements LogSource {
+
+    /**
+     * The read buffer size (bytes).
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The vm log file.
+     */
+    private File logFile;
+
+    /**
+     * Where log lines are stored.
+     */
+    private Manager manager;
+
+    /**
+     * The open vm log, or null if not open.
+     */
+    private RandomAccessFile randomAccessFile;
+
+    /**
+     * The file identity (e.g. inode) of the open vm log, or null if not supported by the file system.
+     */
+    private Object fileKey;
+
+    /**
+     * The byte offset of the next byte to read.
+     */
+    private long position;
+
+    /**
+     * Splits the bytes read into lines, holding the partial last line.
+     */
+    private LineSplitter lineSplitter;
+
+    /**
+     * Read buffer.
+     */
+    private byte[] buffer;
+
+    /**
+     * The number of complete lines stored.
+     */
+    private long lineCount;
+
+    /**
+     * The number of times the vm log was truncated or rotated.
+     */
+    private int resetCount;
+
+    /**
+     * @param logFile
+     *            The vm log file.
+     * @param manager
+     *            Where log lines are stored.
+     */
+    public LogFollower(File logFile, Manager manager) {
+        this(logFile, manager, 0);
+    }
+
+    /**
+     * @param logFile
+     *            The vm log file.
+     * @param manager
+     *            Where log lines are stored.
+     * @param position
+     *            The byte offset to start reading at. Must be the start of a line.
+     */
+    public LogFollower(File logFile, Manager manager, long position) {
+        this.logFile = logFile;
+        this.manager = manager;
+        this.position = position;
+        lineSplitter = new LineSplitter(new LineSplitter.LineHandler() {
+            public void line(String logLine) {
+                manager.store(logLine);
+                lineCount++;
+            }
+        });
+        buffer = new byte[BUFFER_SIZE];
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * @return The byte offset of the start of the partial last line, or the next byte to read if there is no partial
+     *         line.
+     */
+    public long getLinePosition() {
+        return position - lineSplitter.getPartialLength();
+    }
+
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    public int getResetCount() {
+        return resetCount;
+    }
+
+    /**
+     * Read and store the logging appended since the last poll.
+     * 
+     * @return true if any bytes were read, false otherwise.
+     * @throws IOException
+     *             if the vm log cannot be read.
+     */
+    public boolean poll() throws IOException {
+        if (randomAccessFile == null) {
+            if (!logFile.exists()) {
+                return false;
+            }
+            open(position);
+        }
+        boolean read = readAppended();
+        Object currentFileKey = getFileKey();
+        if (currentFileKey != null && fileKey != null && !currentFileKey.equals(fileKey)) {
+            // Rotated: finish the old file, then start the new one.
+            read = readAppended() || read;
+            reset();
+            if (logFile.exists()) {
+                open(0);
+                read = readAppended() || read;
+            }
+        } else if (logFile.exists() && logFile.length() < position) {
+            // Truncated. A missing file is a rename rotation in progress: keep reading the old file until the new
+            // one appears.
+            reset();
+            open(0);
+            read = readAppended() || read;
+        }
+        return read;
+    }
+
+    /**
+     * Store the partial last line, if any, as a complete line. Used when the logging has ended.
+     */
+    public void flushPartialLine() {
+        lineSplitter.flush();
+    }
+
+    /**
+     * Close the vm log.
+     */
+    public void close() {
+        if (randomAccessFile != null) {
+            try {
+                randomAccessFile.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            randomAccessFile = null;
+        }
+    }
+
+    /**
+     * Open the vm log.
+     * 
+     * @param position
+     *            The byte offset to start reading at.
+     * @throws IOException
+     *             if the vm log cannot be opened.
+     */
+    private void open(long position) throws IOException {
+        randomAccessFile = new RandomAccessFile(logFile, "r");
+        fileKey = getFileKey();
+        this.position = position;
+    }
+
+    /**
+     * Close the current vm log and discard any partial line.
+     */
+    private void reset() {
+        close();
+        lineSplitter.reset();
+        resetCount++;
+    }
+
+    /**
+     * @return The file identity (e.g. inode) of the vm log path, or null if not supported or the file does not exist.
+     */
+    private Object getFileKey() {
+        try {
+            return Files.readAttributes(logFile.toPath(), BasicFileAttributes.class).fileKey();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Read and store bytes from the current position to the end of the open vm log.
+     * 
+     * @return true if any bytes were read, false otherwise.
+     * @throws IOException
+     *             if the vm log cannot be read.
+     */
+    private boolean readAppended() throws IOException {
+        boolean read = false;
+        randomAccessFile.seek(position);
+        int count = randomAccessFile.read(buffer);
+        while (count > 0) {
+            read = true;
+            position = position + count;
+            lineSplitter.write(buffer, 0, count);
+            count = randomAccessFile.read(buffer);
+        }
+        return read;
+    }
+}
@@ -0,0 +1,45 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.IOException;
+
+/**
+ * A vm log that is read as it is written, storing each complete line in a <code>Manager</code>.
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public interface LogSource {
+
+    /**
+     * Store the logging received since the last poll.
+     * 
+     * @return true if any logging was stored, false otherwise.
+     * @throws IOException
+     *             if the logging cannot be read.
+     */
+    boolean poll() throws IOException;
+
+    /**
+     * @return The number of complete lines stored.
+     */
+    long getLineCount();
+
+    /**
+     * Stop reading.
+     */
+    void close();
+}
@@ -0,0 +1,310 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Read a vm log streamed to a named pipe (e.g. <code>mkfifo</code>) or a UNIX domain socket (Java 16 or later),
+ * passing each complete line to a <code>Manager</code>.
+ * </p>
+ * 
+ * <p>
+ * A reader thread drains the pipe or socket into a bounded buffer as fast as the logging is written, so the JVM
+ * writing the logging is never blocked by parsing. If the buffer is full, the line is dropped and counted. When the
+ * writer closes the pipe or socket (e.g. the JVM exits), the reader waits for the next writer.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class LogStream implements LogSource {
+
+    /**
+     * The prefix identifying a UNIX domain socket source.
+     */
+    public static final String SOCKET_PREFIX = "unix:";
+
+    /**
+     * The read buffer size (bytes).
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The named pipe, or null if the source is a socket.
+     */
+    private File pipe;
+
+    /**
+     * The UNIX domain socket path, or null if the source is a named pipe.
+     */
+    private File socket;
+
+    /**
+     * Where log lines are stored.
+     */
+    private Manager manager;
+
+    /**
+     * Lines read but not yet stored.
+     */
+    private BlockingQueue<String> buffer;
+
+    /**
+     * The listening socket, or null if the source is a named pipe or not open.
+     */
+    private ServerSocketChannel serverChannel;
+
+    /**
+     * The reader thread.
+     */
+    private Thread reader;
+
+    /**
+     * Whether or not the source is open.
+     */
+    private volatile boolean open;
+
+    /**
+     * The number of complete lines stored.
+     */
+    private long lineCount;
+
+    /**
+     * The number of lines read (stored, buffered or dropped).
+     */
+    private AtomicLong readCount;
+
+    /**
+     * The number of lines dropped because the buffer was full.
+     */
+    private AtomicLong droppedCount;
+
+    /**
+     * @param source
+     *            The named pipe path, or the UNIX domain socket path prefixed with {@link #SOCKET_PREFIX}.
+     * @param manager
+     *            Where log lines are stored.
+     * @param capacity
+     *            The maximum number of lines buffered.
+     */
+    public LogStream(String source, Manager manager, int capacity) {
+        if (source.startsWith(SOCKET_PREFIX)) {
+            socket = new File(source.substring(SOCKET_PREFIX.length()));
+        } else {
+            pipe = new File(source);
+        }
+        this.manager = manager;
+        buffer = new ArrayBlockingQueue<String>(capacity);
+        readCount = new AtomicLong();
+        droppedCount = new AtomicLong();
+    }
+
+    /**
+     * @param source
+     *            The named pipe path, or the UNIX domain socket path prefixed with {@link #SOCKET_PREFIX}.
+     * @return true if the source is a UNIX domain socket, false otherwise.
+     */
+    public static boolean isSocket(String source) {
+        return source.startsWith(SOCKET_PREFIX);
+    }
+
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    public long getReadCount() {
+        return readCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Start reading. For a socket, the socket is created and listening when this returns.
+     * 
+     * @throws IOException
+     *             if the socket cannot be created.
+     */
+    public void open() throws IOException {
+        if (socket != null) {
+            serverChannel = openServerChannel(socket);
+            socket.deleteOnExit();
+        }
+        open = true;
+        reader = new Thread(new Runnable() {
+            public void run() {
+                read();
+            }
+        }, "vmcat-stream");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Store the lines buffered since the last poll. At most the buffer capacity is stored, so the caller regains
+     * control under a continuous stream.
+     * 
+     * @return true if any lines were stored, false otherwise.
+     */
+    public boolean poll() {
+        boolean stored = false;
+        int remaining = buffer.size();
+        String logLine = buffer.poll();
+        while (logLine != null) {
+            manager.store(logLine);
+            lineCount++;
+            stored = true;
+            remaining--;
+            logLine = remaining > 0 ? buffer.poll() : null;
+        }
+        return stored;
+    }
+
+    /**
+     * Stop reading. A reader thread blocked opening a named pipe with no writer is a daemon and does not prevent the
+     * JVM from exiting.
+     */
+    public void close() {
+        open = false;
+        if (serverChannel != null) {
+            try {
+                serverChannel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            serverChannel = null;
+            socket.delete();
+        }
+        if (reader != null) {
+            reader.interrupt();
+        }
+    }
+
+    /**
+     * Create a listening UNIX domain socket. Done reflectively, since UNIX domain socket channels were added in Java
+     * 16.
+     * 
+     * @param socket
+     *            The socket path. Must not exist.
+     * @return The listening socket.
+     * @throws IOException
+     *             if UNIX domain sockets are not supported or the socket cannot be created.
+     */
+    private static ServerSocketChannel openServerChannel(File socket) throws IOException {
+        SocketAddress address;
+        ServerSocketChannel channel;
+        try {
+            address = (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress")
+                    .getMethod("of", String.class).invoke(null, socket.getPath());
+            ProtocolFamily unix = StandardProtocolFamily.valueOf("UNIX");
+            channel = (ServerSocketChannel) ServerSocketChannel.class.getMethod("open", ProtocolFamily.class)
+                    .invoke(null, unix);
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            throw new IOException("UNIX domain sockets require Java 16 or later");
+        }
+        try {
+            channel.bind(address);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    /**
+     * Read from each writer in turn until closed.
+     */
+    private void read() {
+        byte[] bytes = new byte[BUFFER_SIZE];
+        LineSplitter lineSplitter = new LineSplitter(new LineSplitter.LineHandler() {
+            public void line(String logLine) {
+                offer(logLine);
+            }
+        });
+        try {
+            while (open) {
+                if (socket != null) {
+                    SocketChannel channel = serverChannel.accept();
+                    try {
+                        read(Channels.newInputStream(channel), bytes, lineSplitter);
+                    } finally {
+                        channel.close();
+                    }
+                } else {
+                    // Blocks until there is a writer.
+                    InputStream in = new FileInputStream(pipe);
+                    try {
+                        read(in, bytes, lineSplitter);
+                    } finally {
+                        in.close();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (open) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Read lines from one writer until the writer closes. A partial last line is buffered as a complete line.
+     * 
+     * @param in
+     *            The writer input.
+     * @param bytes
+     *            Read buffer.
+     * @param lineSplitter
+     *            Splits the bytes read into lines.
+     * @throws IOException
+     *             if the input cannot be read.
+     */
+    private void read(InputStream in, byte[] bytes, LineSplitter lineSplitter) throws IOException {
+        int count = in.read(bytes);
+        while (count != -1) {
+            lineSplitter.write(bytes, 0, count);
+            count = in.read(bytes);
+        }
+        lineSplitter.flush();
+    }
+
+    /**
+     * Buffer a line, or drop it if the buffer is full.
+     * 
+     * @param logLine
+     *            The line.
+     */
+    private void offer(String logLine) {
+        readCount.incrementAndGet();
+        if (!buffer.offer(logLine)) {
+            droppedCount.incrementAndGet();
+        }
+    }
+}
@@ -19,26 +19,39 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.TimeZone;
 
 import org.github.vmcat.Main;
 import org.github.vmcat.domain.Jvm;
 import org.github.vmcat.domain.JvmRun;
 import org.github.vmcat.domain.LogEvent;
+import org.github.vmcat.domain.MemoryBudget;
+import org.github.vmcat.domain.TimeWarpException;
 import org.github.vmcat.domain.TagEvent;
 import org.github.vmcat.domain.UnknownEvent;
+import org.github.vmcat.domain.jdk.CalendarRollup;
 import org.github.vmcat.domain.jdk.SafepointEvent;
+import org.github.vmcat.domain.jdk.SafepointEventReorderBuffer;
+import org.github.vmcat.domain.jdk.SafepointStormDetector;
 import org.github.vmcat.domain.jdk.TagArgsEvent;
 import org.github.vmcat.domain.jdk.TagCommandEvent;
+import org.github.vmcat.domain.jdk.TagDestroyVmEvent;
+import org.github.vmcat.domain.jdk.TagHotspotLogEvent;
 import org.github.vmcat.domain.jdk.TagInfoEvent;
 import org.github.vmcat.domain.jdk.TagLauncherEvent;
 import org.github.vmcat.domain.jdk.TagNameEvent;
 import org.github.vmcat.domain.jdk.TagPropertiesEvent;
 import org.github.vmcat.domain.jdk.TagReleaseEvent;
 import org.github.vmcat.hsql.JvmDao;
+import org.github.vmcat.util.Constants;
 import org.github.vmcat.util.VmUtil;
+import org.github.vmcat.util.jdk.Analysis;
 import org.github.vmcat.util.jdk.JdkUtil;
 
 /**
@@ -52,15 +65,240 @@ import org.github.vmcat.util.jdk.JdkUtil;
 public class Manager {
 
     /**
-     * The JVM data access object.
+     * Multi-line logging sections.
+     */
+    public enum Section {
+        NONE, FLUSH_LINE, VERSION, OPTIONS, PROPERTIES
+    };
+
+    /**
+     * The multi-line section the next logging line is in.
+     */
+    private Section section = Section.NONE;
+
+    /**
+     * The JVM data access object for the current JVM run.
      */
     private JvmDao jvmDao;
 
+    /**
+     * The JVM data access objects, one for each JVM run in log order. A log file appended across JVM restarts has
+     * multiple JVM runs.
+     */
+    private List<JvmDao> jvmDaos;
+
+    /**
+     * Whether the current JVM run has any data.
+     */
+    private boolean jvmRunHasData;
+
+    /**
+     * Whether the current JVM run has ended (<code>TagDestroyVmEvent</code>).
+     */
+    private boolean jvmRunEnded;
+
+    /**
+     * The largest <code>SafepointEvent</code> timestamp in the current JVM run.
+     */
+    private long jvmRunMaxTimestamp;
+
+    /**
+     * Whether the first <code>SafepointEvent</code> in the current JVM run has been checked for a datestamp to get the
+     * JVM start time.
+     */
+    private boolean jvmRunDateStampChecked;
+
+    /**
+     * The number of safepoints per second for a single trigger at or above which a storm is flagged.
+     */
+    private int stormRateThreshold;
+
+    /**
+     * The percent of time spent in safepoint pauses at or above which a storm is flagged.
+     */
+    private int stormTimeShareThreshold;
+
+    /**
+     * The reorder horizon (milliseconds).
+     */
+    private long reorderHorizon;
+
+    /**
+     * Phase timing and line stats, or null if not collected.
+     */
+    private PhaseStats stats;
+
+    /**
+     * Progress counters, or null if progress is not reported.
+     */
+    private Progress progress;
+
+    /**
+     * The analysis memory budget, or null if memory is not bounded.
+     */
+    private MemoryBudget memoryBudget;
+
+    /**
+     * The number of unidentified log lines kept for ended JVM runs. With a memory budget, the limit is for all JVM
+     * runs.
+     */
+    private int priorUnidentifiedLineCount;
+
+    /**
+     * The number of log lines outside the reorder horizon kept for ended JVM runs. With a memory budget, the limit is
+     * for all JVM runs.
+     */
+    private int priorOutOfHorizonLineCount;
+
     /**
      * Default constructor.
      */
     public Manager() {
-        this.jvmDao = new JvmDao();
+        stormRateThreshold = Constants.DEFAULT_STORM_RATE_THRESHOLD;
+        stormTimeShareThreshold = Constants.DEFAULT_STORM_TIME_SHARE_THRESHOLD;
+        reorderHorizon = Constants.DEFAULT_REORDER_HORIZON;
+        jvmDaos = new ArrayList<JvmDao>();
+        startJvmRun();
+    }
+
+    /**
+     * Start storing a new JVM run.
+     */
+    private void startJvmRun() {
+        if (jvmDao != null) {
+            jvmDao.flushSafepointEvents();
+            // The JVM run has ended
+            jvmDao.release();
+            priorUnidentifiedLineCount = priorUnidentifiedLineCount + jvmDao.getUnidentifiedLogLines().size();
+            priorOutOfHorizonLineCount = priorOutOfHorizonLineCount + jvmDao.getOutOfHorizonLogLines().size();
+        }
+        jvmDao = new JvmDao(memoryBudget);
+        jvmDao.setSafepointStormDetector(
+                new SafepointStormDetector(Constants.STORM_WINDOW, stormRateThreshold, stormTimeShareThreshold));
+        jvmDao.setSafepointEventReorderBuffer(new SafepointEventReorderBuffer(reorderHorizon, getReorderBufferLimit()));
+        if (memoryBudget != null) {
+            jvmDao.setOutOfHorizonLineLimit(
+                    Math.max(0, Constants.OUT_OF_HORIZON_REPORT_LIMIT - priorOutOfHorizonLineCount));
+        }
+        jvmDaos.add(jvmDao);
+        jvmRunHasData = false;
+        jvmRunEnded = false;
+        jvmRunMaxTimestamp = 0;
+        jvmRunDateStampChecked = false;
+    }
+
+    /**
+     * Determine if a <code>SafepointEvent</code> is the start of a new JVM run: the timestamp reset to near JVM
+     * startup, and too far before the prior events to be JDK logging out of order.
+     * 
+     * @param event
+     *            The <code>SafepointEvent</code>.
+     * @return true if the event timestamp indicates a JVM restart, false otherwise.
+     */
+    private boolean isTimestampReset(SafepointEvent event) {
+        return event.getTimestamp() < jvmRunMaxTimestamp - reorderHorizon
+                && event.getTimestamp() < Constants.FIRST_TIMESTAMP_THRESHOLD * 1000;
+    }
+
+    /**
+     * Set the safepoint storm detection thresholds. Must be called before the vm log is stored, since storms are
+     * detected as events are parsed.
+     * 
+     * @param rateThreshold
+     *            The number of safepoints per second for a single trigger at or above which a storm is flagged.
+     * @param timeShareThreshold
+     *            The percent of time spent in safepoint pauses at or above which a storm is flagged.
+     */
+    public void setStormThresholds(int rateThreshold, int timeShareThreshold) {
+        this.stormRateThreshold = rateThreshold;
+        this.stormTimeShareThreshold = timeShareThreshold;
+        jvmDao.setSafepointStormDetector(
+                new SafepointStormDetector(Constants.STORM_WINDOW, rateThreshold, timeShareThreshold));
+    }
+
+    public int getStormRateThreshold() {
+        return stormRateThreshold;
+    }
+
+    public int getStormTimeShareThreshold() {
+        return stormTimeShareThreshold;
+    }
+
+    public PhaseStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Collect phase timing and line stats. The analysis must be done on one thread, since times are measured for the
+     * current thread.
+     * 
+     * @param stats
+     *            The phase stats, or null to not collect stats.
+     */
+    public void setStats(PhaseStats stats) {
+        this.stats = stats;
+    }
+
+    public Progress getProgress() {
+        return progress;
+    }
+
+    /**
+     * Count lines and events for progress reporting. Progress can be shared by managers storing concurrently.
+     * 
+     * @param progress
+     *            The progress counters, or null to not count.
+     */
+    public void setProgress(Progress progress) {
+        this.progress = progress;
+    }
+
+    public long getReorderHorizon() {
+        return reorderHorizon;
+    }
+
+    /**
+     * Set the maximum time a safepoint event can be logged after a later event and be put back in timestamp order.
+     * Must be called before the vm log is stored.
+     * 
+     * @param horizon
+     *            The reorder horizon (milliseconds).
+     */
+    public void setReorderHorizon(long horizon) {
+        this.reorderHorizon = horizon;
+        jvmDao.setSafepointEventReorderBuffer(new SafepointEventReorderBuffer(horizon, getReorderBufferLimit()));
+    }
+
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Keep memory within a budget. Must be called before the vm log is stored, since it replaces the data store.
+     * 
+     * @param memoryBudget
+     *            The memory budget, or null to not bound memory.
+     */
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        jvmDaos.remove(jvmDao);
+        jvmDao.close();
+        jvmDao = null;
+        startJvmRun();
+    }
+
+    /**
+     * @return The maximum number of safepoint events to buffer to put events back in timestamp order.
+     */
+    private int getReorderBufferLimit() {
+        return memoryBudget == null ? Constants.REORDER_BUFFER_LIMIT : memoryBudget.getReorderBufferLimit();
+    }
+
+    /**
+     * @return The maximum number of unidentified log lines to keep for the current JVM run.
+     */
+    private int getUnidentifiedLineLimit() {
+        return memoryBudget == null ? Main.REJECT_LIMIT : Math.max(0, Main.REJECT_LIMIT - priorUnidentifiedLineCount);
     }
 
     /**
@@ -81,47 +319,12 @@ public class Manager {
             bufferedReader = new BufferedReader(new FileReader(logFile));
             String logLine = bufferedReader.readLine();
             while (logLine != null) {
-                LogEvent event = JdkUtil.parseLogLine(logLine);
-                if (event instanceof SafepointEvent) {
-                    jvmDao.addSafepointEvent((SafepointEvent) event);
-                } else if (event instanceof TagEvent) {
-                    if ((event instanceof TagNameEvent || event instanceof TagReleaseEvent
-                            || event instanceof TagCommandEvent || event instanceof TagLauncherEvent)
-                            && VmUtil.isHtmlEventStartTag(event.getLogEntry())) {
-                        // flush data
-                        logLine = bufferedReader.readLine();
-                    } else if (event instanceof TagInfoEvent && VmUtil.isHtmlEventStartTag(event.getLogEntry())) {
-                        jvmDao.setVersion(bufferedReader.readLine());
-                    } else if (event instanceof TagArgsEvent && VmUtil.isHtmlEventStartTag(event.getLogEntry())) {
-                        jvmDao.setOptions(bufferedReader.readLine());
-                    } else if (event instanceof TagPropertiesEvent && VmUtil.isHtmlEventStartTag(event.getLogEntry())) {
-                        boolean flushProperties = true;
-                        while (flushProperties) {
-                            LogEvent nextEvent = JdkUtil.parseLogLine(bufferedReader.readLine());
-                            if (nextEvent instanceof TagPropertiesEvent) {
-                                // reached properties end tag
-                                flushProperties = false;
-                            }
-                        }
-                    }
-                } else if (event instanceof UnknownEvent) {
-                    if (jvmDao.getUnidentifiedLogLines().size() < Main.REJECT_LIMIT) {
-                        jvmDao.getUnidentifiedLogLines().add(logLine);
-                    }
-                }
-
-                // Populate events list.
-                List<JdkUtil.LogEventType> eventTypes = jvmDao.getEventTypes();
-                JdkUtil.LogEventType eventType = JdkUtil.determineEventType(event.getName());
-                if (!eventTypes.contains(eventType)) {
-                    eventTypes.add(eventType);
-                }
-
+                store(logLine);
                 logLine = bufferedReader.readLine();
             }
 
-            // Process final batch
-            jvmDao.processSafepointBatch();
+            // Process buffered events and final batch
+            flush();
 
         } catch (
 
@@ -142,81 +345,388 @@ public class Manager {
 
     }
 
+    /**
+     * Parse a vm logging line and store the data in the data store. Lines must be stored in log order. Multi-line
+     * sections (e.g. <code>TagInfoEvent</code>, <code>TagPropertiesEvent</code>) are tracked across calls, so logging
+     * can be stored as it is written.
+     * 
+     * @param logLine
+     *            The vm logging line.
+     */
+    public void store(String logLine) {
+        if (progress != null) {
+            progress.addLine(logLine);
+        }
+        if (stats == null) {
+            storeLine(logLine);
+        } else {
+            // The time since the prior line is reading
+            stats.lap(PhaseStats.Phase.READ);
+            stats.addLine(logLine);
+            storeLine(logLine);
+            stats.lap(PhaseStats.Phase.STORE);
+        }
+    }
+
+    /**
+     * @param logLine
+     *            The vm logging line.
+     */
+    private void storeLine(String logLine) {
+        // Lines inside multi-line sections
+        switch (section) {
+        case FLUSH_LINE:
+            section = Section.NONE;
+            return;
+        case VERSION:
+            jvmDao.setVersion(logLine);
+            jvmRunHasData = true;
+            section = Section.NONE;
+            return;
+        case OPTIONS:
+            jvmDao.setOptions(logLine);
+            jvmRunHasData = true;
+            section = Section.NONE;
+            return;
+        case PROPERTIES:
+            if (JdkUtil.parseLogLine(logLine) instanceof TagPropertiesEvent) {
+                // reached properties end tag
+                section = Section.NONE;
+            }
+            return;
+        default:
+            break;
+        }
+
+        LogEvent event = parseLogLine(logLine);
+        if (event instanceof SafepointEvent) {
+            SafepointEvent safepointEvent = (SafepointEvent) event;
+            if (jvmRunEnded || isTimestampReset(safepointEvent)) {
+                startJvmRun();
+            }
+            if (!jvmRunDateStampChecked) {
+                // The first datestamp gives the start time when the hotspot_log tag is missing
+                if (jvmDao.getCalendarRollup() == null) {
+                    String datestamp = JdkUtil.getDateStamp(logLine);
+                    if (datestamp != null) {
+                        jvmDao.setStartTime(JdkUtil.getDateStampMillis(datestamp) - safepointEvent.getTimestamp(),
+                                JdkUtil.getDateStampOffset(datestamp));
+                    }
+                }
+                jvmRunDateStampChecked = true;
+            }
+            jvmDao.addSafepointEvent(safepointEvent);
+            if (progress != null) {
+                progress.addEvent();
+            }
+            jvmRunHasData = true;
+            if (safepointEvent.getTimestamp() > jvmRunMaxTimestamp) {
+                jvmRunMaxTimestamp = safepointEvent.getTimestamp();
+            }
+        } else if (event instanceof TagEvent) {
+            if (event instanceof TagHotspotLogEvent && ((TagHotspotLogEvent) event).isStartTag()) {
+                if (jvmRunHasData) {
+                    startJvmRun();
+                } else {
+                    jvmRunEnded = false;
+                }
+                long startTime = ((TagHotspotLogEvent) event).getStartTime();
+                if (startTime >= 0) {
+                    jvmDao.setStartTime(startTime, TimeZone.getDefault().getOffset(startTime));
+                }
+            } else if (event instanceof TagDestroyVmEvent) {
+                jvmRunEnded = true;
+            } else if ((event instanceof TagNameEvent || event instanceof TagReleaseEvent
+                    || event instanceof TagCommandEvent || event instanceof TagLauncherEvent)
+                    && VmUtil.isHtmlEventStartTag(event.getLogEntry())) {
+                // flush data
+                section = Section.FLUSH_LINE;
+            } else if (event instanceof TagInfoEvent && VmUtil.isHtmlEventStartTag(event.getLogEntry())) {
+                section = Section.VERSION;
+            } else if (event instanceof TagArgsEvent && VmUtil.isHtmlEventStartTag(event.getLogEntry())) {
+                section = Section.OPTIONS;
+            } else if (event instanceof TagPropertiesEvent && VmUtil.isHtmlEventStartTag(event.getLogEntry())) {
+                section = Section.PROPERTIES;
+            }
+        } else if (event instanceof UnknownEvent) {
+            if (jvmDao.getUnidentifiedLogLines().size() < getUnidentifiedLineLimit()) {
+                jvmDao.getUnidentifiedLogLines().add(logLine);
+            }
+        }
+
+        // Populate events list.
+        List<JdkUtil.LogEventType> eventTypes = jvmDao.getEventTypes();
+        JdkUtil.LogEventType eventType = JdkUtil.determineEventType(event.getName());
+        if (!eventTypes.contains(eventType)) {
+            eventTypes.add(eventType);
+        }
+    }
+
+    /**
+     * @param logLine
+     *            The vm logging line.
+     * @return The <code>LogEvent</code> for the line, timing classification and parsing separately when collecting
+     *         stats.
+     */
+    private LogEvent parseLogLine(String logLine) {
+        if (stats == null) {
+            return JdkUtil.parseLogLine(logLine);
+        }
+        JdkUtil.LogEventType eventType = JdkUtil.identifyEventType(logLine);
+        stats.lap(PhaseStats.Phase.CLASSIFY);
+        stats.addLine(eventType);
+        LogEvent event = JdkUtil.parseLogLine(logLine, eventType);
+        stats.lap(PhaseStats.Phase.PARSE);
+        return event;
+    }
+
+    /**
+     * Release all safepoint events held to put them back in timestamp order to the data store. Called at the end of
+     * the logging, or when the logging has been idle longer than the reorder horizon. Events logged after the flush
+     * that are earlier than the flushed events are outside the reorder horizon.
+     */
+    public void flush() {
+        if (stats != null) {
+            stats.lap(PhaseStats.Phase.READ);
+        }
+        jvmDao.flushSafepointEvents();
+        if (stats != null) {
+            stats.lap(PhaseStats.Phase.STORE);
+        }
+    }
+
     /**
      * Determine <code>SafepointEvent</code>s where throughput since last event does not meet the throughput goal.
+     * Events outside the reorder horizon are skipped, and events overlapping the prior event by more than the JDK
+     * logging tolerance are counted and skipped. With a memory budget, lines beyond the budget are counted, but not
+     * kept. The budget is split evenly between the JVM runs, so the lines kept for all JVM runs are within it.
      * 
-     * @param jvm
-     *            The JVM environment information.
-     * @param throughputThreshold
-     *            The bottleneck reporting throughput threshold.
+     * @param jvmDao
+     *            The JVM data access object for the JVM run.
+     * @param jvmRun
+     *            The JVM run data with the JVM environment information and the bottleneck reporting throughput
+     *            threshold. The event overlap count, bottleneck time and omitted bottleneck line count are set.
      * @return A <code>List</code> of <code>SafepointEvent</code>s where the throughput between events is less than the
      *         throughput threshold goal.
      */
-    private List<String> getBottlenecks(Jvm jvm, int throughputThreshold) {
+    private List<String> getBottlenecks(JvmDao jvmDao, JvmRun jvmRun) {
+        Jvm jvm = jvmRun.getJvm();
+        int throughputThreshold = jvmRun.getThroughputThreshold();
+        int lineLimit = memoryBudget == null ? Integer.MAX_VALUE
+                : memoryBudget.getBottleneckLineLimit() / jvmDaos.size();
         ArrayList<String> bottlenecks = new ArrayList<String>();
-        List<SafepointEvent> safepointEvents = jvmDao.getSafepointEvents();
-        Iterator<SafepointEvent> iterator = safepointEvents.iterator();
+        long omittedLineCount = 0;
+        long eventOverlapCount = 0;
+        long bottleneckTime = 0;
+        Iterator<SafepointEvent> iterator = jvmDao.getSafepointEventIterator();
         SafepointEvent priorEvent = null;
+        boolean priorIsBottleneck = false;
         while (iterator.hasNext()) {
             SafepointEvent event = iterator.next();
-            if (priorEvent != null && JdkUtil.isBottleneck(event, priorEvent, throughputThreshold)) {
-                if (bottlenecks.size() == 0) {
-                    // Add current and prior event
-                    if (jvm.getStartDate() != null) {
-                        // Convert timestamps to date/time
-                        bottlenecks.add(JdkUtil.convertLogEntryTimestampsToDateStamp(priorEvent.getLogEntry(),
-                                jvm.getStartDate()));
-                        bottlenecks.add(
-                                JdkUtil.convertLogEntryTimestampsToDateStamp(event.getLogEntry(), jvm.getStartDate()));
-                    } else {
-                        bottlenecks.add(priorEvent.getLogEntry());
-                        bottlenecks.add(event.getLogEntry());
-                    }
+            if (priorEvent != null && event.getTimestamp() < priorEvent.getTimestamp()) {
+                // Outside the reorder horizon
+                continue;
+            }
+            boolean isBottleneck;
+            try {
+                isBottleneck = priorEvent != null && JdkUtil.isBottleneck(event, priorEvent, throughputThreshold);
+            } catch (TimeWarpException e) {
+                eventOverlapCount++;
+                isBottleneck = false;
+            }
+            if (isBottleneck) {
+                // The interval is from the end of the prior event to the end of the current event.
+                bottleneckTime = bottleneckTime + Math.max(0, event.getTimestamp() + event.getDuration()
+                        - priorEvent.getTimestamp() - priorEvent.getDuration());
+                if (bottlenecks.size() >= lineLimit) {
+                    omittedLineCount = omittedLineCount + (priorIsBottleneck ? 1 : 2);
                 } else {
-                    if (jvm.getStartDate() != null) {
-                        // Compare datetime, since bottleneck has datetime
-                        if (!JdkUtil.convertLogEntryTimestampsToDateStamp(priorEvent.getLogEntry(), jvm.getStartDate())
-                                .equals(bottlenecks.get(bottlenecks.size() - 1))) {
+                    if (!priorIsBottleneck) {
+                        // Start a new window with the prior event
+                        if (bottlenecks.size() > 0) {
                             bottlenecks.add("...");
-                            bottlenecks.add(JdkUtil.convertLogEntryTimestampsToDateStamp(priorEvent.getLogEntry(),
-                                    jvm.getStartDate()));
-                            bottlenecks.add(JdkUtil.convertLogEntryTimestampsToDateStamp(event.getLogEntry(),
-                                    jvm.getStartDate()));
-                        } else {
-                            bottlenecks.add(JdkUtil.convertLogEntryTimestampsToDateStamp(event.getLogEntry(),
-                                    jvm.getStartDate()));
-                        }
-                    } else {
-                        // Compare timestamps, since bottleneck has timestamp
-                        if (!priorEvent.getLogEntry().equals(bottlenecks.get(bottlenecks.size() - 1))) {
-                            bottlenecks.add("...");
-                            bottlenecks.add(priorEvent.getLogEntry());
-                            bottlenecks.add(event.getLogEntry());
-                        } else {
-                            bottlenecks.add(event.getLogEntry());
                         }
+                        bottlenecks.add(getBottleneckLine(priorEvent, jvm));
                     }
+                    bottlenecks.add(getBottleneckLine(event, jvm));
                 }
             }
             priorEvent = event;
+            priorIsBottleneck = isBottleneck;
         }
+        jvmRun.setEventOverlapCount(eventOverlapCount);
+        jvmRun.setBottleneckTime(bottleneckTime);
+        jvmRun.setOmittedBottleneckLineCount(omittedLineCount);
         return bottlenecks;
     }
 
     /**
-     * Get JVM run data.
-     * 
+     * @param event
+     *            The <code>SafepointEvent</code>.
      * @param jvm
      *            JVM environment information.
+     * @return The log entry to report, with timestamps converted to date/time if the JVM start date is known.
+     */
+    private static String getBottleneckLine(SafepointEvent event, Jvm jvm) {
+        if (jvm.getStartDate() != null) {
+            return JdkUtil.convertLogEntryTimestampsToDateStamp(event.getLogEntry(), jvm.getStartDate());
+        }
+        return event.getLogEntry();
+    }
+
+    /**
+     * Get JVM run data for the last JVM run in the log.
+     * 
+     * @param jvm
+     *            JVM environment information for the last (current) JVM run.
      * @param throughputThreshold
      *            The throughput threshold for bottleneck reporting.
      * @return The JVM run data.
      */
     public JvmRun getJvmRun(Jvm jvm, int throughputThreshold) {
+        if (stats != null) {
+            stats.mark();
+        }
+        return getJvmRun(jvmDaos.get(jvmDaos.size() - 1), jvm, throughputThreshold);
+    }
+
+    /**
+     * Get JVM run data for each JVM run in the log, in log order. A log file appended across JVM restarts has multiple
+     * JVM runs, split on timestamp resets and <code>TagHotspotLogEvent</code>/<code>TagDestroyVmEvent</code> tags.
+     * 
+     * The caller's JVM environment information is applied to the last (current) JVM run, the same run
+     * {@link #getJvmRun(Jvm, int)} reports, since options such as the start date describe the JVM that is writing the
+     * log. Earlier JVM runs get empty JVM environment information.
+     * 
+     * Without a memory budget, all JVM runs are retrieved into memory. With a memory budget, a JVM run is retrieved
+     * when it is accessed, and recently accessed JVM runs are cached within the budget, so memory does not grow with
+     * the number of JVM runs. The list must be used before the <code>Manager</code> is closed. Retrieving a JVM run
+     * that is no longer cached rebuilds it (a scan of its safepoint events for the bottlenecks and sketches), so each
+     * report writer, and the regression gate, retrieves each JVM run once, in order.
+     * 
+     * @param jvm
+     *            JVM environment information for the last (current) JVM run.
+     * @param throughputThreshold
+     *            The throughput threshold for bottleneck reporting.
+     * @return The JVM run data.
+     */
+    public List<JvmRun> getJvmRuns(Jvm jvm, int throughputThreshold) {
+        if (stats != null) {
+            stats.mark();
+        }
+        if (memoryBudget != null) {
+            return new JvmRunList(jvm, throughputThreshold);
+        }
+        List<JvmRun> jvmRuns = new ArrayList<JvmRun>();
+        for (int i = 0; i < jvmDaos.size(); i++) {
+            jvmRuns.add(getJvmRun(jvmDaos.get(i), i == jvmDaos.size() - 1 ? jvm : new Jvm(), throughputThreshold));
+        }
+        return jvmRuns;
+    }
+
+    /**
+     * End the current JVM run, so the next safepoint event starts a new JVM run (e.g. when the next vm log stored is
+     * from a different JVM).
+     */
+    public void endJvmRun() {
+        if (jvmRunHasData) {
+            jvmRunEnded = true;
+        }
+    }
+
+    /**
+     * @return The JVM data access objects, one for each JVM run in log order.
+     */
+    List<JvmDao> getJvmDaos() {
+        return jvmDaos;
+    }
+
+    /**
+     * Start storing a new JVM run when restoring a checkpoint.
+     * 
+     * @return The JVM data access object for the new JVM run.
+     */
+    JvmDao restoreJvmRun() {
+        startJvmRun();
+        return jvmDao;
+    }
+
+    Section getSection() {
+        return section;
+    }
+
+    void setSection(Section section) {
+        this.section = section;
+    }
+
+    boolean isJvmRunHasData() {
+        return jvmRunHasData;
+    }
+
+    void setJvmRunHasData(boolean jvmRunHasData) {
+        this.jvmRunHasData = jvmRunHasData;
+    }
+
+    boolean isJvmRunEnded() {
+        return jvmRunEnded;
+    }
+
+    void setJvmRunEnded(boolean jvmRunEnded) {
+        this.jvmRunEnded = jvmRunEnded;
+    }
+
+    long getJvmRunMaxTimestamp() {
+        return jvmRunMaxTimestamp;
+    }
+
+    void setJvmRunMaxTimestamp(long jvmRunMaxTimestamp) {
+        this.jvmRunMaxTimestamp = jvmRunMaxTimestamp;
+    }
+
+    /**
+     * Release the data stores. JVM run data can no longer be retrieved.
+     */
+    public void close() {
+        Iterator<JvmDao> iterator = jvmDaos.iterator();
+        while (iterator.hasNext()) {
+            iterator.next().close();
+        }
+    }
+
+    /**
+     * @param jvmDao
+     *            The JVM data access object for the JVM run.
+     * @param jvm
+     *            JVM environment information.
+     * @param throughputThreshold
+     *            The throughput threshold for bottleneck reporting.
+     * @return The JVM run data.
+     */
+    private JvmRun getJvmRun(JvmDao jvmDao, Jvm jvm, int throughputThreshold) {
+        // Include events stored since the last batch
+        jvmDao.processSafepointBatch();
+        if (stats != null) {
+            stats.lap(PhaseStats.Phase.STORE);
+        }
+        CalendarRollup calendarRollup = jvmDao.getCalendarRollup();
+        if (calendarRollup != null && jvm.getStartDate() == null) {
+            // Datestamped events are reported with their datestamp
+            SafepointEvent firstSafepointEvent = jvmDao.getFirstSafepointEvent();
+            if (firstSafepointEvent == null || JdkUtil.getDateStamp(firstSafepointEvent.getLogEntry()) == null) {
+                jvm.setStartDate(new Date(calendarRollup.getStartTime()));
+            }
+        }
         JvmRun jvmRun = new JvmRun(jvm);
         jvmRun.setThroughputThreshold(throughputThreshold);
-        jvmRun.setAnalysis(jvmDao.getAnalysis());
-        jvmRun.setBottlenecks(getBottlenecks(jvm, throughputThreshold));
+        jvmRun.setCalendarRollup(calendarRollup);
+        jvmRun.setAnalysis(new ArrayList<Analysis>(jvmDao.getAnalysis()));
+        if (stats != null) {
+            stats.lap(PhaseStats.Phase.AGGREGATE);
+        }
+        jvmRun.setBottlenecks(getBottlenecks(jvmDao, jvmRun));
+        if (stats != null) {
+            stats.lap(PhaseStats.Phase.BOTTLENECKS);
+        }
         jvmRun.setEventTypes(jvmDao.getEventTypes());
         jvmRun.setFirstSafepointEvent(jvmDao.getFirstSafepointEvent());
         jvmRun.setLastSafepointEvent(jvmDao.getLastSafepointEvent());
@@ -224,10 +734,88 @@ public class Manager {
         jvmRun.setSafepointEventCount(jvmDao.getSafepointEventCount());
         jvmRun.setSafepointTotalPause(jvmDao.getSafepointTotalPause());
         jvmRun.setSafepointEventSummaries(jvmDao.getSafepointEventSummaries());
+        jvmRun.setTimeToSafepointSummaries(jvmDao.getTimeToSafepointSummaries());
+        jvmRun.setSyncVmopRatioCounts(jvmDao.getSyncVmopRatioCounts());
+        jvmRun.setWorstTimeToSafepointEvents(jvmDao.getWorstTimeToSafepointEvents(Constants.TTSP_WORST_LIMIT));
+        jvmRun.setTopSafepointEvents(jvmDao.getTopSafepointEvents());
+        jvmRun.setPauseHistogram(jvmDao.getPauseHistogram());
+        jvmRun.setPauseTimeline(jvmDao.getPauseTimeline());
+        jvmRun.setTriggerPauseHistograms(jvmDao.getTriggerPauseHistograms());
+        jvmRun.setMutatorUtilization(jvmDao.getMutatorUtilization());
+        jvmRun.setPauseSeries(jvmDao.getPauseSeries());
+        jvmRun.setSafepointStorms(jvmDao.getSafepointStormDetector().getStorms());
+        jvmRun.setStormRateThreshold(jvmDao.getSafepointStormDetector().getRateThreshold());
+        jvmRun.setStormTimeShareThreshold(jvmDao.getSafepointStormDetector().getTimeShareThreshold());
+        jvmRun.setReorderHorizon(jvmDao.getSafepointEventReorderBuffer().getHorizon());
+        jvmRun.setReorderedCount(jvmDao.getSafepointEventReorderBuffer().getReorderedCount());
+        jvmRun.setOutOfHorizonCount(jvmDao.getSafepointEventReorderBuffer().getOutOfHorizonCount());
+        jvmRun.setOutOfHorizonLogLines(jvmDao.getOutOfHorizonLogLines());
+        jvmRun.setReorderOverflowCount(jvmDao.getSafepointEventReorderBuffer().getOverflowCount());
+        jvmRun.setMaxMemory(memoryBudget == null ? 0 : memoryBudget.getMaxMemory());
         jvmRun.setUnidentifiedLogLines(jvmDao.getUnidentifiedLogLines());
         jvmRun.getJvm().setVersion(jvmDao.getVersion());
         jvmRun.getJvm().setOptions(jvmDao.getOptions());
         jvmRun.doAnalysis();
+        if (stats != null) {
+            stats.lap(PhaseStats.Phase.AGGREGATE);
+        }
         return jvmRun;
     }
+
+    /**
+     * The JVM runs in log order, retrieved when accessed. Recently accessed JVM runs are cached within the memory
+     * budget.
+     */
+    private class JvmRunList extends AbstractList<JvmRun> {
+
+        /**
+         * JVM environment information for the last (current) JVM run.
+         */
+        private Jvm jvm;
+
+        /**
+         * The throughput threshold for bottleneck reporting.
+         */
+        private int throughputThreshold;
+
+        /**
+         * The number of JVM runs.
+         */
+        private int size;
+
+        /**
+         * The recently accessed JVM runs, by index.
+         */
+        private JvmRunCache cache;
+
+        private JvmRunList(Jvm jvm, int throughputThreshold) {
+            this.jvm = jvm;
+            this.throughputThreshold = throughputThreshold;
+            size = jvmDaos.size();
+            cache = new JvmRunCache(memoryBudget.getJvmRunCacheLimit());
+        }
+
+        public JvmRun get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            String key = Integer.toString(index);
+            List<JvmRun> jvmRuns = cache.get(key, "");
+            if (jvmRuns == null) {
+                JvmDao runDao = jvmDaos.get(index);
+                jvmRuns = Collections.singletonList(
+                        getJvmRun(runDao, index == size - 1 ? jvm : new Jvm(), throughputThreshold));
+                if (runDao != jvmDao) {
+                    // Only one ended JVM run is retrieved into memory at a time
+                    runDao.release();
+                }
+                cache.put(key, "", jvmRuns);
+            }
+            return jvmRuns.get(0);
+        }
+
+        public int size() {
+            return size;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,414 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.domain.jdk.PauseHistogram;
+import org.github.vmcat.domain.jdk.SafepointEventSummary;
+import org.github.vmcat.domain.jdk.TimeToSafepointSummary;
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
+
+/**
+ * <p>
+ * Write safepoint metrics in OpenMetrics text format, for the node_exporter textfile collector (or any other scraper
+ * of OpenMetrics/Prometheus text files).
+ * </p>
+ * 
+ * <p>
+ * Metric families:
+ * </p>
+ * 
+ * <ul>
+ * <li><code>vmcat_safepoints_total{run,trigger}</code>: Safepoint count.</li>
+ * <li><code>vmcat_safepoint_pause_seconds{run,trigger}</code>: Safepoint pause time histogram (cumulative
+ * <code>_bucket</code>, <code>_count</code> and <code>_sum</code>).</li>
+ * <li><code>vmcat_safepoint_pause_max_seconds{run,trigger}</code>: Longest safepoint pause.</li>
+ * <li><code>vmcat_safepoint_phase_seconds_total{run,trigger,phase}</code>: Safepoint pause time by phase (sync, vmop,
+ * cleanup).</li>
+ * <li><code>vmcat_safepoint_storm_pause_seconds_total{run}</code>: Safepoint pause time in safepoint storms.</li>
+ * <li><code>vmcat_jvm_run_duration_seconds{run}</code>: JVM run duration.</li>
+ * <li><code>vmcat_throughput_ratio{run}</code>: Fraction of the JVM run not paused at safepoints.</li>
+ * </ul>
+ * 
+ * <p>
+ * <code>run</code> is the JVM run number (1 based). Histogram bucket boundaries are fixed so series do not come and go
+ * as the log grows. Pauses are counted from the log-linear <code>PauseHistogram</code>, so pauses in the histogram
+ * bucket holding a boundary (above 64ms, within about 3% of the boundary) are counted in the next bucket.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class MetricsReport {
+
+    /**
+     * Pause histogram bucket upper bounds (milliseconds).
+     */
+    private static final long[] PAUSE_BUCKETS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000 };
+
+    /**
+     * Pause time phases (the <code>phase</code> label values).
+     */
+    private static final String[] PHASES = { "sync", "vmop", "cleanup" };
+
+    /**
+     * Make default constructor private so the class cannot be instantiated.
+     */
+    private MetricsReport() {
+
+    }
+
+    /**
+     * Save the metrics to a file. The metrics are written to a temporary file in the same directory, then renamed, so
+     * a scraper never reads a partial file. The temporary file name does not end in ".prom", so the textfile collector
+     * ignores it.
+     * 
+     * @param metricsFile
+     *            The metrics file.
+     * @param jvmRuns
+     *            JVM run data for each JVM run in the log.
+     * @throws IOException
+     *             if the metrics cannot be written.
+     */
+    public static void save(File metricsFile, List<JvmRun> jvmRuns) throws IOException {
+        File parent = metricsFile.getAbsoluteFile().getParentFile();
+        File tmpFile = File.createTempFile(metricsFile.getName(), ".tmp", parent);
+        Writer writer = null;
+        try {
+            try {
+                // Temporary files are owner only, but the collector typically runs as a different user.
+                Files.setPosixFilePermissions(tmpFile.toPath(), PosixFilePermissions.fromString("rw-r--r--"));
+            } catch (UnsupportedOperationException e) {
+                // Not a POSIX file system
+            }
+            writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(tmpFile.toPath()),
+                    StandardCharsets.UTF_8));
+            write(writer, jvmRuns);
+            writer.close();
+            writer = null;
+            Files.move(tmpFile.toPath(), metricsFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+            if (tmpFile.exists()) {
+                tmpFile.delete();
+            }
+        }
+    }
+
+    /**
+     * @param writer
+     *            The metrics writer.
+     * @param jvmRuns
+     *            JVM run data for each JVM run in the log.
+     * @throws IOException
+     *             if the metrics cannot be written.
+     */
+    public static void write(Writer writer, List<JvmRun> jvmRuns) throws IOException {
+        // Each JVM run is retrieved once (with a memory budget, an evicted JVM run is rebuilt when retrieved), and the
+        // values of every metric family are collected before writing the families one after another.
+        List<RunMetrics> runs = new ArrayList<RunMetrics>();
+        Iterator<JvmRun> jvmRunIterator = jvmRuns.iterator();
+        while (jvmRunIterator.hasNext()) {
+            runs.add(new RunMetrics(jvmRunIterator.next()));
+        }
+
+        writeFamily(writer, "vmcat_safepoints", "counter", null, "Safepoint count.");
+        for (int i = 0; i < runs.size(); i++) {
+            Iterator<SafepointEventSummary> iterator = runs.get(i).summaries.iterator();
+            while (iterator.hasNext()) {
+                SafepointEventSummary summary = iterator.next();
+                writeSample(writer, "vmcat_safepoints_total", getLabels(i, summary.getTrigger()),
+                        Long.toString(summary.getCount()));
+            }
+        }
+
+        writeFamily(writer, "vmcat_safepoint_pause_seconds", "histogram", "seconds", "Safepoint pause time.");
+        for (int i = 0; i < runs.size(); i++) {
+            Map<Trigger, long[]> buckets = runs.get(i).buckets;
+            Iterator<SafepointEventSummary> iterator = runs.get(i).summaries.iterator();
+            while (iterator.hasNext()) {
+                SafepointEventSummary summary = iterator.next();
+                if (buckets.containsKey(summary.getTrigger())) {
+                    writeHistogram(writer, getLabels(i, summary.getTrigger()), buckets.get(summary.getTrigger()),
+                            summary.getPauseTotal());
+                }
+            }
+        }
+
+        writeFamily(writer, "vmcat_safepoint_pause_max_seconds", "gauge", "seconds", "Longest safepoint pause.");
+        for (int i = 0; i < runs.size(); i++) {
+            Iterator<SafepointEventSummary> iterator = runs.get(i).summaries.iterator();
+            while (iterator.hasNext()) {
+                SafepointEventSummary summary = iterator.next();
+                writeSample(writer, "vmcat_safepoint_pause_max_seconds", getLabels(i, summary.getTrigger()),
+                        getSeconds(summary.getPauseMax()));
+            }
+        }
+
+        writeFamily(writer, "vmcat_safepoint_phase_seconds", "counter", "seconds",
+                "Safepoint pause time by phase (sync, vmop, cleanup).");
+        for (int i = 0; i < runs.size(); i++) {
+            Iterator<TimeToSafepointSummary> iterator = runs.get(i).timeToSafepointSummaries.iterator();
+            while (iterator.hasNext()) {
+                TimeToSafepointSummary summary = iterator.next();
+                long[] phases = { summary.getSyncTotal(), summary.getVmopTotal(),
+                        Math.max(0, summary.getPauseTotal() - summary.getSyncTotal() - summary.getVmopTotal()) };
+                for (int j = 0; j < PHASES.length; j++) {
+                    writeSample(writer, "vmcat_safepoint_phase_seconds_total",
+                            getLabels(i, summary.getTrigger()) + ",phase=\"" + PHASES[j] + "\"",
+                            getSeconds(phases[j]));
+                }
+            }
+        }
+
+        writeFamily(writer, "vmcat_safepoint_storm_pause_seconds", "counter", "seconds",
+                "Safepoint pause time in safepoint storms.");
+        for (int i = 0; i < runs.size(); i++) {
+            writeSample(writer, "vmcat_safepoint_storm_pause_seconds_total", getLabels(i, null),
+                    getSeconds(runs.get(i).stormPauseTotal));
+        }
+
+        writeFamily(writer, "vmcat_jvm_run_duration_seconds", "gauge", "seconds", "JVM run duration.");
+        for (int i = 0; i < runs.size(); i++) {
+            writeSample(writer, "vmcat_jvm_run_duration_seconds", getLabels(i, null),
+                    getSeconds(runs.get(i).jvmRunDuration));
+        }
+
+        writeFamily(writer, "vmcat_throughput_ratio", "gauge", "ratio",
+                "Fraction of the JVM run not paused at safepoints.");
+        for (int i = 0; i < runs.size(); i++) {
+            writeSample(writer, "vmcat_throughput_ratio", getLabels(i, null),
+                    BigDecimal.valueOf(runs.get(i).throughput, 2).stripTrailingZeros().toPlainString());
+        }
+
+        writer.write("# EOF\n");
+        writer.flush();
+    }
+
+    /**
+     * @param value
+     *            A label value.
+     * @return The label value with backslash, double quote and line feed escaped.
+     */
+    static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * @param millis
+     *            A duration (milliseconds).
+     * @return The duration in seconds, with no trailing zeros.
+     */
+    static String getSeconds(long millis) {
+        return BigDecimal.valueOf(millis, 3).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * @param millis
+     *            A histogram bucket upper bound (milliseconds).
+     * @return The bound in seconds as a canonical float (e.g. "1.0", not "1").
+     */
+    static String getBound(long millis) {
+        String seconds = getSeconds(millis);
+        return seconds.indexOf('.') < 0 ? seconds + ".0" : seconds;
+    }
+
+    /**
+     * @param jvmRun
+     *            The JVM run.
+     * @return The safepoint event summaries, or an empty list if there are no safepoint events.
+     */
+    private static List<SafepointEventSummary> getSummaries(JvmRun jvmRun) {
+        if (jvmRun.getSafepointEventCount() == 0 || jvmRun.getSafepointEventSummaries() == null) {
+            return Collections.emptyList();
+        }
+        return jvmRun.getSafepointEventSummaries();
+    }
+
+    /**
+     * @param index
+     *            The JVM run index (0 based).
+     * @param trigger
+     *            The safepoint trigger, or null for JVM run metrics.
+     * @return The labels (without braces).
+     */
+    private static String getLabels(int index, Trigger trigger) {
+        StringBuffer labels = new StringBuffer("run=\"" + (index + 1) + "\"");
+        if (trigger != null) {
+            labels.append(",trigger=\"" + escape(JsonReport.getTriggerLiteral(trigger)) + "\"");
+        }
+        return labels.toString();
+    }
+
+    /**
+     * @param writer
+     *            The metrics writer.
+     * @param name
+     *            The metric family name.
+     * @param type
+     *            The metric type.
+     * @param unit
+     *            The metric unit, or null.
+     * @param help
+     *            The metric description.
+     * @throws IOException
+     *             if the metrics cannot be written.
+     */
+    private static void writeFamily(Writer writer, String name, String type, String unit, String help)
+            throws IOException {
+        writer.write("# TYPE " + name + " " + type + "\n");
+        if (unit != null) {
+            writer.write("# UNIT " + name + " " + unit + "\n");
+        }
+        writer.write("# HELP " + name + " " + help + "\n");
+    }
+
+    /**
+     * @param writer
+     *            The metrics writer.
+     * @param name
+     *            The sample name.
+     * @param labels
+     *            The sample labels (without braces).
+     * @param value
+     *            The sample value.
+     * @throws IOException
+     *             if the metrics cannot be written.
+     */
+    private static void writeSample(Writer writer, String name, String labels, String value) throws IOException {
+        writer.write(name + "{" + labels + "} " + value + "\n");
+    }
+
+    /**
+     * @param writer
+     *            The metrics writer.
+     * @param labels
+     *            The histogram labels (without braces).
+     * @param histogram
+     *            The pause histogram.
+     * @param pauseTotal
+     *            The pause time total (milliseconds).
+     * @throws IOException
+     *             if the metrics cannot be written.
+     */
+    private static void writeHistogram(Writer writer, String labels, long[] buckets, long pauseTotal)
+            throws IOException {
+        for (int i = 0; i < PAUSE_BUCKETS.length; i++) {
+            writeSample(writer, "vmcat_safepoint_pause_seconds_bucket",
+                    labels + ",le=\"" + getBound(PAUSE_BUCKETS[i]) + "\"", Long.toString(buckets[i]));
+        }
+        long count = buckets[PAUSE_BUCKETS.length];
+        writeSample(writer, "vmcat_safepoint_pause_seconds_bucket", labels + ",le=\"+Inf\"", Long.toString(count));
+        writeSample(writer, "vmcat_safepoint_pause_seconds_count", labels, Long.toString(count));
+        writeSample(writer, "vmcat_safepoint_pause_seconds_sum", labels, getSeconds(pauseTotal));
+    }
+
+    /**
+     * @param histogram
+     *            The pause histogram.
+     * @return The cumulative count for each pause histogram bucket upper bound, followed by the total count.
+     */
+    private static long[] getBuckets(PauseHistogram histogram) {
+        long[] buckets = new long[PAUSE_BUCKETS.length + 1];
+        long cumulative = 0;
+        int bucket = 0;
+        for (int i = 0; i < PAUSE_BUCKETS.length; i++) {
+            while (bucket < PauseHistogram.BUCKET_COUNT && PauseHistogram.getBucketMax(bucket) <= PAUSE_BUCKETS[i]) {
+                cumulative = cumulative + histogram.getBucketCount(bucket);
+                bucket++;
+            }
+            buckets[i] = cumulative;
+        }
+        buckets[PAUSE_BUCKETS.length] = histogram.getCount();
+        return buckets;
+    }
+
+    /**
+     * The metric values of a JVM run, without the bottleneck lines and sketches of the <code>JvmRun</code>.
+     */
+    private static final class RunMetrics {
+
+        /**
+         * The safepoint event summaries.
+         */
+        private List<SafepointEventSummary> summaries;
+
+        /**
+         * The cumulative pause histogram bucket counts (<code>getBuckets</code>) for each trigger.
+         */
+        private Map<Trigger, long[]> buckets;
+
+        /**
+         * The time to safepoint summaries, or an empty list if there are no safepoint events.
+         */
+        private List<TimeToSafepointSummary> timeToSafepointSummaries;
+
+        /**
+         * The safepoint pause time in safepoint storms (milliseconds).
+         */
+        private long stormPauseTotal;
+
+        /**
+         * The JVM run duration (milliseconds).
+         */
+        private long jvmRunDuration;
+
+        /**
+         * The throughput (percent).
+         */
+        private long throughput;
+
+        private RunMetrics(JvmRun jvmRun) {
+            summaries = getSummaries(jvmRun);
+            buckets = new EnumMap<Trigger, long[]>(Trigger.class);
+            Map<Trigger, PauseHistogram> histograms = jvmRun.getTriggerPauseHistograms();
+            if (histograms != null) {
+                Iterator<Map.Entry<Trigger, PauseHistogram>> iterator = histograms.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<Trigger, PauseHistogram> entry = iterator.next();
+                    buckets.put(entry.getKey(), getBuckets(entry.getValue()));
+                }
+            }
+            if (jvmRun.getSafepointEventCount() == 0) {
+                timeToSafepointSummaries = Collections.emptyList();
+            } else {
+                timeToSafepointSummaries = jvmRun.getTimeToSafepointSummaries();
+            }
+            stormPauseTotal = jvmRun.getStormPauseTotal();
+            jvmRunDuration = jvmRun.getJvmRunDuration();
+            throughput = jvmRun.getThroughput();
+        }
+    }
+}
@@ -0,0 +1,299 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.github.vmcat.domain.Fleet;
+import org.github.vmcat.domain.JvmRunSummary;
+import org.github.vmcat.domain.jdk.PauseHistogram;
+import org.github.vmcat.domain.jdk.PauseTimeline;
+import org.github.vmcat.domain.jdk.SafepointEventSummary;
+import org.github.vmcat.util.Constants;
+import org.github.vmcat.util.jdk.Safepoint;
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.json.JSONWriter;
+
+/**
+ * <p>
+ * A partial result: the mergeable summaries of a shard of vm logs analyzed separately (e.g. in another process or on
+ * another machine), saved as versioned JSON. Partial results are merged into a <code>Fleet</code> with the same
+ * result as analyzing all the vm logs in one process.
+ * </p>
+ * 
+ * <p>
+ * A partial result holds one <code>JvmRunSummary</code> per configuration: counts, totals, per-trigger summaries and
+ * pause histograms, the pause histogram (non-empty buckets), the pause timeline (non-empty buckets), the most pause
+ * time in each minimum mutator utilization window size, and the longest safepoints.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class PartialResult {
+
+    /**
+     * Identifies the file as a partial result.
+     */
+    public static final String FORMAT = "vmcat-partial";
+
+    /**
+     * The partial result format version. Partial results with a different version cannot be merged.
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * Make default constructor private so the class cannot be instantiated.
+     */
+    private PartialResult() {
+
+    }
+
+    /**
+     * Save a fleet as a partial result.
+     * 
+     * @param fleet
+     *            The fleet summary.
+     * @param file
+     *            The partial result file.
+     * @throws IOException
+     *             if the file cannot be written.
+     */
+    public static void write(Fleet fleet, File file) throws IOException {
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8));
+        try {
+            JSONWriter json = new JSONWriter(writer);
+            json.object();
+            json.key("format").value(FORMAT);
+            json.key("version").value(VERSION);
+            json.key("logFileCount").value(fleet.getLogFileCount());
+            json.key("configurations").array();
+            Iterator<JvmRunSummary> iterator = fleet.getConfigurations().iterator();
+            while (iterator.hasNext()) {
+                writeSummary(json, iterator.next());
+            }
+            json.endArray();
+            json.endObject();
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Merge a partial result into a fleet.
+     * 
+     * @param file
+     *            The partial result file.
+     * @param fleet
+     *            The fleet summary to merge into.
+     * @throws IOException
+     *             if the file cannot be read or is not a partial result with the supported version.
+     */
+    public static void read(File file, Fleet fleet) throws IOException {
+        JSONObject partial;
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+        try {
+            partial = new JSONObject(new JSONTokener(reader));
+        } catch (JSONException e) {
+            throw new IOException("Invalid partial result " + file.getPath() + ": " + e.getMessage());
+        } finally {
+            reader.close();
+        }
+        if (!FORMAT.equals(partial.optString("format")) || partial.optInt("version") != VERSION) {
+            throw new IOException("Unsupported partial result " + file.getPath() + ": format "
+                    + partial.opt("format") + " version " + partial.opt("version"));
+        }
+        fleet.setLogFileCount(fleet.getLogFileCount() + partial.getLong("logFileCount"));
+        JSONArray configurations = partial.getJSONArray("configurations");
+        for (int i = 0; i < configurations.length(); i++) {
+            fleet.add(readSummary(configurations.getJSONObject(i)));
+        }
+    }
+
+    /**
+     * @param json
+     *            The partial result writer.
+     * @param summary
+     *            The summary to write.
+     */
+    private static void writeSummary(JSONWriter json, JvmRunSummary summary) {
+        json.object();
+        json.key("version").value(summary.getVersion());
+        json.key("options").value(summary.getOptions());
+        json.key("jvmRunCount").value(summary.getJvmRunCount());
+        json.key("safepointEventCount").value(summary.getSafepointEventCount());
+        json.key("safepointTotalPause").value(summary.getSafepointTotalPause());
+        json.key("maxPause").value(summary.getMaxPause());
+        json.key("duration").value(summary.getDuration());
+        json.key("safepointStormCount").value(summary.getSafepointStormCount());
+        json.key("triggers").array();
+        Iterator<SafepointEventSummary> iterator = summary.getSafepointEventSummaries().iterator();
+        while (iterator.hasNext()) {
+            SafepointEventSummary triggerSummary = iterator.next();
+            json.array();
+            json.value(triggerSummary.getTrigger().name());
+            json.value(triggerSummary.getCount());
+            json.value(triggerSummary.getPauseTotal());
+            json.value(triggerSummary.getPauseMax());
+            json.endArray();
+        }
+        json.endArray();
+        json.key("histogram");
+        writeHistogram(json, summary.getPauseHistogram());
+        json.key("triggerHistograms").object();
+        Iterator<Map.Entry<Trigger, PauseHistogram>> histograms = summary.getTriggerPauseHistograms().entrySet()
+                .iterator();
+        while (histograms.hasNext()) {
+            Map.Entry<Trigger, PauseHistogram> entry = histograms.next();
+            if (entry.getValue().getCount() > 0) {
+                json.key(entry.getKey().name());
+                writeHistogram(json, entry.getValue());
+            }
+        }
+        json.endObject();
+        json.key("mmu").object();
+        json.key("windows").array();
+        for (int i = 0; i < Constants.MMU_WINDOWS.length; i++) {
+            json.value(Constants.MMU_WINDOWS[i]);
+        }
+        json.endArray();
+        json.key("maxPauses").array();
+        for (int i = 0; i < Constants.MMU_WINDOWS.length; i++) {
+            json.value(summary.getWindowMaxPauses()[i]);
+        }
+        json.endArray();
+        json.endObject();
+        PauseTimeline timeline = summary.getPauseTimeline();
+        json.key("timeline").object();
+        json.key("bucketWidth").value(timeline.getBucketWidth());
+        json.key("buckets").array();
+        for (int i = 0; i < timeline.size(); i++) {
+            if (timeline.getCount(i) > 0) {
+                json.array().value(i).value(timeline.getCount(i)).value(timeline.getPause(i)).endArray();
+            }
+        }
+        json.endArray();
+        json.endObject();
+        json.key("topSafepointEvents");
+        Checkpoint.saveSafepointEvents(json, summary.getTopSafepointEvents().getEvents().iterator());
+        json.endObject();
+    }
+
+    /**
+     * @param json
+     *            The partial result writer.
+     * @param histogram
+     *            The histogram to write (non-empty buckets only).
+     */
+    private static void writeHistogram(JSONWriter json, PauseHistogram histogram) {
+        json.object();
+        json.key("max").value(histogram.getMax());
+        json.key("buckets").array();
+        for (int i = 0; i < PauseHistogram.BUCKET_COUNT; i++) {
+            if (histogram.getBucketCount(i) > 0) {
+                json.array().value(i).value(histogram.getBucketCount(i)).endArray();
+            }
+        }
+        json.endArray();
+        json.endObject();
+    }
+
+    /**
+     * @param json
+     *            The saved histogram.
+     * @param histogram
+     *            The histogram to add the saved counts to.
+     */
+    private static void readHistogram(JSONObject json, PauseHistogram histogram) {
+        long max = Math.max(histogram.getMax(), json.getLong("max"));
+        JSONArray buckets = json.getJSONArray("buckets");
+        for (int i = 0; i < buckets.length(); i++) {
+            JSONArray bucket = buckets.getJSONArray(i);
+            histogram.addBucketCount(bucket.getInt(0), bucket.getLong(1));
+        }
+        histogram.setMax(max);
+    }
+
+    /**
+     * @param json
+     *            The saved summary.
+     * @return The summary.
+     * @throws IOException
+     *             if the summary is not compatible.
+     */
+    private static JvmRunSummary readSummary(JSONObject json) throws IOException {
+        JvmRunSummary summary = new JvmRunSummary(json.isNull("version") ? null : json.getString("version"),
+                json.isNull("options") ? null : json.getString("options"));
+        summary.setJvmRunCount(json.getLong("jvmRunCount"));
+        summary.setSafepointEventCount(json.getLong("safepointEventCount"));
+        summary.setSafepointTotalPause(json.getLong("safepointTotalPause"));
+        summary.setMaxPause(json.getLong("maxPause"));
+        summary.setDuration(json.getLong("duration"));
+        summary.setSafepointStormCount(json.getLong("safepointStormCount"));
+        JSONArray triggers = json.getJSONArray("triggers");
+        for (int i = 0; i < triggers.length(); i++) {
+            JSONArray trigger = triggers.getJSONArray(i);
+            summary.addSafepointEventSummary(new SafepointEventSummary(Safepoint.identifyTrigger(trigger.getString(0)),
+                    trigger.getLong(1), trigger.getLong(2), trigger.getInt(3)));
+        }
+        readHistogram(json.getJSONObject("histogram"), summary.getPauseHistogram());
+        JSONObject triggerHistograms = json.getJSONObject("triggerHistograms");
+        Iterator<String> triggerNames = triggerHistograms.keys();
+        while (triggerNames.hasNext()) {
+            String triggerName = triggerNames.next();
+            readHistogram(triggerHistograms.getJSONObject(triggerName),
+                    summary.getTriggerPauseHistogram(Safepoint.identifyTrigger(triggerName)));
+        }
+        JSONObject mmu = json.getJSONObject("mmu");
+        JSONArray windows = mmu.getJSONArray("windows");
+        JSONArray maxPauses = mmu.getJSONArray("maxPauses");
+        long[] windowMaxPauses = new long[Constants.MMU_WINDOWS.length];
+        for (int i = 0; i < windowMaxPauses.length; i++) {
+            if (windows.length() != windowMaxPauses.length || windows.getLong(i) != Constants.MMU_WINDOWS[i]) {
+                throw new IOException("Unsupported mmu windows: " + windows);
+            }
+            windowMaxPauses[i] = maxPauses.getLong(i);
+        }
+        summary.addWindowMaxPauses(windowMaxPauses);
+        JSONObject timeline = json.getJSONObject("timeline");
+        if (timeline.getLong("bucketWidth") != summary.getPauseTimeline().getBucketWidth()) {
+            throw new IOException("Unsupported timeline bucket width: " + timeline.getLong("bucketWidth"));
+        }
+        JSONArray buckets = timeline.getJSONArray("buckets");
+        for (int i = 0; i < buckets.length(); i++) {
+            JSONArray bucket = buckets.getJSONArray(i);
+            summary.getPauseTimeline().add(bucket.getInt(0), bucket.getLong(1), bucket.getLong(2));
+        }
+        summary.addTopSafepointEvents(Checkpoint.restoreSafepointEvents(json.getJSONArray("topSafepointEvents")));
+        return summary;
+    }
+}
@@ -0,0 +1,274 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.github.vmcat.util.jdk.JdkUtil.LogEventType;
+
+/**
+ * <p>
+ * Self-instrumentation (<code>--stats</code>): wall time, CPU time and bytes allocated for each analysis phase, and
+ * line counts by <code>LogEventType</code> and bytes read, to see where the time goes on a slow vm log.
+ * </p>
+ * 
+ * <p>
+ * Phases are timed as laps on the thread doing the analysis: each call to <code>lap(Phase)</code> charges the time
+ * since the previous lap to the phase. CPU time and allocation come from the <code>ThreadMXBean</code> and are 0 if
+ * the JVM does not support them. Timing every line costs a few hundred nanoseconds a line, so it is only done with
+ * <code>--stats</code>.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class PhaseStats {
+
+    /**
+     * Analysis phases.
+     */
+    public enum Phase {
+        /**
+         * Reading (and merging) vm log lines.
+         */
+        READ,
+        /**
+         * Identifying the <code>LogEventType</code> of a line.
+         */
+        CLASSIFY,
+        /**
+         * Creating the <code>LogEvent</code> for a line.
+         */
+        PARSE,
+        /**
+         * Storing events (reordering, storm detection, data store inserts).
+         */
+        STORE,
+        /**
+         * Data store queries and summaries for the report.
+         */
+        AGGREGATE,
+        /**
+         * Throughput bottleneck analysis.
+         */
+        BOTTLENECKS,
+        /**
+         * Writing the report.
+         */
+        RENDER
+    };
+
+    /**
+     * The thread management bean.
+     */
+    private final ThreadMXBean threadMXBean;
+
+    /**
+     * The thread management bean for allocation, or null if thread allocation is not supported.
+     */
+    private final com.sun.management.ThreadMXBean allocationMXBean;
+
+    /**
+     * Whether thread CPU time is supported and enabled.
+     */
+    private final boolean cpuTimeEnabled;
+
+    /**
+     * Wall time (nanoseconds) of the last lap.
+     */
+    private long markWallTime;
+
+    /**
+     * CPU time (nanoseconds) of the last lap.
+     */
+    private long markCpuTime;
+
+    /**
+     * Bytes allocated by the thread at the last lap.
+     */
+    private long markAllocated;
+
+    /**
+     * Wall time (nanoseconds) for each phase, indexed by <code>Phase</code> ordinal.
+     */
+    private final long[] wallTimes = new long[Phase.values().length];
+
+    /**
+     * CPU time (nanoseconds) for each phase, indexed by <code>Phase</code> ordinal.
+     */
+    private final long[] cpuTimes = new long[Phase.values().length];
+
+    /**
+     * Bytes allocated for each phase, indexed by <code>Phase</code> ordinal.
+     */
+    private final long[] allocations = new long[Phase.values().length];
+
+    /**
+     * Line counts, indexed by <code>LogEventType</code> ordinal.
+     */
+    private final long[] lineCounts = new long[LogEventType.values().length];
+
+    /**
+     * The number of lines read, including lines inside multi-line sections that are not classified.
+     */
+    private long lineCount;
+
+    /**
+     * Bytes read (line characters plus the line terminator).
+     */
+    private long bytesRead;
+
+    /**
+     * Create stats, starting the first lap.
+     */
+    public PhaseStats() {
+        threadMXBean = ManagementFactory.getThreadMXBean();
+        cpuTimeEnabled = threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemoryEnabled()) {
+            allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        } else {
+            allocationMXBean = null;
+        }
+        mark();
+    }
+
+    /**
+     * Start a lap without charging the time since the last lap to any phase (e.g. idle time between phases).
+     */
+    public void mark() {
+        markWallTime = System.nanoTime();
+        markCpuTime = cpuTimeEnabled ? threadMXBean.getCurrentThreadCpuTime() : 0;
+        markAllocated = allocationMXBean != null
+                ? allocationMXBean.getThreadAllocatedBytes(Thread.currentThread().getId())
+                : 0;
+    }
+
+    /**
+     * Charge the time and allocation since the last lap to a phase, and start the next lap.
+     * 
+     * @param phase
+     *            The phase.
+     */
+    public void lap(Phase phase) {
+        long wallTime = markWallTime;
+        long cpuTime = markCpuTime;
+        long allocated = markAllocated;
+        mark();
+        int i = phase.ordinal();
+        wallTimes[i] = wallTimes[i] + markWallTime - wallTime;
+        cpuTimes[i] = cpuTimes[i] + markCpuTime - cpuTime;
+        allocations[i] = allocations[i] + markAllocated - allocated;
+    }
+
+    /**
+     * Count a line read.
+     * 
+     * @param logLine
+     *            The log line.
+     */
+    public void addLine(String logLine) {
+        lineCount++;
+        bytesRead = bytesRead + logLine.length() + 1;
+    }
+
+    /**
+     * Count a classified line.
+     * 
+     * @param eventType
+     *            The line <code>LogEventType</code>.
+     */
+    public void addLine(LogEventType eventType) {
+        lineCounts[eventType.ordinal()]++;
+    }
+
+    public boolean isCpuTimeEnabled() {
+        return cpuTimeEnabled;
+    }
+
+    public boolean isAllocationEnabled() {
+        return allocationMXBean != null;
+    }
+
+    /**
+     * @param phase
+     *            The phase.
+     * @return The phase wall time (nanoseconds).
+     */
+    public long getWallTime(Phase phase) {
+        return wallTimes[phase.ordinal()];
+    }
+
+    /**
+     * @param phase
+     *            The phase.
+     * @return The phase CPU time (nanoseconds).
+     */
+    public long getCpuTime(Phase phase) {
+        return cpuTimes[phase.ordinal()];
+    }
+
+    /**
+     * @param phase
+     *            The phase.
+     * @return The bytes allocated in the phase.
+     */
+    public long getAllocated(Phase phase) {
+        return allocations[phase.ordinal()];
+    }
+
+    /**
+     * @param eventType
+     *            The <code>LogEventType</code>.
+     * @return The number of lines classified as the <code>LogEventType</code>.
+     */
+    public long getLineCount(LogEventType eventType) {
+        return lineCounts[eventType.ordinal()];
+    }
+
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return The wall time (nanoseconds) reading and storing the vm log (read, classify, parse and store).
+     */
+    public long getIngestWallTime() {
+        return wallTimes[Phase.READ.ordinal()] + wallTimes[Phase.CLASSIFY.ordinal()]
+                + wallTimes[Phase.PARSE.ordinal()] + wallTimes[Phase.STORE.ordinal()];
+    }
+
+    /**
+     * @return Lines read per second of ingest wall time.
+     */
+    public long getLinesPerSecond() {
+        long ingestWallTime = getIngestWallTime();
+        return ingestWallTime > 0 ? (long) (lineCount * 1e9 / ingestWallTime) : 0;
+    }
+
+    /**
+     * @return Bytes read per second of ingest wall time.
+     */
+    public long getBytesPerSecond() {
+        long ingestWallTime = getIngestWallTime();
+        return ingestWallTime > 0 ? (long) (bytesRead * 1e9 / ingestWallTime) : 0;
+    }
+}
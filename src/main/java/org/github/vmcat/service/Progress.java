@@ -0,0 +1,290 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * Progress reporting (<code>--progress</code>) for large vm logs: bytes processed of the total, current lines per
+ * second, safepoint events stored and the estimated time remaining, printed to a stream (stderr) about once a second.
+ * </p>
+ * 
+ * <p>
+ * The analysis threads only add to counters (<code>LongAdder</code>, so concurrent batch jobs do not contend); a
+ * daemon thread reads them and prints, so the report interval does not depend on (or slow) parsing.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class Progress {
+
+    /**
+     * Milliseconds between reports.
+     */
+    public static final long INTERVAL = 1000;
+
+    /**
+     * Where progress is printed.
+     */
+    private PrintStream out;
+
+    /**
+     * Whether to overwrite the report line with a carriage return (interactive console) instead of printing a line
+     * for each report.
+     */
+    private boolean overwrite;
+
+    /**
+     * The total bytes to process, or 0 if not known.
+     */
+    private long totalBytes;
+
+    /**
+     * Bytes processed (line characters plus the line terminator).
+     */
+    private final LongAdder bytes = new LongAdder();
+
+    /**
+     * Bytes skipped (e.g. already parsed before a checkpoint), counted as processed but not in the rate.
+     */
+    private final LongAdder skippedBytes = new LongAdder();
+
+    /**
+     * Lines processed.
+     */
+    private final LongAdder lines = new LongAdder();
+
+    /**
+     * Safepoint events stored.
+     */
+    private final LongAdder events = new LongAdder();
+
+    /**
+     * The start time (milliseconds).
+     */
+    private long startTime;
+
+    /**
+     * The time (milliseconds) of the last report.
+     */
+    private long lastTime;
+
+    /**
+     * The number of lines processed at the last report.
+     */
+    private long lastLines;
+
+    /**
+     * The reporter thread.
+     */
+    private Thread reporter;
+
+    /**
+     * Whether or not reporting has stopped.
+     */
+    private volatile boolean closed;
+
+    /**
+     * @param out
+     *            Where progress is printed.
+     * @param totalBytes
+     *            The total bytes to process, or 0 if not known.
+     */
+    public Progress(PrintStream out, long totalBytes) {
+        this.out = out;
+        this.totalBytes = totalBytes;
+        overwrite = System.console() != null;
+    }
+
+    /**
+     * Start reporting.
+     */
+    public void start() {
+        startTime = System.currentTimeMillis();
+        lastTime = startTime;
+        reporter = new Thread(new Runnable() {
+            public void run() {
+                report();
+            }
+        }, "vmcat-progress");
+        reporter.setDaemon(true);
+        reporter.start();
+    }
+
+    /**
+     * Print progress every interval until closed.
+     */
+    private void report() {
+        synchronized (this) {
+            while (!closed) {
+                try {
+                    wait(INTERVAL);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (!closed) {
+                    print(System.currentTimeMillis(), false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop reporting, printing the final progress.
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+            if (startTime > 0) {
+                print(System.currentTimeMillis(), true);
+            }
+        }
+    }
+
+    /**
+     * @param now
+     *            The current time (milliseconds).
+     * @param last
+     *            Whether this is the final report.
+     */
+    private void print(long now, boolean last) {
+        String line = getLine(now);
+        if (overwrite) {
+            out.print("\r" + line + (last ? System.getProperty("line.separator") : ""));
+        } else {
+            out.println(line);
+        }
+        out.flush();
+    }
+
+    /**
+     * Count a line processed.
+     * 
+     * @param logLine
+     *            The log line.
+     */
+    public void addLine(String logLine) {
+        lines.increment();
+        bytes.add(logLine.length() + 1);
+    }
+
+    /**
+     * Count a safepoint event stored.
+     */
+    public void addEvent() {
+        events.increment();
+    }
+
+    /**
+     * Count bytes that do not need processing (e.g. parsed before a checkpoint).
+     * 
+     * @param skipped
+     *            The number of bytes.
+     */
+    public void skip(long skipped) {
+        skippedBytes.add(skipped);
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return The bytes processed, including bytes skipped.
+     */
+    public long getBytes() {
+        return bytes.sum() + skippedBytes.sum();
+    }
+
+    public long getLines() {
+        return lines.sum();
+    }
+
+    public long getEvents() {
+        return events.sum();
+    }
+
+    /**
+     * Get the progress line, and start the next lines per second interval.
+     * 
+     * @param now
+     *            The current time (milliseconds).
+     * @return The progress line (e.g. "1.2 GB of 20.0 GB (6%), 350000 lines/s, 1234567 events, ETA 0:05:12"), with
+     *         "analyzing" instead of the estimate once all bytes are read.
+     */
+    synchronized String getLine(long now) {
+        long processed = bytes.sum();
+        long skipped = skippedBytes.sum();
+        long lineCount = lines.sum();
+        StringBuilder line = new StringBuilder("vmcat: ");
+        line.append(getSizeString(processed + skipped));
+        if (totalBytes > 0) {
+            line.append(" of ");
+            line.append(getSizeString(totalBytes));
+            line.append(" (");
+            line.append(Math.min(100, (processed + skipped) * 100 / totalBytes));
+            line.append("%)");
+        }
+        line.append(", ");
+        line.append(now > lastTime ? (lineCount - lastLines) * 1000 / (now - lastTime) : 0);
+        line.append(" lines/s, ");
+        line.append(events.sum());
+        line.append(" events");
+        long elapsed = now - startTime;
+        if (totalBytes > 0 && processed + skipped >= totalBytes) {
+            // Reading done, summarizing and reporting
+            line.append(", analyzing");
+        } else if (totalBytes > 0 && processed > 0 && elapsed > 0) {
+            // Average rate since the start, so the estimate is stable
+            long remaining = Math.max(0, totalBytes - processed - skipped);
+            line.append(", ETA ");
+            line.append(getDurationString((long) ((double) remaining * elapsed / processed)));
+        }
+        lastTime = now;
+        lastLines = lineCount;
+        return line.toString();
+    }
+
+    /**
+     * @param bytes
+     *            A number of bytes.
+     * @return The size in KB, MB or GB with one decimal (e.g. "1.2 GB").
+     */
+    static String getSizeString(long bytes) {
+        if (bytes < 1024 * 1024) {
+            return (bytes * 10 / 1024) / 10.0 + " KB";
+        } else if (bytes < 1024L * 1024 * 1024) {
+            return (bytes * 10 / (1024 * 1024)) / 10.0 + " MB";
+        }
+        return (bytes * 10 / (1024L * 1024 * 1024)) / 10.0 + " GB";
+    }
+
+    /**
+     * @param millis
+     *            A duration (milliseconds).
+     * @return The duration as hours, minutes and seconds (e.g. "0:05:12").
+     */
+    static String getDurationString(long millis) {
+        long secs = (millis + 999) / 1000;
+        return String.format("%d:%02d:%02d", secs / 3600, secs / 60 % 60, secs % 60);
+    }
+}
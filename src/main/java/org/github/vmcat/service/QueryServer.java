@@ -0,0 +1,561 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.github.vmcat.domain.Jvm;
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.domain.jdk.PauseHistogram;
+import org.github.vmcat.domain.jdk.PauseTimeline;
+import org.github.vmcat.domain.jdk.SafepointEventSummary;
+import org.github.vmcat.util.Constants;
+import org.github.vmcat.util.jdk.Safepoint;
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
+import org.json.JSONWriter;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * <p>
+ * Local HTTP query service. Parsed <code>JvmRun</code>s are kept in a <code>JvmRunCache</code>, so repeated queries
+ * pay neither JVM startup nor parsing. Requests:
+ * </p>
+ * 
+ * <ul>
+ * <li><code>GET /summary?path=FILE</code>: JSON summary of each JVM run.</li>
+ * <li><code>GET /timeline?path=FILE</code>: JSON pause timeline (count and pause time by uptime hour) of each JVM
+ * run.</li>
+ * <li><code>GET /percentiles?path=FILE&amp;p=50,99</code>: JSON pause percentiles (milliseconds) of each JVM run, all
+ * safepoints and by trigger.</li>
+ * <li><code>GET /report?path=FILE&amp;format=text</code>: the report (<code>text</code>, <code>json</code>,
+ * <code>csv</code> or <code>html</code>).</li>
+ * <li><code>POST /upload</code>: parse the vm log in the request body, and respond with the summary and an id to use
+ * instead of the path (<code>?id=ID</code>) in the other requests.</li>
+ * <li><code>GET /stats</code>: JSON cache statistics.</li>
+ * </ul>
+ * 
+ * <p>
+ * A vm log path is cached by its canonical path, size and modification time, so a changed vm log is parsed again.
+ * Uploads are cached by content digest and are not kept on disk.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class QueryServer {
+
+    /**
+     * Writes the text report for JVM runs.
+     */
+    public interface ReportWriter {
+
+        /**
+         * @param printWriter
+         *            The report writer.
+         * @param jvmRuns
+         *            The JVM runs.
+         */
+        void write(PrintWriter printWriter, List<JvmRun> jvmRuns);
+    }
+
+    /**
+     * The HTTP server.
+     */
+    private HttpServer server;
+
+    /**
+     * The request threads.
+     */
+    private ExecutorService executor;
+
+    /**
+     * The parsed JVM runs.
+     */
+    private JvmRunCache cache;
+
+    /**
+     * Writes the text report.
+     */
+    private ReportWriter reportWriter;
+
+    /**
+     * Throughput threshold for bottleneck reporting.
+     */
+    private int throughputThreshold = Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD;
+
+    /**
+     * The number of safepoints per second for a single <code>Trigger</code> at or above which a safepoint storm is
+     * reported.
+     */
+    private int stormRateThreshold = Constants.DEFAULT_STORM_RATE_THRESHOLD;
+
+    /**
+     * The percent of time in safepoint at or above which a safepoint storm is reported.
+     */
+    private int stormTimeShareThreshold = Constants.DEFAULT_STORM_TIME_SHARE_THRESHOLD;
+
+    /**
+     * The maximum time (milliseconds) a safepoint event can be logged after a later event and be put in order.
+     */
+    private long reorderHorizon = Constants.DEFAULT_REORDER_HORIZON;
+
+    /**
+     * Default constructor.
+     * 
+     * @param address
+     *            The address to listen on.
+     * @param cacheLimit
+     *            The cache memory limit (estimated bytes).
+     * @param threads
+     *            The number of request threads.
+     * @param reportWriter
+     *            Writes the text report.
+     * @throws IOException
+     *             if the address cannot be bound.
+     */
+    public QueryServer(InetSocketAddress address, long cacheLimit, int threads, ReportWriter reportWriter)
+            throws IOException {
+        this.reportWriter = reportWriter;
+        cache = new JvmRunCache(cacheLimit);
+        server = HttpServer.create(address, 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    QueryServer.this.handle(exchange);
+                } catch (RuntimeException e) {
+                    sendError(exchange, 500, e.toString());
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+    }
+
+    public void setThroughputThreshold(int throughputThreshold) {
+        this.throughputThreshold = throughputThreshold;
+    }
+
+    /**
+     * @param rateThreshold
+     *            The number of safepoints per second for a single <code>Trigger</code> at or above which a safepoint
+     *            storm is reported.
+     * @param timeShareThreshold
+     *            The percent of time in safepoint at or above which a safepoint storm is reported.
+     */
+    public void setStormThresholds(int rateThreshold, int timeShareThreshold) {
+        this.stormRateThreshold = rateThreshold;
+        this.stormTimeShareThreshold = timeShareThreshold;
+    }
+
+    public void setReorderHorizon(long reorderHorizon) {
+        this.reorderHorizon = reorderHorizon;
+    }
+
+    public JvmRunCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @return The port listened on.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Start answering requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop answering requests.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    /**
+     * @param exchange
+     *            The request and response.
+     * @throws IOException
+     *             if the response cannot be sent.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        Map<String, String> parameters = getParameters(exchange.getRequestURI().getRawQuery());
+        if (path.equals("/stats")) {
+            Writer writer = startJson(exchange, 200);
+            JSONWriter json = new JSONWriter(writer);
+            json.object();
+            json.key("entries").value(cache.getEntryCount());
+            json.key("size").value(cache.getSize());
+            json.key("limit").value(cache.getLimit());
+            json.key("hits").value(cache.getHits());
+            json.key("misses").value(cache.getMisses());
+            json.key("evictions").value(cache.getEvictions());
+            json.endObject();
+            writer.close();
+            return;
+        }
+        String id = null;
+        List<JvmRun> jvmRuns;
+        if (path.equals("/upload")) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                sendError(exchange, 405, "Upload requires POST");
+                return;
+            }
+            File logFile = File.createTempFile("vmcat", ".log");
+            try {
+                id = saveUpload(exchange.getRequestBody(), logFile);
+                jvmRuns = cache.get(id, "");
+                if (jvmRuns == null) {
+                    jvmRuns = parse(logFile);
+                    cache.put(id, "", jvmRuns);
+                }
+            } finally {
+                logFile.delete();
+            }
+            path = "/summary";
+        } else if (parameters.containsKey("id")) {
+            id = parameters.get("id");
+            jvmRuns = cache.get(id, "");
+            if (jvmRuns == null) {
+                sendError(exchange, 404, "Unknown id (never uploaded or evicted): " + id);
+                return;
+            }
+        } else if (parameters.containsKey("path")) {
+            File logFile = new File(parameters.get("path"));
+            if (!logFile.isFile()) {
+                sendError(exchange, 404, "Invalid file: " + logFile.getPath());
+                return;
+            }
+            jvmRuns = getJvmRuns(logFile);
+        } else {
+            sendError(exchange, 400, "Missing path or id");
+            return;
+        }
+        if (path.equals("/report")) {
+            String format = parameters.containsKey("format") ? parameters.get("format") : Constants.FORMAT_TEXT;
+            if (format.equals(Constants.FORMAT_JSON)) {
+                Writer writer = startJson(exchange, 200);
+                JsonReport.write(writer, jvmRuns, null);
+                writer.close();
+                return;
+            }
+            if (format.equals(Constants.FORMAT_CSV)) {
+                exchange.getResponseHeaders().set("Content-Type", "text/csv; charset=UTF-8");
+            } else if (format.equals(Constants.FORMAT_HTML)) {
+                exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+            } else if (format.equals(Constants.FORMAT_TEXT)) {
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+            } else {
+                sendError(exchange, 400, "Invalid format: " + format);
+                return;
+            }
+            exchange.sendResponseHeaders(200, 0);
+            PrintWriter printWriter = new PrintWriter(
+                    new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+            if (format.equals(Constants.FORMAT_CSV)) {
+                CsvReport.write(printWriter, jvmRuns, null);
+            } else if (format.equals(Constants.FORMAT_HTML)) {
+                HtmlReport.write(printWriter, jvmRuns, null);
+            } else {
+                reportWriter.write(printWriter, jvmRuns);
+            }
+            printWriter.close();
+            return;
+        }
+        if (!path.equals("/summary") && !path.equals("/timeline") && !path.equals("/percentiles")) {
+            sendError(exchange, 404, "Unknown request: " + path);
+            return;
+        }
+        String[] percentiles = (parameters.containsKey("p") ? parameters.get("p") : "50,90,99,99.9").split(",");
+        for (int i = 0; i < percentiles.length; i++) {
+            try {
+                double percentile = Double.parseDouble(percentiles[i]);
+                if (percentile < 0 || percentile > 100) {
+                    throw new NumberFormatException();
+                }
+            } catch (NumberFormatException e) {
+                sendError(exchange, 400, "Invalid percentile: " + percentiles[i]);
+                return;
+            }
+        }
+        Writer writer = startJson(exchange, 200);
+        JSONWriter json = new JSONWriter(writer);
+        json.object();
+        if (id != null) {
+            json.key("id").value(id);
+        }
+        json.key("jvmRuns").array();
+        Iterator<JvmRun> iterator = jvmRuns.iterator();
+        while (iterator.hasNext()) {
+            JvmRun jvmRun = iterator.next();
+            json.object();
+            if (path.equals("/summary")) {
+                writeSummary(json, jvmRun);
+            } else if (path.equals("/timeline")) {
+                writeTimeline(json, jvmRun);
+            } else {
+                writePercentiles(json, jvmRun, percentiles);
+            }
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+        writer.close();
+    }
+
+    /**
+     * @param logFile
+     *            The vm log file.
+     * @return The JVM runs, from the cache if the vm log has not changed.
+     * @throws IOException
+     *             if the path cannot be resolved.
+     */
+    private List<JvmRun> getJvmRuns(File logFile) throws IOException {
+        String key = logFile.getCanonicalPath();
+        String version = logFile.length() + ":" + logFile.lastModified();
+        List<JvmRun> jvmRuns = cache.get(key, version);
+        if (jvmRuns == null) {
+            jvmRuns = parse(logFile);
+            cache.put(key, version, jvmRuns);
+        }
+        return jvmRuns;
+    }
+
+    /**
+     * Save an uploaded vm log.
+     * 
+     * @param body
+     *            The vm log.
+     * @param logFile
+     *            The file to save the vm log to.
+     * @return The id (content digest) of the vm log.
+     * @throws IOException
+     *             if the vm log cannot be read or saved.
+     */
+    private static String saveUpload(InputStream body, File logFile) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e.getMessage());
+        }
+        Files.copy(new DigestInputStream(body, digest), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        StringBuilder id = new StringBuilder();
+        byte[] bytes = digest.digest();
+        for (int i = 0; i < bytes.length; i++) {
+            id.append(String.format("%02x", bytes[i]));
+        }
+        return id.toString();
+    }
+
+    /**
+     * @param logFile
+     *            The vm log file.
+     * @return The JVM runs.
+     */
+    private List<JvmRun> parse(File logFile) {
+        Manager manager = new Manager();
+        try {
+            manager.setStormThresholds(stormRateThreshold, stormTimeShareThreshold);
+            manager.setReorderHorizon(reorderHorizon);
+            manager.store(logFile);
+            return manager.getJvmRuns(new Jvm(), throughputThreshold);
+        } finally {
+            manager.close();
+        }
+    }
+
+    /**
+     * @param json
+     *            The response writer.
+     * @param jvmRun
+     *            The JVM run.
+     */
+    private static void writeSummary(JSONWriter json, JvmRun jvmRun) {
+        json.key("version").value(jvmRun.getJvm().getVersion());
+        json.key("options").value(jvmRun.getJvm().getOptions());
+        json.key("safepointEventCount").value(jvmRun.getSafepointEventCount());
+        json.key("safepointTotalPause").value(jvmRun.getSafepointTotalPause());
+        json.key("maxPause").value(jvmRun.getMaxPause());
+        json.key("duration").value(jvmRun.getJvmRunDuration());
+        json.key("throughput").value(jvmRun.getThroughput());
+        json.key("stormCount").value(jvmRun.getSafepointStorms() == null ? 0 : jvmRun.getSafepointStorms().size());
+        json.key("bottleneckTime").value(jvmRun.getBottleneckTime());
+        json.key("triggers").array();
+        if (jvmRun.getSafepointEventSummaries() != null) {
+            Iterator<SafepointEventSummary> iterator = jvmRun.getSafepointEventSummaries().iterator();
+            while (iterator.hasNext()) {
+                SafepointEventSummary summary = iterator.next();
+                json.object();
+                json.key("trigger").value(Safepoint.getTriggerLiteral(summary.getTrigger()));
+                json.key("count").value(summary.getCount());
+                json.key("pauseTotal").value(summary.getPauseTotal());
+                json.key("pauseMax").value(summary.getPauseMax());
+                json.endObject();
+            }
+        }
+        json.endArray();
+    }
+
+    /**
+     * @param json
+     *            The response writer.
+     * @param jvmRun
+     *            The JVM run.
+     */
+    private static void writeTimeline(JSONWriter json, JvmRun jvmRun) {
+        PauseTimeline timeline = jvmRun.getPauseTimeline();
+        json.key("bucketWidth").value(timeline == null ? Constants.PAUSE_TIMELINE_BUCKET_WIDTH
+                : timeline.getBucketWidth());
+        json.key("buckets").array();
+        if (timeline != null) {
+            for (int i = 0; i < timeline.size(); i++) {
+                if (timeline.getCount(i) > 0) {
+                    json.array().value(i).value(timeline.getCount(i)).value(timeline.getPause(i)).endArray();
+                }
+            }
+        }
+        json.endArray();
+    }
+
+    /**
+     * @param json
+     *            The response writer.
+     * @param jvmRun
+     *            The JVM run.
+     * @param percentiles
+     *            The percentiles (0-100).
+     */
+    private static void writePercentiles(JSONWriter json, JvmRun jvmRun, String[] percentiles) {
+        json.key("pause");
+        writePercentiles(json, jvmRun.getPauseHistogram(), percentiles);
+        json.key("triggers").object();
+        if (jvmRun.getTriggerPauseHistograms() != null) {
+            Iterator<Map.Entry<Trigger, PauseHistogram>> iterator = jvmRun.getTriggerPauseHistograms().entrySet()
+                    .iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Trigger, PauseHistogram> entry = iterator.next();
+                json.key(entry.getKey() == Trigger.UNKNOWN ? entry.getKey().name()
+                        : Safepoint.getTriggerLiteral(entry.getKey()));
+                writePercentiles(json, entry.getValue(), percentiles);
+            }
+        }
+        json.endObject();
+    }
+
+    /**
+     * @param json
+     *            The response writer.
+     * @param histogram
+     *            The pause histogram, or null.
+     * @param percentiles
+     *            The percentiles (0-100).
+     */
+    private static void writePercentiles(JSONWriter json, PauseHistogram histogram, String[] percentiles) {
+        json.object();
+        for (int i = 0; i < percentiles.length; i++) {
+            json.key(new BigDecimal(percentiles[i]).stripTrailingZeros().toPlainString());
+            json.value(histogram == null ? 0 : histogram.getValueAtPercentile(Double.parseDouble(percentiles[i])));
+        }
+        json.endObject();
+    }
+
+    /**
+     * @param exchange
+     *            The request and response.
+     * @param status
+     *            The HTTP status code.
+     * @return The response body writer.
+     * @throws IOException
+     *             if the response headers cannot be sent.
+     */
+    private static Writer startJson(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, 0);
+        OutputStream body = exchange.getResponseBody();
+        return new OutputStreamWriter(body, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param exchange
+     *            The request and response.
+     * @param status
+     *            The HTTP status code.
+     * @param message
+     *            The error message.
+     * @throws IOException
+     *             if the response cannot be sent.
+     */
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        Writer writer = startJson(exchange, status);
+        new JSONWriter(writer).object().key("error").value(message).endObject();
+        writer.close();
+    }
+
+    /**
+     * @param query
+     *            The raw (encoded) query string, or null.
+     * @return The query parameters.
+     * @throws UnsupportedEncodingException
+     *             if UTF-8 is not supported.
+     */
+    private static Map<String, String> getParameters(String query) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<String, String>();
+        if (query != null) {
+            String[] pairs = query.split("&");
+            for (int i = 0; i < pairs.length; i++) {
+                int separator = pairs[i].indexOf('=');
+                if (separator > 0) {
+                    parameters.put(URLDecoder.decode(pairs[i].substring(0, separator), "UTF-8"),
+                            URLDecoder.decode(pairs[i].substring(separator + 1), "UTF-8"));
+                }
+            }
+        }
+        return parameters;
+    }
+}
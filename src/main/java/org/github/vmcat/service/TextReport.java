@@ -0,0 +1,591 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.github.vmcat.domain.Jvm;
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.domain.jdk.CalendarRollup;
+import org.github.vmcat.domain.jdk.SafepointEvent;
+import org.github.vmcat.domain.jdk.SafepointEventSummary;
+import org.github.vmcat.domain.jdk.SafepointStorm;
+import org.github.vmcat.domain.jdk.TimeToSafepointSummary;
+import org.github.vmcat.util.Constants;
+import org.github.vmcat.util.VmUtil;
+import org.github.vmcat.util.jdk.Analysis;
+import org.github.vmcat.util.jdk.JdkUtil;
+import org.github.vmcat.util.jdk.Safepoint;
+import org.github.vmcat.util.jdk.Safepoint.Metric;
+import org.github.vmcat.util.jdk.Safepoint.SyncVmopRatio;
+
+/**
+ * <p>
+ * Write the VM Log Analysis report as fixed width text.
+ * </p>
+ * 
+ * <p>
+ * Numbers are formatted with fixed point arithmetic (no <code>BigDecimal</code>), and lines of unbounded count (e.g.
+ * bottlenecks) are written without building a new string for each, so rendering cost is dominated by the writer. Pass
+ * a buffered writer for file output.
+ * </p>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TextReport {
+
+    /**
+     * Make default constructor private so the class cannot be instantiated.
+     */
+    private TextReport() {
+
+    }
+
+    /**
+     * @param writer
+     *            The report writer.
+     * @param jvmRuns
+     *            JVM run data for each JVM run in the log.
+     * @param vmcatVersion
+     *            The vmcat version to report, or null.
+     * @param latestVersion
+     *            The latest vmcat version to report, or null.
+     */
+    public static void write(Writer writer, List<JvmRun> jvmRuns, String vmcatVersion, String latestVersion) {
+        PrintWriter printWriter = writer instanceof PrintWriter ? (PrintWriter) writer : new PrintWriter(writer);
+        if (vmcatVersion != null || latestVersion != null) {
+            printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+            if (vmcatVersion != null) {
+                printWriter.write("Running vmcat version: " + vmcatVersion + System.getProperty("line.separator"));
+            }
+            if (latestVersion != null) {
+                printWriter.write(
+                        "Latest vmcat version/tag: " + latestVersion + System.getProperty("line.separator"));
+            }
+        }
+
+        // The JVM runs summary is collected while writing each JVM run and written last, so each JVM run is retrieved
+        // once (with a memory budget, an evicted JVM run is rebuilt when retrieved).
+        List<String> jvmRunRows = new ArrayList<String>();
+        long safepointEventCount = 0;
+        long safepointTotalPause = 0;
+        int maxPause = 0;
+        for (int i = 0; i < jvmRuns.size(); i++) {
+            JvmRun jvmRun = jvmRuns.get(i);
+            if (jvmRuns.size() > 1) {
+                if (i == 0) {
+                    // Prior runs end with a separator
+                    printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+                }
+                printWriter.write("JVM RUN " + (i + 1) + " OF " + jvmRuns.size() + ":" + Constants.LINE_SEPARATOR);
+            }
+            printJvmRun(printWriter, jvmRun);
+            if (jvmRuns.size() > 1) {
+                jvmRunRows.add(getJvmRunRow(i, jvmRun));
+                safepointEventCount = safepointEventCount + jvmRun.getSafepointEventCount();
+                safepointTotalPause = safepointTotalPause + jvmRun.getSafepointTotalPause();
+                maxPause = Math.max(maxPause, jvmRun.getMaxPause());
+            }
+        }
+        if (jvmRuns.size() > 1) {
+            printJvmRuns(printWriter, jvmRunRows, safepointEventCount, safepointTotalPause, maxPause);
+        }
+        printWriter.flush();
+    }
+
+    /**
+     * Write the phase timing and line stats (<code>--stats</code>) section.
+     * 
+     * @param writer
+     *            The report writer.
+     * @param stats
+     *            The phase stats.
+     */
+    public static void writeStats(Writer writer, PhaseStats stats) {
+        PrintWriter printWriter = writer instanceof PrintWriter ? (PrintWriter) writer : new PrintWriter(writer);
+        printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+        printWriter.write("STATS:" + Constants.LINE_SEPARATOR);
+        printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+        printWriter.printf("%-30s%12s%12s%16s%n", "Phase", "Wall (s)", "CPU (s)", "Allocated (MB)");
+        long wallTime = 0;
+        long cpuTime = 0;
+        long allocated = 0;
+        PhaseStats.Phase[] phases = PhaseStats.Phase.values();
+        for (int i = 0; i < phases.length; i++) {
+            printWriter.printf("%-30s%12s%12s%16s%n", phases[i].name().toLowerCase(),
+                    VmUtil.getSecs(stats.getWallTime(phases[i]) / 1000000),
+                    stats.isCpuTimeEnabled() ? VmUtil.getSecs(stats.getCpuTime(phases[i]) / 1000000) : "",
+                    stats.isAllocationEnabled() ? stats.getAllocated(phases[i]) / (1024 * 1024) : "");
+            wallTime = wallTime + stats.getWallTime(phases[i]);
+            cpuTime = cpuTime + stats.getCpuTime(phases[i]);
+            allocated = allocated + stats.getAllocated(phases[i]);
+        }
+        printWriter.printf("%-30s%12s%12s%16s%n", "Total", VmUtil.getSecs(wallTime / 1000000),
+                stats.isCpuTimeEnabled() ? VmUtil.getSecs(cpuTime / 1000000) : "",
+                stats.isAllocationEnabled() ? allocated / (1024 * 1024) : "");
+        printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+        printWriter.printf("%-30s%12s%16s%n", "Read", "#", "Per second");
+        printWriter.printf("%-30s%12s%16s%n", "Lines", stats.getLineCount(), stats.getLinesPerSecond());
+        printWriter.printf("%-30s%12s%16s%n", "Bytes", stats.getBytesRead(), stats.getBytesPerSecond());
+        printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+        printWriter.printf("%-30s%12s%n", "Line Type", "#");
+        JdkUtil.LogEventType[] eventTypes = JdkUtil.LogEventType.values();
+        for (int i = 0; i < eventTypes.length; i++) {
+            if (stats.getLineCount(eventTypes[i]) > 0) {
+                printWriter.printf("%-30s%12s%n", eventTypes[i], stats.getLineCount(eventTypes[i]));
+            }
+        }
+        printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+        printWriter.flush();
+    }
+
+    /**
+     * Print a summary of each JVM run in the log.
+     * 
+     * @param printWriter
+     *            The report writer.
+     * @param jvmRunRows
+     *            The summary row of each JVM run in the log (<code>getJvmRunRow</code>).
+     * @param safepointEventCount
+     *            The number of safepoints in all JVM runs.
+     * @param safepointTotalPause
+     *            The safepoint pause time in all JVM runs (milliseconds).
+     * @param maxPause
+     *            The longest safepoint pause in any JVM run (milliseconds).
+     */
+    private static void printJvmRuns(PrintWriter printWriter, List<String> jvmRunRows, long safepointEventCount,
+            long safepointTotalPause, int maxPause) {
+        printWriter.write("JVM RUNS:" + Constants.LINE_SEPARATOR);
+        printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+        printWriter.printf("%-5s%-30s%-30s%12s%10s%12s%12s%12s%n", "#", "First", "Last", "Duration (s)", "#",
+                "Pause (s)", "Max (s)", "Throughput");
+        Iterator<String> iterator = jvmRunRows.iterator();
+        while (iterator.hasNext()) {
+            printWriter.write(iterator.next());
+        }
+        printWriter.printf("%-5s%-30s%-30s%12s%10s%12s%12s%n", "", "Total", "", "", safepointEventCount,
+                VmUtil.getSecsString(safepointTotalPause), VmUtil.getSecsString(maxPause));
+        printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+    }
+
+    /**
+     * @param index
+     *            The JVM run index (0 based).
+     * @param jvmRun
+     *            JVM run data.
+     * @return The JVM runs summary row for the JVM run.
+     */
+    private static String getJvmRunRow(int index, JvmRun jvmRun) {
+        String first = "";
+        String last = "";
+        if (jvmRun.getSafepointEventCount() > 0) {
+            first = getEventTime(jvmRun.getFirstSafepointEvent(), jvmRun.getJvm());
+            last = getEventTime(jvmRun.getLastSafepointEvent(), jvmRun.getJvm());
+        }
+        return String.format("%-5s%-30s%-30s%12s%10s%12s%12s%11s%%%n", index + 1, first, last,
+                VmUtil.getSecsString(jvmRun.getJvmRunDuration()), jvmRun.getSafepointEventCount(),
+                VmUtil.getSecsString(jvmRun.getSafepointTotalPause()), VmUtil.getSecsString(jvmRun.getMaxPause()),
+                jvmRun.getThroughput());
+    }
+
+    /**
+     * Print the report for a JVM run.
+     * 
+     * @param printWriter
+     *            The report writer.
+     * @param jvmRun
+     *            JVM run data.
+     */
+    private static void printJvmRun(PrintWriter printWriter, JvmRun jvmRun) {
+        // Bottlenecks
+        List<String> bottlenecks = jvmRun.getBottlenecks();
+        if (bottlenecks.size() > 0) {
+            printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+            printWriter.write(
+                    "Throughput less than " + jvmRun.getThroughputThreshold() + "%" + Constants.LINE_SEPARATOR);
+            printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+            Iterator<String> iterator = bottlenecks.iterator();
+            while (iterator.hasNext()) {
+                printWriter.write(iterator.next());
+                printWriter.write(Constants.LINE_SEPARATOR);
+            }
+            if (jvmRun.getOmittedBottleneckLineCount() > 0) {
+                printWriter.write("... " + jvmRun.getOmittedBottleneckLineCount()
+                        + " more line(s) not kept within the memory budget" + Constants.LINE_SEPARATOR);
+            }
+        }
+
+        // JVM information
+        if (jvmRun.getJvm().getVersion() != null || jvmRun.getJvm().getOptions() != null) {
+            printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+            printWriter.write("JVM:" + Constants.LINE_SEPARATOR);
+            printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+            if (jvmRun.getJvm().getVersion() != null) {
+                printWriter.write("Version: " + jvmRun.getJvm().getVersion() + Constants.LINE_SEPARATOR);
+            }
+            if (jvmRun.getJvm().getOptions() != null) {
+                printWriter.write("Options: " + jvmRun.getJvm().getOptions() + Constants.LINE_SEPARATOR);
+            }
+        }
+
+        // Summary
+        printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+        printWriter.write("SUMMARY:" + Constants.LINE_SEPARATOR);
+        printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+
+        if (jvmRun.getSafepointEventCount() > 0) {
+            // Throughput
+            printWriter.write("Throughput: ");
+            if (jvmRun.getThroughput() == 100 && jvmRun.getSafepointEventCount() > 0) {
+                // Provide clue it's rounded to 100
+                printWriter.write("~");
+            }
+            printWriter.write(jvmRun.getThroughput() + "%" + Constants.LINE_SEPARATOR);
+            // Max pause
+            printWriter.write(
+                    "Max Pause: " + VmUtil.getSecs(jvmRun.getMaxPause()) + " secs" + Constants.LINE_SEPARATOR);
+            // Total pause time
+            printWriter.write("Total Pause: " + VmUtil.getSecs(jvmRun.getSafepointTotalPause()) + " secs"
+                    + Constants.LINE_SEPARATOR);
+            // Logging order
+            if (jvmRun.getReorderedCount() > 0) {
+                printWriter.write("Reordered: " + jvmRun.getReorderedCount() + Constants.LINE_SEPARATOR);
+            }
+            if (jvmRun.getOutOfHorizonCount() > 0) {
+                printWriter.write("Out of Horizon: " + jvmRun.getOutOfHorizonCount() + " (> "
+                        + VmUtil.getSecsString(jvmRun.getReorderHorizon()) + " secs)" + Constants.LINE_SEPARATOR);
+            }
+            if (jvmRun.getReorderOverflowCount() > 0) {
+                printWriter.write("Reorder Overflow: " + jvmRun.getReorderOverflowCount() + Constants.LINE_SEPARATOR);
+            }
+            if (jvmRun.getEventOverlapCount() > 0) {
+                printWriter.write("Overlaps: " + jvmRun.getEventOverlapCount() + Constants.LINE_SEPARATOR);
+            }
+            if (jvmRun.getMaxMemory() > 0) {
+                printWriter.write("Memory Budget: " + jvmRun.getMaxMemory() / (1024 * 1024) + " MB"
+                        + Constants.LINE_SEPARATOR);
+            }
+        }
+        // First/last timestamps
+        if (jvmRun.getSafepointEventCount() > 0) {
+            // First event
+            String firstEventDatestamp = JdkUtil.getDateStamp(jvmRun.getFirstSafepointEvent().getLogEntry());
+            if (firstEventDatestamp != null) {
+                printWriter.write("First Datestamp: ");
+                printWriter.write(firstEventDatestamp);
+                printWriter.write(Constants.LINE_SEPARATOR);
+            } else {
+                printWriter.write("First Timestamp: ");
+                printWriter.write(VmUtil.getSecs(jvmRun.getFirstSafepointEvent().getTimestamp()));
+                printWriter.write(" secs" + Constants.LINE_SEPARATOR);
+            }
+            // Last event
+            String lastEventDatestamp = JdkUtil.getDateStamp(jvmRun.getLastSafepointEvent().getLogEntry());
+            if (lastEventDatestamp != null) {
+                printWriter.write("Last Datestamp: ");
+                printWriter.write(lastEventDatestamp);
+                printWriter.write(Constants.LINE_SEPARATOR);
+            } else {
+                printWriter.write("Last Timestamp: ");
+                printWriter.write(VmUtil.getSecs(jvmRun.getLastSafepointEvent().getTimestamp()));
+                printWriter.write(" secs" + Constants.LINE_SEPARATOR);
+            }
+        }
+
+        // Triggers
+        printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+        printWriter.write("TRIGGERS:" + Constants.LINE_SEPARATOR);
+        printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+
+        if (jvmRun.getSafepointEventCount() > 0) {
+            printWriter.printf("%30s%10s%12s%7s%12s%n", "", "#", "Time (s)", "", "Max (s)");
+            List<SafepointEventSummary> summaries = jvmRun.getSafepointEventSummaries();
+            Iterator<SafepointEventSummary> iterator = summaries.iterator();
+            while (iterator.hasNext()) {
+                SafepointEventSummary summary = iterator.next();
+                printWriter.printf("%-30s%10s%12s%6s%%%12s%n", Safepoint.getTriggerLiteral(summary.getTrigger()),
+                        summary.getCount(), VmUtil.getSecsString(summary.getPauseTotal()),
+                        VmUtil.getPercentString(summary.getPauseTotal(), jvmRun.getSafepointTotalPause()),
+                        VmUtil.getSecsString(summary.getPauseMax()));
+            }
+        }
+
+        // Time to safepoint
+        if (jvmRun.getSafepointEventCount() > 0) {
+            printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+            printWriter.write("TIME TO SAFEPOINT:" + Constants.LINE_SEPARATOR);
+            printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+            printWriter.write("Total Sync: " + VmUtil.getSecsString(jvmRun.getTimeToSafepointTotal()) + " secs ("
+                    + VmUtil.getPercentString(jvmRun.getTimeToSafepointTotal(), jvmRun.getSafepointTotalPause())
+                    + "% of pause)" + Constants.LINE_SEPARATOR);
+            printWriter.printf("%-30s%10s%n", "Sync/Vmop", "#");
+            long[] syncVmopRatioCounts = jvmRun.getSyncVmopRatioCounts();
+            SyncVmopRatio[] ratios = SyncVmopRatio.values();
+            for (int i = 0; i < ratios.length; i++) {
+                printWriter.printf("%-30s%10s%6s%%%n", Safepoint.getSyncVmopRatioLiteral(ratios[i]),
+                        syncVmopRatioCounts[i],
+                        VmUtil.getPercentString(syncVmopRatioCounts[i], jvmRun.getSafepointEventCount()));
+            }
+            printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+            printWriter.printf("%30s%10s%12s%7s%12s%12s%n", "", "#", "Sync (s)", "", "Max (s)", "Vmop (s)");
+            Iterator<TimeToSafepointSummary> iterator = jvmRun.getTimeToSafepointSummaries().iterator();
+            while (iterator.hasNext()) {
+                TimeToSafepointSummary summary = iterator.next();
+                // percent of the trigger pause time spent reaching safepoint
+                printWriter.printf("%-30s%10s%12s%6s%%%12s%12s%n",
+                        Safepoint.getTriggerLiteral(summary.getTrigger()), summary.getCount(),
+                        VmUtil.getSecsString(summary.getSyncTotal()),
+                        VmUtil.getPercentString(summary.getSyncTotal(), summary.getPauseTotal()),
+                        VmUtil.getSecsString(summary.getSyncMax()), VmUtil.getSecsString(summary.getVmopTotal()));
+            }
+            List<SafepointEvent> worstEvents = jvmRun.getWorstTimeToSafepointEvents();
+            if (!worstEvents.isEmpty()) {
+                printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+                printWriter.write("Worst TTSP (ms):" + Constants.LINE_SEPARATOR);
+                printWriter.printf("%-30s%-30s%10s%10s%10s%10s%10s%10s%10s%10s%n", "Time", "Trigger", "Sync",
+                        "Vmop", "Threads", "Spinning", "Blocked", "Spin", "Block", "Traps");
+                Iterator<SafepointEvent> eventIterator = worstEvents.iterator();
+                while (eventIterator.hasNext()) {
+                    SafepointEvent event = eventIterator.next();
+                    printWriter.printf("%-30s%-30s%10s%10s%10s%10s%10s%10s%10s%10s%n",
+                            getEventTime(event, jvmRun.getJvm()),
+                            Safepoint.getTriggerLiteral(event.getTrigger()), event.getTimeSync(),
+                            event.getTimeVmop(), event.getThreadsTotal(), event.getThreadsSpinning(),
+                            event.getThreadsBlocked(), event.getTimeSpin(), event.getTimeBlock(),
+                            event.getPageTrapCount());
+                }
+            }
+        }
+
+        // Safepoint storms
+        List<SafepointStorm> storms = jvmRun.getSafepointStorms();
+        if (storms != null && !storms.isEmpty()) {
+            printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+            printWriter.write("SAFEPOINT STORMS:" + Constants.LINE_SEPARATOR);
+            printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+            printWriter.write("Rate >= " + jvmRun.getStormRateThreshold() + "/s for one trigger or pause >= "
+                    + jvmRun.getStormTimeShareThreshold() + "% of a " + VmUtil.getSecsString(Constants.STORM_WINDOW)
+                    + " sec window" + Constants.LINE_SEPARATOR);
+            printWriter.write("Storm Pause: " + VmUtil.getSecsString(jvmRun.getStormPauseTotal()) + " secs ("
+                    + VmUtil.getPercentString(jvmRun.getStormPauseTotal(), jvmRun.getSafepointTotalPause())
+                    + "% of pause)" + Constants.LINE_SEPARATOR);
+            printWriter.printf("%-30s%12s%10s%10s%12s%7s  %-30s%7s%n", "Start", "Duration (s)", "#", "Rate/s",
+                    "Pause (s)", "", "Dominant Trigger", "");
+            Iterator<SafepointStorm> iterator = storms.iterator();
+            while (iterator.hasNext()) {
+                SafepointStorm storm = iterator.next();
+                long rate = storm.getDuration() > 0 ? storm.getCount() * 1000 / storm.getDuration()
+                        : storm.getCount();
+                printWriter.printf("%-30s%12s%10s%10s%12s%6s%%  %-30s%6s%%%n",
+                        VmUtil.getTime(storm.getStart(), storm.getStartLogEntry(), jvmRun.getJvm()),
+                        VmUtil.getSecsString(storm.getDuration()), storm.getCount(), rate,
+                        VmUtil.getSecsString(storm.getPauseTotal()), storm.getPauseShare(),
+                        Safepoint.getTriggerLiteral(storm.getDominantTrigger()),
+                        VmUtil.getPercentString(storm.getDominantTriggerCount(), storm.getCount()));
+            }
+        }
+
+        // Calendar rollups
+        CalendarRollup calendarRollup = jvmRun.getCalendarRollup();
+        if (calendarRollup != null && jvmRun.getSafepointEventCount() > 0) {
+            printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+            printWriter.write("PAUSE BY HOUR/DAY (UTC" + getZoneOffsetString(calendarRollup.getZoneOffset()) + "):"
+                    + Constants.LINE_SEPARATOR);
+            printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+            printWriter.printf("%-30s%10s%12s%7s%n", "Hour", "#", "Time (s)", "");
+            // Only hours/days with safepoints
+            for (int i = 0; i < 24; i++) {
+                if (calendarRollup.getHourCount(i) == 0) {
+                    continue;
+                }
+                printWriter.printf("%02d%28s%10s%12s%6s%%%n", i, "", calendarRollup.getHourCount(i),
+                        VmUtil.getSecsString(calendarRollup.getHourPause(i)),
+                        VmUtil.getPercentString(calendarRollup.getHourPause(i), jvmRun.getSafepointTotalPause()));
+            }
+            printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+            printWriter.printf("%-30s%10s%12s%7s%n", "Day", "#", "Time (s)", "");
+            for (int i = 0; i < 7; i++) {
+                if (calendarRollup.getDayCount(i) == 0) {
+                    continue;
+                }
+                printWriter.printf("%-30s%10s%12s%6s%%%n", CalendarRollup.getDayOfWeekLiteral(i),
+                        calendarRollup.getDayCount(i), VmUtil.getSecsString(calendarRollup.getDayPause(i)),
+                        VmUtil.getPercentString(calendarRollup.getDayPause(i), jvmRun.getSafepointTotalPause()));
+            }
+        }
+
+        // Top safepoints
+        if (jvmRun.getSafepointEventCount() > 0) {
+            Metric[] metrics = Metric.values();
+            for (int i = 0; i < metrics.length; i++) {
+                List<SafepointEvent> topEvents = jvmRun.getTopSafepointEvents().get(metrics[i]).getEvents();
+                printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+                if (metrics[i] == Metric.TOTAL) {
+                    printWriter.write(
+                            "TOP " + topEvents.size() + " LONGEST SAFEPOINTS:" + Constants.LINE_SEPARATOR);
+                } else {
+                    printWriter.write("TOP " + topEvents.size() + " SAFEPOINTS BY "
+                            + Safepoint.getMetricLiteral(metrics[i]).toUpperCase() + ":"
+                            + Constants.LINE_SEPARATOR);
+                }
+                printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+                printWriter.printf("%-30s%-30s%10s%10s%10s%10s%10s%10s%n", "Time", "Trigger", "Total (ms)",
+                        "Spin", "Block", "Sync", "Cleanup", "Vmop");
+                Iterator<SafepointEvent> iterator = topEvents.iterator();
+                while (iterator.hasNext()) {
+                    SafepointEvent event = iterator.next();
+                    printWriter.printf("%-30s%-30s%10s%10s%10s%10s%10s%10s%n", getEventTime(event, jvmRun.getJvm()),
+                            Safepoint.getTriggerLiteral(event.getTrigger()), event.getDuration(),
+                            event.getTimeSpin(), event.getTimeBlock(), event.getTimeSync(),
+                            event.getTimeCleanup(), event.getTimeVmop());
+                }
+            }
+        }
+
+        printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+
+        // Analysis
+        List<Analysis> analysis = jvmRun.getAnalysis();
+        if (!analysis.isEmpty()) {
+
+            // Determine analysis levels
+            List<Analysis> error = new ArrayList<Analysis>();
+            List<Analysis> warn = new ArrayList<Analysis>();
+            List<Analysis> info = new ArrayList<Analysis>();
+
+            Iterator<Analysis> iterator = analysis.iterator();
+            while (iterator.hasNext()) {
+                Analysis a = iterator.next();
+                String level = a.getKey().split("\\.")[0];
+                if (level.equals("error")) {
+                    error.add(a);
+                } else if (level.equals("warn")) {
+                    warn.add(a);
+                } else if (level.equals("info")) {
+                    info.add(a);
+                }
+            }
+
+            printWriter.write("ANALYSIS:" + Constants.LINE_SEPARATOR);
+
+            iterator = error.iterator();
+            boolean printHeader = true;
+            // ERROR
+            while (iterator.hasNext()) {
+                if (printHeader) {
+                    printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+                    printWriter.write("error" + Constants.LINE_SEPARATOR);
+                    printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+                }
+                printHeader = false;
+                Analysis a = iterator.next();
+                printWriter.write("*");
+                printWriter.write(jvmRun.getAnalysisLiteral(a));
+                printWriter.write(Constants.LINE_SEPARATOR);
+            }
+            // WARN
+            iterator = warn.iterator();
+            printHeader = true;
+            while (iterator.hasNext()) {
+                if (printHeader) {
+                    printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+                    printWriter.write("warn" + Constants.LINE_SEPARATOR);
+                    printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+                }
+                printHeader = false;
+                Analysis a = iterator.next();
+                printWriter.write("*");
+                printWriter.write(jvmRun.getAnalysisLiteral(a));
+                printWriter.write(Constants.LINE_SEPARATOR);
+            }
+            // INFO
+            iterator = info.iterator();
+            printHeader = true;
+            while (iterator.hasNext()) {
+                if (printHeader) {
+                    printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+                    printWriter.write("info" + Constants.LINE_SEPARATOR);
+                    printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+                }
+                printHeader = false;
+                Analysis a = iterator.next();
+                printWriter.write("*");
+                printWriter.write(jvmRun.getAnalysisLiteral(a));
+                printWriter.write(Constants.LINE_SEPARATOR);
+            }
+            printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+        }
+
+        // Out of horizon log lines
+        List<String> outOfHorizonLogLines = jvmRun.getOutOfHorizonLogLines();
+        if (outOfHorizonLogLines != null && !outOfHorizonLogLines.isEmpty()) {
+            printWriter.write(
+                    jvmRun.getOutOfHorizonCount() + " OUT OF HORIZON EVENT(S):" + Constants.LINE_SEPARATOR);
+            printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+            Iterator<String> iterator = outOfHorizonLogLines.iterator();
+            while (iterator.hasNext()) {
+                printWriter.write(iterator.next());
+                printWriter.write(Constants.LINE_SEPARATOR);
+            }
+            if (jvmRun.getOutOfHorizonCount() > outOfHorizonLogLines.size()) {
+                printWriter.write("..." + Constants.LINE_SEPARATOR);
+            }
+            printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+        }
+
+        // Unidentified log lines
+        List<String> unidentifiedLogLines = jvmRun.getUnidentifiedLogLines();
+        if (!unidentifiedLogLines.isEmpty()) {
+            printWriter
+                    .write(unidentifiedLogLines.size() + " UNIDENTIFIED LOG LINE(S):" + Constants.LINE_SEPARATOR);
+            printWriter.write("----------------------------------------" + Constants.LINE_SEPARATOR);
+
+            Iterator<String> iterator = unidentifiedLogLines.iterator();
+            while (iterator.hasNext()) {
+                String unidentifiedLogLine = iterator.next();
+                printWriter.write(unidentifiedLogLine);
+                printWriter.write(Constants.LINE_SEPARATOR);
+            }
+            printWriter.write("========================================" + Constants.LINE_SEPARATOR);
+        }
+    }
+
+    /**
+     * @param event
+     *            The safepoint event.
+     * @param jvm
+     *            JVM environment information.
+     * @return The event date/time when the JVM start date is known or the event is datestamped, otherwise the event
+     *         timestamp (seconds after JVM startup).
+     */
+    private static String getEventTime(SafepointEvent event, Jvm jvm) {
+        return VmUtil.getTime(event.getTimestamp(), event.getLogEntry(), jvm);
+    }
+
+    /**
+     * @param zoneOffset
+     *            The time zone offset (milliseconds).
+     * @return The time zone offset in +hh:mm format.
+     */
+    static String getZoneOffsetString(int zoneOffset) {
+        int minutes = Math.abs(zoneOffset) / 60000;
+        return (zoneOffset < 0 ? "-" : "+") + String.format("%02d:%02d", minutes / 60, minutes % 60);
+    }
+}
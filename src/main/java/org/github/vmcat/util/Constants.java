@@ -37,6 +37,127 @@ public class Constants {
      */
     public static final int DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD = 90;
 
+    /**
+     * The time to safepoint (milliseconds) at or above which a time to safepoint that exceeds the safepoint operation
+     * (vmop) time is flagged.
+     */
+    public static final int TTSP_LONG_THRESHOLD = 100;
+
+    /**
+     * The number of longest time to safepoint events to report.
+     */
+    public static final int TTSP_WORST_LIMIT = 10;
+
+    /**
+     * The number of largest <code>SafepointEvent</code>s to keep for each metric (total, sync, vmop, cleanup).
+     */
+    public static final int TOP_SAFEPOINT_EVENTS_LIMIT = 50;
+
+    /**
+     * The pause timeline bucket width (milliseconds of uptime).
+     */
+    public static final long PAUSE_TIMELINE_BUCKET_WIDTH = 60 * 60 * 1000;
+
+    /**
+     * The minimum mutator utilization window sizes (milliseconds).
+     */
+    public static final long[] MMU_WINDOWS = { 1000, 10 * 1000, 60 * 1000 };
+
+    /**
+     * The initial pause series bucket width (milliseconds of uptime). Doubled as needed to stay within the bucket
+     * limit.
+     */
+    public static final long PAUSE_SERIES_BUCKET_WIDTH = 100;
+
+    /**
+     * The maximum number of pause series buckets.
+     */
+    public static final int PAUSE_SERIES_BUCKETS = 16 * 1024;
+
+    /**
+     * The maximum number of points in an HTML report pause chart.
+     */
+    public static final int HTML_CHART_POINTS = 2000;
+
+    /**
+     * The maximum number of bars in an HTML report stacked trigger chart.
+     */
+    public static final int HTML_CHART_BARS = 200;
+
+    /**
+     * The maximum number of triggers shown separately in an HTML report stacked trigger chart. The rest are combined.
+     */
+    public static final int HTML_CHART_TRIGGERS = 8;
+
+    /**
+     * The sliding window size (milliseconds) for safepoint storm detection.
+     */
+    public static final int STORM_WINDOW = 1000;
+
+    /**
+     * The default number of safepoints per second for a single trigger at or above which a safepoint storm is flagged.
+     */
+    public static final int DEFAULT_STORM_RATE_THRESHOLD = 100;
+
+    /**
+     * The default percent of time spent in safepoint pauses over the storm window at or above which a safepoint storm
+     * is flagged.
+     */
+    public static final int DEFAULT_STORM_TIME_SHARE_THRESHOLD = 50;
+
+    /**
+     * The default maximum time (milliseconds) a safepoint event can be logged after a later event and be put back in
+     * timestamp order.
+     */
+    public static final int DEFAULT_REORDER_HORIZON = 5000;
+
+    /**
+     * The maximum number of safepoint events to buffer to put events back in timestamp order.
+     */
+    public static final int REORDER_BUFFER_LIMIT = 100000;
+
+    /**
+     * The maximum number of safepoint events outside the reorder horizon to report.
+     */
+    public static final int OUT_OF_HORIZON_REPORT_LIMIT = 100;
+
+    /**
+     * The number of safepoint events retrieved from the data store at a time when iterating over all events.
+     */
+    public static final int SAFEPOINT_EVENT_PAGE_SIZE = 1000;
+
+    /**
+     * The default time (seconds) between reports when following a vm log.
+     */
+    public static final int DEFAULT_FOLLOW_REPORT_INTERVAL = 60;
+
+    /**
+     * The default query service cache memory limit (megabytes).
+     */
+    public static final int DEFAULT_SERVE_CACHE_SIZE = 256;
+
+    /**
+     * The smallest analysis memory budget (megabytes).
+     */
+    public static final int MIN_MAX_MEMORY = 32;
+
+    /**
+     * The time (milliseconds) to wait for more logging when following a vm log.
+     */
+    public static final int FOLLOW_POLL_INTERVAL = 1000;
+
+    /**
+     * The time (milliseconds) to wait for more logging when reading a streamed vm log. Shorter than following a file,
+     * since lines arriving while waiting are buffered in memory.
+     */
+    public static final int STREAM_POLL_INTERVAL = 100;
+
+    /**
+     * The maximum number of lines buffered when reading a streamed vm log. Lines arriving when the buffer is full are
+     * dropped.
+     */
+    public static final int STREAM_BUFFER_LINES = 64 * 1024;
+
     /**
      * kilobyte
      */
@@ -102,11 +223,277 @@ public class Constants {
      */
     public static final String OPTION_THRESHOLD_LONG = "threshold";
 
+    /**
+     * Safepoint storm rate threshold command line short option.
+     */
+    public static final String OPTION_STORM_RATE_SHORT = "r";
+
+    /**
+     * Safepoint storm rate threshold command line long option.
+     */
+    public static final String OPTION_STORM_RATE_LONG = "stormrate";
+
+    /**
+     * Safepoint storm time share threshold command line short option.
+     */
+    public static final String OPTION_STORM_SHARE_SHORT = "s";
+
+    /**
+     * Safepoint storm time share threshold command line long option.
+     */
+    public static final String OPTION_STORM_SHARE_LONG = "stormshare";
+
+    /**
+     * Follow command line short option.
+     */
+    public static final String OPTION_FOLLOW_SHORT = "f";
+
+    /**
+     * Follow command line long option.
+     */
+    public static final String OPTION_FOLLOW_LONG = "follow";
+
+    /**
+     * Follow report interval command line short option.
+     */
+    public static final String OPTION_INTERVAL_SHORT = "i";
+
+    /**
+     * Follow report interval command line long option.
+     */
+    public static final String OPTION_INTERVAL_LONG = "interval";
+
+    /**
+     * Batch command line short option.
+     */
+    public static final String OPTION_BATCH_SHORT = "b";
+
+    /**
+     * Batch command line long option.
+     */
+    public static final String OPTION_BATCH_LONG = "batch";
+
+    /**
+     * Batch concurrent jobs command line short option.
+     */
+    public static final String OPTION_JOBS_SHORT = "j";
+
+    /**
+     * Batch concurrent jobs command line long option.
+     */
+    public static final String OPTION_JOBS_LONG = "jobs";
+
+    /**
+     * Fleet report command line short option.
+     */
+    public static final String OPTION_FLEET_SHORT = "a";
+
+    /**
+     * Fleet report command line long option.
+     */
+    public static final String OPTION_FLEET_LONG = "fleet";
+
+    /**
+     * Partial result command line short option.
+     */
+    public static final String OPTION_PARTIAL_SHORT = "p";
+
+    /**
+     * Partial result command line long option.
+     */
+    public static final String OPTION_PARTIAL_LONG = "partial";
+
+    /**
+     * Merge partial results command line short option.
+     */
+    public static final String OPTION_MERGE_SHORT = "m";
+
+    /**
+     * Merge partial results command line long option.
+     */
+    public static final String OPTION_MERGE_LONG = "merge";
+
+    /**
+     * Compare to baseline command line short option.
+     */
+    public static final String OPTION_COMPARE_SHORT = "d";
+
+    /**
+     * Compare to baseline command line long option.
+     */
+    public static final String OPTION_COMPARE_LONG = "compare";
+
+    /**
+     * Query service command line short option.
+     */
+    public static final String OPTION_SERVE_SHORT = "w";
+
+    /**
+     * Query service command line long option.
+     */
+    public static final String OPTION_SERVE_LONG = "serve";
+
+    /**
+     * Query service cache memory limit command line long option.
+     */
+    public static final String OPTION_CACHE_SIZE_LONG = "cache-size";
+
+    /**
+     * Streamed vm log (named pipe or UNIX domain socket) command line long option.
+     */
+    public static final String OPTION_STREAM_LONG = "stream";
+
+    /**
+     * Report format command line long option.
+     */
+    public static final String OPTION_FORMAT_LONG = "format";
+
+    /**
+     * OpenMetrics textfile export command line long option.
+     */
+    public static final String OPTION_METRICS_LONG = "metrics";
+
+    /**
+     * Phase timing and line stats command line long option.
+     */
+    public static final String OPTION_STATS_LONG = "stats";
+
+    /**
+     * Progress reporting command line long option.
+     */
+    public static final String OPTION_PROGRESS_LONG = "progress";
+
+    /**
+     * Analysis memory budget command line long option.
+     */
+    public static final String OPTION_MAX_MEMORY_LONG = "max-memory";
+
+    /**
+     * Checkpoint command line short option.
+     */
+    public static final String OPTION_CHECKPOINT_SHORT = "c";
+
+    /**
+     * Checkpoint command line long option.
+     */
+    public static final String OPTION_CHECKPOINT_LONG = "checkpoint";
+
+    /**
+     * Reorder horizon command line short option.
+     */
+    public static final String OPTION_REORDER_HORIZON_SHORT = "z";
+
+    /**
+     * Reorder horizon command line long option.
+     */
+    public static final String OPTION_REORDER_HORIZON_LONG = "horizon";
+
     /**
      * Default output file name.
      */
     public static final String OUTPUT_FILE_NAME = "report.txt";
 
+    /**
+     * Fixed width text report format.
+     */
+    public static final String FORMAT_TEXT = "text";
+
+    /**
+     * JSON report format.
+     */
+    public static final String FORMAT_JSON = "json";
+
+    /**
+     * CSV report format.
+     */
+    public static final String FORMAT_CSV = "csv";
+
+    /**
+     * Self-contained HTML (charts) report format.
+     */
+    public static final String FORMAT_HTML = "html";
+
+    /**
+     * Report file write buffer size (characters).
+     */
+    public static final int REPORT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Default batch mode output directory name.
+     */
+    public static final String BATCH_OUTPUT_DIR_NAME = "reports";
+
+    /**
+     * Batch mode index file name.
+     */
+    public static final String BATCH_INDEX_FILE_NAME = "index.txt";
+
+    /**
+     * Batch mode fleet report file name.
+     */
+    public static final String FLEET_REPORT_FILE_NAME = "fleet.txt";
+
+    /**
+     * The p-value below which a difference between baseline and candidate pause times is reported as significant
+     * (not noise).
+     */
+    public static final double COMPARE_SIGNIFICANCE = 0.05;
+
+    /**
+     * Minimum throughput (percent) gate command line long option.
+     */
+    public static final String OPTION_GATE_THROUGHPUT_LONG = "min-throughput";
+
+    /**
+     * Maximum pause (milliseconds) gate command line long option.
+     */
+    public static final String OPTION_GATE_PAUSE_LONG = "max-pause";
+
+    /**
+     * Maximum p99 pause (milliseconds) per trigger gate command line long option.
+     */
+    public static final String OPTION_GATE_P99_LONG = "max-p99";
+
+    /**
+     * Maximum percent of time in safepoint storms gate command line long option.
+     */
+    public static final String OPTION_GATE_STORM_LONG = "max-storm-time";
+
+    /**
+     * Maximum time (milliseconds) below the throughput threshold gate command line long option.
+     */
+    public static final String OPTION_GATE_BOTTLENECK_LONG = "max-bottleneck-time";
+
+    /**
+     * Exit code when gates are set and there are no safepoints to evaluate them on.
+     */
+    public static final int EXIT_GATE_NO_DATA = 1;
+
+    /**
+     * Exit code bit for a failed minimum throughput gate. The exit code is the bitwise or of the failed gates.
+     */
+    public static final int EXIT_GATE_THROUGHPUT = 2;
+
+    /**
+     * Exit code bit for a failed maximum pause gate.
+     */
+    public static final int EXIT_GATE_PAUSE = 4;
+
+    /**
+     * Exit code bit for a failed maximum p99 pause gate.
+     */
+    public static final int EXIT_GATE_P99 = 8;
+
+    /**
+     * Exit code bit for a failed maximum storm time gate.
+     */
+    public static final int EXIT_GATE_STORM = 16;
+
+    /**
+     * Exit code bit for a failed maximum bottleneck time gate.
+     */
+    public static final int EXIT_GATE_BOTTLENECK = 32;
+
     /**
      * Analysis property file.
      */
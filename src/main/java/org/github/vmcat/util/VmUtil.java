@@ -15,13 +15,18 @@
 package org.github.vmcat.util;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.ResourceBundle;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.github.vmcat.domain.Jvm;
+import org.github.vmcat.util.jdk.JdkMath;
 import org.github.vmcat.util.jdk.JdkRegEx;
+import org.github.vmcat.util.jdk.JdkUtil;
 
 /**
  * Common vm collection utility methods and constants.
@@ -46,6 +51,70 @@ public class VmUtil {
     public static final String START_DATE_TIME_REGEX = "^(\\d{4})-(\\d{2})-(\\d{2}) (\\d{2}):(\\d{2}):(\\d{2}),"
             + "(\\d{3})$";
 
+    /**
+     * Compiled <code>START_DATE_TIME_REGEX</code>.
+     */
+    private static final Pattern START_DATE_TIME_PATTERN = Pattern.compile(START_DATE_TIME_REGEX);
+
+    /**
+     * Compiled <code>JdkRegEx.DATESTAMP</code>.
+     */
+    private static final Pattern DATESTAMP_PATTERN = Pattern.compile(JdkRegEx.DATESTAMP);
+
+    /**
+     * Date/time formatter for each thread (<code>SimpleDateFormat</code> is not thread safe), so one is not created for
+     * every date formatted.
+     */
+    private static final ThreadLocal<DateTimeFormat> DATE_TIME_FORMAT = new ThreadLocal<DateTimeFormat>() {
+        protected DateTimeFormat initialValue() {
+            return new DateTimeFormat();
+        }
+    };
+
+    /**
+     * yyyy-MM-dd HH:mm:ss,SSS formatter that reuses the formatted date/time to the second for dates in the same second
+     * as the last date formatted (e.g. consecutive bottleneck events).
+     */
+    private static final class DateTimeFormat {
+
+        /**
+         * The formatter.
+         */
+        private SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss,SSS");
+
+        /**
+         * The second (milliseconds since the epoch / 1000) of the last date formatted.
+         */
+        private long second = Long.MIN_VALUE;
+
+        /**
+         * The last date formatted, without the milliseconds.
+         */
+        private String prefix;
+
+        /**
+         * @param date
+         *            A date/time.
+         * @return The date/time in yyyy-MM-dd HH:mm:ss,SSS format.
+         */
+        private String format(Date date) {
+            long millis = date.getTime();
+            long dateSecond = Math.floorDiv(millis, 1000);
+            if (dateSecond != second || prefix == null) {
+                String formatted = format.format(date);
+                second = dateSecond;
+                prefix = formatted.substring(0, formatted.length() - 3);
+                return formatted;
+            }
+            int fraction = (int) Math.floorMod(millis, 1000);
+            StringBuilder formatted = new StringBuilder(prefix.length() + 3).append(prefix);
+            if (fraction < 100) {
+                formatted.append(fraction < 10 ? "00" : "0");
+            }
+            return formatted.append(fraction).toString();
+        }
+    }
+
     /**
      * Make default constructor private so the class cannot be instantiated.
      */
@@ -104,6 +173,110 @@ public class VmUtil {
         return new Date(millis);
     }
 
+    /**
+     * @param timestamp
+     *            Time (milliseconds after JVM startup).
+     * @param logEntry
+     *            The log entry at the given time.
+     * @param jvm
+     *            JVM environment information.
+     * @return The date/time when the JVM start date is known or the log entry is datestamped, otherwise the timestamp
+     *         (seconds after JVM startup).
+     */
+    public static final String getTime(long timestamp, String logEntry, Jvm jvm) {
+        String time = null;
+        if (jvm.getStartDate() != null) {
+            Date date = VmUtil.getDatePlusTimestamp(jvm.getStartDate(), timestamp);
+            time = getDateTimeString(date);
+        } else {
+            time = logEntry == null ? null : JdkUtil.getDateStamp(logEntry);
+            if (time == null) {
+                time = getSecs(timestamp);
+            }
+        }
+        return time;
+    }
+
+    /**
+     * @param date
+     *            A date/time.
+     * @return The date/time in yyyy-MM-dd HH:mm:ss,SSS format.
+     */
+    public static final String getDateTimeString(Date date) {
+        return DATE_TIME_FORMAT.get().format(date);
+    }
+
+    /**
+     * Fixed point equivalent of <code>JdkMath.convertMillisToSecs(millis).toString()</code>, without the
+     * <code>BigDecimal</code>.
+     * 
+     * For example: Convert 123456 to "123.456".
+     * 
+     * @param millis
+     *            Milliseconds.
+     * @return The milliseconds in seconds with 3 decimal places.
+     */
+    public static final String getSecs(long millis) {
+        if (millis == Long.MIN_VALUE) {
+            return JdkMath.convertMillisToSecs(millis).toString();
+        }
+        long abs = Math.abs(millis);
+        long fraction = abs % 1000;
+        StringBuilder secs = new StringBuilder(24);
+        if (millis < 0) {
+            secs.append('-');
+        }
+        secs.append(abs / 1000).append('.');
+        if (fraction < 100) {
+            secs.append(fraction < 10 ? "00" : "0");
+        }
+        return secs.append(fraction).toString();
+    }
+
+    /**
+     * @param millis
+     *            Milliseconds.
+     * @return The milliseconds in seconds with a rounding hint when the value rounds to zero.
+     */
+    public static final String getSecsString(long millis) {
+        String secs = getSecs(millis);
+        if (secs.equals("0.000")) {
+            // give rounding hint
+            secs = "~" + secs;
+        }
+        return secs;
+    }
+
+    /**
+     * @param part
+     *            The part.
+     * @param total
+     *            The total.
+     * @return The part as a whole number percent of the total (rounded half even) with a rounding hint when the value
+     *         rounds to zero.
+     */
+    public static final String getPercentString(long part, long total) {
+        long percent = 0;
+        if (total > 0) {
+            if (Math.abs(part) > Long.MAX_VALUE / 100) {
+                BigDecimal exact = new BigDecimal(part);
+                exact = exact.divide(new BigDecimal(total), 2, RoundingMode.HALF_EVEN);
+                percent = exact.movePointRight(2).longValue();
+            } else {
+                percent = part * 100 / total;
+                long remainder = Math.abs(part * 100 % total);
+                if (remainder > total - remainder || (remainder == total - remainder && percent % 2 != 0)) {
+                    percent = percent + (part < 0 ? -1 : 1);
+                }
+            }
+        }
+        if (percent == 0) {
+            // give rounding hint
+            return "~" + percent;
+        }
+        return Long.toString(percent);
+    }
+
     /**
      * Convert startdatetime <code>String</code> to a <code>Date</code>.
      * 
@@ -113,8 +286,7 @@ public class VmUtil {
      */
     public static final Date parseStartDateTime(String startDateTime) {
         Date date = null;
-        Pattern pattern = Pattern.compile(START_DATE_TIME_REGEX);
-        Matcher matcher = pattern.matcher(startDateTime);
+        Matcher matcher = START_DATE_TIME_PATTERN.matcher(startDateTime);
         if (matcher.find()) {
             date = getDate(matcher.group(1), matcher.group(2), matcher.group(3), matcher.group(4), matcher.group(5),
                     matcher.group(6), matcher.group(7));
@@ -178,8 +350,7 @@ public class VmUtil {
      */
     public static final Date parseDateStamp(String datestamp) {
         Date date = null;
-        Pattern pattern = Pattern.compile(JdkRegEx.DATESTAMP);
-        Matcher matcher = pattern.matcher(datestamp);
+        Matcher matcher = DATESTAMP_PATTERN.matcher(datestamp);
         if (matcher.find()) {
             date = getDate(matcher.group(2), matcher.group(3), matcher.group(4), matcher.group(5), matcher.group(6),
                     matcher.group(7), matcher.group(8));
@@ -209,4 +380,63 @@ public class VmUtil {
         BigDecimal days = new BigDecimal(timestamp);
         return days.divideToIntegralValue(new BigDecimal(1000 * 60 * 60 * 24)).intValue();
     }
+
+    /**
+     * Downsample a series for charting with the largest triangle three buckets algorithm: the first and last points
+     * are kept, and from each of <code>threshold - 2</code> equal buckets in between, the point forming the largest
+     * triangle with the point kept from the previous bucket and the average of the next bucket. Peaks are kept, unlike
+     * averaging or taking every nth point.
+     * 
+     * @param x
+     *            The x values, ascending.
+     * @param y
+     *            The y values.
+     * @param count
+     *            The number of points.
+     * @param threshold
+     *            The maximum number of points to keep (at least 3).
+     * @return The indexes of the points kept, ascending.
+     */
+    public static final int[] downsample(long[] x, long[] y, int count, int threshold) {
+        if (count <= threshold) {
+            int[] all = new int[count];
+            for (int i = 0; i < count; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        int[] kept = new int[threshold];
+        double bucketSize = (double) (count - 2) / (threshold - 2);
+        int a = 0;
+        kept[0] = a;
+        for (int i = 0; i < threshold - 2; i++) {
+            // Average of the next bucket (the last point for the last bucket)
+            int nextStart = (int) ((i + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) ((i + 2) * bucketSize) + 1, count);
+            double averageX = 0;
+            double averageY = 0;
+            for (int j = nextStart; j < nextEnd; j++) {
+                averageX = averageX + x[j];
+                averageY = averageY + y[j];
+            }
+            averageX = averageX / (nextEnd - nextStart);
+            averageY = averageY / (nextEnd - nextStart);
+            // Point in this bucket forming the largest triangle
+            int start = (int) (i * bucketSize) + 1;
+            int end = (int) ((i + 1) * bucketSize) + 1;
+            double maxArea = -1;
+            int maxPoint = start;
+            for (int j = start; j < end; j++) {
+                double area = Math.abs((x[a] - averageX) * (y[j] - y[a]) - (x[a] - x[j]) * (averageY - y[a]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxPoint = j;
+                }
+            }
+            kept[i + 1] = maxPoint;
+            a = maxPoint;
+        }
+        kept[threshold - 1] = count - 1;
+        return kept;
+    }
 }
@@ -30,11 +30,62 @@ public enum Analysis {
      */
     ERROR_TBD("error.tbd"),
 
+    /**
+     * Property key for throughput bottleneck lines not kept to stay within the memory budget.
+     */
+    INFO_BOTTLENECKS_OMITTED("info.bottlenecks.omitted"),
+
     /**
      * Property key for partial log file.
      */
     INFO_FIRST_TIMESTAMP_THRESHOLD_EXCEEDED("info.first.timestamp.threshold.exceeded"),
 
+    /**
+     * Property key for safepoint events logged out of order and put back in order.
+     */
+    INFO_REORDERED("info.reordered"),
+
+    /**
+     * Property key for safepoint events that overlap the prior event by more than the JDK logging tolerance.
+     */
+    WARN_EVENT_OVERLAP("warn.event.overlap"),
+
+    /**
+     * Property key for safepoint events logged too far out of order to put back in order.
+     */
+    WARN_OUT_OF_HORIZON("warn.out.of.horizon"),
+
+    /**
+     * Property key for safepoint events released from the reorder buffer before the reorder horizon because the buffer
+     * was full.
+     */
+    WARN_REORDER_OVERFLOW("warn.reorder.overflow"),
+
+    /**
+     * Property key for safepoint storm(s) not due to biased locking or deoptimization.
+     */
+    WARN_STORM("warn.storm"),
+
+    /**
+     * Property key for biased lock revocation safepoint storm(s).
+     */
+    WARN_STORM_BIASED_LOCKING("warn.storm.biased.locking"),
+
+    /**
+     * Property key for deoptimization safepoint storm(s).
+     */
+    WARN_STORM_DEOPTIMIZE("warn.storm.deoptimize"),
+
+    /**
+     * Property key for time to safepoint (sync) being the majority of safepoint pause time.
+     */
+    WARN_TTSP_DOMINANT("warn.ttsp.dominant"),
+
+    /**
+     * Property key for a long time to safepoint (sync) that exceeds the safepoint operation (vmop) time.
+     */
+    WARN_TTSP_LONG("warn.ttsp.long"),
+
     /**
      * Property key for unidentified line(s) needing reporting.
      */
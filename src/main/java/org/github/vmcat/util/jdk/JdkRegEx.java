@@ -63,9 +63,16 @@ public class JdkRegEx {
      * <pre>
      * [    2404          0              1    ]
      * </pre>
+     * 
+     * JDK11 right aligns wait_to_block in a 14 character column, so a 3 or 4 digit count has only 11 or 10 leading
+     * spaces:
+     * 
+     * <pre>
+     * [               286                 4           118 ]
+     * </pre>
      */
     public static final String THREAD_BLOCK = "\\[[ ]{4,17}" + JdkRegEx.NUMBER + "[ ]{9,17}" + JdkRegEx.NUMBER
-            + "[ ]{12,14}" + JdkRegEx.NUMBER + "[ ]{1,4}\\]";
+            + "[ ]{10,14}" + JdkRegEx.NUMBER + "[ ]{1,4}\\]";
 
     /**
      * The time as a whole number representing milliseconds.
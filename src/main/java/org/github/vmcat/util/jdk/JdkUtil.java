@@ -14,9 +14,6 @@
  *********************************************************************************************************************/
 package org.github.vmcat.util.jdk;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -48,6 +45,7 @@ import org.github.vmcat.domain.jdk.TagWriterEvent;
 import org.github.vmcat.domain.jdk.TagXmlEvent;
 import org.github.vmcat.util.Constants;
 import org.github.vmcat.util.VmUtil;
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
 
 /**
  * <p>
@@ -71,6 +69,16 @@ public class JdkUtil {
         TAG_TTY, TAG_TTY_DONE, TAG_VM_ARGUMENTS, TAG_VM_VERSION, TAG_WRITER, TAG_XML, UNKNOWN
     };
 
+    /**
+     * Log line with a datestamp.
+     */
+    private static final Pattern LOG_LINE_DATESTAMP_PATTERN = Pattern.compile("^(.*)" + JdkRegEx.DATESTAMP + "(.*)$");
+
+    /**
+     * Datestamp.
+     */
+    private static final Pattern DATESTAMP_PATTERN = Pattern.compile("^" + JdkRegEx.DATESTAMP + "$");
+
     /**
      * Create <code>LogEvent</code> from VM log line.
      * 
@@ -79,7 +87,19 @@ public class JdkUtil {
      * @return The <code>LogEvent</code> corresponding to the log line.
      */
     public static final LogEvent parseLogLine(String logLine) {
-        LogEventType eventType = identifyEventType(logLine);
+        return parseLogLine(logLine, identifyEventType(logLine));
+    }
+
+    /**
+     * Create <code>LogEvent</code> from VM log line already identified.
+     * 
+     * @param logLine
+     *            The log line as it appears in the VM log.
+     * @param eventType
+     *            The <code>LogEventType</code> of the log line (from <code>identifyEventType</code>).
+     * @return The <code>LogEvent</code> corresponding to the log line.
+     */
+    public static final LogEvent parseLogLine(String logLine, LogEventType eventType) {
         LogEvent event = null;
         switch (eventType) {
 
@@ -238,6 +258,44 @@ public class JdkUtil {
         return new SafepointEvent(logEntry, timestamp, timeSync, timeCleanup, timeVmop);
     }
 
+    /**
+     * Create <code>SafepointEvent</code> from all stored values.
+     * 
+     * @param eventType
+     *            Log entry <code>LogEventType</code>.
+     * @param logEntry
+     *            Log entry.
+     * @param timestamp
+     *            Log entry timestamp.
+     * @param trigger
+     *            The <code>Trigger</code> for the safepoint event.
+     * @param threadsTotal
+     *            The total number of threads stopped in safepoint.
+     * @param threadsSpinning
+     *            The number of threads that were spinning before safepoint.
+     * @param threadsBlocked
+     *            The number of threads that were blocked before safepoint.
+     * @param timeSpin
+     *            The time for spinning threads to reach safepoint in milliseconds.
+     * @param timeBlock
+     *            The time for blocked threads to reach safepoint in milliseconds.
+     * @param timeSync
+     *            The time for all threads to reach safepoint (sync) in milliseconds.
+     * @param timeCleanup
+     *            The time for cleanup activities in milliseconds.
+     * @param timeVmop
+     *            The time for the safepoint activity (vmop) in milliseconds.
+     * @param pageTrapCount
+     *            The page trap count.
+     * @return The <code>SafepointEvent</code> for the given event values.
+     */
+    public static final SafepointEvent hydrateSafepointEvent(LogEventType eventType, String logEntry, long timestamp,
+            Trigger trigger, int threadsTotal, int threadsSpinning, int threadsBlocked, int timeSpin, int timeBlock,
+            int timeSync, int timeCleanup, int timeVmop, int pageTrapCount) {
+        return new SafepointEvent(logEntry, timestamp, trigger, threadsTotal, threadsSpinning, threadsBlocked, timeSpin,
+                timeBlock, timeSync, timeCleanup, timeVmop, pageTrapCount);
+    }
+
     /**
      * @param eventType
      *            The event type to test.
@@ -333,17 +391,19 @@ public class JdkUtil {
                     - previouseSafepointEvent.getTimestamp() - previouseSafepointEvent.getDuration();
             // Determine the maximum duration for the given interval that meets the
             // throughput goal.
-            BigDecimal durationThreshold = new BigDecimal(100 - throughputThreshold);
-            durationThreshold = durationThreshold.movePointLeft(2);
-            durationThreshold = durationThreshold.multiply(new BigDecimal(interval));
-            durationThreshold.setScale(0, RoundingMode.DOWN);
-            return (currentSafepointEvent.getDuration() > durationThreshold.intValue());
+            // Whole milliseconds (rounded down).
+            int durationThreshold = (int) ((100 - throughputThreshold) * interval / 100);
+            return (currentSafepointEvent.getDuration() > durationThreshold);
         }
     }
 
     /**
      * Convert all log entry timestamps to a datestamp.
      * 
+     * This is done for every bottleneck line, so instead of a <code>JdkRegEx.TIMESTAMP + "(: )"</code> regular
+     * expression (the colon and space after the timestamp so durations will not get picked up), each ": " is found and
+     * the timestamp before it checked, with the same matches as the regular expression.
+     * 
      * @param logEntry
      *            The log entry.
      * @param jvmStartDate
@@ -351,20 +411,70 @@ public class JdkUtil {
      * @return the log entry with the timestamp converted to a datestamp.
      */
     public static final String convertLogEntryTimestampsToDateStamp(String logEntry, Date jvmStartDate) {
-        // Add the colon or space after the timestamp format so durations will not get
-        // picked up.
-        Pattern pattern = Pattern.compile(JdkRegEx.TIMESTAMP + "(: )");
-        Matcher matcher = pattern.matcher(logEntry);
-        StringBuffer sb = new StringBuffer();
-        while (matcher.find()) {
-            Date date = VmUtil.getDatePlusTimestamp(jvmStartDate,
-                    JdkMath.convertSecsToMillis(matcher.group(1)).longValue());
-            SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss,SSS");
-            // Only update the timestamp, keep the colon or space.
-            matcher.appendReplacement(sb, formatter.format(date) + matcher.group(2));
+        StringBuilder converted = null;
+        // Where the next match can start
+        int searchStart = 0;
+        // Where the log entry has been copied to
+        int copied = 0;
+        int colon = logEntry.indexOf(": ");
+        while (colon >= 0) {
+            // Timestamps have a decimal point (or comma) and 3 decimal places.
+            int separator = colon - 4;
+            if (separator >= searchStart && (logEntry.charAt(separator) == '.' || logEntry.charAt(separator) == ',')
+                    && isDigit(logEntry.charAt(separator + 1)) && isDigit(logEntry.charAt(separator + 2))
+                    && isDigit(logEntry.charAt(separator + 3))) {
+                // Up to 12 whole second digits
+                int start = separator;
+                while (start > searchStart && separator - start < 12 && isDigit(logEntry.charAt(start - 1))) {
+                    start--;
+                }
+                if (converted == null) {
+                    converted = new StringBuilder(logEntry.length() + 16);
+                }
+                Date date = VmUtil.getDatePlusTimestamp(jvmStartDate, getTimestampMillis(logEntry, start, colon));
+                // Only update the timestamp, keep the colon and space.
+                converted.append(logEntry, copied, start).append(VmUtil.getDateTimeString(date));
+                copied = colon;
+                searchStart = colon + 2;
+            }
+            colon = logEntry.indexOf(": ", colon + 1);
+        }
+        if (converted == null) {
+            return logEntry;
+        }
+        return converted.append(logEntry, copied, logEntry.length()).toString();
+    }
+
+    /**
+     * @param c
+     *            A character.
+     * @return True if the character is an ASCII digit (regular expression \d), false otherwise.
+     */
+    private static final boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Fixed point equivalent of <code>JdkMath.convertSecsToMillis(timestamp).longValue()</code> for a
+     * <code>JdkRegEx.TIMESTAMP</code>, which always has 3 decimal places.
+     * 
+     * @param logEntry
+     *            The log entry.
+     * @param start
+     *            The index of the timestamp (seconds) in <code>JdkRegEx.TIMESTAMP</code> format.
+     * @param end
+     *            The index after the timestamp.
+     * @return The timestamp in milliseconds.
+     */
+    static final long getTimestampMillis(String logEntry, int start, int end) {
+        long millis = 0;
+        for (int i = start; i < end; i++) {
+            char c = logEntry.charAt(i);
+            if (isDigit(c)) {
+                millis = millis * 10 + (c - '0');
+            }
         }
-        matcher.appendTail(sb);
-        return sb.toString();
+        return millis;
     }
 
     /**
@@ -376,12 +486,65 @@ public class JdkUtil {
      */
     public static final String getDateStamp(String logLine) {
         String datestamp = null;
-        String regex = "^(.*)" + JdkRegEx.DATESTAMP + "(.*)$";
-        Pattern pattern = Pattern.compile(regex);
-        Matcher matcher = pattern.matcher(logLine);
+        Matcher matcher = LOG_LINE_DATESTAMP_PATTERN.matcher(logLine);
         if (matcher.find()) {
             datestamp = matcher.group(2);
         }
         return datestamp;
     }
+
+    /**
+     * Convert a datestamp to milliseconds since the epoch with integer math (no <code>Calendar</code>).
+     * 
+     * @param datestamp
+     *            The datestamp (e.g. 2017-01-30T10:06:50.070+0400).
+     * @return The datestamp time (milliseconds since the epoch).
+     */
+    public static final long getDateStampMillis(String datestamp) {
+        Matcher matcher = DATESTAMP_PATTERN.matcher(datestamp);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a datestamp: " + datestamp);
+        }
+        long days = getEpochDay(Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(3)),
+                Integer.parseInt(matcher.group(4)));
+        long seconds = ((days * 24 + Integer.parseInt(matcher.group(5))) * 60 + Integer.parseInt(matcher.group(6))) * 60
+                + Integer.parseInt(matcher.group(7));
+        return seconds * 1000 + Integer.parseInt(matcher.group(8)) - getDateStampOffset(datestamp);
+    }
+
+    /**
+     * @param datestamp
+     *            The datestamp (e.g. 2017-01-30T10:06:50.070+0400).
+     * @return The datestamp time zone offset (milliseconds).
+     */
+    public static final int getDateStampOffset(String datestamp) {
+        Matcher matcher = DATESTAMP_PATTERN.matcher(datestamp);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a datestamp: " + datestamp);
+        }
+        int hhmm = Integer.parseInt(matcher.group(10));
+        int offset = ((hhmm / 100) * 60 + hhmm % 100) * 60 * 1000;
+        return matcher.group(9).equals("-") ? -offset : offset;
+    }
+
+    /**
+     * Days since 1970-01-01 in the proleptic Gregorian calendar (the "days from civil" algorithm).
+     * 
+     * @param year
+     *            The year (0 or later).
+     * @param month
+     *            The month (1-12).
+     * @param day
+     *            The day of month (1-31).
+     * @return The number of days since 1970-01-01.
+     */
+    static final long getEpochDay(int year, int month, int day) {
+        // Count years from March, so the leap day is the last day of the year
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
 }
@@ -45,6 +45,20 @@ public class Safepoint {
         SHENANDOAH_INIT_MARK, SHENANDOAH_INIT_UPDATE_REFS, THREAD_DUMP, UNKNOWN
     };
 
+    /**
+     * Safepoint event pause time metrics.
+     */
+    public enum Metric {
+        TOTAL, SYNC, VMOP, CLEANUP
+    };
+
+    /**
+     * Ranges for the ratio of the time to reach safepoint (sync) to the time doing the safepoint operation (vmop).
+     */
+    public enum SyncVmopRatio {
+        NO_SYNC, LT_0_1, LT_1, LT_10, GE_10
+    };
+
     /**
      * <p>
      * Bulk operation when the compiler has to recompile previously compiled code due to the compiled code no longer
@@ -426,6 +440,90 @@ public class Safepoint {
         return triggerLiteral;
     }
 
+    /**
+     * Get the <code>SyncVmopRatio</code> literal used for reporting.
+     * 
+     * @param ratio
+     *            The <code>SyncVmopRatio</code>.
+     * @return The <code>SyncVmopRatio</code> literal.
+     */
+    public static final String getSyncVmopRatioLiteral(SyncVmopRatio ratio) {
+        String ratioLiteral = null;
+
+        switch (ratio) {
+        case NO_SYNC:
+            ratioLiteral = "0";
+            break;
+        case LT_0_1:
+            ratioLiteral = "< 0.1";
+            break;
+        case LT_1:
+            ratioLiteral = "0.1 - 1";
+            break;
+        case LT_10:
+            ratioLiteral = "1 - 10";
+            break;
+        case GE_10:
+            ratioLiteral = ">= 10";
+            break;
+
+        default:
+            throw new AssertionError("Unexpected ratio value: " + ratio);
+        }
+        return ratioLiteral;
+    }
+
+    /**
+     * Get the <code>Metric</code> literal used for reporting.
+     * 
+     * @param metric
+     *            The <code>Metric</code>.
+     * @return The <code>Metric</code> literal.
+     */
+    public static final String getMetricLiteral(Metric metric) {
+        String metricLiteral = null;
+
+        switch (metric) {
+        case TOTAL:
+            metricLiteral = "total";
+            break;
+        case SYNC:
+            metricLiteral = "sync";
+            break;
+        case VMOP:
+            metricLiteral = "vmop";
+            break;
+        case CLEANUP:
+            metricLiteral = "cleanup";
+            break;
+
+        default:
+            throw new AssertionError("Unexpected metric value: " + metric);
+        }
+        return metricLiteral;
+    }
+
+    /**
+     * Identify the sync to vmop ratio range.
+     * 
+     * @param timeSync
+     *            The time for all threads to reach safepoint (sync) in milliseconds.
+     * @param timeVmop
+     *            The time for the safepoint activity (vmop) in milliseconds.
+     * @return The <code>SyncVmopRatio</code>.
+     */
+    public static final SyncVmopRatio identifySyncVmopRatio(int timeSync, int timeVmop) {
+        if (timeSync == 0)
+            return SyncVmopRatio.NO_SYNC;
+        if (timeSync * 10L < timeVmop)
+            return SyncVmopRatio.LT_0_1;
+        if (timeSync < timeVmop)
+            return SyncVmopRatio.LT_1;
+        if (timeSync < timeVmop * 10L)
+            return SyncVmopRatio.LT_10;
+        return SyncVmopRatio.GE_10;
+    }
+
     /**
      * Identify the safepoint trigger.
      * 
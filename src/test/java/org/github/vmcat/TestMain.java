@@ -14,8 +14,12 @@
  *********************************************************************************************************************/
 package org.github.vmcat;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.util.List;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.ParseException;
@@ -284,4 +288,66 @@ public class TestMain extends TestCase {
             Assert.assertTrue("Epected ParseException not thrown.", e.getTargetException() instanceof ParseException);
         }
     }
+
+    public void testBatch() throws IOException {
+        File reportDir = Files.createTempDirectory("vmcat").toFile();
+        String[] args = new String[7];
+        args[0] = "--batch";
+        args[1] = "--jobs";
+        args[2] = "2";
+        args[3] = "--output";
+        args[4] = reportDir.getPath();
+        args[5] = Constants.TEST_DATA_DIR + "dataset12.txt";
+        args[6] = Constants.TEST_DATA_DIR + "dataset13.txt";
+        Main.main(args);
+        File indexFile = new File(reportDir, Constants.BATCH_INDEX_FILE_NAME);
+        Assert.assertTrue("Index not created.", indexFile.exists());
+        Assert.assertTrue("Report not created.", new File(reportDir, "dataset12.txt.txt").exists());
+        Assert.assertTrue("Report not created.", new File(reportDir, "dataset13.txt.txt").exists());
+        List<String> index = Files.readAllLines(indexFile.toPath());
+        Assert.assertTrue("File count not correct.", index.contains("# Files: 2"));
+        // Lowest throughput first
+        Assert.assertTrue("Index order not correct.", index.get(6).endsWith("dataset13.txt"));
+        Assert.assertTrue("Top trigger not correct.", index.get(7).contains("RevokeBias"));
+        File[] files = reportDir.listFiles();
+        for (int i = 0; i < files.length; i++) {
+            files[i].delete();
+        }
+        reportDir.delete();
+    }
+
+    public void testCompare() throws IOException {
+        File reportFile = File.createTempFile("vmcat", ".txt");
+        String[] args = new String[5];
+        args[0] = "--compare";
+        args[1] = Constants.TEST_DATA_DIR + "dataset1.txt";
+        args[2] = "--output";
+        args[3] = reportFile.getPath();
+        args[4] = Constants.TEST_DATA_DIR + "dataset12.txt";
+        Main.main(args);
+        List<String> report = Files.readAllLines(reportFile.toPath());
+        Assert.assertEquals("Compare header not correct.", "COMPARE:", report.get(1));
+        Assert.assertTrue("Safepoint count not correct.",
+                report.contains(String.format("%-24s%12s%12s%12s%10s", "# Safepoints", 9, 153, "+144", "+1600.0%")));
+        Assert.assertTrue("Pause comparison not correct.",
+                report.contains("Pause Times: shorter (Mann-Whitney p-value 0.0000, probability a candidate pause is "
+                        + "longer 0.00)"));
+        Assert.assertTrue("Trigger comparison not correct.", report.get(26).startsWith("RevokeBias"));
+        Assert.assertTrue("Trigger change not correct.", report.get(26).endsWith("shorter"));
+        reportFile.delete();
+    }
+
+    public void testMaxMemory() throws IOException {
+        File reportFile = File.createTempFile("vmcat", ".txt");
+        String[] args = new String[5];
+        args[0] = "--max-memory";
+        args[1] = Integer.toString(Constants.MIN_MAX_MEMORY);
+        args[2] = "--output";
+        args[3] = reportFile.getPath();
+        args[4] = Constants.TEST_DATA_DIR + "dataset12.txt";
+        Main.main(args);
+        List<String> report = Files.readAllLines(reportFile.toPath());
+        Assert.assertTrue("Memory budget not reported.", report.contains("Memory Budget: 32 MB"));
+        reportFile.delete();
+    }
 }
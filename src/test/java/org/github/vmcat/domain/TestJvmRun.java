@@ -15,12 +15,22 @@
 package org.github.vmcat.domain;
 
 import java.io.File;
+import java.util.List;
+import java.util.TimeZone;
 
+import org.github.vmcat.domain.jdk.CalendarRollup;
+import org.github.vmcat.domain.jdk.SafepointEvent;
+import org.github.vmcat.domain.jdk.SafepointStorm;
+import org.github.vmcat.domain.jdk.TimeToSafepointSummary;
 import org.github.vmcat.service.Manager;
 import org.github.vmcat.util.Constants;
+import org.github.vmcat.util.VmUtil;
 import org.github.vmcat.util.jdk.Analysis;
 import org.github.vmcat.util.jdk.JdkUtil;
 import org.github.vmcat.util.jdk.JdkUtil.LogEventType;
+import org.github.vmcat.util.jdk.Safepoint.Metric;
+import org.github.vmcat.util.jdk.Safepoint.SyncVmopRatio;
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
 import org.junit.Assert;
 
 import junit.framework.TestCase;
@@ -80,4 +90,215 @@ public class TestJvmRun extends TestCase {
         Assert.assertFalse(Analysis.WARN_UNIDENTIFIED_LOG_LINE_REPORT + " analysis incorrectly identified.",
                 jvmRun.getAnalysis().contains(Analysis.WARN_UNIDENTIFIED_LOG_LINE_REPORT));
     }
+
+    public void testTimeToSafepoint() {
+        File testFile = new File(Constants.TEST_DATA_DIR + "dataset11.txt");
+        Manager manager = new Manager();
+        manager.store(testFile);
+        JvmRun jvmRun = manager.getJvmRun(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        Assert.assertEquals("Safepoint event count not correct.", 4, jvmRun.getSafepointEventCount());
+        Assert.assertEquals("Time to safepoint total not correct.", 1804, jvmRun.getTimeToSafepointTotal());
+        Assert.assertEquals("Time to safepoint summary count not correct.", 3,
+                jvmRun.getTimeToSafepointSummaries().size());
+        TimeToSafepointSummary summary = jvmRun.getTimeToSafepointSummaries().get(0);
+        Assert.assertEquals("Time to safepoint summary order not correct.", Trigger.REVOKE_BIAS, summary.getTrigger());
+        Assert.assertEquals("Time to safepoint summary sync total not correct.", 1502, summary.getSyncTotal());
+        Assert.assertEquals("Time to safepoint summary sync max not correct.", 1502, summary.getSyncMax());
+        Assert.assertEquals("Time to safepoint summary vmop total not correct.", 4, summary.getVmopTotal());
+        long[] ratioCounts = jvmRun.getSyncVmopRatioCounts();
+        Assert.assertEquals("No sync count not correct.", 1, ratioCounts[SyncVmopRatio.NO_SYNC.ordinal()]);
+        Assert.assertEquals("Sync < 0.1 vmop count not correct.", 1, ratioCounts[SyncVmopRatio.LT_0_1.ordinal()]);
+        Assert.assertEquals("Sync 0.1 - 1 vmop count not correct.", 0, ratioCounts[SyncVmopRatio.LT_1.ordinal()]);
+        Assert.assertEquals("Sync 1 - 10 vmop count not correct.", 0, ratioCounts[SyncVmopRatio.LT_10.ordinal()]);
+        Assert.assertEquals("Sync >= 10 vmop count not correct.", 2, ratioCounts[SyncVmopRatio.GE_10.ordinal()]);
+        Assert.assertEquals("Worst time to safepoint event count not correct.", 3,
+                jvmRun.getWorstTimeToSafepointEvents().size());
+        SafepointEvent worst = jvmRun.getWorstTimeToSafepointEvents().get(0);
+        Assert.assertEquals("Worst time to safepoint event sync not correct.", 1502, worst.getTimeSync());
+        Assert.assertEquals("Worst time to safepoint event trigger not correct.", Trigger.REVOKE_BIAS,
+                worst.getTrigger());
+        Assert.assertEquals("Worst time to safepoint event threads not correct.", 250, worst.getThreadsTotal());
+        Assert.assertEquals("Worst time to safepoint event blocked threads not correct.", 3,
+                worst.getThreadsBlocked());
+        Assert.assertEquals("Worst time to safepoint event page traps not correct.", 1, worst.getPageTrapCount());
+    }
+
+    public void testTopSafepointEvents() {
+        File testFile = new File(Constants.TEST_DATA_DIR + "dataset11.txt");
+        Manager manager = new Manager();
+        manager.store(testFile);
+        JvmRun jvmRun = manager.getJvmRun(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        List<SafepointEvent> total = jvmRun.getTopSafepointEvents().get(Metric.TOTAL).getEvents();
+        Assert.assertEquals("Top total event count not correct.", 4, total.size());
+        Assert.assertEquals("Longest safepoint not correct.", 1503, total.get(0).getDuration());
+        Assert.assertEquals("Shortest safepoint not correct.", 3, total.get(3).getDuration());
+        List<SafepointEvent> vmop = jvmRun.getTopSafepointEvents().get(Metric.VMOP).getEvents();
+        Assert.assertEquals("Top vmop trigger not correct.", Trigger.G1_INC_COLLECTION_PAUSE, vmop.get(0).getTrigger());
+        List<SafepointEvent> cleanup = jvmRun.getTopSafepointEvents().get(Metric.CLEANUP).getEvents();
+        Assert.assertEquals("Top cleanup trigger not correct.", Trigger.FORCE_SAFEPOINT, cleanup.get(0).getTrigger());
+    }
+
+    public void testSafepointStorm() {
+        File testFile = new File(Constants.TEST_DATA_DIR + "dataset12.txt");
+        Manager manager = new Manager();
+        manager.store(testFile);
+        JvmRun jvmRun = manager.getJvmRun(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        Assert.assertEquals("Safepoint event count not correct.", 153, jvmRun.getSafepointEventCount());
+        Assert.assertEquals("Storm count not correct.", 1, jvmRun.getSafepointStorms().size());
+        SafepointStorm storm = jvmRun.getSafepointStorms().get(0);
+        Assert.assertEquals("Storm start not correct.", 20000, storm.getStart());
+        Assert.assertEquals("Storm end not correct.", 20747, storm.getEnd());
+        Assert.assertEquals("Storm count not correct.", 151, storm.getCount());
+        Assert.assertEquals("Storm pause not correct.", 315, storm.getPauseTotal());
+        Assert.assertEquals("Storm pause share not correct.", 42, storm.getPauseShare());
+        Assert.assertEquals("Dominant trigger not correct.", Trigger.REVOKE_BIAS, storm.getDominantTrigger());
+        Assert.assertTrue(Analysis.WARN_STORM_BIASED_LOCKING + " analysis not identified.",
+                jvmRun.getAnalysis().contains(Analysis.WARN_STORM_BIASED_LOCKING));
+        Assert.assertFalse(Analysis.WARN_STORM + " analysis incorrectly identified.",
+                jvmRun.getAnalysis().contains(Analysis.WARN_STORM));
+        String literal = jvmRun.getAnalysisLiteral(Analysis.WARN_STORM_BIASED_LOCKING);
+        Assert.assertTrue("Storm cost not included in analysis: " + literal,
+                literal.endsWith("1 storm(s) lasting 0.747 secs ("
+                        + VmUtil.getPercentString(747, jvmRun.getJvmRunDuration())
+                        + "% of the JVM run) with 0.315 secs of safepoint pause (42% of the storm time)."));
+    }
+
+    public void testSafepointStormThresholds() {
+        File testFile = new File(Constants.TEST_DATA_DIR + "dataset12.txt");
+        Manager manager = new Manager();
+        manager.setStormThresholds(200, 50);
+        manager.store(testFile);
+        JvmRun jvmRun = manager.getJvmRun(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        Assert.assertEquals("Storm incorrectly detected.", 0, jvmRun.getSafepointStorms().size());
+        Assert.assertFalse(Analysis.WARN_STORM_BIASED_LOCKING + " analysis incorrectly identified.",
+                jvmRun.getAnalysis().contains(Analysis.WARN_STORM_BIASED_LOCKING));
+    }
+
+    public void testReorder() {
+        File testFile = new File(Constants.TEST_DATA_DIR + "dataset13.txt");
+        Manager manager = new Manager();
+        manager.store(testFile);
+        JvmRun jvmRun = manager.getJvmRun(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        Assert.assertEquals("Safepoint event count not correct.", 9, jvmRun.getSafepointEventCount());
+        Assert.assertEquals("Reordered count not correct.", 1, jvmRun.getReorderedCount());
+        Assert.assertEquals("Out of horizon count not correct.", 1, jvmRun.getOutOfHorizonCount());
+        Assert.assertEquals("Out of horizon log line count not correct.", 1, jvmRun.getOutOfHorizonLogLines().size());
+        Assert.assertTrue("Out of horizon log line not correct.",
+                jvmRun.getOutOfHorizonLogLines().get(0).startsWith("102.000: RevokeBias"));
+        Assert.assertEquals("Event overlap count not correct.", 1, jvmRun.getEventOverlapCount());
+        Assert.assertEquals("First timestamp not correct.", 110000, jvmRun.getFirstSafepointEvent().getTimestamp());
+        Assert.assertTrue(Analysis.INFO_REORDERED + " analysis not identified.",
+                jvmRun.getAnalysis().contains(Analysis.INFO_REORDERED));
+        Assert.assertTrue(Analysis.WARN_OUT_OF_HORIZON + " analysis not identified.",
+                jvmRun.getAnalysis().contains(Analysis.WARN_OUT_OF_HORIZON));
+        Assert.assertTrue(Analysis.WARN_EVENT_OVERLAP + " analysis not identified.",
+                jvmRun.getAnalysis().contains(Analysis.WARN_EVENT_OVERLAP));
+    }
+
+    public void testReorderHorizon() {
+        File testFile = new File(Constants.TEST_DATA_DIR + "dataset13.txt");
+        Manager manager = new Manager();
+        manager.setReorderHorizon(60000);
+        manager.store(testFile);
+        JvmRun jvmRun = manager.getJvmRun(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        Assert.assertEquals("Reordered count not correct.", 2, jvmRun.getReorderedCount());
+        Assert.assertEquals("Out of horizon count not correct.", 0, jvmRun.getOutOfHorizonCount());
+        Assert.assertEquals("First timestamp not correct.", 102000, jvmRun.getFirstSafepointEvent().getTimestamp());
+    }
+
+    public void testMultipleJvmRuns() {
+        File testFile = new File(Constants.TEST_DATA_DIR + "dataset14.txt");
+        Manager manager = new Manager();
+        manager.store(testFile);
+        List<JvmRun> jvmRuns = manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        Assert.assertEquals("JVM run count not correct.", 3, jvmRuns.size());
+        // Split on destroy_vm and hotspot_log
+        JvmRun jvmRun = jvmRuns.get(0);
+        Assert.assertEquals("Run 1 safepoint event count not correct.", 3, jvmRun.getSafepointEventCount());
+        Assert.assertEquals("Run 1 total pause not correct.", 31, jvmRun.getSafepointTotalPause());
+        Assert.assertEquals("Run 1 first timestamp not correct.", 1000, jvmRun.getFirstSafepointEvent().getTimestamp());
+        Assert.assertEquals("Run 1 last timestamp not correct.", 9000, jvmRun.getLastSafepointEvent().getTimestamp());
+        Assert.assertTrue("Run 1 options not correct.", jvmRun.getJvm().getOptions().endsWith("-Xmx1g"));
+        jvmRun = jvmRuns.get(1);
+        Assert.assertEquals("Run 2 safepoint event count not correct.", 3, jvmRun.getSafepointEventCount());
+        Assert.assertEquals("Run 2 max pause not correct.", 40, jvmRun.getMaxPause());
+        Assert.assertEquals("Run 2 first timestamp not correct.", 2000, jvmRun.getFirstSafepointEvent().getTimestamp());
+        Assert.assertTrue("Run 2 options not correct.", jvmRun.getJvm().getOptions().endsWith("-Xmx2g"));
+        // Split on timestamp reset
+        jvmRun = jvmRuns.get(2);
+        Assert.assertEquals("Run 3 safepoint event count not correct.", 2, jvmRun.getSafepointEventCount());
+        Assert.assertEquals("Run 3 first timestamp not correct.", 500, jvmRun.getFirstSafepointEvent().getTimestamp());
+        Assert.assertEquals("Run 3 out of horizon count not correct.", 0, jvmRun.getOutOfHorizonCount());
+        Assert.assertNull("Run 3 options not correct.", jvmRun.getJvm().getOptions());
+        Assert.assertEquals("Unidentified log lines.", 0, jvmRun.getUnidentifiedLogLines().size());
+        // Last run
+        jvmRun = manager.getJvmRun(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        Assert.assertEquals("Last run first timestamp not correct.", 500, jvmRun.getFirstSafepointEvent().getTimestamp());
+        manager.close();
+    }
+
+    public void testMultipleJvmRunsCallerJvm() {
+        File testFile = new File(Constants.TEST_DATA_DIR + "dataset14.txt");
+        Manager manager = new Manager();
+        manager.store(testFile);
+        Jvm jvm = new Jvm();
+        List<JvmRun> jvmRuns = manager.getJvmRuns(jvm, Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        manager.close();
+        // The hotspot_log_done tag does not start a JVM run
+        Assert.assertEquals("JVM run count not correct.", 3, jvmRuns.size());
+        Assert.assertNotSame("Caller JVM applied to first run.", jvm, jvmRuns.get(0).getJvm());
+        Assert.assertSame("Caller JVM not applied to last run.", jvm, jvmRuns.get(2).getJvm());
+    }
+
+    public void testStartTimeHotspotLog() {
+        File testFile = new File(Constants.TEST_DATA_DIR + "dataset14.txt");
+        Manager manager = new Manager();
+        manager.store(testFile);
+        List<JvmRun> jvmRuns = manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        manager.close();
+        JvmRun jvmRun = jvmRuns.get(0);
+        Assert.assertEquals("Run 1 start date not correct.", 1598979577623L, jvmRun.getJvm().getStartDate().getTime());
+        CalendarRollup calendarRollup = jvmRun.getCalendarRollup();
+        Assert.assertEquals("Run 1 zone offset not correct.", TimeZone.getDefault().getOffset(1598979577623L),
+                calendarRollup.getZoneOffset());
+        long count = 0;
+        for (int i = 0; i < 24; i++) {
+            count += calendarRollup.getHourCount(i);
+        }
+        Assert.assertEquals("Run 1 hour count not correct.", 3, count);
+        Assert.assertEquals("Run 2 start date not correct.", 1598979677623L,
+                jvmRuns.get(1).getJvm().getStartDate().getTime());
+        // Timestamp reset without a hotspot_log tag
+        Assert.assertNull("Run 3 start date not correct.", jvmRuns.get(2).getJvm().getStartDate());
+        Assert.assertNull("Run 3 calendar rollup not correct.", jvmRuns.get(2).getCalendarRollup());
+    }
+
+    public void testStartTimeDateStamp() {
+        Manager manager = new Manager();
+        manager.store("2017-01-30T23:59:59.000+0400: 10.000: G1IncCollectionPause             [     250          0"
+                + "              0    ]      [     0     0     0     0    10    ]  0");
+        manager.store("2017-01-31T00:00:09.000+0400: 20.000: RevokeBias                       [     250          0"
+                + "              0    ]      [     0     0     0     0     5    ]  0");
+        manager.flush();
+        JvmRun jvmRun = manager.getJvmRun(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        manager.close();
+        CalendarRollup calendarRollup = jvmRun.getCalendarRollup();
+        Assert.assertEquals("Start time not correct.", 1485806389000L, calendarRollup.getStartTime());
+        Assert.assertEquals("Zone offset not correct.", 4 * 60 * 60 * 1000, calendarRollup.getZoneOffset());
+        Assert.assertEquals("23:00 count not correct.", 1, calendarRollup.getHourCount(23));
+        Assert.assertEquals("00:00 pause not correct.", 5, calendarRollup.getHourPause(0));
+        Assert.assertEquals("Monday pause not correct.", 10, calendarRollup.getDayPause(0));
+        Assert.assertEquals("Tuesday pause not correct.", 5, calendarRollup.getDayPause(1));
+        // Datestamps are reported as logged
+        Assert.assertNull("Start date not correct.", jvmRun.getJvm().getStartDate());
+    }
+
+    public void testSingleJvmRun() {
+        File testFile = new File(Constants.TEST_DATA_DIR + "dataset13.txt");
+        Manager manager = new Manager();
+        manager.store(testFile);
+        List<JvmRun> jvmRuns = manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        // Timestamps out of order beyond the reorder horizon, but not near JVM startup
+        Assert.assertEquals("JVM run count not correct.", 1, jvmRuns.size());
+    }
 }
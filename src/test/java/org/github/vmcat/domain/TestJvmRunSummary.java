@@ -0,0 +1,96 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.List;
+
+import org.github.vmcat.service.Manager;
+import org.github.vmcat.util.Constants;
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestJvmRunSummary extends TestCase {
+
+    private static List<JvmRun> getJvmRuns(String dataset) {
+        Manager manager = new Manager();
+        manager.store(new File(Constants.TEST_DATA_DIR + dataset));
+        List<JvmRun> jvmRuns = manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        manager.close();
+        return jvmRuns;
+    }
+
+    public void testJvmRun() {
+        JvmRun jvmRun = getJvmRuns("dataset12.txt").get(0);
+        JvmRunSummary summary = new JvmRunSummary(jvmRun);
+        Assert.assertEquals("JVM run count not correct.", 1, summary.getJvmRunCount());
+        Assert.assertEquals("Safepoint count not correct.", 153, summary.getSafepointEventCount());
+        Assert.assertEquals("Pause total not correct.", jvmRun.getSafepointTotalPause(),
+                summary.getSafepointTotalPause());
+        Assert.assertEquals("Throughput not correct.", jvmRun.getThroughput(), summary.getThroughput());
+        Assert.assertEquals("Histogram count not correct.", 153, summary.getPauseHistogram().getCount());
+        Assert.assertEquals("Top trigger not correct.", Trigger.REVOKE_BIAS, summary.getTopTrigger());
+        Assert.assertEquals("Storm count not correct.", 1, summary.getSafepointStormCount());
+        Assert.assertEquals("Timeline not correct.", 153, summary.getPauseTimeline().getCount(0));
+    }
+
+    public void testFleet() {
+        Fleet fleet = new Fleet();
+        long safepointEventCount = 0;
+        long safepointTotalPause = 0;
+        // dataset14 has 2 JVM runs with the same version and different options, and 1 JVM run with no header.
+        String[] datasets = new String[] { "dataset12.txt", "dataset13.txt", "dataset14.txt" };
+        for (int i = 0; i < datasets.length; i++) {
+            fleet.addLogFile();
+            Iterator<JvmRun> iterator = getJvmRuns(datasets[i]).iterator();
+            while (iterator.hasNext()) {
+                JvmRun jvmRun = iterator.next();
+                safepointEventCount += jvmRun.getSafepointEventCount();
+                safepointTotalPause += jvmRun.getSafepointTotalPause();
+                fleet.add(new JvmRunSummary(jvmRun));
+            }
+        }
+        JvmRunSummary total = fleet.getTotal();
+        Assert.assertEquals("File count not correct.", 3, fleet.getLogFileCount());
+        Assert.assertEquals("JVM run count not correct.", 5, total.getJvmRunCount());
+        Assert.assertEquals("Safepoint count not correct.", safepointEventCount, total.getSafepointEventCount());
+        Assert.assertEquals("Pause total not correct.", safepointTotalPause, total.getSafepointTotalPause());
+        Assert.assertEquals("Histogram count not correct.", safepointEventCount,
+                total.getPauseHistogram().getCount());
+        Assert.assertEquals("Max pause not correct.", 3000, total.getMaxPause());
+        Assert.assertEquals("p100 not correct.", 3000, total.getPauseHistogram().getValueAtPercentile(100));
+        Assert.assertNull("Mixed versions not cleared.", total.getVersion());
+        Assert.assertEquals("Configuration count not correct.", 3, fleet.getConfigurations().size());
+        JvmRunSummary unknown = fleet.getConfigurations().get(0);
+        Assert.assertNull("Version not correct.", unknown.getVersion());
+        Assert.assertEquals("Unknown configuration run count not correct.", 3, unknown.getJvmRunCount());
+    }
+
+    public void testFingerprint() {
+        Assert.assertEquals("Option order changed fingerprint.", JvmRunSummary.getFingerprint("1.8", "-Xmx1g -Xms1g"),
+                JvmRunSummary.getFingerprint("1.8", "-Xms1g  -Xmx1g"));
+        Assert.assertFalse("Option value not in fingerprint.", JvmRunSummary.getFingerprint("1.8", "-Xmx1g")
+                .equals(JvmRunSummary.getFingerprint("1.8", "-Xmx2g")));
+        Assert.assertFalse("Version not in fingerprint.",
+                JvmRunSummary.getFingerprint("1.8", null).equals(JvmRunSummary.getFingerprint("11", null)));
+    }
+}
@@ -0,0 +1,237 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.github.vmcat.Main;
+import org.github.vmcat.service.Manager;
+import org.github.vmcat.util.Constants;
+import org.github.vmcat.util.VmLogGenerator;
+import org.github.vmcat.util.jdk.Analysis;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestMemoryBudget extends TestCase {
+
+    /**
+     * Parse a vm log.
+     * 
+     * @param vmLog
+     *            The vm log.
+     * @param memoryBudget
+     *            The memory budget, or null to not bound memory.
+     * @return The <code>JvmRun</code>s.
+     * @throws IOException
+     *             if the vm log cannot be read.
+     */
+    private List<JvmRun> parse(byte[] vmLog, MemoryBudget memoryBudget) throws IOException {
+        Manager manager = store(vmLog, memoryBudget);
+        // Retrieve every JVM run before closing
+        List<JvmRun> jvmRuns = new ArrayList<JvmRun>(
+                manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD));
+        manager.close();
+        return jvmRuns;
+    }
+
+    /**
+     * Store a vm log.
+     * 
+     * @param vmLog
+     *            The vm log.
+     * @param memoryBudget
+     *            The memory budget, or null to not bound memory.
+     * @return The <code>Manager</code> with the vm log stored.
+     * @throws IOException
+     *             if the vm log cannot be read.
+     */
+    private Manager store(byte[] vmLog, MemoryBudget memoryBudget) throws IOException {
+        Manager manager = new Manager();
+        manager.setMemoryBudget(memoryBudget);
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(vmLog), StandardCharsets.US_ASCII));
+        String logLine;
+        while ((logLine = reader.readLine()) != null) {
+            manager.store(logLine);
+        }
+        manager.flush();
+        return manager;
+    }
+
+    /**
+     * @return The heap memory (bytes) used after garbage collection.
+     */
+    private long getUsedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * @param bottlenecks
+     *            The bottleneck log lines, with "..." between windows.
+     * @return The number of log lines, not including the lines between windows.
+     */
+    private long getLineCount(List<String> bottlenecks) {
+        long count = 0;
+        for (int i = 0; i < bottlenecks.size(); i++) {
+            if (!bottlenecks.get(i).equals("...")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public void testLimits() {
+        // 8 MB is charged for the sketches of the current JVM run and a JVM run being reported
+        MemoryBudget memoryBudget = new MemoryBudget(64L * 1024 * 1024);
+        Assert.assertEquals("Cache scale not correct.", 11, memoryBudget.getCacheScale());
+        Assert.assertEquals("Cache size scale not correct.", 9, memoryBudget.getCacheSizeScale());
+        Assert.assertEquals("Reorder buffer limit not correct.", 7168, memoryBudget.getReorderBufferLimit());
+        Assert.assertEquals("Bottleneck line limit not correct.", 7168, memoryBudget.getBottleneckLineLimit());
+        Assert.assertEquals("JVM run cache limit not correct.", 7L * 1024 * 1024, memoryBudget.getJvmRunCacheLimit());
+    }
+
+    public void testLimitsBounded() {
+        MemoryBudget small = new MemoryBudget(1024);
+        Assert.assertEquals("Cache scale not correct.", 8, small.getCacheScale());
+        Assert.assertEquals("Reorder buffer limit not correct.", 1000, small.getReorderBufferLimit());
+        Assert.assertEquals("Bottleneck line limit not correct.", 100, small.getBottleneckLineLimit());
+        Assert.assertEquals("JVM run cache limit not correct.", 0, small.getJvmRunCacheLimit());
+        MemoryBudget large = new MemoryBudget(64L * 1024 * 1024 * 1024);
+        Assert.assertEquals("Cache scale not correct.", 18, large.getCacheScale());
+        Assert.assertEquals("Reorder buffer limit not correct.", Constants.REORDER_BUFFER_LIMIT,
+                large.getReorderBufferLimit());
+    }
+
+    public void testShare() {
+        MemoryBudget memoryBudget = new MemoryBudget(64L * 1024 * 1024).share(4);
+        Assert.assertEquals("Shared budget not correct.", 16L * 1024 * 1024, memoryBudget.getMaxMemory());
+    }
+
+    public void testAnalysis() throws IOException {
+        VmLogGenerator generator = new VmLogGenerator();
+        generator.setRestartInterval(4000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        generator.write(out, 0, 10000);
+        List<JvmRun> expected = parse(out.toByteArray(), null);
+        // Small enough to omit bottleneck lines
+        MemoryBudget memoryBudget = new MemoryBudget(1024 * 1024);
+        List<JvmRun> jvmRuns = parse(out.toByteArray(), memoryBudget);
+        Assert.assertTrue("No JVM restarts.", expected.size() > 1);
+        Assert.assertEquals("JVM run count not correct.", expected.size(), jvmRuns.size());
+        long omittedLineCount = 0;
+        for (int i = 0; i < jvmRuns.size(); i++) {
+            JvmRun jvmRun = jvmRuns.get(i);
+            Assert.assertEquals("No memory budget.", memoryBudget.getMaxMemory(), jvmRun.getMaxMemory());
+            // Safepoints spilled to disk are exact
+            Assert.assertEquals("Safepoint count not correct.", expected.get(i).getSafepointEventCount(),
+                    jvmRun.getSafepointEventCount());
+            Assert.assertEquals("Total pause not correct.", expected.get(i).getSafepointTotalPause(),
+                    jvmRun.getSafepointTotalPause());
+            Assert.assertEquals("Max pause not correct.", expected.get(i).getMaxPause(), jvmRun.getMaxPause());
+            Assert.assertEquals("Summary count not correct.", expected.get(i).getSafepointEventSummaries().size(),
+                    jvmRun.getSafepointEventSummaries().size());
+            Assert.assertEquals("Last safepoint not correct.",
+                    expected.get(i).getLastSafepointEvent().getLogEntry(),
+                    jvmRun.getLastSafepointEvent().getLogEntry());
+            Assert.assertEquals("Bottleneck time not correct.", expected.get(i).getBottleneckTime(),
+                    jvmRun.getBottleneckTime());
+            // Bottleneck lines are kept up to the limit
+            List<String> bottlenecks = jvmRun.getBottlenecks();
+            Assert.assertTrue("Bottleneck lines not bounded.",
+                    bottlenecks.size() <= memoryBudget.getBottleneckLineLimit() + 2);
+            Assert.assertEquals("Bottleneck lines not correct.",
+                    expected.get(i).getBottlenecks().subList(0, bottlenecks.size()), bottlenecks);
+            Assert.assertEquals("Omitted bottleneck line count not correct.",
+                    getLineCount(expected.get(i).getBottlenecks()),
+                    getLineCount(bottlenecks) + jvmRun.getOmittedBottleneckLineCount());
+            if (jvmRun.getOmittedBottleneckLineCount() > 0) {
+                Assert.assertTrue(Analysis.INFO_BOTTLENECKS_OMITTED + " analysis not identified.",
+                        jvmRun.getAnalysis().contains(Analysis.INFO_BOTTLENECKS_OMITTED));
+            }
+            omittedLineCount = omittedLineCount + jvmRun.getOmittedBottleneckLineCount();
+        }
+        Assert.assertTrue("No bottleneck lines omitted.", omittedLineCount > 0);
+    }
+
+    public void testManyJvmRuns() throws IOException {
+        VmLogGenerator generator = new VmLogGenerator();
+        generator.setMeanInterval(2000);
+        generator.setRestartInterval(250);
+        generator.setStormInterval(2000);
+        generator.setUnknownInterval(5);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        generator.write(out, 0, 10000);
+        byte[] vmLog = out.toByteArray();
+        MemoryBudget memoryBudget = new MemoryBudget(16L * 1024 * 1024);
+        // Ended JVM runs do not keep their sketches, so memory does not grow with the number of JVM runs
+        long usedMemory = getUsedMemory();
+        Manager manager = store(vmLog, memoryBudget);
+        Assert.assertTrue("Memory not bounded.", getUsedMemory() - usedMemory < memoryBudget.getMaxMemory());
+        List<JvmRun> expected = parse(vmLog, null);
+        List<JvmRun> jvmRuns = manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        Assert.assertTrue("Not many JVM runs.", expected.size() > 20);
+        Assert.assertEquals("JVM run count not correct.", expected.size(), jvmRuns.size());
+        long bottleneckLineCount = 0;
+        long unidentifiedLineCount = 0;
+        for (int i = 0; i < jvmRuns.size(); i++) {
+            JvmRun jvmRun = jvmRuns.get(i);
+            // Sketches rebuilt from the data store are the same
+            Assert.assertEquals("Safepoint count not correct.", expected.get(i).getSafepointEventCount(),
+                    jvmRun.getSafepointEventCount());
+            Assert.assertEquals("Pause p99 not correct.", expected.get(i).getPauseHistogram().getValueAtPercentile(99),
+                    jvmRun.getPauseHistogram().getValueAtPercentile(99));
+            Assert.assertEquals("Trigger count not correct.", expected.get(i).getTriggerPauseHistograms().size(),
+                    jvmRun.getTriggerPauseHistograms().size());
+            Assert.assertEquals("Pause series size not correct.", expected.get(i).getPauseSeries().size(),
+                    jvmRun.getPauseSeries().size());
+            Assert.assertEquals("Storm count not correct.", expected.get(i).getSafepointStorms().size(),
+                    jvmRun.getSafepointStorms().size());
+            Assert.assertEquals("Worst TTSP not correct.",
+                    expected.get(i).getWorstTimeToSafepointEvents().get(0).getLogEntry(),
+                    jvmRun.getWorstTimeToSafepointEvents().get(0).getLogEntry());
+            Assert.assertArrayEquals("MMU not correct.", expected.get(i).getMutatorUtilization().getMaxPauses(),
+                    jvmRun.getMutatorUtilization().getMaxPauses());
+            bottleneckLineCount = bottleneckLineCount + getLineCount(jvmRun.getBottlenecks());
+            unidentifiedLineCount = unidentifiedLineCount + jvmRun.getUnidentifiedLogLines().size();
+        }
+        // Line limits are for all JVM runs
+        Assert.assertTrue("Bottleneck lines not bounded.",
+                bottleneckLineCount <= memoryBudget.getBottleneckLineLimit() + jvmRuns.size());
+        Assert.assertTrue("Unidentified lines not limited.", generator.getUnknownCount() > Main.REJECT_LIMIT);
+        Assert.assertEquals("Unidentified lines not bounded.", Main.REJECT_LIMIT, unidentifiedLineCount);
+        // Retrieved again the same
+        JvmRun jvmRun = jvmRuns.get(0);
+        Assert.assertNotSame("JVM run not retrieved again.", jvmRun, jvmRuns.get(0));
+        Assert.assertEquals("Analysis not correct.", jvmRun.getAnalysis(), jvmRuns.get(0).getAnalysis());
+        Assert.assertEquals("Bottlenecks not correct.", jvmRun.getBottlenecks(), jvmRuns.get(0).getBottlenecks());
+        manager.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,114 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.github.vmcat.service.Manager;
+import org.github.vmcat.util.Constants;
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestRegressionGate extends TestCase {
+
+    private static List<JvmRun> getJvmRuns(String dataset) {
+        Manager manager = new Manager();
+        manager.store(new File(Constants.TEST_DATA_DIR + dataset));
+        List<JvmRun> jvmRuns = manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        manager.close();
+        return jvmRuns;
+    }
+
+    public void testPass() {
+        RegressionGate gate = new RegressionGate();
+        Assert.assertFalse("Gate enabled.", gate.isEnabled());
+        gate.setMinThroughput(95L);
+        gate.setMaxPause(100L);
+        gate.setMaxP99s("50, RevokeBias=10");
+        gate.setMaxStormTime(5L);
+        gate.setMaxBottleneckTime(1000L);
+        Assert.assertTrue("Gate not enabled.", gate.isEnabled());
+        List<JvmRun> jvmRuns = getJvmRuns("dataset12.txt");
+        List<GateCheck> checks = gate.evaluate(jvmRuns);
+        Assert.assertEquals("Check count not correct.", 6, checks.size());
+        Assert.assertEquals("Throughput not correct.", 99, checks.get(0).getValue());
+        Assert.assertEquals("Max pause not correct.", 20, checks.get(1).getValue());
+        Assert.assertEquals("p99 trigger not correct.", Trigger.G1_INC_COLLECTION_PAUSE,
+                checks.get(2).getTrigger());
+        Assert.assertEquals("p99 limit not correct.", 50, checks.get(2).getLimit());
+        Assert.assertEquals("p99 trigger not correct.", Trigger.REVOKE_BIAS, checks.get(3).getTrigger());
+        Assert.assertEquals("p99 limit not correct.", 10, checks.get(3).getLimit());
+        Assert.assertEquals("p99 not correct.", 2, checks.get(3).getValue());
+        Assert.assertEquals("Storm time not correct.", 2, checks.get(4).getValue());
+        Assert.assertEquals("Bottleneck time not correct.", 753, checks.get(5).getValue());
+        Assert.assertEquals("Exit code not correct.", 0, gate.getExitCode(checks));
+        Assert.assertTrue("Verdict not correct.",
+                RegressionGate.getVerdict(0, checks).startsWith("{\"verdict\":\"pass\",\"exitCode\":0,"));
+    }
+
+    public void testFail() {
+        RegressionGate gate = new RegressionGate();
+        gate.setMinThroughput(100L);
+        gate.setMaxPause(100L);
+        gate.setMaxP99s("RevokeBias=1");
+        List<JvmRun> jvmRuns = getJvmRuns("dataset12.txt");
+        List<GateCheck> checks = gate.evaluate(jvmRuns);
+        Assert.assertEquals("Check count not correct.", 3, checks.size());
+        Assert.assertFalse("Throughput gate passed.", checks.get(0).isPassed());
+        Assert.assertTrue("Pause gate failed.", checks.get(1).isPassed());
+        Assert.assertFalse("p99 gate passed.", checks.get(2).isPassed());
+        int exitCode = gate.getExitCode(checks);
+        Assert.assertEquals("Exit code not correct.", Constants.EXIT_GATE_THROUGHPUT | Constants.EXIT_GATE_P99,
+                exitCode);
+        Assert.assertEquals("Verdict not correct.",
+                "{\"verdict\":\"fail\",\"exitCode\":10,\"checks\":["
+                        + "{\"gate\":\"min-throughput\",\"limit\":100,\"value\":99,\"pass\":false},"
+                        + "{\"gate\":\"max-pause\",\"limit\":100,\"value\":20,\"pass\":true},"
+                        + "{\"gate\":\"max-p99\",\"trigger\":\"RevokeBias\",\"limit\":1,\"value\":2,\"pass\":false}]}",
+                RegressionGate.getVerdict(exitCode, checks));
+    }
+
+    public void testNoData() {
+        RegressionGate gate = new RegressionGate();
+        gate.setMaxPause(100L);
+        List<JvmRun> jvmRuns = new ArrayList<JvmRun>();
+        Assert.assertEquals("Exit code not correct.", Constants.EXIT_GATE_NO_DATA,
+                gate.getExitCode(gate.evaluate(jvmRuns)));
+    }
+
+    public void testInvalidP99() {
+        RegressionGate gate = new RegressionGate();
+        try {
+            gate.setMaxP99s("NoSuchTrigger=10");
+            Assert.fail("Unknown trigger not rejected.");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue("Message not correct.", e.getMessage().startsWith("Unknown trigger"));
+        }
+        try {
+            gate.setMaxP99s("RevokeBias=ten");
+            Assert.fail("Invalid limit not rejected.");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue("Message not correct.", e.getMessage().startsWith("Invalid p99 limit"));
+        }
+    }
+}
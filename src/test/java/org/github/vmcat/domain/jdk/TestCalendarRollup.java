@@ -0,0 +1,57 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain.jdk;
+
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestCalendarRollup extends TestCase {
+
+    public void testHourOfDay() {
+        Assert.assertEquals("Hour not correct.", 0, CalendarRollup.getHourOfDay(0));
+        Assert.assertEquals("Hour not correct.", 23, CalendarRollup.getHourOfDay(-1));
+        Assert.assertEquals("Hour not correct.", 16, CalendarRollup.getHourOfDay(1598979577623L));
+    }
+
+    public void testDayOfWeek() {
+        // 1970-01-01 Thursday
+        Assert.assertEquals("Day not correct.", "Thu",
+                CalendarRollup.getDayOfWeekLiteral(CalendarRollup.getDayOfWeek(0)));
+        // 1969-12-31 Wednesday
+        Assert.assertEquals("Day not correct.", "Wed",
+                CalendarRollup.getDayOfWeekLiteral(CalendarRollup.getDayOfWeek(-1)));
+        // 2020-09-01 Tuesday
+        Assert.assertEquals("Day not correct.", "Tue",
+                CalendarRollup.getDayOfWeekLiteral(CalendarRollup.getDayOfWeek(1598979577623L)));
+    }
+
+    public void testAdd() {
+        // 2020-09-01 16:59:37.623 UTC
+        CalendarRollup calendarRollup = new CalendarRollup(1598979577623L, 2 * 60 * 60 * 1000);
+        calendarRollup.add(1000, 10);
+        // 2 hours later
+        calendarRollup.add(2 * 60 * 60 * 1000, 20);
+        Assert.assertEquals("18:00 count not correct.", 1, calendarRollup.getHourCount(18));
+        Assert.assertEquals("18:00 pause not correct.", 10, calendarRollup.getHourPause(18));
+        Assert.assertEquals("20:00 pause not correct.", 20, calendarRollup.getHourPause(20));
+        Assert.assertEquals("Tuesday count not correct.", 2, calendarRollup.getDayCount(1));
+        Assert.assertEquals("Tuesday pause not correct.", 30, calendarRollup.getDayPause(1));
+    }
+}
@@ -0,0 +1,90 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain.jdk;
+
+import java.util.Random;
+
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestMutatorUtilization extends TestCase {
+
+    public void testSinglePause() {
+        MutatorUtilization mutatorUtilization = new MutatorUtilization(new long[] { 100, 1000 });
+        mutatorUtilization.add(5000, 250);
+        long[] maxPauses = mutatorUtilization.getMaxPauses();
+        Assert.assertEquals("Max pause not correct for window shorter than pause.", 100, maxPauses[0]);
+        Assert.assertEquals("Max pause not correct for window longer than pause.", 250, maxPauses[1]);
+        Assert.assertEquals("MMU not correct.", 0, MutatorUtilization.getMmu(100, maxPauses[0]));
+        Assert.assertEquals("MMU not correct.", 75, MutatorUtilization.getMmu(1000, maxPauses[1]));
+    }
+
+    public void testWindowStartingAtPauseStart() {
+        // The worst 10 ms window is [0, 10]: 4 ms + 1 ms. Windows ending at a pause end have at most 4 ms.
+        MutatorUtilization mutatorUtilization = new MutatorUtilization(new long[] { 10 });
+        mutatorUtilization.add(0, 4);
+        mutatorUtilization.add(9, 3);
+        mutatorUtilization.add(30, 1);
+        Assert.assertEquals("Max pause not correct.", 5, mutatorUtilization.getMaxPauses()[0]);
+    }
+
+    public void testOverlappingPauses() {
+        MutatorUtilization mutatorUtilization = new MutatorUtilization(new long[] { 100 });
+        mutatorUtilization.add(0, 60);
+        mutatorUtilization.add(50, 60);
+        Assert.assertEquals("Max pause not correct.", 100, mutatorUtilization.getMaxPauses()[0]);
+    }
+
+    public void testBruteForce() {
+        long[] windows = { 7, 50, 300 };
+        Random random = new Random(42);
+        for (int run = 0; run < 20; run++) {
+            MutatorUtilization mutatorUtilization = new MutatorUtilization(windows);
+            boolean[] paused = new boolean[5000];
+            long timestamp = 0;
+            while (true) {
+                timestamp = timestamp + random.nextInt(40);
+                long duration = random.nextInt(20);
+                if (timestamp + duration >= paused.length - windows[windows.length - 1]) {
+                    break;
+                }
+                mutatorUtilization.add(timestamp, duration);
+                for (long i = timestamp; i < timestamp + duration; i++) {
+                    paused[(int) i] = true;
+                }
+                timestamp = timestamp + duration;
+            }
+            long[] maxPauses = mutatorUtilization.getMaxPauses();
+            for (int i = 0; i < windows.length; i++) {
+                long expected = 0;
+                for (int start = 0; start + windows[i] <= paused.length; start++) {
+                    long pause = 0;
+                    for (int j = start; j < start + windows[i]; j++) {
+                        if (paused[j]) {
+                            pause++;
+                        }
+                    }
+                    expected = Math.max(expected, pause);
+                }
+                Assert.assertEquals("Max pause not correct for window " + windows[i] + ".", expected, maxPauses[i]);
+            }
+        }
+    }
+}
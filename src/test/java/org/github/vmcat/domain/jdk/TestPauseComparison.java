@@ -0,0 +1,78 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain.jdk;
+
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestPauseComparison extends TestCase {
+
+    public void testLonger() {
+        PauseHistogram baseline = new PauseHistogram();
+        PauseHistogram candidate = new PauseHistogram();
+        for (int i = 1; i <= 5; i++) {
+            baseline.add(i);
+            candidate.add(i + 5);
+        }
+        PauseComparison comparison = new PauseComparison(baseline, candidate);
+        Assert.assertEquals("Probability longer not correct.", 1.0, comparison.getProbabilityLonger(), 0.0001);
+        // Normal approximation with continuity correction: z = 12 / sqrt(22.9167)
+        Assert.assertEquals("p-value not correct.", 0.0122, comparison.getPValue(), 0.0001);
+        Assert.assertEquals("Change not correct.", 1, comparison.getChange(0.05));
+        Assert.assertEquals("Change not correct.", 0, comparison.getChange(0.01));
+        comparison = new PauseComparison(candidate, baseline);
+        Assert.assertEquals("Probability longer not correct.", 0.0, comparison.getProbabilityLonger(), 0.0001);
+        Assert.assertEquals("Change not correct.", -1, comparison.getChange(0.05));
+    }
+
+    public void testTies() {
+        PauseHistogram baseline = new PauseHistogram();
+        PauseHistogram candidate = new PauseHistogram();
+        for (int i = 0; i < 1000; i++) {
+            baseline.add(i % 10);
+            candidate.add(i % 10);
+        }
+        PauseComparison comparison = new PauseComparison(baseline, candidate);
+        Assert.assertEquals("Probability longer not correct.", 0.5, comparison.getProbabilityLonger(), 0.0001);
+        Assert.assertEquals("p-value not correct.", 1.0, comparison.getPValue(), 0.0001);
+        Assert.assertEquals("Change not correct.", 0, comparison.getChange(0.05));
+    }
+
+    public void testNoise() {
+        // A small shift in a few of many pauses is not significant.
+        PauseHistogram baseline = new PauseHistogram();
+        PauseHistogram candidate = new PauseHistogram();
+        for (int i = 0; i < 1000; i++) {
+            baseline.add(i % 50);
+            candidate.add(i % 50 + (i % 100 == 0 ? 1 : 0));
+        }
+        PauseComparison comparison = new PauseComparison(baseline, candidate);
+        Assert.assertTrue("Noise reported as significant.", comparison.getPValue() > 0.05);
+        Assert.assertEquals("Change not correct.", 0, comparison.getChange(0.05));
+    }
+
+    public void testEmpty() {
+        PauseHistogram candidate = new PauseHistogram();
+        candidate.add(10);
+        PauseComparison comparison = new PauseComparison(new PauseHistogram(), candidate);
+        Assert.assertEquals("p-value not correct.", 1.0, comparison.getPValue(), 0.0001);
+        Assert.assertEquals("Change not correct.", 0, comparison.getChange(0.05));
+    }
+}
@@ -0,0 +1,74 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain.jdk;
+
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestPauseHistogram extends TestCase {
+
+    public void testBuckets() {
+        Assert.assertEquals("Bucket not correct.", 0, PauseHistogram.getBucket(0));
+        Assert.assertEquals("Bucket not correct.", 63, PauseHistogram.getBucket(63));
+        Assert.assertEquals("Bucket not correct.", 64, PauseHistogram.getBucket(64));
+        Assert.assertEquals("Bucket not correct.", 64, PauseHistogram.getBucket(65));
+        Assert.assertEquals("Bucket max not correct.", 65, PauseHistogram.getBucketMax(64));
+        Assert.assertEquals("Last bucket not correct.", PauseHistogram.BUCKET_COUNT - 1,
+                PauseHistogram.getBucket(Integer.MAX_VALUE));
+        for (int value = 0; value < 100000; value++) {
+            int bucket = PauseHistogram.getBucket(value);
+            Assert.assertTrue("Value above bucket max.", value <= PauseHistogram.getBucketMax(bucket));
+            Assert.assertTrue("Value not above prior bucket max.",
+                    bucket == 0 || value > PauseHistogram.getBucketMax(bucket - 1));
+            Assert.assertTrue("Bucket precision not within 1/32.",
+                    PauseHistogram.getBucketMax(bucket) - value <= value / 32);
+        }
+    }
+
+    public void testPercentile() {
+        PauseHistogram histogram = new PauseHistogram();
+        Assert.assertEquals("Empty percentile not correct.", 0, histogram.getValueAtPercentile(99));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.add(i);
+        }
+        Assert.assertEquals("Count not correct.", 1000, histogram.getCount());
+        Assert.assertEquals("Max not correct.", 1000, histogram.getMax());
+        long p50 = histogram.getValueAtPercentile(50);
+        Assert.assertTrue("p50 not correct: " + p50, p50 >= 500 && p50 <= 500 + 500 / 32);
+        long p99 = histogram.getValueAtPercentile(99);
+        Assert.assertTrue("p99 not correct: " + p99, p99 >= 990 && p99 <= 990 + 990 / 32);
+        Assert.assertEquals("p100 not correct.", 1000, histogram.getValueAtPercentile(100));
+    }
+
+    public void testMerge() {
+        PauseHistogram histogram1 = new PauseHistogram();
+        PauseHistogram histogram2 = new PauseHistogram();
+        PauseHistogram all = new PauseHistogram();
+        for (int i = 0; i < 5000; i++) {
+            long value = (i * 7919L) % 20000;
+            (i % 3 == 0 ? histogram1 : histogram2).add(value);
+            all.add(value);
+        }
+        histogram1.merge(histogram2);
+        Assert.assertEquals("Merged histogram not the same as one histogram.", all, histogram1);
+        Assert.assertEquals("Merged p99 not correct.", all.getValueAtPercentile(99),
+                histogram1.getValueAtPercentile(99));
+    }
+}
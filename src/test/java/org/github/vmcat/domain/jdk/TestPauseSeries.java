@@ -0,0 +1,69 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain.jdk;
+
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestPauseSeries extends TestCase {
+
+    public void testAdd() {
+        PauseSeries series = new PauseSeries(100, 16);
+        series.add(50, 3, Trigger.REVOKE_BIAS);
+        series.add(60, 7, Trigger.G1_INC_COLLECTION_PAUSE);
+        series.add(250, 2, Trigger.REVOKE_BIAS);
+        Assert.assertEquals("Size not correct.", 3, series.size());
+        Assert.assertEquals("Count not correct.", 2, series.getCount(0));
+        Assert.assertEquals("Max pause not correct.", 7, series.getMaxPause(0));
+        Assert.assertEquals("Max pause timestamp not correct.", 60, series.getMaxTimestamp(0));
+        Assert.assertEquals("Empty bucket count not correct.", 0, series.getCount(1));
+        Assert.assertEquals("Trigger pause not correct.", 3, series.getTriggerPauses().get(Trigger.REVOKE_BIAS)[0]);
+        Assert.assertEquals("Trigger pause not correct.", 2, series.getTriggerPauses().get(Trigger.REVOKE_BIAS)[2]);
+    }
+
+    public void testWiden() {
+        PauseSeries series = new PauseSeries(100, 4);
+        series.add(50, 3, Trigger.REVOKE_BIAS);
+        series.add(150, 9, Trigger.REVOKE_BIAS);
+        series.add(350, 4, Trigger.G1_INC_COLLECTION_PAUSE);
+        // Past the last bucket: 200 ms buckets
+        series.add(450, 1, Trigger.REVOKE_BIAS);
+        Assert.assertEquals("Bucket width not correct.", 200, series.getBucketWidth());
+        Assert.assertEquals("Size not correct.", 3, series.size());
+        Assert.assertEquals("Count not correct.", 2, series.getCount(0));
+        Assert.assertEquals("Max pause not correct.", 9, series.getMaxPause(0));
+        Assert.assertEquals("Max pause timestamp not correct.", 150, series.getMaxTimestamp(0));
+        Assert.assertEquals("Count not correct.", 1, series.getCount(1));
+        Assert.assertEquals("Count not correct.", 1, series.getCount(2));
+        Assert.assertEquals("Trigger pause not correct.", 12, series.getTriggerPauses().get(Trigger.REVOKE_BIAS)[0]);
+        // Far past the last bucket: 1600 ms buckets
+        series.add(5000, 2, Trigger.REVOKE_BIAS);
+        Assert.assertEquals("Bucket width not correct.", 1600, series.getBucketWidth());
+        Assert.assertEquals("Count not correct.", 4, series.getCount(0));
+        Assert.assertEquals("Max pause not correct.", 9, series.getMaxPause(0));
+        Assert.assertEquals("Count not correct.", 1, series.getCount(3));
+        long total = 0;
+        for (int i = 0; i < series.size(); i++) {
+            total = total + series.getCount(i);
+        }
+        Assert.assertEquals("Total count not correct.", 5, total);
+    }
+}
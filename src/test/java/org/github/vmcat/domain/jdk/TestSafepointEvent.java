@@ -294,6 +294,26 @@ public class TestSafepointEvent extends TestCase {
         Assert.assertEquals("Duration not calculated correctly.", 0, event.getDuration());
     }
 
+    public void testJdk11ThreadsBlocked() {
+        String logLine = "  12.239: RevokeBias                      [               286                 4"
+                + "           118 ][             0       0       0       0       2 ]               1";
+        Assert.assertTrue("Log line not recognized as " + JdkUtil.LogEventType.SAFEPOINT.name() + ".",
+                SafepointEvent.match(logLine));
+        SafepointEvent event = new SafepointEvent(logLine);
+        Assert.assertEquals("Number of threads that were blocked before safepoint not parsed correctly.", 118,
+                event.getThreadsBlocked());
+    }
+
+    public void testJdk11ThreadsBlockedWide() {
+        String logLine = "  12.239: RevokeBias                      [               286                 4"
+                + "          1180 ][             0       0       0       0       2 ]               1";
+        Assert.assertTrue("Log line not recognized as " + JdkUtil.LogEventType.SAFEPOINT.name() + ".",
+                SafepointEvent.match(logLine));
+        SafepointEvent event = new SafepointEvent(logLine);
+        Assert.assertEquals("Number of threads that were blocked before safepoint not parsed correctly.", 1180,
+                event.getThreadsBlocked());
+    }
+
     public void testParseLogLine() {
         String logLine = "1665.730: RevokeBias                       [    2409          2             74    ]      "
                 + "[     3     2    10    30     0    ]  1";
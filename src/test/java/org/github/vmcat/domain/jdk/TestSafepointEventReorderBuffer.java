@@ -0,0 +1,85 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain.jdk;
+
+import java.util.List;
+
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestSafepointEventReorderBuffer extends TestCase {
+
+    private static SafepointEvent createEvent(String logEntry, long timestamp) {
+        return new SafepointEvent(logEntry, timestamp, Trigger.REVOKE_BIAS, 10, 0, 0, 0, 0, 0, 0, 1, 0);
+    }
+
+    public void testReorder() {
+        SafepointEventReorderBuffer buffer = new SafepointEventReorderBuffer(1000, 100);
+        Assert.assertTrue("Event not buffered.", buffer.add(createEvent("a", 1000)));
+        Assert.assertTrue("Event not buffered.", buffer.add(createEvent("c", 1500)));
+        Assert.assertTrue("Event not buffered.", buffer.add(createEvent("b", 1200)));
+        Assert.assertNull("Event released inside horizon.", buffer.poll());
+        Assert.assertTrue("Event not buffered.", buffer.add(createEvent("d", 2300)));
+        Assert.assertEquals("First event not released.", "a", buffer.poll().getLogEntry());
+        Assert.assertEquals("Second event not released.", "b", buffer.poll().getLogEntry());
+        Assert.assertNull("Event released inside horizon.", buffer.poll());
+        List<SafepointEvent> events = buffer.flush();
+        Assert.assertEquals("Flushed event count not correct.", 2, events.size());
+        Assert.assertEquals("Flushed event order not correct.", "c", events.get(0).getLogEntry());
+        Assert.assertEquals("Flushed event order not correct.", "d", events.get(1).getLogEntry());
+        Assert.assertEquals("Reordered count not correct.", 1, buffer.getReorderedCount());
+        Assert.assertEquals("Out of horizon count not correct.", 0, buffer.getOutOfHorizonCount());
+    }
+
+    public void testTies() {
+        SafepointEventReorderBuffer buffer = new SafepointEventReorderBuffer(1000, 100);
+        buffer.add(createEvent("a", 1000));
+        buffer.add(createEvent("b", 1000));
+        buffer.add(createEvent("c", 1000));
+        List<SafepointEvent> events = buffer.flush();
+        Assert.assertEquals("Tie order not correct.", "a", events.get(0).getLogEntry());
+        Assert.assertEquals("Tie order not correct.", "b", events.get(1).getLogEntry());
+        Assert.assertEquals("Tie order not correct.", "c", events.get(2).getLogEntry());
+        Assert.assertEquals("Reordered count not correct.", 0, buffer.getReorderedCount());
+    }
+
+    public void testOutOfHorizon() {
+        SafepointEventReorderBuffer buffer = new SafepointEventReorderBuffer(1000, 100);
+        buffer.add(createEvent("a", 1000));
+        buffer.add(createEvent("b", 5000));
+        Assert.assertEquals("Event not released.", "a", buffer.poll().getLogEntry());
+        Assert.assertFalse("Event outside horizon buffered.", buffer.add(createEvent("c", 900)));
+        Assert.assertEquals("Out of horizon count not correct.", 1, buffer.getOutOfHorizonCount());
+    }
+
+    public void testLimit() {
+        SafepointEventReorderBuffer buffer = new SafepointEventReorderBuffer(1000000, 2);
+        buffer.add(createEvent("a", 1000));
+        buffer.add(createEvent("b", 2000));
+        Assert.assertNull("Event released under limit.", buffer.poll());
+        buffer.add(createEvent("c", 3000));
+        Assert.assertEquals("Event not released over limit.", "a", buffer.poll().getLogEntry());
+        Assert.assertNull("Event released under limit.", buffer.poll());
+        Assert.assertEquals("Overflow count not correct.", 1, buffer.getOverflowCount());
+        buffer.flush();
+        Assert.assertEquals("Flushed events counted as overflow.", 1, buffer.getOverflowCount());
+    }
+}
@@ -0,0 +1,101 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain.jdk;
+
+import java.util.List;
+
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestSafepointStormDetector extends TestCase {
+
+    private static SafepointEvent createEvent(long timestamp, Trigger trigger, int timeVmop) {
+        return new SafepointEvent(null, timestamp, trigger, 10, 0, 0, 0, 0, 0, 0, timeVmop, 0);
+    }
+
+    public void testRate() {
+        SafepointStormDetector detector = new SafepointStormDetector(1000, 10, 50);
+        // 9 events in 1 second is not a storm
+        for (int i = 0; i < 9; i++) {
+            detector.add(createEvent(1000 + i * 100, Trigger.REVOKE_BIAS, 1));
+        }
+        Assert.assertEquals("Storm incorrectly detected.", 0, detector.getStorms().size());
+        // 20 events in 1 second is a storm
+        for (int i = 0; i < 20; i++) {
+            detector.add(createEvent(5000 + i * 50, Trigger.REVOKE_BIAS, 1));
+        }
+        detector.add(createEvent(5100, Trigger.G1_INC_COLLECTION_PAUSE, 5));
+        List<SafepointStorm> storms = detector.getStorms();
+        Assert.assertEquals("Storm not detected.", 1, storms.size());
+        SafepointStorm storm = storms.get(0);
+        Assert.assertEquals("Storm start not correct.", 5000, storm.getStart());
+        Assert.assertEquals("Storm end not correct.", 5951, storm.getEnd());
+        Assert.assertEquals("Storm count not correct.", 21, storm.getCount());
+        Assert.assertEquals("Storm pause not correct.", 25, storm.getPauseTotal());
+        Assert.assertEquals("Dominant trigger not correct.", Trigger.REVOKE_BIAS, storm.getDominantTrigger());
+        Assert.assertEquals("Dominant trigger count not correct.", 20, storm.getDominantTriggerCount());
+        // Storm ends when the rate drops
+        detector.add(createEvent(10000, Trigger.REVOKE_BIAS, 1));
+        Assert.assertEquals("Storm count not correct after storm end.", 1, detector.getStorms().size());
+        Assert.assertEquals("Storm not closed.", 21, detector.getStorms().get(0).getCount());
+    }
+
+    public void testStormCalmStormInOneWindow() {
+        SafepointStormDetector detector = new SafepointStormDetector(1000, 5, 50);
+        long[] timestamps = { 0, 100, 200, 300, 400, 1150, 1160 };
+        for (int i = 0; i < timestamps.length; i++) {
+            detector.add(createEvent(timestamps[i], Trigger.REVOKE_BIAS, 1));
+        }
+        List<SafepointStorm> storms = detector.getStorms();
+        Assert.assertEquals("Storm count not correct.", 2, storms.size());
+        Assert.assertEquals("First storm start not correct.", 0, storms.get(0).getStart());
+        Assert.assertEquals("First storm end not correct.", 401, storms.get(0).getEnd());
+        Assert.assertEquals("First storm event count not correct.", 5, storms.get(0).getCount());
+        // The second storm does not include the events already counted in the first storm
+        Assert.assertEquals("Second storm start not correct.", 1150, storms.get(1).getStart());
+        Assert.assertEquals("Second storm end not correct.", 1161, storms.get(1).getEnd());
+        Assert.assertEquals("Second storm event count not correct.", 2, storms.get(1).getCount());
+        Assert.assertEquals("Second storm pause not correct.", 2, storms.get(1).getPauseTotal());
+    }
+
+    public void testRateMixedTriggers() {
+        SafepointStormDetector detector = new SafepointStormDetector(1000, 10, 50);
+        // 10 events in 1 second split across triggers is not a storm
+        for (int i = 0; i < 10; i++) {
+            detector.add(createEvent(1000 + i * 10, i % 2 == 0 ? Trigger.REVOKE_BIAS : Trigger.DEOPTIMIZE, 1));
+        }
+        Assert.assertEquals("Storm incorrectly detected.", 0, detector.getStorms().size());
+    }
+
+    public void testTimeShare() {
+        SafepointStormDetector detector = new SafepointStormDetector(1000, 100, 50);
+        // A single long pause is not a storm
+        detector.add(createEvent(1000, Trigger.G1_INC_COLLECTION_PAUSE, 800));
+        Assert.assertEquals("Storm incorrectly detected.", 0, detector.getStorms().size());
+        // Back to back pauses over 50% of the window
+        detector.add(createEvent(5000, Trigger.G1_INC_COLLECTION_PAUSE, 300));
+        detector.add(createEvent(5400, Trigger.G1_INC_COLLECTION_PAUSE, 300));
+        List<SafepointStorm> storms = detector.getStorms();
+        Assert.assertEquals("Storm not detected.", 1, storms.size());
+        Assert.assertEquals("Storm count not correct.", 2, storms.get(0).getCount());
+        Assert.assertEquals("Storm pause share not correct.", 85, storms.get(0).getPauseShare());
+    }
+}
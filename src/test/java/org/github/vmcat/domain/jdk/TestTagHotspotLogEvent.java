@@ -48,4 +48,24 @@ public class TestTagHotspotLogEvent extends TestCase {
         Assert.assertTrue("Log line not recognized as " + JdkUtil.LogEventType.TAG_HOTSPOT_LOG.toString() + ".",
                 TagHotspotLogEvent.match(logLine));
     }
+
+    public void testStartTime() {
+        String logLine = "<hotspot_log version='160 1' process='10321' time_ms='1598979577623'>";
+        TagHotspotLogEvent event = new TagHotspotLogEvent(logLine);
+        Assert.assertEquals("Start time not correct.", 1598979577623L, event.getStartTime());
+    }
+
+    public void testStartTimeEndTag() {
+        TagHotspotLogEvent event = new TagHotspotLogEvent("</hotspot_log>");
+        Assert.assertEquals("Start time not correct.", -1L, event.getStartTime());
+    }
+
+    public void testStartTag() {
+        Assert.assertTrue("Start tag not identified.",
+                new TagHotspotLogEvent("<hotspot_log version='160 1' process='10321' time_ms='1598979577623'>")
+                        .isStartTag());
+        Assert.assertFalse("End tag identified as start tag.", new TagHotspotLogEvent("</hotspot_log>").isStartTag());
+        Assert.assertFalse("Done tag identified as start tag.",
+                new TagHotspotLogEvent("<hotspot_log_done stamp='10.010'/>").isStartTag());
+    }
 }
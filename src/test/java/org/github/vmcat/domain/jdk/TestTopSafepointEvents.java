@@ -0,0 +1,73 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.domain.jdk;
+
+import java.util.List;
+
+import org.github.vmcat.util.jdk.Safepoint.Metric;
+import org.github.vmcat.util.jdk.Safepoint.Trigger;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestTopSafepointEvents extends TestCase {
+
+    private static SafepointEvent createEvent(long timestamp, int timeSync, int timeCleanup, int timeVmop) {
+        return new SafepointEvent(null, timestamp, Trigger.G1_INC_COLLECTION_PAUSE, 10, 0, 0, 0, 0, timeSync,
+                timeCleanup, timeVmop, 0);
+    }
+
+    public void testBounded() {
+        TopSafepointEvents top = new TopSafepointEvents(Metric.TOTAL, 3);
+        for (int i = 1; i <= 10; i++) {
+            top.add(createEvent(i * 1000, 0, 0, i));
+        }
+        Assert.assertEquals("Size not correct.", 3, top.size());
+        List<SafepointEvent> events = top.getEvents();
+        Assert.assertEquals("Largest event not correct.", 10, events.get(0).getDuration());
+        Assert.assertEquals("Second largest event not correct.", 9, events.get(1).getDuration());
+        Assert.assertEquals("Third largest event not correct.", 8, events.get(2).getDuration());
+    }
+
+    public void testTies() {
+        TopSafepointEvents top = new TopSafepointEvents(Metric.VMOP, 2);
+        top.add(createEvent(1000, 0, 0, 5));
+        top.add(createEvent(2000, 0, 0, 5));
+        top.add(createEvent(3000, 0, 0, 5));
+        List<SafepointEvent> events = top.getEvents();
+        Assert.assertEquals("Size not correct.", 2, events.size());
+        Assert.assertEquals("First tie not correct.", 1000, events.get(0).getTimestamp());
+        Assert.assertEquals("Second tie not correct.", 2000, events.get(1).getTimestamp());
+    }
+
+    public void testMetric() {
+        TopSafepointEvents top = new TopSafepointEvents(Metric.CLEANUP, 1);
+        top.add(createEvent(1000, 100, 1, 100));
+        top.add(createEvent(2000, 0, 7, 0));
+        top.add(createEvent(3000, 50, 2, 50));
+        Assert.assertEquals("Metric not correct.", Metric.CLEANUP, top.getMetric());
+        Assert.assertEquals("Top cleanup event not correct.", 2000, top.getEvents().get(0).getTimestamp());
+    }
+
+    public void testEmpty() {
+        TopSafepointEvents top = new TopSafepointEvents(Metric.SYNC, 0);
+        top.add(createEvent(1000, 100, 0, 0));
+        Assert.assertEquals("Size not correct.", 0, top.size());
+    }
+}
@@ -0,0 +1,69 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.github.vmcat.domain.Jvm;
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.util.Constants;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestBatchIndexReport extends TestCase {
+
+    private static BatchResult getBatchResult(String dataset) {
+        File logFile = new File(Constants.TEST_DATA_DIR + dataset);
+        Manager manager = new Manager();
+        manager.store(logFile);
+        List<JvmRun> jvmRuns = manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        manager.close();
+        return new BatchResult(logFile, new File(dataset + ".txt"), jvmRuns);
+    }
+
+    public void testWrite() {
+        List<BatchResult> results = new ArrayList<BatchResult>();
+        results.add(getBatchResult("dataset12.txt"));
+        results.add(getBatchResult("dataset13.txt"));
+        results.add(new BatchResult(new File("missing.txt"), new File("missing.txt.txt"), "Cannot read"));
+        StringWriter writer = new StringWriter();
+        BatchIndexReport.write(writer, results, null, null);
+        String[] lines = writer.toString().split(Constants.LINE_SEPARATOR);
+        Assert.assertEquals("Index header not correct.", "BATCH INDEX:", lines[1]);
+        Assert.assertEquals("File count not correct.", "# Files: 3", lines[3]);
+        // Errors first, then lowest throughput first
+        Assert.assertTrue("Error line not correct.", lines[6].startsWith(String.format("%12s", "ERROR")));
+        Assert.assertTrue("Error line not correct.", lines[6].endsWith("missing.txt"));
+        Assert.assertTrue("Index order not correct.", lines[7].endsWith("dataset13.txt"));
+        Assert.assertTrue("Top trigger not correct.", lines[8].contains("RevokeBias"));
+        Assert.assertTrue("Report file not correct.", lines[8].contains("dataset12.txt.txt"));
+    }
+
+    public void testVersion() {
+        StringWriter writer = new StringWriter();
+        BatchIndexReport.write(writer, new ArrayList<BatchResult>(), "1.0", null);
+        String[] lines = writer.toString().split(Constants.LINE_SEPARATOR);
+        Assert.assertEquals("Version not correct.", "Running vmcat version: 1.0", lines[1]);
+        Assert.assertEquals("Index header not correct.", "BATCH INDEX:", lines[3]);
+    }
+}
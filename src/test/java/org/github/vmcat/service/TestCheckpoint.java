@@ -0,0 +1,201 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.github.vmcat.domain.Jvm;
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.domain.jdk.SafepointEvent;
+import org.github.vmcat.util.Constants;
+import org.github.vmcat.util.jdk.Safepoint.Metric;
+import org.json.JSONObject;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestCheckpoint extends TestCase {
+
+    /**
+     * Parse the first <code>lineCount</code> lines of a vm log with a checkpoint, append the rest of the vm log, then
+     * resume from the checkpoint.
+     * 
+     * @param testFile
+     *            The vm log.
+     * @param lineCount
+     *            The number of lines in the vm log when the checkpoint is saved.
+     * @return The JVM runs after resuming.
+     */
+    private static List<JvmRun> resume(File testFile, int lineCount) throws IOException {
+        List<String> lines = Files.readAllLines(testFile.toPath());
+        File logFile = File.createTempFile("vmcat", ".log");
+        logFile.deleteOnExit();
+        File checkpointFile = File.createTempFile("vmcat", ".checkpoint");
+        checkpointFile.delete();
+        checkpointFile.deleteOnExit();
+        write(logFile, lines.subList(0, lineCount), false);
+        Manager manager = new Manager();
+        Checkpoint.store(manager, logFile, checkpointFile);
+        manager.close();
+        Assert.assertTrue("Checkpoint not saved.", checkpointFile.exists());
+        write(logFile, lines.subList(lineCount, lines.size()), true);
+        manager = new Manager();
+        long position = Checkpoint.restore(manager, logFile, checkpointFile);
+        Assert.assertTrue("Checkpoint not restored.", lineCount == 0 || position > 0);
+        LogFollower follower = new LogFollower(logFile, manager, position);
+        follower.poll();
+        follower.flushPartialLine();
+        follower.close();
+        manager.flush();
+        List<JvmRun> jvmRuns = manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        manager.close();
+        return jvmRuns;
+    }
+
+    private static void write(File file, List<String> lines, boolean append) throws IOException {
+        FileOutputStream out = new FileOutputStream(file, append);
+        try {
+            for (int i = 0; i < lines.size(); i++) {
+                out.write((lines.get(i) + "\n").getBytes("UTF-8"));
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static List<JvmRun> parse(File testFile) {
+        Manager manager = new Manager();
+        manager.store(testFile);
+        List<JvmRun> jvmRuns = manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        manager.close();
+        return jvmRuns;
+    }
+
+    private static void assertSameJvmRuns(List<JvmRun> expected, List<JvmRun> actual) {
+        Assert.assertEquals("JVM run count not correct.", expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            JvmRun e = expected.get(i);
+            JvmRun a = actual.get(i);
+            Assert.assertEquals("Safepoint event count not correct.", e.getSafepointEventCount(),
+                    a.getSafepointEventCount());
+            Assert.assertEquals("Total pause not correct.", e.getSafepointTotalPause(), a.getSafepointTotalPause());
+            Assert.assertEquals("Max pause not correct.", e.getMaxPause(), a.getMaxPause());
+            Assert.assertEquals("Options not correct.", e.getJvm().getOptions(), a.getJvm().getOptions());
+            Assert.assertEquals("Bottlenecks not correct.", e.getBottlenecks(), a.getBottlenecks());
+            Assert.assertEquals("Analysis not correct.", e.getAnalysis(), a.getAnalysis());
+            Assert.assertEquals("Event types not correct.", e.getEventTypes(), a.getEventTypes());
+            Assert.assertEquals("Unidentified log lines not correct.", e.getUnidentifiedLogLines(),
+                    a.getUnidentifiedLogLines());
+            Assert.assertEquals("Reordered count not correct.", e.getReorderedCount(), a.getReorderedCount());
+            Assert.assertEquals("Out of horizon log lines not correct.", e.getOutOfHorizonLogLines(),
+                    a.getOutOfHorizonLogLines());
+            Assert.assertEquals("Overlap count not correct.", e.getEventOverlapCount(), a.getEventOverlapCount());
+            Assert.assertEquals("Storm count not correct.", e.getSafepointStorms().size(),
+                    a.getSafepointStorms().size());
+            Assert.assertEquals("Storm pause not correct.", e.getStormPauseTotal(), a.getStormPauseTotal());
+            Assert.assertEquals("Start date not correct.", e.getJvm().getStartDate(), a.getJvm().getStartDate());
+            if (e.getCalendarRollup() == null) {
+                Assert.assertNull("Calendar rollup not correct.", a.getCalendarRollup());
+            } else {
+                for (int j = 0; j < 24; j++) {
+                    Assert.assertEquals("Hour count not correct.", e.getCalendarRollup().getHourCount(j),
+                            a.getCalendarRollup().getHourCount(j));
+                }
+            }
+            List<SafepointEvent> eTop = e.getTopSafepointEvents().get(Metric.TOTAL).getEvents();
+            List<SafepointEvent> aTop = a.getTopSafepointEvents().get(Metric.TOTAL).getEvents();
+            Assert.assertEquals("Top safepoint count not correct.", eTop.size(), aTop.size());
+            for (int j = 0; j < eTop.size(); j++) {
+                Assert.assertEquals("Top safepoint not correct.", eTop.get(j).getLogEntry(), aTop.get(j).getLogEntry());
+            }
+        }
+    }
+
+    public void testResumeReorderBuffer() throws IOException {
+        File testFile = new File(Constants.TEST_DATA_DIR + "dataset13.txt");
+        List<JvmRun> expected = parse(testFile);
+        // 112.000 is buffered when the checkpoint is saved, and 111.500 is logged after.
+        for (int lineCount = 0; lineCount <= 18; lineCount++) {
+            assertSameJvmRuns(expected, resume(testFile, lineCount));
+        }
+        Assert.assertEquals("Reordered count not correct.", 1, resume(testFile, 4).get(0).getReorderedCount());
+    }
+
+    public void testResumeStorm() throws IOException {
+        File testFile = new File(Constants.TEST_DATA_DIR + "dataset12.txt");
+        List<JvmRun> expected = parse(testFile);
+        // Checkpoint in the middle of the storm
+        List<JvmRun> jvmRuns = resume(testFile, 150);
+        assertSameJvmRuns(expected, jvmRuns);
+        Assert.assertEquals("Storm count not correct.", 1, jvmRuns.get(0).getSafepointStorms().size());
+    }
+
+    public void testResumeMultipleJvmRuns() throws IOException {
+        File testFile = new File(Constants.TEST_DATA_DIR + "dataset14.txt");
+        List<JvmRun> expected = parse(testFile);
+        for (int lineCount = 0; lineCount <= 76; lineCount = lineCount + 3) {
+            assertSameJvmRuns(expected, resume(testFile, lineCount));
+        }
+    }
+
+    public void testOneEventPerLine() throws IOException {
+        File testFile = new File(Constants.TEST_DATA_DIR + "dataset12.txt");
+        File checkpointFile = File.createTempFile("vmcat", ".checkpoint");
+        checkpointFile.delete();
+        checkpointFile.deleteOnExit();
+        Manager manager = new Manager();
+        Checkpoint.store(manager, testFile, checkpointFile);
+        manager.close();
+        List<String> lines = Files.readAllLines(checkpointFile.toPath());
+        Assert.assertEquals("Checkpoint version not correct.", Checkpoint.VERSION,
+                new JSONObject(lines.get(0)).getInt("version"));
+        Assert.assertTrue("JVM run state not saved.", new JSONObject(lines.get(1)).has("eventTypes"));
+        JSONObject buffer = new JSONObject(lines.get(lines.size() - 1)).getJSONObject("reorderBuffer");
+        int eventCount = 0;
+        for (int i = 2; i < lines.size() - 1; i++) {
+            Assert.assertTrue("Safepoint event not on its own line.", lines.get(i).startsWith("["));
+            eventCount++;
+        }
+        Assert.assertEquals("Safepoint event count not correct.", 153,
+                eventCount + buffer.getJSONArray("safepointEvents").length());
+    }
+
+    public void testLogReplaced() throws IOException {
+        File testFile = new File(Constants.TEST_DATA_DIR + "dataset13.txt");
+        List<String> lines = Files.readAllLines(testFile.toPath());
+        File logFile = File.createTempFile("vmcat", ".log");
+        logFile.deleteOnExit();
+        File checkpointFile = File.createTempFile("vmcat", ".checkpoint");
+        checkpointFile.delete();
+        checkpointFile.deleteOnExit();
+        write(logFile, lines.subList(0, 8), false);
+        Manager manager = new Manager();
+        Checkpoint.store(manager, logFile, checkpointFile);
+        manager.close();
+        // Replace with a different log with the same length
+        write(logFile, lines.subList(10, 18), false);
+        manager = new Manager();
+        Assert.assertEquals("Checkpoint not ignored.", 0, Checkpoint.restore(manager, logFile, checkpointFile));
+        manager.close();
+    }
+}
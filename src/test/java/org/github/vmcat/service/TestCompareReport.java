@@ -0,0 +1,81 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.github.vmcat.domain.Fleet;
+import org.github.vmcat.domain.Jvm;
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.domain.JvmRunComparison;
+import org.github.vmcat.domain.JvmRunSummary;
+import org.github.vmcat.util.Constants;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestCompareReport extends TestCase {
+
+    private static Fleet getFleet(String dataset) {
+        Manager manager = new Manager();
+        manager.store(new File(Constants.TEST_DATA_DIR + dataset));
+        List<JvmRun> jvmRuns = manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        manager.close();
+        Fleet fleet = new Fleet();
+        fleet.addLogFile();
+        Iterator<JvmRun> iterator = jvmRuns.iterator();
+        while (iterator.hasNext()) {
+            fleet.add(new JvmRunSummary(iterator.next()));
+        }
+        return fleet;
+    }
+
+    public void testWrite() {
+        JvmRunComparison comparison = new JvmRunComparison(getFleet("dataset1.txt"), getFleet("dataset12.txt"));
+        StringWriter writer = new StringWriter();
+        CompareReport.write(writer, comparison, null);
+        List<String> lines = Arrays.asList(writer.toString().split(Constants.LINE_SEPARATOR));
+        Assert.assertEquals("Compare header not correct.", "COMPARE:", lines.get(1));
+        Assert.assertTrue("File count not correct.",
+                lines.contains(String.format("%-24s%12s%12s%12s%10s", "# Files", 1, 1, "0", "+0.0%")));
+        Assert.assertTrue("Safepoint count not correct.",
+                lines.contains(String.format("%-24s%12s%12s%12s%10s", "# Safepoints", 9, 153, "+144", "+1600.0%")));
+        Assert.assertTrue("Pause comparison not correct.",
+                lines.contains("Pause Times: shorter (Mann-Whitney p-value 0.0000, probability a candidate pause is "
+                        + "longer 0.00)"));
+        int triggers = lines.indexOf("TRIGGERS:");
+        Assert.assertTrue("Triggers not reported.", triggers > 0);
+        Assert.assertTrue("Trigger comparison not correct.", lines.get(triggers + 3).startsWith("RevokeBias"));
+        Assert.assertTrue("Trigger change not correct.", lines.get(triggers + 3).endsWith("shorter"));
+    }
+
+    public void testVersion() {
+        JvmRunComparison comparison = new JvmRunComparison(new Fleet(), new Fleet());
+        StringWriter writer = new StringWriter();
+        CompareReport.write(writer, comparison, "1.0");
+        List<String> lines = Arrays.asList(writer.toString().split(Constants.LINE_SEPARATOR));
+        Assert.assertEquals("Version not correct.", "Running vmcat version: 1.0", lines.get(1));
+        Assert.assertEquals("Compare header not correct.", "COMPARE:", lines.get(3));
+        Assert.assertFalse("Triggers reported with no safepoints.", lines.contains("TRIGGERS:"));
+    }
+}
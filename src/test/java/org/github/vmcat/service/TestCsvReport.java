@@ -0,0 +1,59 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.github.vmcat.domain.Jvm;
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.util.Constants;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestCsvReport extends TestCase {
+
+    public void testQuote() {
+        Assert.assertEquals("Plain value quoted.", "RevokeBias", CsvReport.quote("RevokeBias"));
+        Assert.assertEquals("Comma not quoted.", "\"a,b\"", CsvReport.quote("a,b"));
+        Assert.assertEquals("Quote not escaped.", "\"say \"\"hi\"\"\"", CsvReport.quote("say \"hi\""));
+    }
+
+    public void testReport() throws IOException {
+        Manager manager = new Manager();
+        manager.store(new File(Constants.TEST_DATA_DIR + "dataset12.txt"));
+        List<JvmRun> jvmRuns = manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        manager.close();
+        StringWriter writer = new StringWriter();
+        CsvReport.write(writer, jvmRuns, null);
+        String[] rows = writer.toString().split(Constants.LINE_SEPARATOR);
+        Assert.assertEquals("Header not correct.", "run,section,item,field,value", rows[0]);
+        Assert.assertEquals("Summary not correct.", "1,summary,,safepointEventCount,153", rows[1]);
+        List<String> rowList = Arrays.asList(rows);
+        Assert.assertTrue("Trigger count missing.", rowList.contains("1,trigger,RevokeBias,count,150"));
+        Assert.assertTrue("Top safepoint missing.", rowList.contains("1,top.total,1,duration,20"));
+        Assert.assertTrue("Top safepoint 50 missing.", rowList.contains("1,top.total,50,trigger,RevokeBias"));
+        Assert.assertFalse("Top safepoint 51 reported.", writer.toString().contains("1,top.total,51,"));
+        Assert.assertTrue("Storm missing.", rowList.contains("1,storm,1,dominantTrigger,RevokeBias"));
+    }
+}
@@ -0,0 +1,82 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.github.vmcat.domain.Fleet;
+import org.github.vmcat.domain.Jvm;
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.util.Constants;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestFleetReport extends TestCase {
+
+    private static BatchResult getBatchResult(String dataset) {
+        File logFile = new File(Constants.TEST_DATA_DIR + dataset);
+        Manager manager = new Manager();
+        manager.store(logFile);
+        List<JvmRun> jvmRuns = manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        manager.close();
+        return new BatchResult(logFile, null, jvmRuns);
+    }
+
+    public void testWrite() {
+        List<BatchResult> results = new ArrayList<BatchResult>();
+        results.add(getBatchResult("dataset12.txt"));
+        results.add(getBatchResult("dataset13.txt"));
+        results.add(getBatchResult("dataset14.txt"));
+        results.add(new BatchResult(new File("missing.txt"), null, "Cannot read"));
+        Fleet fleet = BatchResult.getFleet(results);
+        StringWriter writer = new StringWriter();
+        FleetReport.write(writer, fleet);
+        List<String> lines = Arrays.asList(writer.toString().split(Constants.LINE_SEPARATOR));
+        Assert.assertEquals("Fleet header not correct.", "FLEET:", lines.get(1));
+        // The vm log with an error is not in the fleet
+        Assert.assertTrue("File count not correct.", lines.contains("# Files: 3"));
+        Assert.assertTrue("JVM run count not correct.", lines.contains("# JVM Runs: 5"));
+        Assert.assertTrue("Configuration count not correct.", lines.contains("# Configurations: 3"));
+        Assert.assertTrue("Safepoint count not correct.", lines.contains("# Safepoints: 170"));
+        Assert.assertTrue("Max pause not correct.", lines.contains("Pause Max: 3.000 secs"));
+        Assert.assertTrue("Options not correct.",
+                lines.contains("Options: -XX:+PrintSafepointStatistics -XX:+LogVMOutput -Xmx2g"));
+        int top = lines.indexOf("TOP 50 LONGEST SAFEPOINTS (ALL JVM RUNS):");
+        Assert.assertTrue("Top safepoints not reported.", top > 0);
+        Assert.assertTrue("Longest safepoint not correct.", lines.get(top + 3).startsWith("32d70693  120.000"));
+        Assert.assertTrue("Longest safepoint configuration not correct.", lines.get(top + 5).startsWith("c88cb3fe"));
+        Assert.assertEquals("Report end not correct.", "========================================",
+                lines.get(lines.size() - 1));
+    }
+
+    public void testEmpty() {
+        StringWriter writer = new StringWriter();
+        FleetReport.write(writer, new Fleet());
+        List<String> lines = Arrays.asList(writer.toString().split(Constants.LINE_SEPARATOR));
+        Assert.assertTrue("File count not correct.", lines.contains("# Files: 0"));
+        Assert.assertFalse("Triggers reported with no safepoints.", lines.contains("TRIGGERS (ALL JVM RUNS):"));
+        Assert.assertFalse("Top safepoints reported with no safepoints.",
+                writer.toString().contains("LONGEST SAFEPOINTS"));
+    }
+}
@@ -0,0 +1,61 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import org.github.vmcat.domain.Jvm;
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.util.Constants;
+import org.json.JSONObject;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestHtmlReport extends TestCase {
+
+    public void testReport() throws IOException {
+        Manager manager = new Manager();
+        manager.store(new File(Constants.TEST_DATA_DIR + "dataset12.txt"));
+        List<JvmRun> jvmRuns = manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        manager.close();
+        StringWriter writer = new StringWriter();
+        HtmlReport.write(writer, jvmRuns, null);
+        String html = writer.toString();
+        Assert.assertTrue("Not an HTML page.", html.startsWith("<!DOCTYPE html>"));
+        Assert.assertFalse("External resource referenced.", html.contains("src=") || html.contains("href="));
+        int start = html.indexOf("var data = ") + "var data = ".length();
+        JSONObject data = new JSONObject(html.substring(start, html.indexOf(";\n", start)));
+        JSONObject jvmRun = data.getJSONArray("jvmRuns").getJSONObject(0);
+        Assert.assertEquals("Safepoint event count not correct.", 153,
+                jvmRun.getJSONObject("summary").getLong("safepointEventCount"));
+        JSONObject pauses = jvmRun.getJSONObject("pauses");
+        Assert.assertEquals("Pause points not correct.", pauses.getInt("buckets"), pauses.getJSONArray("x").length());
+        Assert.assertEquals("Longest pause not correct.", 20, pauses.getJSONArray("y").getLong(0));
+        Assert.assertTrue("Trigger bars over limit.",
+                jvmRun.getJSONObject("triggers").getJSONArray("x").length() <= Constants.HTML_CHART_BARS);
+        Assert.assertEquals("Trigger series not correct.", 2,
+                jvmRun.getJSONObject("triggers").getJSONArray("series").length());
+        Assert.assertEquals("Phase triggers not correct.", 2, jvmRun.getJSONArray("phases").length());
+        Assert.assertEquals("Percentile rows not correct.", 3, jvmRun.getJSONArray("percentiles").length());
+    }
+}
@@ -0,0 +1,98 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import org.github.vmcat.domain.Jvm;
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.util.Constants;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestJsonReport extends TestCase {
+
+    private static JSONObject getJvmRun(String dataset) throws IOException {
+        Manager manager = new Manager();
+        manager.store(new File(Constants.TEST_DATA_DIR + dataset));
+        List<JvmRun> jvmRuns = manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        manager.close();
+        StringWriter writer = new StringWriter();
+        JsonReport.write(writer, jvmRuns, "1.0");
+        JSONObject report = new JSONObject(writer.toString());
+        Assert.assertEquals("vmcat version not correct.", "1.0", report.getString("vmcatVersion"));
+        return report.getJSONArray("jvmRuns").getJSONObject(0);
+    }
+
+    public void testSummary() throws IOException {
+        JSONObject jvmRun = getJvmRun("dataset12.txt");
+        JSONObject summary = jvmRun.getJSONObject("summary");
+        Assert.assertEquals("Safepoint event count not correct.", 153, summary.getLong("safepointEventCount"));
+        Assert.assertEquals("Throughput not correct.", 99, summary.getLong("throughput"));
+        Assert.assertEquals("Max pause not correct.", 20, summary.getInt("maxPause"));
+        Assert.assertEquals("Total pause not correct.", 355, summary.getLong("totalPause"));
+        Assert.assertEquals("First timestamp not correct.", 5000,
+                summary.getJSONObject("first").getLong("timestamp"));
+        JSONArray triggers = jvmRun.getJSONArray("triggers");
+        Assert.assertEquals("Trigger count not correct.", 2, triggers.length());
+        Assert.assertEquals("Trigger not correct.", "RevokeBias", triggers.getJSONObject(0).getString("trigger"));
+        Assert.assertEquals("Trigger p99 not correct.", 2, triggers.getJSONObject(0).getLong("p99"));
+        Assert.assertEquals("Storm count not correct.", 1,
+                jvmRun.getJSONObject("storms").getJSONArray("storms").length());
+    }
+
+    public void testTop() throws IOException {
+        JSONObject jvmRun = getJvmRun("dataset12.txt");
+        JSONArray top = jvmRun.getJSONObject("top").getJSONArray("total");
+        Assert.assertEquals("Top safepoint count not correct.", 50, top.length());
+        Assert.assertEquals("Longest safepoint not correct.", 20, top.getJSONObject(0).getLong("duration"));
+        Assert.assertEquals("Longest safepoint trigger not correct.", "G1IncCollectionPause",
+                top.getJSONObject(0).getString("trigger"));
+        Assert.assertTrue("Sync top safepoints missing.", jvmRun.getJSONObject("top").has("sync"));
+    }
+
+    public void testBottleneckWindows() throws IOException {
+        JSONObject bottlenecks = getJvmRun("dataset1.txt").getJSONObject("bottlenecks");
+        Assert.assertEquals("Throughput threshold not correct.", Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD,
+                bottlenecks.getInt("throughputThreshold"));
+        JSONArray windows = bottlenecks.getJSONArray("windows");
+        Assert.assertTrue("Bottleneck windows missing.", windows.length() > 0);
+        for (int i = 0; i < windows.length(); i++) {
+            Assert.assertTrue("Empty bottleneck window.", windows.getJSONArray(i).length() > 0);
+            for (int j = 0; j < windows.getJSONArray(i).length(); j++) {
+                Assert.assertNotEquals("Window separator reported.", "...", windows.getJSONArray(i).getString(j));
+            }
+        }
+    }
+
+    public void testUnidentified() throws IOException {
+        JSONObject jvmRun = getJvmRun("dataset12.txt");
+        JSONObject unidentified = jvmRun.getJSONObject("unidentified");
+        Assert.assertEquals("Unidentified count not correct.", unidentified.getJSONArray("lines").length(),
+                unidentified.getLong("count"));
+        Assert.assertEquals("Out of horizon count not correct.", 0,
+                jvmRun.getJSONObject("outOfHorizon").getLong("count"));
+    }
+}
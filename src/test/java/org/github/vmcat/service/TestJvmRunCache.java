@@ -0,0 +1,86 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.File;
+import java.util.List;
+
+import org.github.vmcat.domain.Jvm;
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.util.Constants;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestJvmRunCache extends TestCase {
+
+    private static List<JvmRun> parse(String dataset) {
+        Manager manager = new Manager();
+        manager.store(new File(Constants.TEST_DATA_DIR + dataset));
+        List<JvmRun> jvmRuns = manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        manager.close();
+        return jvmRuns;
+    }
+
+    public void testHitAndMiss() {
+        List<JvmRun> jvmRuns = parse("dataset12.txt");
+        JvmRunCache cache = new JvmRunCache(Long.MAX_VALUE);
+        Assert.assertNull("Empty cache not a miss.", cache.get("dataset12.txt", "1"));
+        Assert.assertTrue("JVM runs not cached.", cache.put("dataset12.txt", "1", jvmRuns));
+        Assert.assertSame("Cached JVM runs not returned.", jvmRuns, cache.get("dataset12.txt", "1"));
+        Assert.assertEquals("Hits not correct.", 1, cache.getHits());
+        Assert.assertEquals("Misses not correct.", 1, cache.getMisses());
+        Assert.assertEquals("Size not correct.", JvmRunCache.estimateSize(jvmRuns), cache.getSize());
+    }
+
+    public void testStaleVersion() {
+        List<JvmRun> jvmRuns = parse("dataset12.txt");
+        JvmRunCache cache = new JvmRunCache(Long.MAX_VALUE);
+        cache.put("dataset12.txt", "1", jvmRuns);
+        Assert.assertNull("Stale version not a miss.", cache.get("dataset12.txt", "2"));
+        Assert.assertEquals("Stale entry not removed.", 0, cache.getEntryCount());
+        Assert.assertEquals("Size not released.", 0, cache.getSize());
+    }
+
+    public void testEviction() {
+        List<JvmRun> jvmRuns1 = parse("dataset1.txt");
+        List<JvmRun> jvmRuns12 = parse("dataset12.txt");
+        List<JvmRun> jvmRuns14 = parse("dataset14.txt");
+        long size1 = JvmRunCache.estimateSize(jvmRuns1);
+        long size12 = JvmRunCache.estimateSize(jvmRuns12);
+        long size14 = JvmRunCache.estimateSize(jvmRuns14);
+        JvmRunCache cache = new JvmRunCache(Math.max(size1 + size12, Math.max(size1, size12) + size14));
+        cache.put("dataset1.txt", "", jvmRuns1);
+        cache.put("dataset12.txt", "", jvmRuns12);
+        // Make dataset12 the least recently used
+        cache.get("dataset1.txt", "");
+        cache.put("dataset14.txt", "", jvmRuns14);
+        Assert.assertTrue("Size over limit.", cache.getSize() <= cache.getLimit());
+        Assert.assertNull("Least recently used entry not evicted.", cache.get("dataset12.txt", ""));
+        Assert.assertNotNull("Most recently used entry evicted.", cache.get("dataset14.txt", ""));
+        Assert.assertTrue("Evictions not counted.", cache.getEvictions() >= 1);
+    }
+
+    public void testTooLarge() {
+        List<JvmRun> jvmRuns = parse("dataset12.txt");
+        JvmRunCache cache = new JvmRunCache(JvmRunCache.estimateSize(jvmRuns) - 1);
+        Assert.assertFalse("Entry over limit cached.", cache.put("dataset12.txt", "", jvmRuns));
+        Assert.assertEquals("Entry over limit cached.", 0, cache.getEntryCount());
+    }
+}
@@ -0,0 +1,80 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestLineSplitter extends TestCase {
+
+    /**
+     * @param lines
+     *            Where the split lines are added.
+     * @return A <code>LineSplitter</code> that adds each line to the list.
+     */
+    private static LineSplitter createLineSplitter(final List<String> lines) {
+        return new LineSplitter(new LineSplitter.LineHandler() {
+            public void line(String logLine) {
+                lines.add(logLine);
+            }
+        });
+    }
+
+    public void testSplit() {
+        List<String> lines = new ArrayList<String>();
+        LineSplitter lineSplitter = createLineSplitter(lines);
+        byte[] bytes = "xxline1\nline2\r\n\nline3".getBytes(StandardCharsets.US_ASCII);
+        lineSplitter.write(bytes, 2, bytes.length - 2);
+        Assert.assertEquals("Line count not correct.", 3, lines.size());
+        Assert.assertEquals("Line not correct.", "line1", lines.get(0));
+        Assert.assertEquals("Carriage return not dropped.", "line2", lines.get(1));
+        Assert.assertEquals("Empty line not correct.", "", lines.get(2));
+        Assert.assertEquals("Partial line length not correct.", 5, lineSplitter.getPartialLength());
+        lineSplitter.flush();
+        Assert.assertEquals("Partial line not flushed.", "line3", lines.get(3));
+        Assert.assertEquals("Partial line not cleared.", 0, lineSplitter.getPartialLength());
+    }
+
+    public void testLineAcrossWrites() {
+        List<String> lines = new ArrayList<String>();
+        LineSplitter lineSplitter = createLineSplitter(lines);
+        byte[] bytes = "safepoint line\r\n".getBytes(StandardCharsets.US_ASCII);
+        // One byte at a time, splitting the carriage return from the line feed
+        for (int i = 0; i < bytes.length; i++) {
+            lineSplitter.write(bytes, i, 1);
+        }
+        Assert.assertEquals("Line count not correct.", 1, lines.size());
+        Assert.assertEquals("Line not correct.", "safepoint line", lines.get(0));
+    }
+
+    public void testReset() {
+        List<String> lines = new ArrayList<String>();
+        LineSplitter lineSplitter = createLineSplitter(lines);
+        byte[] bytes = "partial".getBytes(StandardCharsets.US_ASCII);
+        lineSplitter.write(bytes, 0, bytes.length);
+        lineSplitter.reset();
+        lineSplitter.flush();
+        Assert.assertTrue("Partial line not discarded.", lines.isEmpty());
+    }
+}
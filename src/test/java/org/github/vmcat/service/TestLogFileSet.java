@@ -0,0 +1,129 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.github.vmcat.domain.Jvm;
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.util.Constants;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestLogFileSet extends TestCase {
+
+    private static File write(File dir, String name, List<String> lines, long lastModified) throws IOException {
+        File file = new File(dir, name);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            for (int i = 0; i < lines.size(); i++) {
+                out.write((lines.get(i) + "\n").getBytes("UTF-8"));
+            }
+        } finally {
+            out.close();
+        }
+        file.setLastModified(lastModified);
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static File createTempDir() throws IOException {
+        File dir = Files.createTempDirectory("vmcat").toFile();
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    public void testMergeOverlappingFiles() throws IOException {
+        File testFile = new File(Constants.TEST_DATA_DIR + "dataset12.txt");
+        List<String> lines = Files.readAllLines(testFile.toPath());
+        // Split the header + event pairs between 2 files, alternating pairs 80-99 so the files overlap.
+        List<String> lines1 = new ArrayList<String>();
+        List<String> lines2 = new ArrayList<String>();
+        for (int i = 0; i < lines.size(); i = i + 2) {
+            int pair = i / 2;
+            List<String> target = pair < 80 || (pair < 100 && pair % 2 == 1) ? lines1 : lines2;
+            target.add(lines.get(i));
+            target.add(lines.get(i + 1));
+        }
+        File dir = createTempDir();
+        List<File> logFiles = new ArrayList<File>();
+        logFiles.add(write(dir, "vm.log", lines2, 2000000000000L));
+        logFiles.add(write(dir, "vm.log.1", lines1, 1000000000000L));
+        Manager manager = new Manager();
+        LogFileSet logFileSet = new LogFileSet(logFiles, manager.getReorderHorizon());
+        Assert.assertEquals("JVM run count not correct.", 1, logFileSet.getJvmRuns().size());
+        Assert.assertEquals("Rotation order not correct.", "vm.log.1",
+                logFileSet.getJvmRuns().get(0).get(0).getName());
+        logFileSet.store(manager);
+        JvmRun jvmRun = manager.getJvmRun(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        manager.close();
+
+        Manager expectedManager = new Manager();
+        expectedManager.store(testFile);
+        JvmRun expected = expectedManager.getJvmRun(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        expectedManager.close();
+        Assert.assertEquals("Safepoint event count not correct.", expected.getSafepointEventCount(),
+                jvmRun.getSafepointEventCount());
+        Assert.assertEquals("Reordered count not correct.", 0, jvmRun.getReorderedCount());
+        Assert.assertEquals("Overlap count not correct.", 0, jvmRun.getEventOverlapCount());
+        Assert.assertEquals("Bottlenecks not correct.", expected.getBottlenecks(), jvmRun.getBottlenecks());
+        Assert.assertEquals("Storm count not correct.", 1, jvmRun.getSafepointStorms().size());
+    }
+
+    public void testSeparateJvmRuns() throws IOException {
+        File dir = createTempDir();
+        List<File> logFiles = new ArrayList<File>();
+        // Timestamps reset (5.000 after 140.000), so the later file is a JVM restart.
+        logFiles.add(write(dir, "vm.log",
+                Files.readAllLines(new File(Constants.TEST_DATA_DIR + "dataset12.txt").toPath()), 2000000000000L));
+        logFiles.add(write(dir, "vm.log.1",
+                Files.readAllLines(new File(Constants.TEST_DATA_DIR + "dataset13.txt").toPath()), 1000000000000L));
+        Manager manager = new Manager();
+        LogFileSet logFileSet = new LogFileSet(logFiles, manager.getReorderHorizon());
+        Assert.assertEquals("JVM run count not correct.", 2, logFileSet.getJvmRuns().size());
+        logFileSet.store(manager);
+        List<JvmRun> jvmRuns = manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        manager.close();
+        Assert.assertEquals("JVM run count not correct.", 2, jvmRuns.size());
+        Assert.assertEquals("Run 1 safepoint event count not correct.", 9, jvmRuns.get(0).getSafepointEventCount());
+        Assert.assertEquals("Run 2 safepoint event count not correct.", 153, jvmRuns.get(1).getSafepointEventCount());
+    }
+
+    public void testExpandGlob() throws IOException {
+        File dir = createTempDir();
+        List<String> lines = new ArrayList<String>();
+        write(dir, "vm.log", lines, 3000000000000L);
+        write(dir, "vm.log.1", lines, 2000000000000L);
+        write(dir, "vm.log.2", lines, 1000000000000L);
+        write(dir, "other.log", lines, 1000000000000L);
+        List<File> files = LogFileSet.expand(dir.getPath() + File.separator + "vm.log*");
+        Assert.assertEquals("Glob match count not correct.", 3, files.size());
+        Assert.assertEquals("Glob match not correct.", "vm.log", files.get(0).getName());
+        files = LogFileSet.expand(dir.getPath() + File.separator + "other.log");
+        Assert.assertEquals("File not returned.", 1, files.size());
+        Assert.assertFalse("File name identified as glob.", LogFileSet.isGlob("vm.log"));
+        Assert.assertTrue("Glob not identified.", LogFileSet.isGlob("vm.log.?"));
+    }
+}
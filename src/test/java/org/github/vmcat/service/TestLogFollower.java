@@ -0,0 +1,165 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.github.vmcat.domain.Jvm;
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.util.Constants;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestLogFollower extends TestCase {
+
+    private static final String HEADER = "         vmop                    [threads: total initially_running "
+            + "wait_to_block]    [time: spin block sync cleanup vmop] page_trap_count\n";
+
+    private static final String EVENT1 = "10.100: RevokeBias                       [     250          1              3"
+            + "    ]      [  1500     2  1502     0     1    ]  1\n";
+
+    private static final String EVENT2 = "12.000: G1IncCollectionPause             [     250          0              0"
+            + "    ]      [     0     0     2     0    50    ]  0\n";
+
+    private static void append(File file, String text, boolean append) throws IOException {
+        FileOutputStream out = new FileOutputStream(file, append);
+        try {
+            out.write(text.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    public void testPartialLine() throws IOException {
+        File logFile = File.createTempFile("vmcat", ".log");
+        logFile.deleteOnExit();
+        Manager manager = new Manager();
+        LogFollower follower = new LogFollower(logFile, manager);
+        Assert.assertFalse("Empty file read.", follower.poll());
+        // Write event 1 and half of event 2
+        append(logFile, HEADER + EVENT1 + HEADER + EVENT2.substring(0, 20), true);
+        Assert.assertTrue("Appended logging not read.", follower.poll());
+        Assert.assertEquals("Line count not correct.", 3, follower.getLineCount());
+        Assert.assertFalse("Logging read when none appended.", follower.poll());
+        append(logFile, EVENT2.substring(20), true);
+        Assert.assertTrue("Appended logging not read.", follower.poll());
+        Assert.assertEquals("Line count not correct.", 4, follower.getLineCount());
+        manager.flush();
+        JvmRun jvmRun = manager.getJvmRun(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        Assert.assertEquals("Safepoint event count not correct.", 2, jvmRun.getSafepointEventCount());
+        Assert.assertEquals("Unidentified log lines.", 0, jvmRun.getUnidentifiedLogLines().size());
+        follower.close();
+        manager.close();
+    }
+
+    public void testIncremental() throws IOException {
+        File logFile = File.createTempFile("vmcat", ".log");
+        logFile.deleteOnExit();
+        Manager manager = new Manager();
+        manager.setReorderHorizon(0);
+        LogFollower follower = new LogFollower(logFile, manager);
+        append(logFile, HEADER + EVENT1, true);
+        follower.poll();
+        manager.flush();
+        JvmRun jvmRun = manager.getJvmRun(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        Assert.assertEquals("Safepoint event count not correct.", 1, jvmRun.getSafepointEventCount());
+        append(logFile, HEADER + EVENT2, true);
+        follower.poll();
+        manager.flush();
+        jvmRun = manager.getJvmRun(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        Assert.assertEquals("Safepoint event count not correct.", 2, jvmRun.getSafepointEventCount());
+        Assert.assertEquals("Max pause not correct.", 1503, jvmRun.getMaxPause());
+        follower.close();
+        manager.close();
+    }
+
+    public void testTruncate() throws IOException {
+        File logFile = File.createTempFile("vmcat", ".log");
+        logFile.deleteOnExit();
+        Manager manager = new Manager();
+        LogFollower follower = new LogFollower(logFile, manager);
+        append(logFile, HEADER + EVENT1 + HEADER + EVENT2, true);
+        follower.poll();
+        // copytruncate
+        append(logFile, HEADER + EVENT1.replace("10.100", "99.000"), false);
+        Assert.assertTrue("Truncated logging not read.", follower.poll());
+        Assert.assertEquals("Reset count not correct.", 1, follower.getResetCount());
+        Assert.assertEquals("Line count not correct.", 6, follower.getLineCount());
+        manager.flush();
+        List<JvmRun> jvmRuns = manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        Assert.assertEquals("Safepoint event count not correct.", 3, jvmRuns.get(0).getSafepointEventCount());
+        follower.close();
+        manager.close();
+    }
+
+    public void testRotate() throws IOException {
+        File logFile = File.createTempFile("vmcat", ".log");
+        File rotatedFile = new File(logFile.getPath() + ".1");
+        logFile.deleteOnExit();
+        rotatedFile.deleteOnExit();
+        Manager manager = new Manager();
+        LogFollower follower = new LogFollower(logFile, manager);
+        append(logFile, HEADER + EVENT1, true);
+        follower.poll();
+        // Logging written before rotation is still read
+        append(logFile, HEADER, true);
+        Files.move(Paths.get(logFile.getPath()), Paths.get(rotatedFile.getPath()));
+        append(logFile, EVENT2, false);
+        Assert.assertTrue("Rotated logging not read.", follower.poll());
+        Assert.assertEquals("Reset count not correct.", 1, follower.getResetCount());
+        Assert.assertEquals("Line count not correct.", 4, follower.getLineCount());
+        manager.flush();
+        JvmRun jvmRun = manager.getJvmRun(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        Assert.assertEquals("Safepoint event count not correct.", 2, jvmRun.getSafepointEventCount());
+        follower.close();
+        manager.close();
+    }
+
+    public void testRotateGap() throws IOException {
+        File logFile = File.createTempFile("vmcat", ".log");
+        File rotatedFile = new File(logFile.getPath() + ".1");
+        logFile.deleteOnExit();
+        rotatedFile.deleteOnExit();
+        Manager manager = new Manager();
+        LogFollower follower = new LogFollower(logFile, manager);
+        append(logFile, HEADER + EVENT1, true);
+        follower.poll();
+        append(logFile, HEADER, true);
+        Files.move(Paths.get(logFile.getPath()), Paths.get(rotatedFile.getPath()));
+        // The new file does not exist yet
+        Assert.assertTrue("Logging written before rotation not read.", follower.poll());
+        Assert.assertFalse("Logging read when none appended.", follower.poll());
+        Assert.assertEquals("Reset count not correct.", 0, follower.getResetCount());
+        append(logFile, EVENT2, false);
+        Assert.assertTrue("Rotated logging not read.", follower.poll());
+        Assert.assertEquals("Reset count not correct.", 1, follower.getResetCount());
+        Assert.assertEquals("Line count not correct.", 4, follower.getLineCount());
+        manager.flush();
+        JvmRun jvmRun = manager.getJvmRun(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        Assert.assertEquals("Safepoint event count not correct.", 2, jvmRun.getSafepointEventCount());
+        follower.close();
+        manager.close();
+    }
+}
@@ -0,0 +1,142 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.List;
+
+import org.github.vmcat.domain.Jvm;
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.util.Constants;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestLogStream extends TestCase {
+
+    /**
+     * @return A new named pipe, or null if named pipes are not supported.
+     */
+    private static File createPipe() throws IOException, InterruptedException {
+        File pipe = new File(Files.createTempDirectory("vmcat").toFile(), "vm.log");
+        pipe.getParentFile().deleteOnExit();
+        pipe.deleteOnExit();
+        try {
+            if (new ProcessBuilder("mkfifo", pipe.getPath()).start().waitFor() != 0) {
+                return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return pipe;
+    }
+
+    /**
+     * @return A connection to the UNIX domain socket, or null if UNIX domain sockets are not supported.
+     */
+    private static SocketChannel connect(File socket) throws IOException {
+        try {
+            SocketAddress address = (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress")
+                    .getMethod("of", String.class).invoke(null, socket.getPath());
+            SocketChannel channel = (SocketChannel) SocketChannel.class.getMethod("open", ProtocolFamily.class)
+                    .invoke(null, StandardProtocolFamily.valueOf("UNIX"));
+            channel.connect(address);
+            return channel;
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void awaitRead(LogStream stream, long count) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 10000;
+        while (stream.getReadCount() < count && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+    }
+
+    public void testPipe() throws IOException, InterruptedException {
+        File pipe = createPipe();
+        if (pipe == null) {
+            return;
+        }
+        byte[] log = Files.readAllBytes(Paths.get(Constants.TEST_DATA_DIR + "dataset12.txt"));
+        Manager manager = new Manager();
+        LogStream stream = new LogStream(pipe.getPath(), manager, Constants.STREAM_BUFFER_LINES);
+        stream.open();
+        // Two writers in turn, like a JVM restarted with the same -XX:LogFile
+        for (int i = 0; i < 2; i++) {
+            OutputStream out = new FileOutputStream(pipe);
+            out.write(log);
+            out.close();
+            awaitRead(stream, 306 * (i + 1));
+        }
+        Assert.assertTrue("Logging not stored.", stream.poll());
+        Assert.assertEquals("Line count not correct.", 612, stream.getLineCount());
+        Assert.assertEquals("Lines dropped.", 0, stream.getDroppedCount());
+        manager.flush();
+        List<JvmRun> jvmRuns = manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        long safepointEventCount = 0;
+        Iterator<JvmRun> iterator = jvmRuns.iterator();
+        while (iterator.hasNext()) {
+            safepointEventCount = safepointEventCount + iterator.next().getSafepointEventCount();
+        }
+        Assert.assertEquals("Safepoint event count not correct.", 306, safepointEventCount);
+        stream.close();
+        manager.close();
+    }
+
+    public void testSocketDropsLines() throws IOException, InterruptedException {
+        File socket = new File(Files.createTempDirectory("vmcat").toFile(), "vm.sock");
+        socket.getParentFile().deleteOnExit();
+        Manager manager = new Manager();
+        LogStream stream = new LogStream(LogStream.SOCKET_PREFIX + socket.getPath(), manager, 100);
+        try {
+            stream.open();
+        } catch (IOException e) {
+            // UNIX domain sockets not supported
+            manager.close();
+            return;
+        }
+        Assert.assertTrue("Socket not created.", socket.exists());
+        SocketChannel channel = connect(socket);
+        byte[] log = Files.readAllBytes(Paths.get(Constants.TEST_DATA_DIR + "dataset12.txt"));
+        channel.write(ByteBuffer.wrap(log));
+        channel.close();
+        awaitRead(stream, 306);
+        Assert.assertEquals("Read count not correct.", 306, stream.getReadCount());
+        Assert.assertEquals("Dropped count not correct.", 206, stream.getDroppedCount());
+        Assert.assertTrue("Logging not stored.", stream.poll());
+        Assert.assertEquals("Line count not correct.", 100, stream.getLineCount());
+        Assert.assertFalse("Logging stored when none buffered.", stream.poll());
+        stream.close();
+        Assert.assertFalse("Socket not deleted.", socket.exists());
+        manager.close();
+    }
+}
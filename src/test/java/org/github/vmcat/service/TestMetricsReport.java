@@ -0,0 +1,100 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.github.vmcat.domain.Jvm;
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.util.Constants;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestMetricsReport extends TestCase {
+
+    private static List<JvmRun> getJvmRuns(String dataset) {
+        Manager manager = new Manager();
+        manager.store(new File(Constants.TEST_DATA_DIR + dataset));
+        List<JvmRun> jvmRuns = manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        manager.close();
+        return jvmRuns;
+    }
+
+    public void testWrite() throws IOException {
+        StringWriter writer = new StringWriter();
+        MetricsReport.write(writer, getJvmRuns("dataset12.txt"));
+        String metrics = writer.toString();
+        Assert.assertTrue("Counter family not correct.", metrics.startsWith("# TYPE vmcat_safepoints counter\n"));
+        Assert.assertTrue("EOF not last.", metrics.endsWith("\n# EOF\n"));
+        Assert.assertTrue("Safepoint count not correct.",
+                metrics.contains("\nvmcat_safepoints_total{run=\"1\",trigger=\"RevokeBias\"} 150\n"));
+        Assert.assertTrue("Histogram bucket not correct.", metrics.contains(
+                "\nvmcat_safepoint_pause_seconds_bucket{run=\"1\",trigger=\"G1IncCollectionPause\",le=\"0.01\"} 0\n"));
+        Assert.assertTrue("Histogram bucket not correct.", metrics.contains(
+                "\nvmcat_safepoint_pause_seconds_bucket{run=\"1\",trigger=\"G1IncCollectionPause\",le=\"0.02\"} 3\n"));
+        Assert.assertTrue("Histogram +Inf bucket not correct.", metrics.contains(
+                "\nvmcat_safepoint_pause_seconds_bucket{run=\"1\",trigger=\"RevokeBias\",le=\"+Inf\"} 150\n"));
+        Assert.assertTrue("Histogram sum not correct.",
+                metrics.contains("\nvmcat_safepoint_pause_seconds_sum{run=\"1\",trigger=\"RevokeBias\"} 0.3\n"));
+        Assert.assertTrue("Phase not correct.", metrics.contains("\nvmcat_safepoint_phase_seconds_total{run=\"1\","
+                + "trigger=\"G1IncCollectionPause\",phase=\"vmop\"} 0.055\n"));
+        Assert.assertTrue("Throughput not correct.", metrics.contains("\nvmcat_throughput_ratio{run=\"1\"} 0.99\n"));
+    }
+
+    public void testWriteNoJvmRuns() throws IOException {
+        StringWriter writer = new StringWriter();
+        MetricsReport.write(writer, new ArrayList<JvmRun>());
+        String[] lines = writer.toString().split("\n");
+        for (int i = 0; i < lines.length; i++) {
+            Assert.assertTrue("Sample written: " + lines[i], lines[i].startsWith("# "));
+        }
+        Assert.assertEquals("EOF not last.", "# EOF", lines[lines.length - 1]);
+    }
+
+    public void testSave() throws IOException {
+        File dir = Files.createTempDirectory("vmcat").toFile();
+        dir.deleteOnExit();
+        File metricsFile = new File(dir, "vmcat.prom");
+        metricsFile.deleteOnExit();
+        List<JvmRun> jvmRuns = getJvmRuns("dataset12.txt");
+        MetricsReport.save(metricsFile, jvmRuns);
+        MetricsReport.save(metricsFile, jvmRuns);
+        StringWriter writer = new StringWriter();
+        MetricsReport.write(writer, jvmRuns);
+        Assert.assertEquals("Metrics file not correct.", writer.toString(),
+                new String(Files.readAllBytes(metricsFile.toPath()), StandardCharsets.UTF_8));
+        Assert.assertEquals("Temporary file not removed.", 1, dir.list().length);
+    }
+
+    public void testNumbers() {
+        Assert.assertEquals("Seconds not correct.", "0", MetricsReport.getSeconds(0));
+        Assert.assertEquals("Seconds not correct.", "0.007", MetricsReport.getSeconds(7));
+        Assert.assertEquals("Seconds not correct.", "12.5", MetricsReport.getSeconds(12500));
+        Assert.assertEquals("Bound not correct.", "0.1", MetricsReport.getBound(100));
+        Assert.assertEquals("Bound not correct.", "10.0", MetricsReport.getBound(10000));
+        Assert.assertEquals("Label not escaped.", "a\\\\b\\\"c\\n", MetricsReport.escape("a\\b\"c\n"));
+    }
+}
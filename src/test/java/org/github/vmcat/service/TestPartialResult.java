@@ -0,0 +1,126 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.github.vmcat.domain.Fleet;
+import org.github.vmcat.domain.Jvm;
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.domain.JvmRunSummary;
+import org.github.vmcat.domain.jdk.SafepointEvent;
+import org.github.vmcat.util.Constants;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestPartialResult extends TestCase {
+
+    private static void add(Fleet fleet, String dataset) {
+        Manager manager = new Manager();
+        manager.store(new File(Constants.TEST_DATA_DIR + dataset));
+        List<JvmRun> jvmRuns = manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        manager.close();
+        fleet.addLogFile();
+        Iterator<JvmRun> iterator = jvmRuns.iterator();
+        while (iterator.hasNext()) {
+            fleet.add(new JvmRunSummary(iterator.next()));
+        }
+    }
+
+    private static void assertSameSummary(JvmRunSummary expected, JvmRunSummary actual) {
+        Assert.assertEquals("Fingerprint not correct.", expected.getFingerprint(), actual.getFingerprint());
+        Assert.assertEquals("JVM run count not correct.", expected.getJvmRunCount(), actual.getJvmRunCount());
+        Assert.assertEquals("Safepoint count not correct.", expected.getSafepointEventCount(),
+                actual.getSafepointEventCount());
+        Assert.assertEquals("Pause total not correct.", expected.getSafepointTotalPause(),
+                actual.getSafepointTotalPause());
+        Assert.assertEquals("Max pause not correct.", expected.getMaxPause(), actual.getMaxPause());
+        Assert.assertEquals("Throughput not correct.", expected.getThroughput(), actual.getThroughput());
+        Assert.assertEquals("Storm count not correct.", expected.getSafepointStormCount(),
+                actual.getSafepointStormCount());
+        Assert.assertEquals("Histogram not correct.", expected.getPauseHistogram(), actual.getPauseHistogram());
+        Assert.assertEquals("Timeline not correct.", expected.getPauseTimeline().size(),
+                actual.getPauseTimeline().size());
+        Assert.assertEquals("Trigger count not correct.", expected.getSafepointEventSummaries().size(),
+                actual.getSafepointEventSummaries().size());
+        Assert.assertEquals("Top trigger not correct.", expected.getTopTrigger(), actual.getTopTrigger());
+        Assert.assertEquals("Top trigger histogram not correct.",
+                expected.getTriggerPauseHistogram(expected.getTopTrigger()),
+                actual.getTriggerPauseHistogram(actual.getTopTrigger()));
+        Assert.assertTrue("MMU window max pauses not correct.",
+                Arrays.equals(expected.getWindowMaxPauses(), actual.getWindowMaxPauses()));
+        List<SafepointEvent> expectedTop = expected.getTopSafepointEvents().getEvents();
+        List<SafepointEvent> actualTop = actual.getTopSafepointEvents().getEvents();
+        Assert.assertEquals("Top safepoint count not correct.", expectedTop.size(), actualTop.size());
+        for (int i = 0; i < expectedTop.size(); i++) {
+            Assert.assertEquals("Top safepoint not correct.", expectedTop.get(i).getLogEntry(),
+                    actualTop.get(i).getLogEntry());
+        }
+    }
+
+    public void testMerge() throws IOException {
+        Fleet expected = new Fleet();
+        add(expected, "dataset12.txt");
+        add(expected, "dataset13.txt");
+        add(expected, "dataset14.txt");
+
+        Fleet shard1 = new Fleet();
+        add(shard1, "dataset12.txt");
+        add(shard1, "dataset13.txt");
+        Fleet shard2 = new Fleet();
+        add(shard2, "dataset14.txt");
+        File partial1 = File.createTempFile("vmcat", ".json");
+        partial1.deleteOnExit();
+        File partial2 = File.createTempFile("vmcat", ".json");
+        partial2.deleteOnExit();
+        PartialResult.write(shard1, partial1);
+        PartialResult.write(shard2, partial2);
+
+        Fleet merged = new Fleet();
+        PartialResult.read(partial1, merged);
+        PartialResult.read(partial2, merged);
+        Assert.assertEquals("File count not correct.", 3, merged.getLogFileCount());
+        assertSameSummary(expected.getTotal(), merged.getTotal());
+        Assert.assertEquals("Configuration count not correct.", expected.getConfigurations().size(),
+                merged.getConfigurations().size());
+        for (int i = 0; i < expected.getConfigurations().size(); i++) {
+            assertSameSummary(expected.getConfigurations().get(i), merged.getConfigurations().get(i));
+        }
+    }
+
+    public void testUnsupportedVersion() throws IOException {
+        File partial = File.createTempFile("vmcat", ".json");
+        partial.deleteOnExit();
+        FileWriter writer = new FileWriter(partial);
+        writer.write("{\"format\":\"" + PartialResult.FORMAT + "\",\"version\":999,\"configurations\":[]}");
+        writer.close();
+        try {
+            PartialResult.read(partial, new Fleet());
+            Assert.fail("Unsupported version accepted.");
+        } catch (IOException e) {
+            Assert.assertTrue("Error not correct.", e.getMessage().contains("version 999"));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.github.vmcat.domain.Jvm;
+import org.github.vmcat.util.Constants;
+import org.github.vmcat.util.jdk.JdkUtil.LogEventType;
+import org.json.JSONObject;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestPhaseStats extends TestCase {
+
+    private static PhaseStats getStats(String dataset) {
+        Manager manager = new Manager();
+        PhaseStats stats = new PhaseStats();
+        manager.setStats(stats);
+        manager.store(new File(Constants.TEST_DATA_DIR + dataset));
+        manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        manager.close();
+        return stats;
+    }
+
+    public void testLap() {
+        PhaseStats stats = new PhaseStats();
+        long start = System.nanoTime();
+        StringBuilder allocation = new StringBuilder();
+        while (System.nanoTime() - start < 2000000) {
+            allocation.append(start);
+        }
+        stats.lap(PhaseStats.Phase.PARSE);
+        Assert.assertTrue("Wall time not correct.", stats.getWallTime(PhaseStats.Phase.PARSE) >= 2000000);
+        Assert.assertEquals("Wall time charged to wrong phase.", 0, stats.getWallTime(PhaseStats.Phase.READ));
+        if (stats.isCpuTimeEnabled()) {
+            Assert.assertTrue("CPU time not correct.", stats.getCpuTime(PhaseStats.Phase.PARSE) > 0);
+        }
+        if (stats.isAllocationEnabled()) {
+            Assert.assertTrue("Allocation not correct.", stats.getAllocated(PhaseStats.Phase.PARSE) > 0);
+        }
+        stats.mark();
+        stats.lap(PhaseStats.Phase.PARSE);
+        Assert.assertTrue("Mark not skipping time.", stats.getWallTime(PhaseStats.Phase.PARSE) < 1000000000);
+    }
+
+    public void testManager() {
+        PhaseStats stats = getStats("dataset9.txt");
+        Assert.assertEquals("Line count not correct.", 18, stats.getLineCount());
+        Assert.assertEquals("Safepoint line count not correct.", 9, stats.getLineCount(LogEventType.SAFEPOINT));
+        Assert.assertEquals("Header line count not correct.", 9, stats.getLineCount(LogEventType.HEADER));
+        // No line terminator on the last line
+        Assert.assertEquals("Bytes read not correct.",
+                new File(Constants.TEST_DATA_DIR + "dataset9.txt").length() + 1, stats.getBytesRead());
+        Assert.assertTrue("Classify time not recorded.", stats.getWallTime(PhaseStats.Phase.CLASSIFY) > 0);
+        Assert.assertTrue("Aggregate time not recorded.", stats.getWallTime(PhaseStats.Phase.AGGREGATE) > 0);
+        Assert.assertTrue("Bottlenecks time not recorded.", stats.getWallTime(PhaseStats.Phase.BOTTLENECKS) > 0);
+        Assert.assertEquals("Render time recorded.", 0, stats.getWallTime(PhaseStats.Phase.RENDER));
+        Assert.assertTrue("Lines per second not correct.", stats.getLinesPerSecond() > 0);
+    }
+
+    public void testWriteStats() throws IOException {
+        PhaseStats stats = getStats("dataset9.txt");
+        StringWriter writer = new StringWriter();
+        JsonReport.writeStats(writer, stats);
+        JSONObject json = new JSONObject(writer.toString());
+        Assert.assertEquals("Line count not correct.", 18, json.getLong("lines"));
+        Assert.assertEquals("Safepoint line count not correct.", 9,
+                json.getJSONObject("lineTypes").getLong("SAFEPOINT"));
+        Assert.assertEquals("Phase count not correct.", PhaseStats.Phase.values().length,
+                json.getJSONObject("phases").length());
+        Assert.assertEquals("Parse wall time not correct.", stats.getWallTime(PhaseStats.Phase.PARSE),
+                json.getJSONObject("phases").getJSONObject("parse").getLong("wallTime"));
+        writer = new StringWriter();
+        TextReport.writeStats(writer, stats);
+        String report = writer.toString();
+        Assert.assertTrue("Stats section missing.", report.contains("STATS:"));
+        Assert.assertTrue("Bottlenecks phase missing.", report.contains(Constants.LINE_SEPARATOR + "bottlenecks "));
+        Assert.assertTrue("Safepoint line count missing.", report.matches("(?s).*\\nSAFEPOINT +9\\r?\\n.*"));
+    }
+}
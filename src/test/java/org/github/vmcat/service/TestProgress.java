@@ -0,0 +1,78 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+
+import org.github.vmcat.util.Constants;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestProgress extends TestCase {
+
+    public void testManager() {
+        File logFile = new File(Constants.TEST_DATA_DIR + "dataset9.txt");
+        Progress progress = new Progress(new PrintStream(new ByteArrayOutputStream()), logFile.length());
+        Manager manager = new Manager();
+        manager.setProgress(progress);
+        manager.store(logFile);
+        manager.close();
+        Assert.assertEquals("Line count not correct.", 18, progress.getLines());
+        Assert.assertEquals("Event count not correct.", 9, progress.getEvents());
+        // No line terminator on the last line
+        Assert.assertEquals("Bytes not correct.", logFile.length() + 1, progress.getBytes());
+    }
+
+    public void testLine() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Progress progress = new Progress(new PrintStream(out), 10 * 1024 * 1024);
+        progress.start();
+        progress.skip(1024 * 1024);
+        for (int i = 0; i < 1024; i++) {
+            progress.addLine(new String(new char[1023]));
+        }
+        progress.addEvent();
+        String line = progress.getLine(System.currentTimeMillis() + 1000);
+        Assert.assertTrue("Bytes not correct.", line.startsWith("vmcat: 2.0 MB of 10.0 MB (20%), "));
+        Assert.assertTrue("Events not correct.", line.contains(" lines/s, 1 events, ETA "));
+        // 8 MB remaining at about 1 MB/s
+        Assert.assertTrue("ETA not correct.", line.matches(".*, ETA 0:00:0[89]$"));
+        for (int i = 0; i < 8 * 1024; i++) {
+            progress.addLine(new String(new char[1023]));
+        }
+        progress.close();
+        Assert.assertTrue("Final progress not printed.", out.toString().contains("10.0 MB of 10.0 MB (100%)"));
+        Assert.assertTrue("Analyzing not printed.", out.toString().contains(", analyzing"));
+    }
+
+    public void testSizeString() {
+        Assert.assertEquals("Size not correct.", "0.5 KB", Progress.getSizeString(512));
+        Assert.assertEquals("Size not correct.", "1.5 MB", Progress.getSizeString(3 * 512 * 1024));
+        Assert.assertEquals("Size not correct.", "20.0 GB", Progress.getSizeString(20L * 1024 * 1024 * 1024));
+    }
+
+    public void testDurationString() {
+        Assert.assertEquals("Duration not correct.", "0:00:00", Progress.getDurationString(0));
+        Assert.assertEquals("Duration not correct.", "0:05:12", Progress.getDurationString(312000));
+        Assert.assertEquals("Duration not correct.", "2:00:01", Progress.getDurationString(7200001));
+    }
+}
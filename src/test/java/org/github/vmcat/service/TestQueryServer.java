@@ -0,0 +1,127 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.util.Constants;
+import org.json.JSONObject;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestQueryServer extends TestCase {
+
+    private QueryServer server;
+
+    protected void setUp() throws IOException {
+        server = new QueryServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), Long.MAX_VALUE, 2,
+                new QueryServer.ReportWriter() {
+                    public void write(PrintWriter printWriter, List<JvmRun> jvmRuns) {
+                        printWriter.println("JVM runs: " + jvmRuns.size());
+                    }
+                });
+        server.start();
+    }
+
+    protected void tearDown() {
+        server.stop();
+    }
+
+    private String request(String method, String query, byte[] body, int status) throws IOException {
+        URL url = new URL("http://127.0.0.1:" + server.getPort() + query);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            OutputStream out = connection.getOutputStream();
+            out.write(body);
+            out.close();
+        }
+        Assert.assertEquals("Status not correct.", status, connection.getResponseCode());
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            response.write(buffer, 0, read);
+        }
+        in.close();
+        return response.toString("UTF-8");
+    }
+
+    private static String path(String dataset) throws IOException {
+        return URLEncoder.encode(Paths.get(Constants.TEST_DATA_DIR + dataset).toAbsolutePath().toString(), "UTF-8");
+    }
+
+    public void testSummary() throws IOException {
+        JSONObject summary = new JSONObject(request("GET", "/summary?path=" + path("dataset12.txt"), null, 200));
+        JSONObject jvmRun = summary.getJSONArray("jvmRuns").getJSONObject(0);
+        Assert.assertEquals("Safepoint event count not correct.", 153, jvmRun.getInt("safepointEventCount"));
+        Assert.assertEquals("Max pause not correct.", 20, jvmRun.getLong("maxPause"));
+        Assert.assertEquals("Throughput not correct.", 99, jvmRun.getInt("throughput"));
+        Assert.assertEquals("First request not a cache miss.", 1, server.getCache().getMisses());
+        request("GET", "/percentiles?path=" + path("dataset12.txt") + "&p=50,99.9", null, 200);
+        Assert.assertEquals("Second request not a cache hit.", 1, server.getCache().getHits());
+        JSONObject stats = new JSONObject(request("GET", "/stats", null, 200));
+        Assert.assertEquals("Cache entries not correct.", 1, stats.getInt("entries"));
+    }
+
+    public void testPercentiles() throws IOException {
+        JSONObject percentiles = new JSONObject(
+                request("GET", "/percentiles?path=" + path("dataset12.txt") + "&p=50,99.9", null, 200));
+        JSONObject pause = percentiles.getJSONArray("jvmRuns").getJSONObject(0).getJSONObject("pause");
+        Assert.assertEquals("p50 not correct.", 2, pause.getLong("50"));
+        Assert.assertEquals("p99.9 not correct.", 20, pause.getLong("99.9"));
+    }
+
+    public void testUpload() throws IOException {
+        byte[] log = Files.readAllBytes(Paths.get(Constants.TEST_DATA_DIR + "dataset12.txt"));
+        JSONObject upload = new JSONObject(request("POST", "/upload", log, 200));
+        String id = upload.getString("id");
+        Assert.assertEquals("Upload summary not correct.", 153,
+                upload.getJSONArray("jvmRuns").getJSONObject(0).getInt("safepointEventCount"));
+        String report = request("GET", "/report?id=" + id, null, 200);
+        Assert.assertEquals("Report not correct.", "JVM runs: 1", report.trim());
+        JSONObject again = new JSONObject(request("POST", "/upload", log, 200));
+        Assert.assertEquals("Same upload not same id.", id, again.getString("id"));
+        Assert.assertEquals("Same upload not a cache hit.", 2, server.getCache().getHits());
+    }
+
+    public void testErrors() throws IOException {
+        JSONObject error = new JSONObject(request("GET", "/summary?path=" + path("missing.txt"), null, 404));
+        Assert.assertTrue("Error not reported.", error.has("error"));
+        request("GET", "/summary?id=unknown", null, 404);
+        request("GET", "/summary", null, 400);
+        request("GET", "/upload", null, 405);
+    }
+}
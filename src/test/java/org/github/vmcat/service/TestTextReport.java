@@ -0,0 +1,92 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.service;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import org.github.vmcat.domain.Jvm;
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.util.Constants;
+import org.github.vmcat.util.jdk.Analysis;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestTextReport extends TestCase {
+
+    public void testReport() {
+        Manager manager = new Manager();
+        manager.store(new File(Constants.TEST_DATA_DIR + "dataset12.txt"));
+        List<JvmRun> jvmRuns = manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        manager.close();
+        StringWriter writer = new StringWriter();
+        TextReport.write(writer, jvmRuns, "1.0.0", null);
+        String report = writer.toString();
+        String separator = Constants.LINE_SEPARATOR;
+        Assert.assertTrue("Version not reported.", report.startsWith("========================================"
+                + separator + "Running vmcat version: 1.0.0" + separator));
+        Assert.assertFalse("Latest version reported.", report.contains("Latest vmcat version"));
+        Assert.assertTrue("Summary not correct.", report.contains("Throughput: 99%" + separator
+                + "Max Pause: 0.020 secs" + separator + "Total Pause: 0.355 secs" + separator
+                + "First Timestamp: 5.000 secs" + separator + "Last Timestamp: 30.000 secs" + separator));
+        Assert.assertTrue("Trigger not correct.", report.contains(String
+                .format("%-30s%10s%12s%6s%%%12s%n", "RevokeBias", 150, "0.300", "85", "0.002")));
+        Assert.assertTrue("Bottleneck not correct.",
+                report.contains("Throughput less than " + Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD + "%"));
+    }
+
+    public void testBottleneckDatestamps() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2020, Calendar.JANUARY, 1, 0, 0, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        Jvm jvm = new Jvm();
+        jvm.setStartDate(calendar.getTime());
+        Manager manager = new Manager();
+        manager.store(new File(Constants.TEST_DATA_DIR + "dataset12.txt"));
+        List<JvmRun> jvmRuns = manager.getJvmRuns(jvm, Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        manager.close();
+        StringWriter writer = new StringWriter();
+        TextReport.write(writer, jvmRuns, null, null);
+        Assert.assertTrue("Bottleneck timestamp not converted.",
+                writer.toString().contains(Constants.LINE_SEPARATOR + "2020-01-01 00:00:20,000: RevokeBias"));
+    }
+
+    public void testNoSafepoints() {
+        JvmRun jvmRun = new JvmRun(new Jvm());
+        jvmRun.setBottlenecks(new ArrayList<String>());
+        jvmRun.setAnalysis(new ArrayList<Analysis>());
+        jvmRun.setUnidentifiedLogLines(new ArrayList<String>());
+        List<JvmRun> jvmRuns = new ArrayList<JvmRun>();
+        jvmRuns.add(jvmRun);
+        StringWriter writer = new StringWriter();
+        TextReport.write(writer, jvmRuns, null, null);
+        String separator = Constants.LINE_SEPARATOR;
+        Assert.assertEquals("Report not correct.",
+                "========================================" + separator + "SUMMARY:" + separator
+                        + "----------------------------------------" + separator
+                        + "========================================" + separator + "TRIGGERS:" + separator
+                        + "----------------------------------------" + separator
+                        + "========================================" + separator,
+                writer.toString());
+    }
+}
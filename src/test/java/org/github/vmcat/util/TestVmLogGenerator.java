@@ -0,0 +1,148 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.util;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.github.vmcat.domain.Jvm;
+import org.github.vmcat.domain.JvmRun;
+import org.github.vmcat.service.Manager;
+import org.github.vmcat.util.jdk.JdkUtil.LogEventType;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class TestVmLogGenerator extends TestCase {
+
+    /**
+     * Generate a vm log and parse it.
+     * 
+     * @param generator
+     *            The vm log generator.
+     * @param maxSafepoints
+     *            The number of safepoints.
+     * @return The <code>JvmRun</code>s.
+     * @throws IOException
+     *             if the vm log cannot be read.
+     */
+    private List<JvmRun> generate(VmLogGenerator generator, long maxSafepoints) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        generator.write(out, 0, maxSafepoints);
+        Assert.assertEquals("Length not correct.", out.size(), generator.getLength());
+        Manager manager = new Manager();
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(out.toByteArray()), StandardCharsets.US_ASCII));
+        String logLine;
+        while ((logLine = reader.readLine()) != null) {
+            manager.store(logLine);
+        }
+        manager.flush();
+        return manager.getJvmRuns(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+    }
+
+    public void testJdk8() throws IOException {
+        VmLogGenerator generator = new VmLogGenerator();
+        generator.setRestartInterval(2000);
+        generator.setStormInterval(3000);
+        generator.setTimeWarpInterval(500);
+        generator.setUnknownInterval(1000);
+        List<JvmRun> jvmRuns = generate(generator, 10000);
+        Assert.assertEquals("Safepoint count not correct.", 10000, generator.getSafepointCount());
+        Assert.assertTrue("No JVM restarts.", generator.getJvmRunCount() > 1);
+        Assert.assertTrue("No storms.", generator.getStormCount() > 0);
+        Assert.assertTrue("No time warps.", generator.getTimeWarpCount() > 0);
+        Assert.assertTrue("No unknown lines.", generator.getUnknownCount() > 0);
+        Assert.assertEquals("JVM run count not correct.", generator.getJvmRunCount(), jvmRuns.size());
+        long safepointCount = 0;
+        long unidentifiedCount = 0;
+        long reorderedCount = 0;
+        int stormCount = 0;
+        for (int i = 0; i < jvmRuns.size(); i++) {
+            JvmRun jvmRun = jvmRuns.get(i);
+            safepointCount = safepointCount + jvmRun.getSafepointEventCount();
+            unidentifiedCount = unidentifiedCount + jvmRun.getUnidentifiedLogLines().size();
+            reorderedCount = reorderedCount + jvmRun.getReorderedCount();
+            stormCount = stormCount + jvmRun.getSafepointStorms().size();
+            Assert.assertEquals("Out of horizon count not correct.", 0, jvmRun.getOutOfHorizonCount());
+            Assert.assertTrue("JVM version not correct.", jvmRun.getJvm().getVersion().contains("1.8.0_262"));
+        }
+        Assert.assertEquals("Safepoint count not correct.", generator.getSafepointCount(), safepointCount);
+        Assert.assertEquals("Unidentified log line count not correct.", generator.getUnknownCount(),
+                unidentifiedCount);
+        Assert.assertEquals("Reordered count not correct.", generator.getTimeWarpCount(), reorderedCount);
+        Assert.assertTrue("Storms not identified.", stormCount >= generator.getStormCount());
+    }
+
+    public void testJdk11DateStamps() throws IOException {
+        VmLogGenerator generator = new VmLogGenerator();
+        generator.setLayout(VmLogGenerator.Layout.JDK11);
+        generator.setDatestamps(true);
+        List<JvmRun> jvmRuns = generate(generator, 1000);
+        Assert.assertEquals("JVM run count not correct.", 1, jvmRuns.size());
+        JvmRun jvmRun = jvmRuns.get(0);
+        Assert.assertEquals("Safepoint count not correct.", 1000, jvmRun.getSafepointEventCount());
+        Assert.assertFalse(LogEventType.UNKNOWN.toString() + " event identified.",
+                jvmRun.getEventTypes().contains(LogEventType.UNKNOWN));
+        Assert.assertTrue("JVM version not correct.", jvmRun.getJvm().getVersion().contains("11.0.8"));
+        Assert.assertEquals("Start time not correct.", 1598979577623L, jvmRun.getCalendarRollup().getStartTime());
+    }
+
+    public void testSameSeed() throws IOException {
+        VmLogGenerator generator = new VmLogGenerator();
+        generator.setStormInterval(100);
+        ByteArrayOutputStream out1 = new ByteArrayOutputStream();
+        generator.write(out1, 100000, 0);
+        ByteArrayOutputStream out2 = new ByteArrayOutputStream();
+        generator.write(out2, 100000, 0);
+        Assert.assertTrue("Length not correct.", out1.size() >= 100000);
+        Assert.assertArrayEquals("Vm log not repeatable.", out1.toByteArray(), out2.toByteArray());
+        generator.setSeed(2);
+        ByteArrayOutputStream out3 = new ByteArrayOutputStream();
+        generator.write(out3, 100000, 0);
+        Assert.assertFalse("Seed ignored.", Arrays.equals(out1.toByteArray(), out3.toByteArray()));
+    }
+
+    public void testGetDate() {
+        Assert.assertEquals("Date not correct.", "1970-01-01", VmLogGenerator.getDate(0));
+        Assert.assertEquals("Date not correct.", "2020-02-29", VmLogGenerator.getDate(18321));
+        Assert.assertEquals("Date not correct.", "2020-09-01", VmLogGenerator.getDate(18506));
+        Assert.assertEquals("Date not correct.", "1969-12-31", VmLogGenerator.getDate(-1));
+    }
+
+    public void testParseSize() {
+        Assert.assertEquals("Size not correct.", 100, VmLogGenerator.parseSize("100"));
+        Assert.assertEquals("Size not correct.", 2048, VmLogGenerator.parseSize("2k"));
+        Assert.assertEquals("Size not correct.", 10L << 30, VmLogGenerator.parseSize("10G"));
+    }
+
+    public void testParseTriggerWeights() {
+        Map<String, Integer> triggerWeights = VmLogGenerator.parseTriggerWeights("RevokeBias=3,G1IncCollectionPause=1");
+        Assert.assertEquals("Trigger count not correct.", 2, triggerWeights.size());
+        Assert.assertEquals("Weight not correct.", Integer.valueOf(3), triggerWeights.get("RevokeBias"));
+        Assert.assertEquals("Weight not correct.", Integer.valueOf(1), triggerWeights.get("G1IncCollectionPause"));
+    }
+}
@@ -14,11 +14,14 @@
  *********************************************************************************************************************/
 package org.github.vmcat.util;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 
 import org.github.vmcat.util.jdk.Analysis;
+import org.github.vmcat.util.jdk.JdkMath;
 import org.junit.Assert;
 
 import junit.framework.TestCase;
@@ -254,4 +257,74 @@ public class TestVmUtil extends TestCase {
         Assert.assertFalse("'" + tag + "' incorrectly identified as a start tag.", VmUtil.isHtmlEventStartTag(tag));
     }
 
+    public void testGetDateTimeString() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss,SSS");
+        long[] millis = { 0, 999, 1000, 1001, 1999, 1000, -1, -1000, -1001, 1600000000123L, 1600000000999L,
+                1600000001000L, 1600000000123L };
+        for (int i = 0; i < millis.length; i++) {
+            Date date = new Date(millis[i]);
+            Assert.assertEquals("Date/time not correct: " + millis[i], format.format(date),
+                    VmUtil.getDateTimeString(date));
+        }
+    }
+
+    public void testGetSecs() {
+        long[] values = { 0, 1, 9, 10, 99, 100, 999, 1000, 1001, 123456, -1, -999, -1000, -123456, Long.MAX_VALUE,
+                Long.MIN_VALUE };
+        for (int i = 0; i < values.length; i++) {
+            Assert.assertEquals("Seconds not correct: " + values[i],
+                    JdkMath.convertMillisToSecs(values[i]).toString(), VmUtil.getSecs(values[i]));
+        }
+        Assert.assertEquals("Rounding hint not correct.", "~0.000", VmUtil.getSecsString(0));
+        Assert.assertEquals("Seconds not correct.", "0.001", VmUtil.getSecsString(1));
+    }
+
+    public void testGetPercentString() {
+        long[] totals = { 1, 2, 3, 7, 8, 200, 1000, 12345 };
+        for (int i = 0; i < totals.length; i++) {
+            for (long part = -totals[i]; part <= totals[i]; part++) {
+                BigDecimal percent = new BigDecimal(part);
+                percent = percent.divide(new BigDecimal(totals[i]), 2, RoundingMode.HALF_EVEN);
+                percent = percent.movePointRight(2);
+                String expected = percent.intValue() == 0 ? "~" + percent : percent.toString();
+                Assert.assertEquals("Percent not correct: " + part + "/" + totals[i], expected,
+                        VmUtil.getPercentString(part, totals[i]));
+            }
+        }
+        Assert.assertEquals("Percent not correct.", "~0", VmUtil.getPercentString(5, 0));
+        Assert.assertEquals("Percent not correct.", "50", VmUtil.getPercentString(Long.MAX_VALUE / 2, Long.MAX_VALUE));
+    }
+
+    public void testDownsampleUnderThreshold() {
+        long[] x = { 0, 1, 2 };
+        long[] y = { 5, 6, 7 };
+        int[] kept = VmUtil.downsample(x, y, 3, 10);
+        Assert.assertArrayEquals("Points not all kept.", new int[] { 0, 1, 2 }, kept);
+    }
+
+    public void testDownsampleKeepsPeaks() {
+        int count = 10000;
+        long[] x = new long[count];
+        long[] y = new long[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = i * 100L;
+            y[i] = 1;
+        }
+        y[1234] = 500;
+        y[8765] = 900;
+        int[] kept = VmUtil.downsample(x, y, count, 100);
+        Assert.assertEquals("Point count not correct.", 100, kept.length);
+        Assert.assertEquals("First point not kept.", 0, kept[0]);
+        Assert.assertEquals("Last point not kept.", count - 1, kept[kept.length - 1]);
+        boolean peak1 = false;
+        boolean peak2 = false;
+        for (int i = 0; i < kept.length; i++) {
+            if (i > 0) {
+                Assert.assertTrue("Points not ascending.", kept[i] > kept[i - 1]);
+            }
+            peak1 = peak1 || kept[i] == 1234;
+            peak2 = peak2 || kept[i] == 8765;
+        }
+        Assert.assertTrue("Peak not kept.", peak1 && peak2);
+    }
 }
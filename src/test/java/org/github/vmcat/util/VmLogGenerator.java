@@ -0,0 +1,902 @@
+/**********************************************************************************************************************
+ * vmcat                                                                                                              *
+ *                                                                                                                    *
+ * Copyright (c) 2020-2023 Mike Millson                                                                                    *
+ *                                                                                                                    * 
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License       * 
+ * v. 2.0 which is available at https://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0 which is    *
+ * available at https://www.apache.org/licenses/LICENSE-2.0.                                                          *
+ *                                                                                                                    *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0                                                                     *
+ *                                                                                                                    *
+ * Contributors:                                                                                                      *
+ *    Mike Millson - initial API and implementation                                                                   *
+ *********************************************************************************************************************/
+package org.github.vmcat.util;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.github.vmcat.util.jdk.Safepoint;
+
+/**
+ * <p>
+ * Synthetic <code>-XX:+LogVMOutput</code> vm log generator for scale and soak testing and benchmark input.
+ * </p>
+ * 
+ * <p>
+ * Each JVM run has the <code>hotspot_log</code> header (<code>vm_version</code>, <code>vm_arguments</code> and
+ * <code>properties</code>), a <code>tty</code> section with a safepoint header and safepoint line (JDK8 or JDK11
+ * layout) for each safepoint, and the footer stats and closing tags. Optionally injects safepoint storms (a burst of
+ * one trigger), time warps (a safepoint logged before the previous one), JVM restarts and unknown lines.
+ * </p>
+ * 
+ * <p>
+ * The same seed and settings give the same vm log. Lines are formatted directly into an output buffer as ASCII bytes
+ * (no <code>String</code> per line), so generation runs at about disk speed. Run with:
+ * </p>
+ * 
+ * <pre>
+ * mvn test-compile
+ * java -cp target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *     org.github.vmcat.util.VmLogGenerator --size 10G [OPTION]... FILE
+ * </pre>
+ * 
+ * @author <a href="mailto:mmillson@redhat.com">Mike Millson</a>
+ * 
+ */
+public class VmLogGenerator {
+
+    /**
+     * Safepoint logging layout.
+     */
+    public enum Layout {
+        JDK8, JDK11
+    };
+
+    /**
+     * Safepoint header (JDK8).
+     */
+    public static final String HEADER_JDK8 = "         vmop                    [threads: total initially_running "
+            + "wait_to_block]    [time: spin block sync cleanup vmop] page_trap_count";
+
+    /**
+     * Safepoint header (JDK11).
+     */
+    public static final String HEADER_JDK11 = "          vmop                            [ threads:    total "
+            + "initially_running wait_to_block ][ time:    spin   block    sync cleanup    vmop ] page_trap_count";
+
+    /**
+     * The output buffer size.
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * The room in the output buffer ensured for a safepoint or footer line.
+     */
+    private static final int MAX_LINE_LENGTH = 512;
+
+    /**
+     * Milliseconds in a day.
+     */
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    /**
+     * The time (milliseconds) between the end of a JVM run and the start of the next JVM run.
+     */
+    private static final long RESTART_TIME = 30000;
+
+    /**
+     * The layout.
+     */
+    private Layout layout = Layout.JDK8;
+
+    /**
+     * The random seed.
+     */
+    private long seed = 1;
+
+    /**
+     * The trigger literals and weights.
+     */
+    private Map<String, Integer> triggerWeights;
+
+    /**
+     * The mean time (milliseconds) between safepoints.
+     */
+    private int meanInterval = 500;
+
+    /**
+     * The mean number of safepoints between storms, or 0 for no storms.
+     */
+    private int stormInterval;
+
+    /**
+     * The number of safepoints in a storm.
+     */
+    private int stormLength = 300;
+
+    /**
+     * The mean number of safepoints between time warps, or 0 for no time warps.
+     */
+    private int timeWarpInterval;
+
+    /**
+     * The mean number of safepoints between JVM restarts, or 0 for one JVM run.
+     */
+    private int restartInterval;
+
+    /**
+     * The mean number of lines between unknown lines, or 0 for no unknown lines.
+     */
+    private int unknownInterval;
+
+    /**
+     * Whether safepoint lines have a datestamp (UTC) before the timestamp.
+     */
+    private boolean datestamps;
+
+    /**
+     * The first JVM start time (milliseconds since the epoch).
+     */
+    private long startTime = 1598979577623L;
+
+    /**
+     * The random number generator.
+     */
+    private SplittableRandom random;
+
+    /**
+     * The trigger literals, indexed by <code>triggerCumulativeWeights</code>.
+     */
+    private String[] triggers;
+
+    /**
+     * The cumulative trigger weights.
+     */
+    private int[] triggerCumulativeWeights;
+
+    /**
+     * The safepoint header for the layout (ASCII).
+     */
+    private byte[] header;
+
+    /**
+     * The output buffer.
+     */
+    private byte[] buffer;
+
+    /**
+     * The number of bytes in the output buffer.
+     */
+    private int position;
+
+    /**
+     * The number of bytes written to the output stream.
+     */
+    private long flushedLength;
+
+    /**
+     * The number of safepoints written.
+     */
+    private long safepointCount;
+
+    /**
+     * The number of safepoints written for each trigger in the current JVM run, indexed like <code>triggers</code>.
+     */
+    private long[] jvmRunTriggerCounts;
+
+    /**
+     * The number of JVM runs written.
+     */
+    private int jvmRunCount;
+
+    /**
+     * The number of storms written.
+     */
+    private int stormCount;
+
+    /**
+     * The number of time warps written.
+     */
+    private int timeWarpCount;
+
+    /**
+     * The number of unknown lines written.
+     */
+    private int unknownCount;
+
+    /**
+     * The epoch day of the cached datestamp date.
+     */
+    private long datestampDay = Long.MIN_VALUE;
+
+    /**
+     * The cached datestamp date (yyyy-MM-dd).
+     */
+    private String datestampDate;
+
+    /**
+     * Default constructor: JDK8 layout, a mix of biased locking, GC and other triggers, no storms, time warps, restarts
+     * or unknown lines.
+     */
+    public VmLogGenerator() {
+        triggerWeights = new LinkedHashMap<String, Integer>();
+        triggerWeights.put(Safepoint.REVOKE_BIAS, 30);
+        triggerWeights.put(Safepoint.G1_INC_COLLECTION_PAUSE, 20);
+        triggerWeights.put(Safepoint.NO_VM_OPERATION, 20);
+        triggerWeights.put(Safepoint.BULK_REVOKE_BIAS, 5);
+        triggerWeights.put(Safepoint.DEOPTIMIZE, 10);
+        triggerWeights.put(Safepoint.FIND_DEADLOCKS, 5);
+        triggerWeights.put(Safepoint.GET_ALL_STACK_TRACES, 5);
+        triggerWeights.put(Safepoint.FORCE_SAFEPOINT, 5);
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    public void setLayout(Layout layout) {
+        this.layout = layout;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public Map<String, Integer> getTriggerWeights() {
+        return triggerWeights;
+    }
+
+    public void setTriggerWeights(Map<String, Integer> triggerWeights) {
+        this.triggerWeights = triggerWeights;
+    }
+
+    public void setMeanInterval(int meanInterval) {
+        this.meanInterval = meanInterval;
+    }
+
+    public void setStormInterval(int stormInterval) {
+        this.stormInterval = stormInterval;
+    }
+
+    public void setStormLength(int stormLength) {
+        this.stormLength = stormLength;
+    }
+
+    public void setTimeWarpInterval(int timeWarpInterval) {
+        this.timeWarpInterval = timeWarpInterval;
+    }
+
+    public void setRestartInterval(int restartInterval) {
+        this.restartInterval = restartInterval;
+    }
+
+    public void setUnknownInterval(int unknownInterval) {
+        this.unknownInterval = unknownInterval;
+    }
+
+    public void setDatestamps(boolean datestamps) {
+        this.datestamps = datestamps;
+    }
+
+    public void setStartTime(long startTime) {
+        this.startTime = startTime;
+    }
+
+    /**
+     * @return The number of bytes written.
+     */
+    public long getLength() {
+        return flushedLength + position;
+    }
+
+    public long getSafepointCount() {
+        return safepointCount;
+    }
+
+    public int getJvmRunCount() {
+        return jvmRunCount;
+    }
+
+    public int getStormCount() {
+        return stormCount;
+    }
+
+    public int getTimeWarpCount() {
+        return timeWarpCount;
+    }
+
+    public int getUnknownCount() {
+        return unknownCount;
+    }
+
+    /**
+     * Write a vm log. Stops at the end of the safepoint when either limit is reached.
+     * 
+     * @param out
+     *            The vm log output stream.
+     * @param maxLength
+     *            The maximum number of bytes, or 0 for no limit.
+     * @param maxSafepoints
+     *            The maximum number of safepoints, or 0 for no limit.
+     * @throws IOException
+     *             if the vm log cannot be written.
+     */
+    public void write(OutputStream out, long maxLength, long maxSafepoints) throws IOException {
+        if (maxLength <= 0 && maxSafepoints <= 0) {
+            throw new IllegalArgumentException("No size or safepoint limit.");
+        }
+        random = new SplittableRandom(seed);
+        header = ((layout == Layout.JDK11 ? HEADER_JDK11 : HEADER_JDK8) + "\n").getBytes(StandardCharsets.US_ASCII);
+        buffer = new byte[BUFFER_SIZE];
+        position = 0;
+        flushedLength = 0;
+        safepointCount = 0;
+        jvmRunCount = 0;
+        stormCount = 0;
+        timeWarpCount = 0;
+        unknownCount = 0;
+        initTriggers();
+        long jvmStartTime = startTime;
+        long timestamp = 0;
+        int stormRemaining = 0;
+        int stormTrigger = 0;
+        writeJvmRunStart(out, jvmStartTime);
+        while ((maxLength <= 0 || getLength() < maxLength)
+                && (maxSafepoints <= 0 || safepointCount < maxSafepoints)) {
+            if (restartInterval > 0 && stormRemaining == 0 && random.nextInt(restartInterval) == 0) {
+                writeJvmRunEnd(out, timestamp);
+                jvmStartTime = jvmStartTime + timestamp + RESTART_TIME;
+                timestamp = 0;
+                writeJvmRunStart(out, jvmStartTime);
+            }
+            if (unknownInterval > 0 && random.nextInt(unknownInterval) == 0) {
+                writeLine(out, "Unknown synthetic line " + unknownCount + " {" + random.nextInt() + "}");
+                unknownCount++;
+            }
+            int trigger;
+            long safepointTimestamp;
+            if (stormRemaining > 0) {
+                // A burst of one trigger, well over the default storm rate threshold
+                timestamp += 1 + random.nextInt(5);
+                trigger = stormTrigger;
+                stormRemaining--;
+                safepointTimestamp = timestamp;
+            } else {
+                long priorTimestamp = timestamp;
+                timestamp += 1 + random.nextInt(2 * meanInterval);
+                trigger = getTrigger();
+                safepointTimestamp = timestamp;
+                if (stormInterval > 0 && random.nextInt(stormInterval) == 0) {
+                    stormTrigger = trigger;
+                    stormRemaining = stormLength - 1;
+                    stormCount++;
+                } else if (timeWarpInterval > 0 && priorTimestamp > 2000 && random.nextInt(timeWarpInterval) == 0) {
+                    // Logged after a later safepoint, within the default reorder horizon
+                    safepointTimestamp = priorTimestamp - 1 - random.nextInt(2000);
+                    timeWarpCount++;
+                }
+            }
+            writeSafepoint(out, jvmStartTime, safepointTimestamp, trigger);
+        }
+        writeJvmRunEnd(out, timestamp);
+        flush(out);
+        out.flush();
+    }
+
+    /**
+     * Build the cumulative trigger weights.
+     */
+    private void initTriggers() {
+        triggers = new String[triggerWeights.size()];
+        triggerCumulativeWeights = new int[triggerWeights.size()];
+        int total = 0;
+        int i = 0;
+        Iterator<Map.Entry<String, Integer>> iterator = triggerWeights.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Integer> entry = iterator.next();
+            if (entry.getValue().intValue() <= 0) {
+                throw new IllegalArgumentException("Trigger weight not positive: " + entry.getKey());
+            }
+            total = total + entry.getValue().intValue();
+            triggers[i] = entry.getKey();
+            triggerCumulativeWeights[i] = total;
+            i++;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("No triggers.");
+        }
+    }
+
+    /**
+     * @return The index of a random trigger, by weight.
+     */
+    private int getTrigger() {
+        int weight = random.nextInt(triggerCumulativeWeights[triggerCumulativeWeights.length - 1]);
+        int i = 0;
+        while (triggerCumulativeWeights[i] <= weight) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @param trigger
+     *            The trigger literal.
+     * @return Whether the trigger is a garbage collection (longer pauses).
+     */
+    private static boolean isCollection(String trigger) {
+        return trigger.indexOf("Collect") >= 0 || trigger.indexOf("Pause") >= 0 || trigger.indexOf("GC") >= 0
+                || trigger.startsWith("CMS") || trigger.startsWith("Shenandoah");
+    }
+
+    /**
+     * @param out
+     *            The vm log output stream.
+     * @param jvmStartTime
+     *            The JVM start time (milliseconds since the epoch).
+     * @throws IOException
+     *             if the vm log cannot be written.
+     */
+    private void writeJvmRunStart(OutputStream out, long jvmStartTime) throws IOException {
+        jvmRunCount++;
+        jvmRunTriggerCounts = new long[triggers.length];
+        boolean jdk11 = layout == Layout.JDK11;
+        writeLine(out, "<?xml version='1.0' encoding='UTF-8'?>");
+        writeLine(out, "<hotspot_log version='160 1' process='" + (10000 + jvmRunCount) + "' time_ms='" + jvmStartTime
+                + "'>");
+        writeLine(out, "<vm_version>");
+        writeLine(out, "<name>");
+        writeLine(out, "OpenJDK 64-Bit Server VM");
+        writeLine(out, "</name>");
+        writeLine(out, "<release>");
+        writeLine(out, jdk11 ? "11.0.8+10-LTS" : "25.262-b10");
+        writeLine(out, "</release>");
+        writeLine(out, "<info>");
+        writeLine(out, jdk11
+                ? "OpenJDK 64-Bit Server VM (11.0.8+10-LTS) for linux-amd64 JRE (11.0.8+10-LTS), built on Jul 13 2020 "
+                        + "20:17:54 by \"mockbuild\" with gcc 4.8.5 20150623 (Red Hat 4.8.5-39)"
+                : "OpenJDK 64-Bit Server VM (25.262-b10) for linux-amd64 JRE (1.8.0_262-b10), built on Jul 12 2020 "
+                        + "18:55:08 by \"mockbuild\" with gcc 4.8.5 20150623 (Red Hat 4.8.5-39)");
+        writeLine(out, "</info>");
+        writeLine(out, "</vm_version>");
+        writeLine(out, "<vm_arguments>");
+        writeLine(out, "<args>");
+        writeLine(out, "-XX:+UnlockDiagnosticVMOptions -XX:+PrintSafepointStatistics "
+                + "-XX:PrintSafepointStatisticsCount=1 -XX:+LogVMOutput -XX:LogFile=vm.log -Xmx4g");
+        writeLine(out, "</args>");
+        writeLine(out, "<command>");
+        writeLine(out, "Main");
+        writeLine(out, "</command>");
+        writeLine(out, "<launcher>");
+        writeLine(out, "SUN_STANDARD");
+        writeLine(out, "</launcher>");
+        writeLine(out, "<properties>");
+        writeLine(out, "java.vm.specification.name=Java Virtual Machine Specification");
+        writeLine(out, "java.vm.version=" + (jdk11 ? "11.0.8+10-LTS" : "25.262-b10"));
+        writeLine(out, "java.vm.name=OpenJDK 64-Bit Server VM");
+        writeLine(out, "</properties>");
+        writeLine(out, "</vm_arguments>");
+        writeLine(out, "<tty>");
+    }
+
+    /**
+     * @param out
+     *            The vm log output stream.
+     * @param timestamp
+     *            The JVM run end time (milliseconds after JVM startup).
+     * @throws IOException
+     *             if the vm log cannot be written.
+     */
+    private void writeJvmRunEnd(OutputStream out, long timestamp) throws IOException {
+        // Footer stats
+        writeLine(out, "Polling page always armed");
+        for (int i = 0; i < triggers.length; i++) {
+            if (jvmRunTriggerCounts[i] > 0) {
+                ensure(out, MAX_LINE_LENGTH);
+                put(triggers[i]);
+                putNumber(jvmRunTriggerCounts[i], Math.max(2, 35 - triggers[i].length()));
+                put('\n');
+            }
+        }
+        writeLine(out, "    0 VM operations coalesced during safepoint");
+        writeLine(out, "Maximum sync time    100 ms");
+        writeLine(out, "Maximum vm operation time (except for Exit VM operation)   1000 ms");
+        ensure(out, MAX_LINE_LENGTH);
+        put("<destroy_vm stamp='");
+        putSecs(timestamp + 1);
+        put("'/>\n");
+        writeLine(out, "</tty>");
+        ensure(out, MAX_LINE_LENGTH);
+        put("<hotspot_log_done stamp='");
+        putSecs(timestamp + 10);
+        put("'/>\n");
+        writeLine(out, "</hotspot_log>");
+    }
+
+    /**
+     * @param out
+     *            The vm log output stream.
+     * @param jvmStartTime
+     *            The JVM start time (milliseconds since the epoch).
+     * @param timestamp
+     *            The safepoint timestamp (milliseconds after JVM startup).
+     * @param trigger
+     *            The trigger index.
+     * @throws IOException
+     *             if the vm log cannot be written.
+     */
+    private void writeSafepoint(OutputStream out, long jvmStartTime, long timestamp, int trigger) throws IOException {
+        String triggerLiteral = triggers[trigger];
+        int threads = 200 + random.nextInt(100);
+        int spinning = random.nextInt(20) == 0 ? random.nextInt(10) : 0;
+        int blocked = random.nextInt(10) == 0 ? random.nextInt(threads / 2) : random.nextInt(2);
+        // Time to safepoint is usually short, with a long tail
+        int spin = random.nextInt(50) == 0 ? random.nextInt(100) : 0;
+        int block = random.nextInt(50) == 0 ? random.nextInt(50) : random.nextInt(2);
+        int cleanup = random.nextInt(3);
+        int vmop;
+        if (isCollection(triggerLiteral)) {
+            vmop = random.nextInt(20) == 0 ? 50 + random.nextInt(950) : 5 + random.nextInt(45);
+        } else {
+            vmop = random.nextInt(100) == 0 ? random.nextInt(200) : random.nextInt(3);
+        }
+        int pageTraps = spinning > 0 ? random.nextInt(spinning + 1) : 0;
+
+        ensure(out, header.length + MAX_LINE_LENGTH);
+        System.arraycopy(header, 0, buffer, position, header.length);
+        position = position + header.length;
+        if (datestamps) {
+            putDatestamp(jvmStartTime + timestamp);
+            put(": ");
+        }
+        if (layout == Layout.JDK11) {
+            if (!datestamps) {
+                // Right aligned in 8 characters (e.g. "   3.339"), only parsed without a datestamp
+                pad(' ', 4 - getDigits(timestamp / 1000));
+            }
+            putSecs(timestamp);
+            put(": ");
+            put(triggerLiteral);
+            pad(' ', Math.max(1, 32 - triggerLiteral.length()));
+            put('[');
+            putNumber(threads, 18);
+            putNumber(spinning, 18);
+            putNumber(blocked, 14);
+            put(" ][");
+            putNumber(spin, 14);
+            putNumber(block, 8);
+            putNumber(spin + block, 8);
+            putNumber(cleanup, 8);
+            putNumber(vmop, 8);
+            put(" ]");
+            putNumber(pageTraps, 16);
+        } else {
+            putSecs(timestamp);
+            put(": ");
+            put(triggerLiteral);
+            pad(' ', Math.max(1, 33 - triggerLiteral.length()));
+            put('[');
+            putNumber(threads, 8);
+            putNumber(spinning, 11);
+            putNumber(blocked, 15);
+            put("    ]      [");
+            putNumber(spin, 6);
+            putNumber(block, 6);
+            putNumber(spin + block, 6);
+            putNumber(cleanup, 6);
+            putNumber(vmop, 6);
+            put("    ]  ");
+            putNumber(pageTraps, 1);
+        }
+        put('\n');
+        safepointCount++;
+        jvmRunTriggerCounts[trigger]++;
+    }
+
+    /**
+     * Flush the output buffer if it does not have room.
+     * 
+     * @param out
+     *            The vm log output stream.
+     * @param room
+     *            The number of bytes needed.
+     * @throws IOException
+     *             if the vm log cannot be written.
+     */
+    private void ensure(OutputStream out, int room) throws IOException {
+        if (position + room > buffer.length) {
+            flush(out);
+        }
+    }
+
+    /**
+     * Write the output buffer.
+     * 
+     * @param out
+     *            The vm log output stream.
+     * @throws IOException
+     *             if the vm log cannot be written.
+     */
+    private void flush(OutputStream out) throws IOException {
+        out.write(buffer, 0, position);
+        flushedLength = flushedLength + position;
+        position = 0;
+    }
+
+    /**
+     * @param out
+     *            The vm log output stream.
+     * @param logLine
+     *            The log line (ASCII).
+     * @throws IOException
+     *             if the vm log cannot be written.
+     */
+    private void writeLine(OutputStream out, String logLine) throws IOException {
+        ensure(out, logLine.length() + 1);
+        if (logLine.length() + 1 > buffer.length) {
+            throw new IllegalArgumentException("Log line longer than the buffer.");
+        }
+        put(logLine);
+        put('\n');
+    }
+
+    /**
+     * @param c
+     *            The character (ASCII).
+     */
+    private void put(char c) {
+        buffer[position++] = (byte) c;
+    }
+
+    /**
+     * @param s
+     *            The characters (ASCII).
+     */
+    private void put(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            buffer[position++] = (byte) s.charAt(i);
+        }
+    }
+
+    /**
+     * @param c
+     *            The padding character.
+     * @param count
+     *            The number of characters.
+     */
+    private void pad(char c, int count) {
+        for (int i = 0; i < count; i++) {
+            put(c);
+        }
+    }
+
+    /**
+     * @param value
+     *            The number (not negative).
+     * @return The number of decimal digits.
+     */
+    private static int getDigits(long value) {
+        int digits = 1;
+        for (long v = value; v >= 10; v = v / 10) {
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * Put a number right aligned in the given width.
+     * 
+     * @param value
+     *            The number (not negative).
+     * @param width
+     *            The width.
+     */
+    private void putNumber(long value, int width) {
+        int digits = getDigits(value);
+        for (int i = digits; i < width; i++) {
+            put(' ');
+        }
+        putDigits(value, digits);
+    }
+
+    /**
+     * @param value
+     *            The number (not negative).
+     * @param digits
+     *            The number of digits, zero padded.
+     */
+    private void putDigits(long value, int digits) {
+        long v = value;
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + v % 10);
+            v = v / 10;
+        }
+        position = position + digits;
+    }
+
+    /**
+     * Put a timestamp in seconds with 3 decimals (e.g. 12.345).
+     * 
+     * @param timestamp
+     *            The time in milliseconds.
+     */
+    private void putSecs(long timestamp) {
+        putDigits(timestamp / 1000, getDigits(timestamp / 1000));
+        put('.');
+        putDigits(timestamp % 1000, 3);
+    }
+
+    /**
+     * Put a UTC datestamp (e.g. 2020-09-01T16:59:37.623+0000).
+     * 
+     * @param time
+     *            The time (milliseconds since the epoch).
+     */
+    private void putDatestamp(long time) {
+        long day = Math.floorDiv(time, DAY);
+        if (day != datestampDay) {
+            datestampDay = day;
+            datestampDate = getDate(day);
+        }
+        long millis = Math.floorMod(time, DAY);
+        put(datestampDate);
+        put('T');
+        putDigits(millis / 3600000, 2);
+        put(':');
+        putDigits(millis / 60000 % 60, 2);
+        put(':');
+        putDigits(millis / 1000 % 60, 2);
+        put('.');
+        putDigits(millis % 1000, 3);
+        put("+0000");
+    }
+
+    /**
+     * Convert an epoch day to a date (the "civil from days" algorithm).
+     * 
+     * @param epochDay
+     *            The number of days since 1970-01-01.
+     * @return The date (yyyy-MM-dd).
+     */
+    static String getDate(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return String.format("%04d-%02d-%02d", year, month, day);
+    }
+
+    /**
+     * @param size
+     *            A size in bytes, with an optional K, M or G suffix (e.g. 10G).
+     * @return The size in bytes.
+     */
+    static long parseSize(String size) {
+        char unit = Character.toUpperCase(size.charAt(size.length() - 1));
+        long multiplier = 1;
+        if (unit == 'K') {
+            multiplier = 1024L;
+        } else if (unit == 'M') {
+            multiplier = 1024L * 1024;
+        } else if (unit == 'G') {
+            multiplier = 1024L * 1024 * 1024;
+        }
+        String number = multiplier == 1 ? size : size.substring(0, size.length() - 1);
+        return Long.parseLong(number) * multiplier;
+    }
+
+    /**
+     * @param triggers
+     *            Trigger weights (e.g. RevokeBias=3,G1IncCollectionPause=1).
+     * @return The trigger literals and weights.
+     */
+    static Map<String, Integer> parseTriggerWeights(String triggers) {
+        Map<String, Integer> triggerWeights = new LinkedHashMap<String, Integer>();
+        String[] entries = triggers.split(",");
+        for (int i = 0; i < entries.length; i++) {
+            int index = entries[i].lastIndexOf('=');
+            if (index < 0) {
+                triggerWeights.put(entries[i].trim(), Integer.valueOf(1));
+            } else {
+                triggerWeights.put(entries[i].substring(0, index).trim(),
+                        Integer.valueOf(entries[i].substring(index + 1).trim()));
+            }
+        }
+        return triggerWeights;
+    }
+
+    /**
+     * @param args
+     *            The command line arguments.
+     * @throws IOException
+     *             if the vm log cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        Options options = new Options();
+        options.addOption(null, "size", true, "vm log size in bytes, with optional K, M or G suffix (e.g. 10G)");
+        options.addOption(null, "safepoints", true, "number of safepoints");
+        options.addOption(null, "layout", true, "safepoint layout: jdk8 (default) or jdk11");
+        options.addOption(null, "seed", true, "random seed (default 1)");
+        options.addOption(null, "triggers", true, "trigger weights (e.g. RevokeBias=3,G1IncCollectionPause=1)");
+        options.addOption(null, "interval", true, "mean milliseconds between safepoints (default 500)");
+        options.addOption(null, "storms", true, "mean safepoints between storms (default none)");
+        options.addOption(null, "storm-length", true, "safepoints in a storm (default 300)");
+        options.addOption(null, "warps", true, "mean safepoints between time warps (default none)");
+        options.addOption(null, "restarts", true, "mean safepoints between JVM restarts (default none)");
+        options.addOption(null, "unknown", true, "mean safepoints between unknown lines (default none)");
+        options.addOption(null, "datestamps", false, "datestamp safepoint lines");
+        CommandLine cmd = null;
+        try {
+            cmd = new BasicParser().parse(options, args);
+            if (cmd.getArgs().length != 1 || (!cmd.hasOption("size") && !cmd.hasOption("safepoints"))) {
+                throw new ParseException("A file and a size or number of safepoints are required.");
+            }
+        } catch (ParseException e) {
+            System.err.println(e.getMessage());
+            new HelpFormatter().printHelp("VmLogGenerator --size SIZE|--safepoints N [OPTION]... FILE", options);
+            System.exit(1);
+        }
+        VmLogGenerator generator = new VmLogGenerator();
+        if (cmd.hasOption("layout")) {
+            generator.setLayout(Layout.valueOf(cmd.getOptionValue("layout").toUpperCase()));
+        }
+        if (cmd.hasOption("seed")) {
+            generator.setSeed(Long.parseLong(cmd.getOptionValue("seed")));
+        }
+        if (cmd.hasOption("triggers")) {
+            generator.setTriggerWeights(parseTriggerWeights(cmd.getOptionValue("triggers")));
+        }
+        if (cmd.hasOption("interval")) {
+            generator.setMeanInterval(Integer.parseInt(cmd.getOptionValue("interval")));
+        }
+        if (cmd.hasOption("storms")) {
+            generator.setStormInterval(Integer.parseInt(cmd.getOptionValue("storms")));
+        }
+        if (cmd.hasOption("storm-length")) {
+            generator.setStormLength(Integer.parseInt(cmd.getOptionValue("storm-length")));
+        }
+        if (cmd.hasOption("warps")) {
+            generator.setTimeWarpInterval(Integer.parseInt(cmd.getOptionValue("warps")));
+        }
+        if (cmd.hasOption("restarts")) {
+            generator.setRestartInterval(Integer.parseInt(cmd.getOptionValue("restarts")));
+        }
+        if (cmd.hasOption("unknown")) {
+            generator.setUnknownInterval(Integer.parseInt(cmd.getOptionValue("unknown")));
+        }
+        generator.setDatestamps(cmd.hasOption("datestamps"));
+        long maxLength = cmd.hasOption("size") ? parseSize(cmd.getOptionValue("size")) : 0;
+        long maxSafepoints = cmd.hasOption("safepoints") ? Long.parseLong(cmd.getOptionValue("safepoints")) : 0;
+        long start = System.nanoTime();
+        OutputStream out = new FileOutputStream(cmd.getArgs()[0]);
+        try {
+            generator.write(out, maxLength, maxSafepoints);
+        } finally {
+            out.close();
+        }
+        long millis = Math.max(1, (System.nanoTime() - start) / 1000000);
+        System.out.println(cmd.getArgs()[0] + ": " + generator.getLength() + " bytes, " + generator.getSafepointCount()
+                + " safepoints, " + generator.getJvmRunCount() + " JVM runs, " + generator.getStormCount()
+                + " storms, " + generator.getTimeWarpCount() + " time warps, " + generator.getUnknownCount()
+                + " unknown lines in " + millis + " ms (" + generator.getLength() / 1024 / millis * 1000 / 1024
+                + " MB/s)");
+    }
+}
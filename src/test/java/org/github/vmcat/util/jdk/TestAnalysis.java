@@ -60,4 +60,25 @@ public class TestAnalysis extends TestCase {
 
     }
 
-}
\ No newline at end of file
+    public void testTimeToSafepoint() {
+        File testFile = new File(Constants.TEST_DATA_DIR + "dataset11.txt");
+        Manager manager = new Manager();
+        manager.store(testFile);
+        JvmRun jvmRun = manager.getJvmRun(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        Assert.assertTrue(Analysis.WARN_TTSP_DOMINANT + " analysis not identified.",
+                jvmRun.getAnalysis().contains(Analysis.WARN_TTSP_DOMINANT));
+        Assert.assertTrue(Analysis.WARN_TTSP_LONG + " analysis not identified.",
+                jvmRun.getAnalysis().contains(Analysis.WARN_TTSP_LONG));
+    }
+
+    public void testTimeToSafepointNotDominant() {
+        File testFile = new File(Constants.TEST_DATA_DIR + "dataset9.txt");
+        Manager manager = new Manager();
+        manager.store(testFile);
+        JvmRun jvmRun = manager.getJvmRun(new Jvm(), Constants.DEFAULT_BOTTLENECK_THROUGHPUT_THRESHOLD);
+        Assert.assertFalse(Analysis.WARN_TTSP_DOMINANT + " analysis incorrectly identified.",
+                jvmRun.getAnalysis().contains(Analysis.WARN_TTSP_DOMINANT));
+        Assert.assertFalse(Analysis.WARN_TTSP_LONG + " analysis incorrectly identified.",
+                jvmRun.getAnalysis().contains(Analysis.WARN_TTSP_LONG));
+    }
+}
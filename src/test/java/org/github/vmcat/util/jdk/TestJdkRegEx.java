@@ -89,4 +89,19 @@ public class TestJdkRegEx extends TestCase {
         String threads = "12345678";
         Assert.assertTrue("'" + threads + "' " + "not a valid number of threads.", threads.matches(JdkRegEx.NUMBER));
     }
+
+    public void testThreadBlock() {
+        String block = "[    2404          0              1    ]";
+        Assert.assertTrue("'" + block + "' " + "not a valid thread block.", block.matches(JdkRegEx.THREAD_BLOCK));
+    }
+
+    public void testThreadBlockJdk11() {
+        // wait_to_block right aligned in a 14 character column
+        String block = "[               286                 4             1 ]";
+        Assert.assertTrue("'" + block + "' " + "not a valid thread block.", block.matches(JdkRegEx.THREAD_BLOCK));
+        block = "[               286                 4           118 ]";
+        Assert.assertTrue("'" + block + "' " + "not a valid thread block.", block.matches(JdkRegEx.THREAD_BLOCK));
+        block = "[               286                 4          1180 ]";
+        Assert.assertTrue("'" + block + "' " + "not a valid thread block.", block.matches(JdkRegEx.THREAD_BLOCK));
+    }
 }
@@ -14,10 +14,17 @@
  *********************************************************************************************************************/
 package org.github.vmcat.util.jdk;
 
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.Date;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.github.vmcat.domain.TimeWarpException;
 import org.github.vmcat.domain.jdk.SafepointEvent;
+import org.github.vmcat.util.VmUtil;
 import org.junit.Assert;
 
 import junit.framework.TestCase;
@@ -170,4 +177,88 @@ public class TestJdkUtil extends TestCase {
                 JdkUtil.getDateStamp(logLine));
     }
 
+    public void testConvertLogEntryNoTimestamp() {
+        String logLine = "vmop                    [threads: total initially_running wait_to_block]";
+        Assert.assertSame("Log entry without timestamp not returned.", logLine,
+                JdkUtil.convertLogEntryTimestampsToDateStamp(logLine, Calendar.getInstance().getTime()));
+    }
+
+    public void testTimestampMillis() {
+        String[] timestamps = { "0.000", ".001", "20.189", "20,189", "1617.723", "999999999999.999" };
+        for (int i = 0; i < timestamps.length; i++) {
+            Assert.assertEquals("Timestamp not converted correctly: " + timestamps[i],
+                    JdkMath.convertSecsToMillis(timestamps[i]).longValue(),
+                    JdkUtil.getTimestampMillis(": " + timestamps[i], 2, timestamps[i].length() + 2));
+        }
+    }
+
+    public void testConvertLogEntryTimestampsSameAsRegEx() {
+        Date start = new Date(0);
+        String[] logLines = { "1.234: : 5.678: x", "1234567890123.456: RevokeBias", "x12.345: 6.789 7.890: ",
+                "12.3456: 1,234: 2.34: .123: ", "2017-01-30T10:06:50.070+0400: 6.357: RevokeBias",
+                "6.357:RevokeBias 6.357 :", "12.345: ", ": 1.234: 12.345: 0.000: ", "a.123: b,456: c" };
+        for (int i = 0; i < logLines.length; i++) {
+            Assert.assertEquals("Timestamps not converted correctly: " + logLines[i],
+                    convertLogEntryTimestampsToDateStamp(logLines[i], start),
+                    JdkUtil.convertLogEntryTimestampsToDateStamp(logLines[i], start));
+        }
+        // Random log lines of timestamp characters
+        Random random = new Random(1);
+        char[] chars = { '0', '1', '.', ',', ':', ' ' };
+        for (int i = 0; i < 50000; i++) {
+            char[] logLine = new char[random.nextInt(40)];
+            for (int j = 0; j < logLine.length; j++) {
+                logLine[j] = chars[random.nextInt(chars.length)];
+            }
+            String logEntry = new String(logLine);
+            Assert.assertEquals("Timestamps not converted correctly: " + logEntry,
+                    convertLogEntryTimestampsToDateStamp(logEntry, start),
+                    JdkUtil.convertLogEntryTimestampsToDateStamp(logEntry, start));
+        }
+    }
+
+    public void testDateStampMillis() throws ParseException {
+        Assert.assertEquals("Datestamp not converted correctly.", 1485756410070L,
+                JdkUtil.getDateStampMillis("2017-01-30T10:06:50.070+0400"));
+        Assert.assertEquals("Offset not correct.", -(5 * 60 + 30) * 60 * 1000,
+                JdkUtil.getDateStampOffset("2017-01-30T10:06:50.070-0530"));
+        Assert.assertEquals("Leap day not converted correctly.", 951782400000L,
+                JdkUtil.getDateStampMillis("2000-02-29T00:00:00.000+0000"));
+        SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+        formatter.setLenient(false);
+        Random random = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            // Random dates and offsets from 1900 to 2100
+            String datestamp = String.format("%04d-%02d-%02dT%02d:%02d:%02d.%03d%s%02d%02d", 1900 + random.nextInt(200),
+                    1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(24), random.nextInt(60),
+                    random.nextInt(60), random.nextInt(1000), random.nextBoolean() ? "+" : "-", random.nextInt(13),
+                    random.nextInt(4) * 15);
+            Assert.assertEquals("Datestamp not converted correctly: " + datestamp,
+                    formatter.parse(datestamp).getTime(), JdkUtil.getDateStampMillis(datestamp));
+        }
+    }
+
+    public void testEpochDay() {
+        Assert.assertEquals("Epoch day not correct.", 0, JdkUtil.getEpochDay(1970, 1, 1));
+        Assert.assertEquals("Epoch day not correct.", -1, JdkUtil.getEpochDay(1969, 12, 31));
+        Assert.assertEquals("Epoch day not correct.", 11016, JdkUtil.getEpochDay(2000, 2, 29));
+        Assert.assertEquals("Epoch day not correct.", 11017, JdkUtil.getEpochDay(2000, 3, 1));
+    }
+
+    /**
+     * The regular expression implementation of <code>JdkUtil.convertLogEntryTimestampsToDateStamp</code>.
+     */
+    private static String convertLogEntryTimestampsToDateStamp(String logEntry, Date jvmStartDate) {
+        Pattern pattern = Pattern.compile(JdkRegEx.TIMESTAMP + "(: )");
+        Matcher matcher = pattern.matcher(logEntry);
+        StringBuffer sb = new StringBuffer();
+        while (matcher.find()) {
+            Date date = VmUtil.getDatePlusTimestamp(jvmStartDate,
+                    JdkMath.convertSecsToMillis(matcher.group(1)).longValue());
+            SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss,SSS");
+            matcher.appendReplacement(sb, formatter.format(date) + matcher.group(2));
+        }
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
 }
@@ -46,4 +46,30 @@ public class TestSafepoint extends TestCase {
             }
         }
     }
+
+    public void testSyncVmopRatio() {
+        Assert.assertEquals("No sync not identified.", Safepoint.SyncVmopRatio.NO_SYNC,
+                Safepoint.identifySyncVmopRatio(0, 10));
+        Assert.assertEquals("Sync < 0.1 vmop not identified.", Safepoint.SyncVmopRatio.LT_0_1,
+                Safepoint.identifySyncVmopRatio(1, 11));
+        Assert.assertEquals("Sync 0.1 - 1 vmop not identified.", Safepoint.SyncVmopRatio.LT_1,
+                Safepoint.identifySyncVmopRatio(1, 10));
+        Assert.assertEquals("Sync 1 - 10 vmop not identified.", Safepoint.SyncVmopRatio.LT_10,
+                Safepoint.identifySyncVmopRatio(10, 10));
+        Assert.assertEquals("Sync >= 10 vmop not identified.", Safepoint.SyncVmopRatio.GE_10,
+                Safepoint.identifySyncVmopRatio(100, 10));
+        Assert.assertEquals("Sync with no vmop not identified.", Safepoint.SyncVmopRatio.GE_10,
+                Safepoint.identifySyncVmopRatio(1, 0));
+    }
+
+    public void testSyncVmopRatioLiteral() {
+        Safepoint.SyncVmopRatio[] ratios = Safepoint.SyncVmopRatio.values();
+        for (int i = 0; i < ratios.length; i++) {
+            try {
+                Safepoint.getSyncVmopRatioLiteral(ratios[i]);
+            } catch (AssertionError e) {
+                Assert.fail(ratios[i].name() + " literal not found.");
+            }
+        }
+    }
 }